@@ -121,6 +121,26 @@ public class Parameters {
         return def;
     }
 
+    /**
+     * Searches for the value with the specified key.
+     * If the key has no long value <code>def</code> is returned.
+     *
+     * @param   key   The key we want a value for.
+     * @param   def   The default value we get if we have no String value.
+     * @return  The value for the specified key value.
+     */
+    public long getLong(final String key, final long def) {
+        final Object oval = map.get(key);
+        if (oval instanceof String) {
+            try {
+                return Long.parseLong(oval.toString().trim());
+            } catch (NumberFormatException ex) {
+                // ignore
+            }
+        }
+        return def;
+    }
+
     /**
      * Searches for the value with the specified key.
      * If the key has no boolean value <code>false</code> is returned.
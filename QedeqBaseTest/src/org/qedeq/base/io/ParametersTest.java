@@ -136,6 +136,19 @@ public class ParametersTest extends QedeqTestCase {
         assertEquals(11, object6.getInt("hom", 11));
     }
 
+    public void testGetLongStandard() {
+        assertEquals(9, object1.getLong("hello", 9));
+        assertEquals(7, object2.getLong("hello", 0));
+        assertEquals(5, object2.getLong("holly", 5));
+        assertEquals(12345678901L, object3.getLong("hint", 12345678901L));
+        assertEquals(Integer.MAX_VALUE, object3.getLong("hilt", 0));
+        assertEquals(12, object5.getLong("hom", 0));
+        assertEquals(-13, object5.getLong("she", 0));
+        final Map map = new HashMap();
+        map.put("big", " 4294967296 ");
+        assertEquals(4294967296L, new Parameters(map).getLong("big", 0));
+    }
+
     public void testGetString() {
         assertEquals("", object1.getString("hello"));
         assertEquals("", object2.getString("holly"));
@@ -0,0 +1,35 @@
+/* This file is part of the project "Hilbert II" - http://www.qedeq.org
+ *
+ * Copyright 2000-2014,  Michael Meyling <mime@qedeq.org>.
+ *
+ * "Hilbert II" is free software; you can redistribute
+ * it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ */
+
+package org.qedeq.kernel.bo.logic;
+
+import org.qedeq.kernel.bo.logic.proof.common.ProofFinder;
+import org.qedeq.kernel.bo.logic.proof.common.ProofFinderFactory;
+import org.qedeq.kernel.bo.logic.proof.finder.ParallelProofFinderImpl;
+
+
+
+/**
+ * Factory implementation for {@link ProofFinder}s that use several threads.
+ *
+ * @author  Michael Meyling
+ */
+public class ParallelProofFinderFactoryImpl implements ProofFinderFactory {
+
+    public ProofFinder createProofFinder() {
+        return new ParallelProofFinderImpl();
+    }
+
+}
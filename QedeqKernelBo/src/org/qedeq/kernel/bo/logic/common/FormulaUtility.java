@@ -15,6 +15,11 @@
 
 package org.qedeq.kernel.bo.logic.common;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
 import org.qedeq.base.utility.Enumerator;
 import org.qedeq.base.utility.EqualsUtility;
 import org.qedeq.kernel.se.base.list.Atom;
@@ -32,6 +37,13 @@ import org.qedeq.kernel.se.dto.list.ElementSet;
  */
 public final class FormulaUtility implements Operators {
 
+    /** Orders elements by their string representation. */
+    private static final Comparator ELEMENT_COMPARATOR = new Comparator() {
+        public int compare(final Object o1, final Object o2) {
+            return o1.toString().compareTo(o2.toString());
+        }
+    };
+
     /**
      * Constructor.
      *
@@ -267,6 +279,33 @@ public final class FormulaUtility implements Operators {
         return all;
     }
 
+    /**
+     * Return all function variables of an element. The arguments are normalized to subject
+     * variables "x_1", "x_2" and so on.
+     *
+     * @param   element    Work on this element.
+     * @return  All function variables of that formula.
+     */
+    public static final ElementSet getFunctionVariables(final Element element) {
+        final ElementSet all = new ElementSet();
+        if (isFunctionVariable(element)) {
+            final ElementList fun = element.getList();
+            final DefaultElementList normalized = new DefaultElementList(fun.getOperator());
+            normalized.add(fun.getElement(0));
+            for (int i = 1; i < fun.size(); i++) {
+                normalized.add(createSubjectVariable("x_" + i));
+                all.union(getFunctionVariables(fun.getElement(i)));
+            }
+            all.add(normalized);
+        } else if (element.isList()) {
+            final ElementList list = element.getList();
+            for (int i = 0; i < list.size(); i++) {
+                all.union(getFunctionVariables(list.getElement(i)));
+            }
+        }
+        return all;
+    }
+
     /**
      * Return all proposition variables of an element. That are predicate variables with
      * arity zero.
@@ -287,6 +326,170 @@ public final class FormulaUtility implements Operators {
         return all;
     }
 
+    /**
+     * Return all proposition variables of an element in the order of their first occurrence.
+     *
+     * @param   element    Work on this element.
+     * @return  All proposition variables of that formula. Elements are of type
+     *          {@link Element}.
+     */
+    public static final List getPropositionVariablesInOrder(final Element element) {
+        final List result = new ArrayList();
+        addPropositionVariables(element, result);
+        return result;
+    }
+
+    /**
+     * Add all proposition variables of an element that are not already in the given list.
+     *
+     * @param   element    Work on this element.
+     * @param   vars       Add to this list.
+     */
+    private static void addPropositionVariables(final Element element, final List vars) {
+        if (isPropositionVariable(element)) {
+            if (!vars.contains(element)) {
+                vars.add(element);
+            }
+        } else if (element.isList()) {
+            final ElementList list = element.getList();
+            for (int i = 0; i < list.size(); i++) {
+                addPropositionVariables(list.getElement(i), vars);
+            }
+        }
+    }
+
+    /**
+     * Get canonical form of an element. All proposition variables are renamed to "1", "2" and
+     * so on in the order of their first occurrence. Two elements have the same canonical form
+     * iff one of them can be transformed into the other by renaming its proposition variables.
+     * The renaming maps the results of {@link #getPropositionVariablesInOrder(Element)} onto
+     * each other.
+     *
+     * @param   element    Work on this element.
+     * @return  Canonical form.
+     */
+    public static final Element getCanonicalForm(final Element element) {
+        return getCanonicalForm(element, new ArrayList());
+    }
+
+    /**
+     * Get canonical form of an element.
+     *
+     * @param   element    Work on this element.
+     * @param   vars       Proposition variables found so far in order of their first
+     *                     occurrence.
+     * @return  Canonical form.
+     */
+    private static Element getCanonicalForm(final Element element, final List vars) {
+        if (isPropositionVariable(element)) {
+            int i = vars.indexOf(element);
+            if (i < 0) {
+                vars.add(element);
+                i = vars.size() - 1;
+            }
+            return createPredicateVariable(String.valueOf(i + 1));
+        }
+        if (element.isAtom()) {
+            return element;
+        }
+        final ElementList list = element.getList();
+        final ElementList result = new DefaultElementList(list.getOperator());
+        for (int i = 0; i < list.size(); i++) {
+            result.add(getCanonicalForm(list.getElement(i), vars));
+        }
+        return result;
+    }
+
+    /**
+     * Get form of an element where the arguments of conjunctions, disjunctions, equivalences,
+     * negations and the premises of implications are sorted. Two formulas with the same sorted
+     * form have the same truth value.
+     *
+     * @param   element    Work on this element.
+     * @return  Sorted form.
+     */
+    public static final Element getSortedForm(final Element element) {
+        if (element.isAtom()) {
+            return element;
+        }
+        final ElementList list = element.getList();
+        final Element[] args = new Element[list.size()];
+        for (int i = 0; i < args.length; i++) {
+            args[i] = getSortedForm(list.getElement(i));
+        }
+        final String op = list.getOperator();
+        int sorted = 0;
+        if (CONJUNCTION_OPERATOR.equals(op) || DISJUNCTION_OPERATOR.equals(op)
+                || EQUIVALENCE_OPERATOR.equals(op) || NEGATION_OPERATOR.equals(op)) {
+            sorted = args.length;
+        } else if (IMPLICATION_OPERATOR.equals(op)) {
+            sorted = args.length - 1;
+        }
+        if (sorted > 1) {
+            Arrays.sort(args, 0, sorted, ELEMENT_COMPARATOR);
+        }
+        return new DefaultElementList(op, args);
+    }
+
+    /**
+     * Are two variables interchangeable within an element? This is the case if swapping
+     * all occurrences of both variables gives an element with the same sorted form.
+     * See {@link #getSortedForm(Element)}.
+     *
+     * @param   element    Work on this element.
+     * @param   first      Subject, predicate or function variable. For predicate and function
+     *                     variables only the number of arguments is looked at.
+     * @param   second     Variable of same kind and with same number of arguments.
+     * @return  Does swapping give the same sorted form?
+     */
+    public static final boolean isInterchangeable(final Element element, final Element first,
+            final Element second) {
+        return getSortedForm(element).equals(getSortedForm(swapVariables(element,
+            first.getList(), second.getList())));
+    }
+
+    /**
+     * Swap all occurrences of two variables.
+     *
+     * @param   element    Work on this element.
+     * @param   first      Subject, predicate or function variable.
+     * @param   second     Variable of same kind and with same number of arguments.
+     * @return  Element with swapped variables.
+     */
+    private static Element swapVariables(final Element element, final ElementList first,
+            final ElementList second) {
+        if (element.isAtom()) {
+            return element;
+        }
+        final ElementList list = element.getList();
+        final DefaultElementList result = new DefaultElementList(list.getOperator());
+        int start = 0;
+        if (isSameVariable(list, first)) {
+            result.add(second.getElement(0));
+            start = 1;
+        } else if (isSameVariable(list, second)) {
+            result.add(first.getElement(0));
+            start = 1;
+        }
+        for (int i = start; i < list.size(); i++) {
+            result.add(swapVariables(list.getElement(i), first, second));
+        }
+        return result;
+    }
+
+    /**
+     * Is the list an occurrence of the variable?
+     *
+     * @param   list       Check this list.
+     * @param   var        Subject, predicate or function variable.
+     * @return  Same operator, same name and same number of arguments?
+     */
+    private static boolean isSameVariable(final ElementList list, final ElementList var) {
+        return list.size() > 0 && list.size() == var.size()
+            && list.getOperator().equals(var.getOperator())
+            && list.getElement(0).equals(var.getElement(0));
+    }
+
     /**
      * Return all part formulas of an element.
      *
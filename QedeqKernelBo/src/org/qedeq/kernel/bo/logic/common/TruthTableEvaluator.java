@@ -0,0 +1,339 @@
+/* This file is part of the project "Hilbert II" - http://www.qedeq.org
+ *
+ * Copyright 2000-2014,  Michael Meyling <mime@qedeq.org>.
+ *
+ * "Hilbert II" is free software; you can redistribute
+ * it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ */
+
+package org.qedeq.kernel.bo.logic.common;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.qedeq.kernel.se.base.list.Element;
+import org.qedeq.kernel.se.base.list.ElementList;
+
+
+/**
+ * Evaluates the truth table of a formula. Only the propositional structure of the formula
+ * is looked at: proposition variables and all part formulas that don't start with a
+ * propositional operator (e.g. quantified formulas, predicates) are taken as atoms.
+ * So a formula is a propositional tautology if it is true for all truth values of its atoms.
+ * <p>
+ * 64 rows of the truth table are evaluated at once by using the bits of a <code>long</code>.
+ * The formula is compiled once into a flat postfix program of operator codes and atom
+ * numbers, so the evaluation of each 64 rows doesn't have to look at the formula again.
+ *
+ * @author  Michael Meyling
+ */
+public final class TruthTableEvaluator {
+
+    /** Maximum number of atoms we evaluate. */
+    public static final int MAXIMUM_ATOMS = 24;
+
+    /** Bit patterns for the first six atoms within 64 truth table rows. */
+    private static final long[] PATTERN = {
+        0xAAAAAAAAAAAAAAAAL,
+        0xCCCCCCCCCCCCCCCCL,
+        0xF0F0F0F0F0F0F0F0L,
+        0xFF00FF00FF00FF00L,
+        0xFFFF0000FFFF0000L,
+        0xFFFFFFFF00000000L,
+    };
+
+    /** Program code: push atom value. */
+    private static final int ATOM = 0;
+
+    /** Program code: conjunction. */
+    private static final int AND = 1;
+
+    /** Program code: disjunction. */
+    private static final int OR = 2;
+
+    /** Program code: equivalence. */
+    private static final int EQUI = 3;
+
+    /** Program code: implication. */
+    private static final int IMPL = 4;
+
+    /** Program code: negation. */
+    private static final int NOT = 5;
+
+    /** Atoms of formula in order of their first occurrence. Elements are of type
+     * {@link Element}. */
+    private final List atoms = new ArrayList();
+
+    /** Program codes of formula in postfix order. */
+    private final int[] codes;
+
+    /** For {@link #ATOM} the atom number, for operators the number of arguments. */
+    private final int[] arguments;
+
+    /** Maximum stack size needed for evaluation. */
+    private final int depth;
+
+    /**
+     * Constructor.
+     *
+     * @param   formula Formula to evaluate.
+     */
+    public TruthTableEvaluator(final Element formula) {
+        final Compiler compiler = new Compiler();
+        compiler.compile(formula, 0);
+        codes = compiler.codes.toIntArray();
+        arguments = compiler.arguments.toIntArray();
+        depth = compiler.depth;
+    }
+
+    /**
+     * Get number of different atoms of formula.
+     *
+     * @return  Number of atoms.
+     */
+    public int getAtomNumber() {
+        return atoms.size();
+    }
+
+    /**
+     * Get all different atoms of formula.
+     *
+     * @return  Atoms in order of their first occurrence. Elements are of type {@link Element}.
+     */
+    public List getAtoms() {
+        return Collections.unmodifiableList(atoms);
+    }
+
+    /**
+     * Is the formula true for every truth value combination of its atoms?
+     *
+     * @return  Is the formula a propositional tautology?
+     * @throws  IllegalStateException   The formula has more than {@link #MAXIMUM_ATOMS} atoms.
+     */
+    public boolean isTautology() {
+        if (atoms.size() > MAXIMUM_ATOMS) {
+            throw new IllegalStateException("too many atoms: " + atoms.size());
+        }
+        final long mask = (atoms.size() >= 6 ? -1L : (1L << (1 << atoms.size())) - 1);
+        final int words = (atoms.size() > 6 ? 1 << (atoms.size() - 6) : 1);
+        final long[] stack = new long[depth];
+        for (int w = 0; w < words; w++) {
+            if ((evaluate(stack, w) & mask) != mask) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Consists the formula only of proposition variables and propositional operators?
+     * Then the truth table decides if the formula is true in a model that interprets
+     * proposition variables by both truth values.
+     *
+     * @param   element Check this formula.
+     * @return  Are all atoms proposition variables?
+     */
+    public static boolean hasOnlyPropositionVariables(final Element element) {
+        if (!isPropositional(element)) {
+            return FormulaUtility.isPropositionVariable(element);
+        }
+        final ElementList list = element.getList();
+        for (int i = 0; i < list.size(); i++) {
+            if (!hasOnlyPropositionVariables(list.getElement(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Calculate 64 rows of the truth table by running the compiled program.
+     *
+     * @param   stack   Evaluation stack. Must have at least {@link #depth} entries.
+     * @param   word    Calculate rows 64 * <code>word</code> up to 64 * <code>word</code> + 63.
+     * @return  Truth values for these rows.
+     */
+    private long evaluate(final long[] stack, final int word) {
+        int top = 0;
+        for (int i = 0; i < codes.length; i++) {
+            final int n = arguments[i];
+            if (codes[i] == ATOM) {
+                if (n < 6) {
+                    stack[top++] = PATTERN[n];
+                } else {
+                    stack[top++] = (((word >> (n - 6)) & 1) != 0 ? -1L : 0L);
+                }
+                continue;
+            }
+            final int first = top - n;
+            long result;
+            switch (codes[i]) {
+            case AND:
+                result = -1L;
+                for (int j = first; j < top; j++) {
+                    result &= stack[j];
+                }
+                break;
+            case OR:
+                result = 0L;
+                for (int j = first; j < top; j++) {
+                    result |= stack[j];
+                }
+                break;
+            case EQUI:
+                result = -1L;
+                for (int j = first + 1; j < top; j++) {
+                    result &= ~(stack[first] ^ stack[j]);
+                }
+                break;
+            case IMPL:
+                result = 0L;
+                for (int j = first; j < top; j++) {
+                    result |= (j < top - 1 ? ~stack[j] : stack[j]);
+                }
+                break;
+            default:    // negation
+                result = -1L;
+                for (int j = first; j < top; j++) {
+                    result &= ~stack[j];
+                }
+                break;
+            }
+            top = first;
+            stack[top++] = result;
+        }
+        return stack[0];
+    }
+
+    /**
+     * Get program code for a propositional operator.
+     *
+     * @param   op  Operator.
+     * @return  Program code.
+     */
+    private static int getCode(final String op) {
+        if (Operators.CONJUNCTION_OPERATOR.equals(op)) {
+            return AND;
+        } else if (Operators.DISJUNCTION_OPERATOR.equals(op)) {
+            return OR;
+        } else if (Operators.EQUIVALENCE_OPERATOR.equals(op)) {
+            return EQUI;
+        } else if (Operators.IMPLICATION_OPERATOR.equals(op)) {
+            return IMPL;
+        }
+        return NOT;
+    }
+
+    /**
+     * Has the element a propositional operator?
+     *
+     * @param   element    Check this element.
+     * @return  Starts it with a propositional operator?
+     */
+    private static boolean isPropositional(final Element element) {
+        if (!element.isList()) {
+            return false;
+        }
+        final String op = element.getList().getOperator();
+        return Operators.CONJUNCTION_OPERATOR.equals(op)
+            || Operators.DISJUNCTION_OPERATOR.equals(op)
+            || Operators.EQUIVALENCE_OPERATOR.equals(op)
+            || Operators.IMPLICATION_OPERATOR.equals(op)
+            || Operators.NEGATION_OPERATOR.equals(op);
+    }
+
+    /**
+     * Compiles a formula into a postfix program and collects its atoms.
+     */
+    private final class Compiler {
+
+        /** Program codes. */
+        private final IntList codes = new IntList();
+
+        /** Atom numbers or number of arguments. */
+        private final IntList arguments = new IntList();
+
+        /** Maps atoms to their {@link Integer} number. */
+        private final Map numbers = new HashMap();
+
+        /** Maximum stack size. */
+        private int depth;
+
+        /**
+         * Add program for an element.
+         *
+         * @param   element Compile this element.
+         * @param   height  Stack size before the value of the element is pushed.
+         */
+        void compile(final Element element, final int height) {
+            if (isPropositional(element)) {
+                final ElementList list = element.getList();
+                for (int i = 0; i < list.size(); i++) {
+                    compile(list.getElement(i), height + i);
+                }
+                codes.add(getCode(list.getOperator()));
+                arguments.add(list.size());
+            } else {
+                Integer number = (Integer) numbers.get(element);
+                if (number == null) {
+                    number = new Integer(atoms.size());
+                    numbers.put(element, number);
+                    atoms.add(element);
+                }
+                codes.add(ATOM);
+                arguments.add(number.intValue());
+            }
+            depth = Math.max(depth, height + 1);
+        }
+
+    }
+
+    /**
+     * Growing list of <code>int</code> values.
+     */
+    private static final class IntList {
+
+        /** Values. */
+        private int[] values = new int[16];
+
+        /** Number of values. */
+        private int size;
+
+        /**
+         * Add value.
+         *
+         * @param   value   Add this value.
+         */
+        void add(final int value) {
+            if (size == values.length) {
+                final int[] old = values;
+                values = new int[2 * old.length];
+                System.arraycopy(old, 0, values, 0, old.length);
+            }
+            values[size++] = value;
+        }
+
+        /**
+         * Get all values.
+         *
+         * @return  Copy of values.
+         */
+        int[] toIntArray() {
+            final int[] result = new int[size];
+            System.arraycopy(values, 0, result, 0, size);
+            return result;
+        }
+
+    }
+
+}
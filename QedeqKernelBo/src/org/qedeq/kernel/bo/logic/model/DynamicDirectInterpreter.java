@@ -16,9 +16,13 @@
 package org.qedeq.kernel.bo.logic.model;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 import org.qedeq.base.trace.Trace;
+import org.qedeq.kernel.bo.logic.common.FormulaUtility;
 import org.qedeq.kernel.bo.logic.common.FunctionConstant;
 import org.qedeq.kernel.bo.logic.common.FunctionKey;
 import org.qedeq.kernel.bo.logic.common.Operators;
@@ -30,10 +34,17 @@ import org.qedeq.kernel.bo.service.unicode.Latex2UnicodeParser;
 import org.qedeq.kernel.se.base.list.Element;
 import org.qedeq.kernel.se.base.list.ElementList;
 import org.qedeq.kernel.se.common.ModuleContext;
+import org.qedeq.kernel.se.dto.list.ElementSet;
 
 
 /**
  * This class calculates a new truth value for a given formula for a given interpretation.
+ * <p>
+ * Each formula is compiled once into a tree of {@link Node}s. All operators, variables and
+ * constants are resolved during compilation, so evaluating the tree for another interpretation
+ * needs no string comparisons, no module lookups and no new objects. Errors found during
+ * compilation are thrown when the erroneous part is evaluated, so we get the same results as
+ * by interpreting the formula directly.
  *
  * @author  Michael Meyling
  */
@@ -42,15 +53,31 @@ public class DynamicDirectInterpreter {
     /** This class. */
     private static final Class CLASS = DynamicDirectInterpreter.class;
 
+    /** Kind of {@link QuantifierNode}: universal quantifier. */
+    private static final int UNIVERSAL = 0;
+
+    /** Kind of {@link QuantifierNode}: existential quantifier. */
+    private static final int EXISTENTIAL = 1;
+
+    /** Kind of {@link QuantifierNode}: unique existential quantifier. */
+    private static final int UNIQUE_EXISTENTIAL = 2;
+
+    /** Path step for <code>.getList()</code>. */
+    private static final int LIST = -1;
+
+    /** Path step for <code>.getOperator()</code>. */
+    private static final int OPERATOR = -2;
+
+    /** Maximum number of argument combinations we tabulate for a definition or a
+     * quantifier. */
+    private static final int MAXIMUM_TABLE_SIZE = 1 << 16;
+
     /** We work with this module. */
     private KernelQedeqBo qedeq;
 
     /** Module context. Here were are currently. */
     private ModuleContext moduleContext;
 
-    /** For formatting debug trace output. */
-    private final StringBuffer deepness = new StringBuffer();
-
     /** Model contains entities, functions, predicates. */
     private final DynamicModel model;
 
@@ -63,6 +90,34 @@ public class DynamicDirectInterpreter {
     /** Interpret function variables. */
     private final FunctionVariableInterpreter functionVariableInterpreter;
 
+    /** Maps {@link PredicateConstant}s and {@link FunctionConstant}s to their compiled
+     * {@link Definition}s. */
+    private final Map definitions = new HashMap();
+
+    /** Last compiled formula or term. */
+    private Element compiledElement;
+
+    /** Module context of last compiled formula or term. */
+    private ModuleContext compiledContext;
+
+    /** Compiled node of last compiled formula or term. */
+    private Node compiledNode;
+
+    /** Path within module relative to {@link #moduleContext} during compilation. Contains
+     * {@link #LIST}, {@link #OPERATOR} or element indexes. */
+    private int[] path = new int[64];
+
+    /** Current length of {@link #path}. */
+    private int pathLength;
+
+    /** Depends the currently compiled element on the interpretation of variables that are
+     * not bound within it? */
+    private boolean dependent;
+
+    /** Number of current calculation. Remembered quantifier values that depend on predicate
+     * or function variables are only valid during one calculation. */
+    private int calculation;
+
    /**
     * Constructor.
     *
@@ -104,21 +159,55 @@ public class DynamicDirectInterpreter {
      */
     public Entity calculateFunctionValue(final FunctionConstant constant,
             final Entity[] entities) throws  HeuristicException {
-        final List params = constant.getSubjectVariables();
+        return calculateFunctionValue(getSlots(constant.getSubjectVariables()),
+            compileTerm(constant.getDefiningTerm()), entities);
+    }
+
+    /**
+     * Calculate function value. The value is looked up in the table of the definition if
+     * it was calculated before.
+     *
+     * @param   definition          Compiled function definition.
+     * @param   entities            Function arguments.
+     * @return  Result of calculation;
+     * @throws  HeuristicException  Calculation of function value failed.
+     */
+    private Entity calculateFunctionValue(final Definition definition,
+            final Entity[] entities) throws  HeuristicException {
+        final int index = definition.getIndex(entities, model.getEntitiesSize());
+        if (index >= 0 && definition.table[index] != 0) {
+            return model.getEntity(definition.table[index] - 1);
+        }
+        final Entity result = calculateFunctionValue(definition.params, definition.body,
+            entities);
+        if (index >= 0) {
+            definition.table[index] = result.getValue() + 1;
+        }
+        return result;
+    }
+
+    /**
+     * Calculate function value.
+     *
+     * @param   params              Slots of subject variables of function definition.
+     * @param   term                Compiled defining term.
+     * @param   entities            Function arguments.
+     * @return  Result of calculation;
+     * @throws  HeuristicException  Calculation of function value failed.
+     */
+    private Entity calculateFunctionValue(final int[] params, final Node term,
+            final Entity[] entities) throws  HeuristicException {
         for (int i = 0; i < entities.length; i++) {
-            final SubjectVariable var = (SubjectVariable) params.get(i);
-            subjectVariableInterpreter.forceAddSubjectVariable(var, entities[i].getValue());
+            subjectVariableInterpreter.forceAddSubjectVariable(params[i],
+                entities[i].getValue());
         }
-        Entity result;
         try {
-            result = calculateTerm(constant.getDefiningTerm());
+            return term.calculateTerm();
         } finally {
             for (int i = entities.length - 1; i >= 0; i--) {
-                final SubjectVariable var = (SubjectVariable) params.get(i);
-                subjectVariableInterpreter.forceRemoveSubjectVariable(var);
+                subjectVariableInterpreter.forceRemoveSubjectVariable(params[i]);
             }
         }
-        return result;
     }
 
     /**
@@ -131,21 +220,55 @@ public class DynamicDirectInterpreter {
      */
     public boolean calculatePredicateValue(final PredicateConstant constant,
         final Entity[] entities) throws HeuristicException {
-        final List params = constant.getSubjectVariables();
+        return calculatePredicateValue(getSlots(constant.getSubjectVariables()),
+            compileValue(constant.getDefiningFormula()), entities);
+    }
+
+    /**
+     * Calculate predicate value. The value is looked up in the table of the definition if
+     * it was calculated before.
+     *
+     * @param   definition          Compiled predicate definition.
+     * @param   entities            Predicate arguments.
+     * @return  Result of calculation;
+     * @throws  HeuristicException  Calculation failed.
+     */
+    private boolean calculatePredicateValue(final Definition definition,
+            final Entity[] entities) throws HeuristicException {
+        final int index = definition.getIndex(entities, model.getEntitiesSize());
+        if (index >= 0 && definition.table[index] != 0) {
+            return definition.table[index] == Definition.TRUE;
+        }
+        final boolean result = calculatePredicateValue(definition.params, definition.body,
+            entities);
+        if (index >= 0) {
+            definition.table[index] = (result ? Definition.TRUE : Definition.FALSE);
+        }
+        return result;
+    }
+
+    /**
+     * Calculate predicate value.
+     *
+     * @param   params              Slots of subject variables of predicate definition.
+     * @param   formula             Compiled defining formula.
+     * @param   entities            Predicate arguments.
+     * @return  Result of calculation;
+     * @throws  HeuristicException  Calculation failed.
+     */
+    private boolean calculatePredicateValue(final int[] params, final Node formula,
+            final Entity[] entities) throws HeuristicException {
         for (int i = 0; i < entities.length; i++) {
-            final SubjectVariable var = (SubjectVariable) params.get(i);
-            subjectVariableInterpreter.forceAddSubjectVariable(var, entities[i].getValue());
+            subjectVariableInterpreter.forceAddSubjectVariable(params[i],
+                entities[i].getValue());
         }
-        boolean result;
         try {
-            result = calculateValue(constant.getDefiningFormula());
+            return formula.calculateValue();
         } finally {
             for (int i = entities.length - 1; i >= 0; i--) {
-                final SubjectVariable var = (SubjectVariable) params.get(i);
-                subjectVariableInterpreter.forceRemoveSubjectVariable(var);
+                subjectVariableInterpreter.forceRemoveSubjectVariable(params[i]);
             }
         }
-        return result;
     }
 
     /**
@@ -159,97 +282,93 @@ public class DynamicDirectInterpreter {
      */
     public boolean calculateValue(final ModuleContext moduleContext, final Element formula)
             throws  HeuristicException {
-//        this.startElement = formula;
+        final String method = "calculateValue(ModuleContext, Element)";
         this.moduleContext = new ModuleContext(moduleContext);
-//        this.startContext = new ModuleContext(moduleContext);
-        return calculateValue(formula);
+        final boolean result = getCompiled(formula, true).calculateValue();
+        if (Trace.isDebugEnabled(CLASS)) {
+            Trace.param(CLASS, this, method, Latex2UnicodeParser.transform(null,
+                qedeq.getElement2Latex().getLatex(formula), 0), result);
+        }
+        return result;
     }
 
     /**
-     * Calculate the truth value of a given formula is a tautology. This is done by checking with
+     * Calculate the term value of a given term. This is done by checking with
      * a model and certain variable values.
      *
-     * @param   formula         Formula.
-     * @return  Truth value of formula.
+     * @param   moduleContext   Where we are within an module.
+     * @param   term            Term.
+     * @return  Entity of model.
      * @throws  HeuristicException      We couldn't calculate the value.
      */
-    private boolean calculateValue(final Element formula) throws  HeuristicException {
-        final String method = "calculateValue(Element)";
-        if (Trace.isDebugEnabled(CLASS)) {
-            Trace.param(CLASS, this, method, deepness.toString() + "formula",
-                Latex2UnicodeParser.transform(null, qedeq.getElement2Latex().getLatex(formula), 0));
-            deepness.append("-");
+    public Entity calculateTerm(final ModuleContext moduleContext, final Element term)
+            throws  HeuristicException {
+        this.moduleContext = new ModuleContext(moduleContext);
+        return getCompiled(term, false).calculateTerm();
+    }
+
+    /**
+     * Get compiled formula or term for a new calculation. The last compilation result is
+     * reused if the element and the module context are the same.
+     *
+     * @param   element     Formula or term.
+     * @param   isFormula   Is <code>element</code> a formula?
+     * @return  Compiled element.
+     */
+    private Node getCompiled(final Element element, final boolean isFormula) {
+        calculation++;
+        if (element != compiledElement || !moduleContext.equals(compiledContext)) {
+            final ModuleContext context = new ModuleContext(moduleContext);
+            pathLength = 0;
+            compiledNode = (isFormula ? compileValue(element) : compileTerm(element));
+            compiledContext = context;
+            compiledElement = element;
         }
+        return compiledNode;
+    }
+
+    /**
+     * Compile formula. The current module context and path must point to the formula.
+     *
+     * @param   formula         Formula.
+     * @return  Compiled formula.
+     */
+    private Node compileValue(final Element formula) {
         if (formula.isAtom()) {
-            throw new HeuristicException(HeuristicErrorCodes.WRONG_CALLING_CONVENTION_CODE,
-                HeuristicErrorCodes.WRONG_CALLING_CONVENTION_TEXT, moduleContext);
+            return new ErrorNode(HeuristicErrorCodes.WRONG_CALLING_CONVENTION_CODE,
+                HeuristicErrorCodes.WRONG_CALLING_CONVENTION_TEXT, getLocation());
         }
-        final KernelQedeqBo qedeqOld = qedeq;
-        final ModuleContext moduleContextOld = new ModuleContext(moduleContext);
-        final String context = getLocationWithinModule();
-        boolean result;
+        final int length = pathLength;
         try {
             final ElementList list = formula.getList();
-            setLocationWithinModule(context + ".getList()");
+            pushPath(LIST);
             final String op = list.getOperator();
             if (Operators.CONJUNCTION_OPERATOR.equals(op)) {
-                result = true;
-                for (int i = 0; i < list.size() && result; i++) {
-                    setLocationWithinModule(context + ".getList().getElement(" + i + ")");
-                    result &= calculateValue(list.getElement(i));
-                }
+                return new ConjunctionNode(compileValues(list));
             } else if (Operators.DISJUNCTION_OPERATOR.equals(op)) {
-                result = false;
-                for (int i = 0; i < list.size() && !result; i++) {
-                    setLocationWithinModule(context + ".getList().getElement(" + i + ")");
-                    result |= calculateValue(list.getElement(i));
-                }
+                return new DisjunctionNode(compileValues(list));
             } else if (Operators.EQUIVALENCE_OPERATOR.equals(op)) {
-                result = true;
-                boolean value = false;
-                for (int i = 0; i < list.size() && result; i++) {
-                    setLocationWithinModule(context + ".getList().getElement(" + i + ")");
-                    if (i > 0) {
-                        if (value != calculateValue(list.getElement(i))) {
-                            result = false;
-                        }
-                    } else {
-                        value = calculateValue(list.getElement(i));
-                    }
-                }
+                return new EquivalenceNode(compileValues(list));
             } else if (Operators.IMPLICATION_OPERATOR.equals(op)) {
-                result = false;
-                for (int i = 0; i < list.size() && !result; i++) {
-                    setLocationWithinModule(context + ".getList().getElement(" + i + ")");
-                    if (i < list.size() - 1) {
-                        result |= !calculateValue(list.getElement(i));
-                    } else {
-                        result |= calculateValue(list.getElement(i));
-                    }
-                }
+                return new ImplicationNode(compileValues(list));
             } else if (Operators.NEGATION_OPERATOR.equals(op)) {
-                result = true;
-                for (int i = 0; i < list.size() && result; i++) {
-                    setLocationWithinModule(context + ".getList().getElement(" + i + ")");
-                    result &= !calculateValue(list.getElement(i));
-                }
+                return new NegationNode(compileValues(list));
             } else if (Operators.PREDICATE_VARIABLE.equals(op)) {
-                setLocationWithinModule(context + ".getList()");
-                final Entity[] arguments = getEntities(list);
-                final PredicateVariable var = new PredicateVariable(
-                    list.getElement(0).getAtom().getString(), list.size() - 1);
-                result = predicateVariableInterpreter.getPredicate(var)
-                    .calculate(arguments);
+                final Node[] arguments = compileTerms(list);
+                dependent = true;
+                return new PredicateVariableNode(predicateVariableInterpreter.getSlot(
+                    new PredicateVariable(list.getElement(0).getAtom().getString(),
+                    list.size() - 1)), arguments);
             } else if (Operators.UNIVERSAL_QUANTIFIER_OPERATOR.equals(op)) {
-                result = handleUniversalQuantifier(list);
+                return compileQuantifier(list, UNIVERSAL);
             } else if (Operators.EXISTENTIAL_QUANTIFIER_OPERATOR.equals(op)) {
-                result = handleExistentialQuantifier(list);
+                return compileQuantifier(list, EXISTENTIAL);
             } else if (Operators.UNIQUE_EXISTENTIAL_QUANTIFIER_OPERATOR.equals(op)) {
-                result = handleUniqueExistentialQuantifier(list);
+                pushPath(LIST);
+                return compileQuantifier(list, UNIQUE_EXISTENTIAL);
             } else if (Operators.PREDICATE_CONSTANT.equals(op)) {
                 final String label = list.getElement(0).getAtom().getString();
                 String name = label;
-//                System.out.println(label);
                 KernelQedeqBo newProp = qedeq;
                 while (name.indexOf(".") >= 0) {
                     name = name.substring(label.indexOf(".") + 1);
@@ -259,265 +378,145 @@ public class DynamicDirectInterpreter {
                         newProp = qedeq.getKernelRequiredModules().getKernelQedeqBo(external);
                     }
                     if (newProp == null) {
-                        setLocationWithinModule(context + ".getList().getOperator()");
-                        throw new HeuristicException(HeuristicErrorCodes.UNKNOWN_IMPORT_MODULE_CODE,
+                        pushPath(OPERATOR);
+                        return new ErrorNode(HeuristicErrorCodes.UNKNOWN_IMPORT_MODULE_CODE,
                             HeuristicErrorCodes.UNKNOWN_IMPORT_MODULE_TEXT + "\"" + external + "\""
                             + HeuristicErrorCodes.UNKNOWN_IMPORT_MODULE_TEXT_2 + "\"" + external
                             + "." + name + "\"",
-                            moduleContext);
+                            getLocation());
                     }
                 }
                 final PredicateKey predicateKey = new PredicateKey(name, "" + (list.size() - 1));
                 final PredicateConstant constant = (newProp.getExistenceChecker() != null
                     ? newProp.getExistenceChecker().get(predicateKey) : null);
                 if (constant != null) {
-                    setLocationWithinModule(context + ".getList()");
-                    final Entity[] arguments = getEntities(list);
-                    setModuleContext(newProp);
-                    moduleContext = new ModuleContext(constant.getContext());
-                    // we must get the second argument of equivalence
-                    moduleContext.setLocationWithinModule(moduleContext.getLocationWithinModule()
-                        + ".getElement(1)");
-                    try {
-                        result = calculatePredicateValue(constant, arguments);
-                    } catch (HeuristicException e) {
-                        setModuleContext(qedeqOld);
-                        moduleContext = moduleContextOld;
-                        setLocationWithinModule(context + ".getList().getElement(1)");
-                        throw new HeuristicException(
-                            HeuristicErrorCodes.PREDICATE_CALCULATION_FAILED_CODE,
-                            HeuristicErrorCodes.PREDICATE_CALCULATION_FAILED_TEXT + predicateKey,
-                            moduleContext, e.getContext());
+                    final Node[] arguments = compileTerms(list);
+                    pushPath(1);
+                    final Location location = getLocation();
+                    Definition definition = (Definition) definitions.get(constant);
+                    if (definition == null) {
+                        // we must get the second argument of equivalence
+                        definition = compileDefinition(newProp, constant.getContext(),
+                            ".getElement(1)", constant.getSubjectVariables(),
+                            constant.getDefiningFormula(), true);
+                        definitions.put(constant, definition);
                     }
-                } else {  // should be initial predicate, must be in the model
-                    final ModelPredicateConstant var = new ModelPredicateConstant(name, list.size()
-                        - 1);
-                    final Predicate predicate = model.getPredicateConstant(var);
-                    if (predicate == null) {
-                        setLocationWithinModule(context + ".getList().getOperator()");
-                        throw new HeuristicException(
-                            HeuristicErrorCodes.UNKNOWN_PREDICATE_CONSTANT_CODE,
-                            HeuristicErrorCodes.UNKNOWN_PREDICATE_CONSTANT_TEXT + var,
-                            moduleContext);
-                    }
-                    setLocationWithinModule(context + ".getList()");
-                    final Entity[] arguments = getEntities(list);
-                    result = predicate.calculate(arguments);
+                    dependent |= !definition.independent;
+                    return new DefinedPredicateNode(definition, arguments, predicateKey,
+                        location);
                 }
-            } else {
-                setLocationWithinModule(context + ".getList().getOperator()");
-                throw new HeuristicException(HeuristicErrorCodes.UNKNOWN_OPERATOR_CODE,
-                    HeuristicErrorCodes.UNKNOWN_OPERATOR_TEXT + op, moduleContext);
+                // should be initial predicate, must be in the model
+                final ModelPredicateConstant var = new ModelPredicateConstant(name, list.size()
+                    - 1);
+                final Predicate predicate = model.getPredicateConstant(var);
+                if (predicate == null) {
+                    pushPath(OPERATOR);
+                    return new ErrorNode(
+                        HeuristicErrorCodes.UNKNOWN_PREDICATE_CONSTANT_CODE,
+                        HeuristicErrorCodes.UNKNOWN_PREDICATE_CONSTANT_TEXT + var,
+                        getLocation());
+                }
+                return new PredicateNode(predicate, compileTerms(list));
             }
+            pushPath(OPERATOR);
+            return new ErrorNode(HeuristicErrorCodes.UNKNOWN_OPERATOR_CODE,
+                HeuristicErrorCodes.UNKNOWN_OPERATOR_TEXT + op, getLocation());
         } finally {
-//            qedeq = qedeqOld;
-            setModuleContext(qedeqOld);
-            moduleContext = moduleContextOld;
-            setLocationWithinModule(context);
+            pathLength = length;
         }
-        if (Trace.isDebugEnabled(CLASS)) {
-            deepness.setLength(deepness.length() > 0 ? deepness.length() - 1 : 0);
-            Trace.param(CLASS, this, method, deepness.toString() + Latex2UnicodeParser.transform(
-                null, qedeq.getElement2Latex().getLatex(formula), 0), result);
-        }
-        return result;
     }
 
     /**
-     * Handle universal quantifier operator.
+     * Compile all formulas of a list. The current path must point to the list.
      *
-     * @param   list    Work on this formula.
-     * @return  result  Calculated truth value.
-     * @throws  HeuristicException  Calculation not possible.
+     * @param   list    Formula list.
+     * @return  Compiled formulas.
      */
-    private boolean handleUniversalQuantifier(final ElementList list)
-            throws HeuristicException {
-        final String method = "handleUniversalQuantifier(ElementList)";
-        final String context = getLocationWithinModule();
-        boolean result = true;
-        final ElementList variable = list.getElement(0).getList();
-        final SubjectVariable var = new SubjectVariable(variable.getElement(0).getAtom().getString());
-        subjectVariableInterpreter.addSubjectVariable(var);
-        for (int i = 0; i < model.getEntitiesSize(); i++) {
-            if (Trace.isDebugEnabled(CLASS)) {
-                Trace.param(CLASS, this, method, deepness.toString()
-                    + Latex2UnicodeParser.transform(null, qedeq.getElement2Latex()
-                    .getLatex(variable), 0), model.getEntity(i));
-            }
-            if (list.size() == 2) {
-                setLocationWithinModule(context + ".getElement(1)");
-                result &= calculateValue(list.getElement(1));
-            } else {  // must be 3
-                setLocationWithinModule(context + ".getElement(1)");
-                final boolean result1 = calculateValue(list.getElement(1));
-                setLocationWithinModule(context + ".getElement(2)");
-                final boolean result2 = calculateValue(list.getElement(2));
-                result &= !result1 || result2;
-            }
-            if (!result) {
-                break;
-            }
-            subjectVariableInterpreter.increaseSubjectVariableSelection(var);
+    private Node[] compileValues(final ElementList list) {
+        final Node[] result = new Node[list.size()];
+        for (int i = 0; i < list.size(); i++) {
+            pushPath(i);
+            result[i] = compileValue(list.getElement(i));
+            pathLength--;
         }
-        subjectVariableInterpreter.removeSubjectVariable(var);
         return result;
     }
 
     /**
-     * Handle existential quantifier operator.
+     * Compile quantifier. The current path must point to the quantifier list.
+     * The value of the quantifier is remembered for the values of its free subject variables.
      *
-     * @param   list    Work on this formula.
-     * @return  result  Calculated truth value.
-     * @throws  HeuristicException  Calculation not possible.
+     * @param   list        Quantifier formula.
+     * @param   kind        Kind of quantifier.
+     * @return  Compiled quantifier.
      */
-    private boolean handleExistentialQuantifier(final ElementList list)
-            throws HeuristicException {
-        final String method = "handleExistentialQuantifier(ElementList)";
-        final String context = getLocationWithinModule();
-        boolean result = false;
+    private Node compileQuantifier(final ElementList list, final int kind) {
         final ElementList variable = list.getElement(0).getList();
-        final SubjectVariable var = new SubjectVariable(variable.getElement(0).getAtom().getString());
-        subjectVariableInterpreter.addSubjectVariable(var);
-        for (int i = 0; i < model.getEntitiesSize(); i++) {
-            if (Trace.isDebugEnabled(CLASS)) {
-                Trace.param(CLASS, this, method, deepness.toString() + Latex2UnicodeParser
-                    .transform(null, qedeq.getElement2Latex().getLatex(variable), 0),
-                    model.getEntity(i));
-            }
-            if (list.size() == 2) {
-                setLocationWithinModule(context + ".getElement(1)");
-                result |= calculateValue(list.getElement(1));
-            } else {  // must be 3
-                setLocationWithinModule(context + ".getElement(1)");
-                final boolean result1 = calculateValue(list.getElement(1));
-                setLocationWithinModule(context + ".getElement(2)");
-                final boolean result2 = calculateValue(list.getElement(2));
-                result |= result1 && result2;
-            }
-            if (result) {
-                break;
-            }
-            subjectVariableInterpreter.increaseSubjectVariableSelection(var);
+        final int var = subjectVariableInterpreter.getSlot(new SubjectVariable(
+            variable.getElement(0).getAtom().getString()));
+        final boolean dependentOld = dependent;
+        dependent = false;
+        pushPath(1);
+        final Node first = compileValue(list.getElement(1));
+        pathLength--;
+        Node second = null;
+        if (list.size() != 2) {    // must be 3
+            pushPath(2);
+            second = compileValue(list.getElement(2));
+            pathLength--;
         }
-        subjectVariableInterpreter.removeSubjectVariable(var);
-        return result;
-    }
-
-    /**
-     * Handle unique existential quantifier operator.
-     *
-     * @param   list            Work on this formula.
-     * @return  result          Calculated truth value.
-     * @throws  HeuristicException  Calculation not possible.
-     */
-    private boolean handleUniqueExistentialQuantifier(final ElementList list)
-            throws HeuristicException {
-        final String method = "handleUniqueExistentialQuantifier(ElementList)";
-        final String context = getLocationWithinModule();
-        boolean result = false;
-        final ElementList variable = list.getElement(0).getList();
-        final SubjectVariable var = new SubjectVariable(variable.getElement(0).getAtom().getString());
-        subjectVariableInterpreter.addSubjectVariable(var);
-        for (int i = 0; i < model.getEntitiesSize(); i++) {
-            if (Trace.isDebugEnabled(CLASS)) {
-                Trace.param(CLASS, this, method, deepness.toString() + Latex2UnicodeParser.transform(null,
-                        qedeq.getElement2Latex().getLatex(variable), 0), model.getEntity(i));
-            }
-            boolean val;
-            if (list.size() == 2) {
-                setLocationWithinModule(context + ".getList().getElement(1)");
-                val = calculateValue(list.getElement(1));
-            } else {  // must be 3
-                setLocationWithinModule(context + ".getList().getElement(1)");
-                final boolean result1 = calculateValue(list.getElement(1));
-                setLocationWithinModule(context + ".getList().getElement(2)");
-                final boolean result2 = calculateValue(list.getElement(2));
-                val = result1 && result2;
-            }
-            if (val) {
-                if (result) {
-                    result = false;
-                    break;
-                }
-                result = true;
-            }
-            subjectVariableInterpreter.increaseSubjectVariableSelection(var);
+        final boolean quantifierDependent = dependent;
+        dependent |= dependentOld;
+        final List free = new ArrayList();
+        final Iterator iter = FormulaUtility.getFreeSubjectVariables(list).iterator();
+        while (iter.hasNext()) {
+            free.add(new SubjectVariable(((Element) iter.next()).getList().getElement(0)
+                .getAtom().getString()));
         }
-        subjectVariableInterpreter.removeSubjectVariable(var);
-        return result;
+        return new QuantifierNode(kind, var, first, second, getSlots(free),
+            getTableSize(free.size()), quantifierDependent);
     }
 
     /**
-     * Interpret terms.
+     * Compile terms. The current path must point to the term list.
      *
-     * @param   terms           Interpret these terms. The first entry is stripped.
-     * @return  Values.
-     * @throws  HeuristicException evaluation failed.
+     * @param   terms   Compile these terms. The first entry is stripped.
+     * @return  Compiled terms.
      */
-    private Entity[] getEntities(final ElementList terms)
-            throws HeuristicException {
-//        System.out.println(terms);
-        final String context = getLocationWithinModule();
-        final Entity[] result =  new Entity[terms.size() - 1];    // strip first argument
+    private Node[] compileTerms(final ElementList terms) {
+        final Node[] result = new Node[terms.size() - 1];    // strip first argument
         for (int i = 0; i < result.length; i++) {
-//            System.out.println(i + " " + terms.getElement(i + 1));
-            setLocationWithinModule(context + ".getElement(" + (i + 1) + ")");
-            result[i] = calculateTerm(terms.getElement(i + 1));
+            pushPath(i + 1);
+            result[i] = compileTerm(terms.getElement(i + 1));
+            pathLength--;
         }
-        setLocationWithinModule(context);
         return result;
     }
 
     /**
-     * Calculate the term value of a given term. This is done by checking with
-     * a model and certain variable values.
-     *
-     * @param   moduleContext   Where we are within an module.
-     * @param   term            Term.
-     * @return  Entity of model.
-     * @throws  HeuristicException      We couldn't calculate the value.
-     */
-    public Entity calculateTerm(final ModuleContext moduleContext, final Element term)
-            throws  HeuristicException {
-        this.moduleContext = moduleContext;
-        return calculateTerm(term);
-    }
-
-    /**
-     * Interpret term.
+     * Compile term. The current module context and path must point to the term.
      *
-     * @param   term    Interpret this term.
-     * @return  Value.
-     * @throws  HeuristicException evaluation failed.
+     * @param   term    Term.
+     * @return  Compiled term.
      */
-    private Entity calculateTerm(final Element term)
-            throws  HeuristicException {
-        final String method = "calculateTerm(Element) ";
-        if (Trace.isDebugEnabled(CLASS)) {
-            Trace.param(CLASS, this, method, deepness.toString() + "term   ", Latex2UnicodeParser.transform(null,
-                    qedeq.getElement2Latex().getLatex(term), 0));
-            deepness.append("-");
-        }
+    private Node compileTerm(final Element term) {
         if (!term.isList()) {
-            throw new RuntimeException("a term should be a list: " + term);
+            return new NoListNode(term);
         }
-        final KernelQedeqBo qedeqOld = qedeq;
-        final ModuleContext moduleContextOld = new ModuleContext(moduleContext);
-        final String context = getLocationWithinModule();
-        Entity result = null;
+        final int length = pathLength;
         try {
             final ElementList termList = term.getList();
             final String op = termList.getOperator();
             if (Operators.SUBJECT_VARIABLE.equals(op)) {
                 final String text = termList.getElement(0).getAtom().getString();
-                final SubjectVariable var = new SubjectVariable(text);
-                result = subjectVariableInterpreter.getEntity(var);
+                return new SubjectVariableNode(subjectVariableInterpreter.getSlot(
+                    new SubjectVariable(text)));
             } else if (Operators.FUNCTION_VARIABLE.equals(op)) {
-                final FunctionVariable var = new FunctionVariable(termList.getElement(0).getAtom().getString(),
-                    termList.size() - 1);
-                Function function = functionVariableInterpreter.getFunction(var);
-                setLocationWithinModule(context + ".getList()");
-                result = function.map(getEntities(termList));
+                final int var = functionVariableInterpreter.getSlot(new FunctionVariable(
+                    termList.getElement(0).getAtom().getString(), termList.size() - 1));
+                pushPath(LIST);
+                dependent = true;
+                return new FunctionVariableNode(var, compileTerms(termList));
             } else if (Operators.FUNCTION_CONSTANT.equals(op)) {
                 final String label = termList.getElement(0).getAtom().getString();
                 String name = label;
@@ -530,106 +529,193 @@ public class DynamicDirectInterpreter {
                         newProp = qedeq.getKernelRequiredModules().getKernelQedeqBo(external);
                     }
                     if (newProp == null) {
-                        setLocationWithinModule(context + ".getList().getOperator()");
-                        throw new HeuristicException(HeuristicErrorCodes.UNKNOWN_IMPORT_MODULE_CODE,
+                        pushPath(LIST);
+                        pushPath(OPERATOR);
+                        return new ErrorNode(HeuristicErrorCodes.UNKNOWN_IMPORT_MODULE_CODE,
                             HeuristicErrorCodes.UNKNOWN_IMPORT_MODULE_TEXT + "\"" + external + "\""
-                                + HeuristicErrorCodes.UNKNOWN_IMPORT_MODULE_TEXT_2 + "\"" + label + "\"",
-                                moduleContext);
+                                + HeuristicErrorCodes.UNKNOWN_IMPORT_MODULE_TEXT_2 + "\"" + label
+                                + "\"", getLocation());
                     }
                 }
                 final FunctionKey functionKey = new FunctionKey(name, "" + (termList.size() - 1));
-                FunctionConstant constant
-                    =  newProp.getExistenceChecker().get(functionKey);
+                final FunctionConstant constant = (newProp.getExistenceChecker() != null
+                    ? newProp.getExistenceChecker().get(functionKey) : null);
+                pushPath(LIST);
                 if (constant != null) {
-                    setLocationWithinModule(context + ".getList()");
-                    final Entity[] arguments = getEntities(termList);
-                    setModuleContext(newProp);
-                    moduleContext = new ModuleContext(constant.getContext());
-                    // we must get the second argument of equal relation
-                    moduleContext.setLocationWithinModule(moduleContext.getLocationWithinModule() + ".getElement(2)");
-                    try {
-                        result = calculateFunctionValue(constant, arguments);
-                    } catch (HeuristicException e) {
-                        setModuleContext(qedeqOld);
-                        moduleContext = moduleContextOld;
-                        setLocationWithinModule(context + ".getList().getElement(1)");
-                        throw new HeuristicException(HeuristicErrorCodes.PREDICATE_CALCULATION_FAILED_CODE,
-                            HeuristicErrorCodes.PREDICATE_CALCULATION_FAILED_TEXT + functionKey,
-                            moduleContext, e.getContext());
-                    }
-                } else {
-                    final ModelFunctionConstant var = new ModelFunctionConstant(name,
-                        termList.size() - 1);
-                    Function function = model.getFunctionConstant(var);
-                    if (function == null) {
-                        setLocationWithinModule(context + ".getList().getOperator()");
-                        throw new HeuristicException(HeuristicErrorCodes.UNKNOWN_FUNCTION_CONSTANT_CODE,
-                            HeuristicErrorCodes.UNKNOWN_FUNCTION_CONSTANT_TEXT + var, moduleContext);
+                    final Node[] arguments = compileTerms(termList);
+                    pushPath(1);
+                    final Location location = getLocation();
+                    Definition definition = (Definition) definitions.get(constant);
+                    if (definition == null) {
+                        // we must get the second argument of equal relation
+                        definition = compileDefinition(newProp, constant.getContext(),
+                            ".getElement(2)", constant.getSubjectVariables(),
+                            constant.getDefiningTerm(), false);
+                        definitions.put(constant, definition);
                     }
-                    setLocationWithinModule(context + ".getList()");
-                    final Entity[] arguments = getEntities(termList);
-                    result = function.map(arguments);
+                    dependent |= !definition.independent;
+                    return new DefinedFunctionNode(definition, arguments, functionKey, location);
+                }
+                final ModelFunctionConstant var = new ModelFunctionConstant(name,
+                    termList.size() - 1);
+                final Function function = model.getFunctionConstant(var);
+                if (function == null) {
+                    pushPath(OPERATOR);
+                    return new ErrorNode(HeuristicErrorCodes.UNKNOWN_FUNCTION_CONSTANT_CODE,
+                        HeuristicErrorCodes.UNKNOWN_FUNCTION_CONSTANT_TEXT + var, getLocation());
                 }
+                return new FunctionNode(function, compileTerms(termList));
             } else if (Operators.CLASS_OP.equals(op)) {
-                List fullfillers = new ArrayList();
-                ElementList variable = termList.getElement(0).getList();
-                final SubjectVariable var = new SubjectVariable(variable.getElement(0).getAtom().getString());
-                subjectVariableInterpreter.addSubjectVariable(var);
+                final ElementList variable = termList.getElement(0).getList();
+                final int var = subjectVariableInterpreter.getSlot(new SubjectVariable(
+                    variable.getElement(0).getAtom().getString()));
                 KernelQedeqBo newProp = qedeq;
                 if (qedeq.getExistenceChecker() != null) {
                     newProp = qedeq.getExistenceChecker().getClassOperatorModule();
                 }
-                final PredicateConstant isSet = newProp.getExistenceChecker().getPredicate("isSet", 1);
+                final PredicateConstant isSet = (newProp.getExistenceChecker() != null
+                    ? newProp.getExistenceChecker().getPredicate("isSet", 1) : null);
                 if (isSet == null) {
-                    throw new HeuristicException(HeuristicErrorCodes.UNKNOWN_TERM_OPERATOR_CODE,
-                            HeuristicErrorCodes.UNKNOWN_TERM_OPERATOR_TEXT + "isSet(*)", moduleContext);
-                }
-                for (int i = 0; i < model.getEntitiesSize(); i++) {
-                    setModuleContext(qedeqOld);
-                    moduleContext = moduleContextOld;
-                    setLocationWithinModule(context + ".getList().getElement(1)");
-                    if (calculateValue(termList.getElement(1))) {
-                        setModuleContext(newProp);
-                        moduleContext = newProp.getLabels().getPredicateContext("isSet", 1);
-                        setLocationWithinModule(moduleContext.getLocationWithinModule()
-                            + ".getFormula().getElement().getList().getElement(1)");
-                        try {
-                            if (calculatePredicateValue(isSet, new Entity[] {model.getEntity(i)})) {
-                                fullfillers.add(model.getEntity(i));
-                            }
-                        } catch (HeuristicException e) {
-                            setModuleContext(qedeqOld);
-                            moduleContext = moduleContextOld;
-                            setLocationWithinModule(context + ".getList().getElement(1)");
-                            throw new HeuristicException(HeuristicErrorCodes.PREDICATE_CALCULATION_FAILED_CODE,
-                                HeuristicErrorCodes.PREDICATE_CALCULATION_FAILED_TEXT + isSet,
-                                moduleContext, e.getContext());
-                        }
-                    }
-                    subjectVariableInterpreter.increaseSubjectVariableSelection(var);
+                    return new ErrorNode(HeuristicErrorCodes.UNKNOWN_TERM_OPERATOR_CODE,
+                        HeuristicErrorCodes.UNKNOWN_TERM_OPERATOR_TEXT + "isSet(*)",
+                        getLocation());
                 }
-                result = model.comprehension((Entity[]) fullfillers.toArray(new Entity[] {}));
-                subjectVariableInterpreter.removeSubjectVariable(var);
-            } else {
-                setLocationWithinModule(context + ".getList().getOperator()");
-                throw new HeuristicException(HeuristicErrorCodes.UNKNOWN_TERM_OPERATOR_CODE,
-                    HeuristicErrorCodes.UNKNOWN_TERM_OPERATOR_TEXT + op, moduleContext);
+                pushPath(LIST);
+                pushPath(1);
+                final Node formula = compileValue(termList.getElement(1));
+                return new ClassNode(var, formula, compileDefinition(newProp,
+                    newProp.getLabels().getPredicateContext("isSet", 1),
+                    ".getFormula().getElement().getList().getElement(1)",
+                    isSet.getSubjectVariables(), isSet.getDefiningFormula(), true), isSet,
+                    getLocation());
             }
+            pushPath(LIST);
+            pushPath(OPERATOR);
+            return new ErrorNode(HeuristicErrorCodes.UNKNOWN_TERM_OPERATOR_CODE,
+                HeuristicErrorCodes.UNKNOWN_TERM_OPERATOR_TEXT + op, getLocation());
+        } finally {
+            pathLength = length;
+        }
+    }
+
+    /**
+     * Compile definition of a predicate or function constant. If the value of the definition
+     * depends only on its arguments, calculated values are remembered in a table.
+     *
+     * @param   module      Module of definition.
+     * @param   context     Location of definition.
+     * @param   location    Location of defining formula or term relative to
+     *                      <code>context</code>.
+     * @param   params      Subject variables of definition.
+     * @param   defining    Defining formula or term.
+     * @param   isFormula   Is <code>defining</code> a formula?
+     * @return  Compiled definition.
+     */
+    private Definition compileDefinition(final KernelQedeqBo module, final ModuleContext context,
+            final String location, final List params, final Element defining,
+            final boolean isFormula) {
+        final KernelQedeqBo qedeqOld = qedeq;
+        final ModuleContext moduleContextOld = moduleContext;
+        final int[] pathOld = path;
+        final int lengthOld = pathLength;
+        final boolean dependentOld = dependent;
+        try {
+            setModuleContext(module);
+            moduleContext = new ModuleContext(context);
+            setLocationWithinModule(getLocationWithinModule() + location);
+            path = new int[path.length];
+            pathLength = 0;
+            dependent = false;
+            final Node body = (isFormula ? compileValue(defining) : compileTerm(defining));
+            final boolean independent = !dependent && hasOnlyParameters(defining, params);
+            return new Definition(getSlots(params), body, independent,
+                (independent ? getTableSize(params.size()) : 0));
         } finally {
-//            qedeq = qedeqOld;
-            setModuleContext(qedeqOld);
+            qedeq = qedeqOld;
             moduleContext = moduleContextOld;
-//            System.out.println("module context old: " + moduleContextOld);
-            setLocationWithinModule(context);
+            path = pathOld;
+            pathLength = lengthOld;
+            dependent = dependentOld;
+        }
+    }
+
+    /**
+     * Get size of table for all argument combinations.
+     *
+     * @param   arguments   Number of arguments.
+     * @return  Table size. 0 if the table would be greater than {@link #MAXIMUM_TABLE_SIZE}.
+     */
+    private int getTableSize(final int arguments) {
+        int size = 1;
+        for (int i = 0; i < arguments; i++) {
+            size *= model.getEntitiesSize();
+            if (size > MAXIMUM_TABLE_SIZE) {
+                return 0;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Are all free subject variables of a defining formula or term parameters of the
+     * definition?
+     *
+     * @param   defining    Defining formula or term.
+     * @param   params      Subject variables of definition. Elements are of type
+     *                      {@link SubjectVariable}.
+     * @return  Are there no other free subject variables?
+     */
+    private static boolean hasOnlyParameters(final Element defining, final List params) {
+        final Iterator iter = FormulaUtility.getFreeSubjectVariables(defining).iterator();
+        while (iter.hasNext()) {
+            final Element var = (Element) iter.next();
+            if (!params.contains(new SubjectVariable(
+                    var.getList().getElement(0).getAtom().getString()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Get slots of subject variables.
+     *
+     * @param   params  Elements are of type {@link SubjectVariable}.
+     * @return  Slots of subject variables.
+     */
+    private int[] getSlots(final List params) {
+        final int[] result = new int[params.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = subjectVariableInterpreter.getSlot((SubjectVariable) params.get(i));
         }
-        if (Trace.isDebugEnabled(CLASS)) {
-            deepness.setLength(deepness.length() > 0 ? deepness.length() - 1 : 0);
-            Trace.param(CLASS, this, method, deepness.toString() + Latex2UnicodeParser.transform(null,
-                    qedeq.getElement2Latex().getLatex(term), 0), result);
-       }
         return result;
     }
 
+    /**
+     * Add step to current path within module.
+     *
+     * @param   step    {@link #LIST}, {@link #OPERATOR} or element index.
+     */
+    private void pushPath(final int step) {
+        if (pathLength >= path.length) {
+            final int[] old = path;
+            path = new int[2 * old.length];
+            System.arraycopy(old, 0, path, 0, old.length);
+        }
+        path[pathLength++] = step;
+    }
+
+    /**
+     * Get current location. The location string is created only if it is really needed.
+     *
+     * @return  Current location.
+     */
+    private Location getLocation() {
+        final int[] steps = new int[pathLength];
+        System.arraycopy(path, 0, steps, 0, pathLength);
+        return new Location(moduleContext, steps);
+    }
+
     private String getLocationWithinModule() {
         return moduleContext.getLocationWithinModule();
     }
@@ -657,6 +743,126 @@ public class DynamicDirectInterpreter {
             || functionVariableInterpreter.next();
     }
 
+    /**
+     * Give all free variables of a formula an interpretation, even if they are not needed for
+     * a calculation yet. Afterwards {@link #next()} iterates over all valuations of these
+     * variables. Interpreters that activated the variables of the same formula iterate the
+     * same valuations in the same order.
+     * <p>
+     * Variables of the same kind that can be interchanged without changing the formula are
+     * ordered. So valuations that only differ by a permutation of these variables are
+     * iterated only once. This order is removed by {@link #clearVariables()}.
+     *
+     * @param   formula     Activate free variables of this formula.
+     */
+    public void activateVariables(final Element formula) {
+        List vars = getList(FormulaUtility.getFreeSubjectVariables(formula));
+        int[] slots = new int[vars.size()];
+        for (int i = 0; i < slots.length; i++) {
+            final ElementList var = ((Element) vars.get(i)).getList();
+            slots[i] = subjectVariableInterpreter.getSlot(
+                new SubjectVariable(var.getElement(0).getAtom().getString()));
+            subjectVariableInterpreter.getEntity(slots[i]);
+        }
+        int[] predecessors = getPredecessors(formula, vars);
+        for (int i = 0; i < slots.length; i++) {
+            if (predecessors[i] >= 0) {
+                subjectVariableInterpreter.setOrdered(slots[predecessors[i]], slots[i]);
+            }
+        }
+        vars = getList(FormulaUtility.getPredicateVariables(formula));
+        slots = new int[vars.size()];
+        for (int i = 0; i < slots.length; i++) {
+            final ElementList var = ((Element) vars.get(i)).getList();
+            slots[i] = predicateVariableInterpreter.getSlot(
+                new PredicateVariable(var.getElement(0).getAtom().getString(), var.size() - 1));
+            predicateVariableInterpreter.getPredicate(slots[i]);
+        }
+        predecessors = getPredecessors(formula, vars);
+        for (int i = 0; i < slots.length; i++) {
+            if (predecessors[i] >= 0) {
+                predicateVariableInterpreter.setOrdered(slots[predecessors[i]], slots[i]);
+            }
+        }
+        vars = getList(FormulaUtility.getFunctionVariables(formula));
+        slots = new int[vars.size()];
+        for (int i = 0; i < slots.length; i++) {
+            final ElementList var = ((Element) vars.get(i)).getList();
+            slots[i] = functionVariableInterpreter.getSlot(
+                new FunctionVariable(var.getElement(0).getAtom().getString(), var.size() - 1));
+            functionVariableInterpreter.getFunction(slots[i]);
+        }
+        predecessors = getPredecessors(formula, vars);
+        for (int i = 0; i < slots.length; i++) {
+            if (predecessors[i] >= 0) {
+                functionVariableInterpreter.setOrdered(slots[predecessors[i]], slots[i]);
+            }
+        }
+    }
+
+    /**
+     * Get elements of set.
+     *
+     * @param   set     Element set.
+     * @return  Elements in iteration order. Elements are of type {@link Element}.
+     */
+    private static List getList(final ElementSet set) {
+        final List result = new ArrayList();
+        final Iterator iter = set.iterator();
+        while (iter.hasNext()) {
+            result.add(iter.next());
+        }
+        return result;
+    }
+
+    /**
+     * Divide variables into classes of interchangeable variables. Every transposition of two
+     * variables of a class doesn't change the formula. So the values of a class can be
+     * sorted.
+     *
+     * @param   formula     Check symmetry within this formula.
+     * @param   vars        Variables of the same kind. Elements are of type {@link Element}.
+     * @return  For each variable the index of its predecessor within its class. -1 if it
+     *          is the first variable of its class.
+     */
+    private static int[] getPredecessors(final Element formula, final List vars) {
+        final int[] predecessors = new int[vars.size()];
+        // first and last variable of each class
+        final int[] firsts = new int[vars.size()];
+        final int[] lasts = new int[vars.size()];
+        int classes = 0;
+        for (int i = 0; i < predecessors.length; i++) {
+            final Element var = (Element) vars.get(i);
+            predecessors[i] = -1;
+            for (int j = 0; j < classes; j++) {
+                final Element first = (Element) vars.get(firsts[j]);
+                if (first.getList().size() == var.getList().size()
+                        && FormulaUtility.isInterchangeable(formula, first, var)) {
+                    predecessors[i] = lasts[j];
+                    lasts[j] = i;
+                    break;
+                }
+            }
+            if (predecessors[i] < 0) {
+                firsts[classes] = i;
+                lasts[classes++] = i;
+            }
+        }
+        return predecessors;
+    }
+
+    /**
+     * Get number of variables that have an interpretation. If this number changes during
+     * calculation new variables were found.
+     *
+     * @return  Number of interpreted variables.
+     */
+    public int getVariableNumber() {
+        return subjectVariableInterpreter.getVariableNumber()
+            + predicateVariableInterpreter.getVariableNumber()
+            + functionVariableInterpreter.getVariableNumber();
+    }
+
     public String toString() {
         final StringBuffer buffer = new StringBuffer();
         buffer.append("Current interpretation:\n");
@@ -719,5 +925,804 @@ public class DynamicDirectInterpreter {
         return model;
     }
 
+    /**
+     * Compiled formula or term.
+     */
+    private abstract class Node {
+
+        /**
+         * Calculate truth value of formula for current interpretation.
+         *
+         * @return  Truth value.
+         * @throws  HeuristicException  Calculation failed.
+         */
+        boolean calculateValue() throws HeuristicException {
+            throw new IllegalStateException("no formula: " + getClass());
+        }
+
+        /**
+         * Calculate term value for current interpretation.
+         *
+         * @return  Entity of model.
+         * @throws  HeuristicException  Calculation failed.
+         */
+        Entity calculateTerm() throws HeuristicException {
+            throw new IllegalStateException("no term: " + getClass());
+        }
+
+    }
+
+    /**
+     * Throws an exception that was found during compilation.
+     */
+    private final class ErrorNode extends Node {
+
+        /** Error code. */
+        private final int code;
+
+        /** Error message. */
+        private final String text;
+
+        /** Error location. */
+        private final Location location;
+
+        /**
+         * Constructor.
+         *
+         * @param   code        Error code.
+         * @param   text        Error message.
+         * @param   location    Error location.
+         */
+        ErrorNode(final int code, final String text, final Location location) {
+            this.code = code;
+            this.text = text;
+            this.location = location;
+        }
+
+        boolean calculateValue() throws HeuristicException {
+            throw new HeuristicException(code, text, location.getContext());
+        }
+
+        Entity calculateTerm() throws HeuristicException {
+            throw new HeuristicException(code, text, location.getContext());
+        }
+
+    }
+
+    /**
+     * Term that is no list.
+     */
+    private final class NoListNode extends Node {
+
+        /** Wrong term. */
+        private final Element term;
+
+        /**
+         * Constructor.
+         *
+         * @param   term    Wrong term.
+         */
+        NoListNode(final Element term) {
+            this.term = term;
+        }
+
+        Entity calculateTerm() {
+            throw new RuntimeException("a term should be a list: " + term);
+        }
+
+    }
+
+    /**
+     * Conjunction.
+     */
+    private final class ConjunctionNode extends Node {
+
+        /** Conjunction parts. */
+        private final Node[] parts;
+
+        /**
+         * Constructor.
+         *
+         * @param   parts   Conjunction parts.
+         */
+        ConjunctionNode(final Node[] parts) {
+            this.parts = parts;
+        }
+
+        boolean calculateValue() throws HeuristicException {
+            for (int i = 0; i < parts.length; i++) {
+                if (!parts[i].calculateValue()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+    }
+
+    /**
+     * Disjunction.
+     */
+    private final class DisjunctionNode extends Node {
+
+        /** Disjunction parts. */
+        private final Node[] parts;
+
+        /**
+         * Constructor.
+         *
+         * @param   parts   Disjunction parts.
+         */
+        DisjunctionNode(final Node[] parts) {
+            this.parts = parts;
+        }
+
+        boolean calculateValue() throws HeuristicException {
+            for (int i = 0; i < parts.length; i++) {
+                if (parts[i].calculateValue()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+    }
+
+    /**
+     * Equivalence. All parts must have the same truth value.
+     */
+    private final class EquivalenceNode extends Node {
+
+        /** Equivalence parts. */
+        private final Node[] parts;
+
+        /**
+         * Constructor.
+         *
+         * @param   parts   Equivalence parts.
+         */
+        EquivalenceNode(final Node[] parts) {
+            this.parts = parts;
+        }
+
+        boolean calculateValue() throws HeuristicException {
+            if (parts.length == 0) {
+                return true;
+            }
+            final boolean value = parts[0].calculateValue();
+            for (int i = 1; i < parts.length; i++) {
+                if (value != parts[i].calculateValue()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+    }
+
+    /**
+     * Implication. The last part must be true if all other parts are true.
+     */
+    private final class ImplicationNode extends Node {
+
+        /** Implication parts. */
+        private final Node[] parts;
+
+        /**
+         * Constructor.
+         *
+         * @param   parts   Implication parts.
+         */
+        ImplicationNode(final Node[] parts) {
+            this.parts = parts;
+        }
+
+        boolean calculateValue() throws HeuristicException {
+            for (int i = 0; i < parts.length - 1; i++) {
+                if (!parts[i].calculateValue()) {
+                    return true;
+                }
+            }
+            return parts.length > 0 && parts[parts.length - 1].calculateValue();
+        }
+
+    }
+
+    /**
+     * Negation. All parts must be false.
+     */
+    private final class NegationNode extends Node {
+
+        /** Negation parts. */
+        private final Node[] parts;
+
+        /**
+         * Constructor.
+         *
+         * @param   parts   Negation parts.
+         */
+        NegationNode(final Node[] parts) {
+            this.parts = parts;
+        }
+
+        boolean calculateValue() throws HeuristicException {
+            for (int i = 0; i < parts.length; i++) {
+                if (parts[i].calculateValue()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+    }
+
+    /**
+     * Quantifier over all entities of the model.
+     */
+    private final class QuantifierNode extends Node {
+
+        /** Kind of quantifier. */
+        private final int kind;
+
+        /** Slot of quantified subject variable. */
+        private final int var;
+
+        /** Formula or restriction formula. */
+        private final Node first;
+
+        /** Formula if there is a restriction formula. Otherwise <code>null</code>. */
+        private final Node second;
+
+        /** Slots of free subject variables of quantifier formula. */
+        private final int[] free;
+
+        /** Calculated values for all values of {@link #free}. 0 means not calculated yet,
+         * otherwise we have {@link Definition#FALSE} or {@link Definition#TRUE}.
+         * <code>null</code> if we don't tabulate. */
+        private final int[] table;
+
+        /** Calculation number for each table entry. <code>null</code> if the value depends
+         * only on the free subject variables. */
+        private final int[] calculations;
+
+        /**
+         * Constructor.
+         *
+         * @param   kind        Kind of quantifier.
+         * @param   var         Slot of quantified subject variable.
+         * @param   first       Formula or restriction formula.
+         * @param   second      Formula if there is a restriction formula. Otherwise
+         *                      <code>null</code>.
+         * @param   free        Slots of free subject variables of quantifier formula.
+         * @param   size        Table size. 0 if we don't tabulate.
+         * @param   dependent   Depends the value on predicate or function variables?
+         */
+        QuantifierNode(final int kind, final int var, final Node first,
+                final Node second, final int[] free, final int size, final boolean dependent) {
+            this.kind = kind;
+            this.var = var;
+            this.first = first;
+            this.second = second;
+            this.free = free;
+            this.table = (size > 0 ? new int[size] : null);
+            this.calculations = (size > 0 && dependent ? new int[size] : null);
+        }
+
+        boolean calculateValue() throws HeuristicException {
+            if (table == null) {
+                return calculateQuantifier();
+            }
+            int index = 0;
+            for (int i = 0; i < free.length; i++) {
+                index = index * model.getEntitiesSize()
+                    + subjectVariableInterpreter.getEntity(free[i]).getValue();
+            }
+            if (table[index] != 0 && (calculations == null
+                    || calculations[index] == calculation)) {
+                return table[index] == Definition.TRUE;
+            }
+            final boolean result = calculateQuantifier();
+            table[index] = (result ? Definition.TRUE : Definition.FALSE);
+            if (calculations != null) {
+                calculations[index] = calculation;
+            }
+            return result;
+        }
+
+        /**
+         * Calculate value by iterating over all entities.
+         *
+         * @return  Truth value.
+         * @throws  HeuristicException  Calculation failed.
+         */
+        private boolean calculateQuantifier() throws HeuristicException {
+            boolean result = (kind == UNIVERSAL);
+            subjectVariableInterpreter.addSubjectVariable(var);
+            for (int i = 0; i < model.getEntitiesSize(); i++) {
+                boolean val;
+                if (second == null) {
+                    val = first.calculateValue();
+                } else {
+                    final boolean result1 = first.calculateValue();
+                    final boolean result2 = second.calculateValue();
+                    val = (kind == UNIVERSAL ? !result1 || result2 : result1 && result2);
+                }
+                if (kind == UNIVERSAL) {
+                    if (!val) {
+                        result = false;
+                        break;
+                    }
+                } else if (kind == EXISTENTIAL) {
+                    if (val) {
+                        result = true;
+                        break;
+                    }
+                } else if (val) {
+                    if (result) {
+                        result = false;
+                        break;
+                    }
+                    result = true;
+                }
+                subjectVariableInterpreter.increaseSubjectVariableSelection(var);
+            }
+            subjectVariableInterpreter.removeSubjectVariable(var);
+            return result;
+        }
+
+    }
+
+    /**
+     * Predicate variable.
+     */
+    private final class PredicateVariableNode extends Node {
+
+        /** Slot of predicate variable. */
+        private final int var;
+
+        /** Arguments. */
+        private final Node[] arguments;
+
+        /** Argument values. */
+        private final Entity[] values;
+
+        /**
+         * Constructor.
+         *
+         * @param   var         Slot of predicate variable.
+         * @param   arguments   Arguments.
+         */
+        PredicateVariableNode(final int var, final Node[] arguments) {
+            this.var = var;
+            this.arguments = arguments;
+            this.values = new Entity[arguments.length];
+        }
+
+        boolean calculateValue() throws HeuristicException {
+            calculateTerms(arguments, values);
+            return predicateVariableInterpreter.getPredicate(var).calculate(values);
+        }
+
+    }
+
+    /**
+     * Predicate constant of the model.
+     */
+    private final class PredicateNode extends Node {
+
+        /** Model predicate. */
+        private final Predicate predicate;
+
+        /** Arguments. */
+        private final Node[] arguments;
+
+        /** Argument values. */
+        private final Entity[] values;
+
+        /**
+         * Constructor.
+         *
+         * @param   predicate   Model predicate.
+         * @param   arguments   Arguments.
+         */
+        PredicateNode(final Predicate predicate, final Node[] arguments) {
+            this.predicate = predicate;
+            this.arguments = arguments;
+            this.values = new Entity[arguments.length];
+        }
+
+        boolean calculateValue() throws HeuristicException {
+            calculateTerms(arguments, values);
+            return predicate.calculate(values);
+        }
+
+    }
+
+    /**
+     * Predicate constant with definition.
+     */
+    private final class DefinedPredicateNode extends Node {
+
+        /** Predicate definition. */
+        private final Definition definition;
+
+        /** Arguments. */
+        private final Node[] arguments;
+
+        /** Argument values. */
+        private final Entity[] values;
+
+        /** Predicate constant. */
+        private final PredicateKey key;
+
+        /** Error location if calculation of definition fails. */
+        private final Location location;
+
+        /**
+         * Constructor.
+         *
+         * @param   definition  Predicate definition.
+         * @param   arguments   Arguments.
+         * @param   key         Predicate constant.
+         * @param   location    Error location if calculation of definition fails.
+         */
+        DefinedPredicateNode(final Definition definition, final Node[] arguments,
+                final PredicateKey key, final Location location) {
+            this.definition = definition;
+            this.arguments = arguments;
+            this.values = new Entity[arguments.length];
+            this.key = key;
+            this.location = location;
+        }
+
+        boolean calculateValue() throws HeuristicException {
+            calculateTerms(arguments, values);
+            try {
+                return calculatePredicateValue(definition, values);
+            } catch (HeuristicException e) {
+                throw new HeuristicException(
+                    HeuristicErrorCodes.PREDICATE_CALCULATION_FAILED_CODE,
+                    HeuristicErrorCodes.PREDICATE_CALCULATION_FAILED_TEXT + key,
+                    location.getContext(), e.getContext());
+            }
+        }
+
+    }
+
+    /**
+     * Subject variable.
+     */
+    private final class SubjectVariableNode extends Node {
+
+        /** Slot of subject variable. */
+        private final int var;
+
+        /**
+         * Constructor.
+         *
+         * @param   var     Slot of subject variable.
+         */
+        SubjectVariableNode(final int var) {
+            this.var = var;
+        }
+
+        Entity calculateTerm() {
+            return subjectVariableInterpreter.getEntity(var);
+        }
+
+    }
+
+    /**
+     * Function variable.
+     */
+    private final class FunctionVariableNode extends Node {
+
+        /** Slot of function variable. */
+        private final int var;
+
+        /** Arguments. */
+        private final Node[] arguments;
+
+        /** Argument values. */
+        private final Entity[] values;
+
+        /**
+         * Constructor.
+         *
+         * @param   var         Slot of function variable.
+         * @param   arguments   Arguments.
+         */
+        FunctionVariableNode(final int var, final Node[] arguments) {
+            this.var = var;
+            this.arguments = arguments;
+            this.values = new Entity[arguments.length];
+        }
+
+        Entity calculateTerm() throws HeuristicException {
+            final Function function = functionVariableInterpreter.getFunction(var);
+            calculateTerms(arguments, values);
+            return function.map(values);
+        }
+
+    }
+
+    /**
+     * Function constant of the model.
+     */
+    private final class FunctionNode extends Node {
+
+        /** Model function. */
+        private final Function function;
+
+        /** Arguments. */
+        private final Node[] arguments;
+
+        /** Argument values. */
+        private final Entity[] values;
+
+        /**
+         * Constructor.
+         *
+         * @param   function    Model function.
+         * @param   arguments   Arguments.
+         */
+        FunctionNode(final Function function, final Node[] arguments) {
+            this.function = function;
+            this.arguments = arguments;
+            this.values = new Entity[arguments.length];
+        }
+
+        Entity calculateTerm() throws HeuristicException {
+            calculateTerms(arguments, values);
+            return function.map(values);
+        }
+
+    }
+
+    /**
+     * Function constant with definition.
+     */
+    private final class DefinedFunctionNode extends Node {
+
+        /** Function definition. */
+        private final Definition definition;
+
+        /** Arguments. */
+        private final Node[] arguments;
+
+        /** Argument values. */
+        private final Entity[] values;
+
+        /** Function constant. */
+        private final FunctionKey key;
+
+        /** Error location if calculation of definition fails. */
+        private final Location location;
+
+        /**
+         * Constructor.
+         *
+         * @param   definition  Function definition.
+         * @param   arguments   Arguments.
+         * @param   key         Function constant.
+         * @param   location    Error location if calculation of definition fails.
+         */
+        DefinedFunctionNode(final Definition definition, final Node[] arguments,
+                final FunctionKey key, final Location location) {
+            this.definition = definition;
+            this.arguments = arguments;
+            this.values = new Entity[arguments.length];
+            this.key = key;
+            this.location = location;
+        }
+
+        Entity calculateTerm() throws HeuristicException {
+            calculateTerms(arguments, values);
+            try {
+                return calculateFunctionValue(definition, values);
+            } catch (HeuristicException e) {
+                throw new HeuristicException(
+                    HeuristicErrorCodes.PREDICATE_CALCULATION_FAILED_CODE,
+                    HeuristicErrorCodes.PREDICATE_CALCULATION_FAILED_TEXT + key,
+                    location.getContext(), e.getContext());
+            }
+        }
+
+    }
+
+    /**
+     * Class term. Contains all sets of the model that fulfill a formula.
+     */
+    private final class ClassNode extends Node {
+
+        /** Slot of subject variable of class term. */
+        private final int var;
+
+        /** Formula of class term. */
+        private final Node formula;
+
+        /** Compiled definition of "isSet". */
+        private final Definition isSetDefinition;
+
+        /** Argument value for "isSet". */
+        private final Entity[] isSetValue = new Entity[1];
+
+        /** Predicate constant "isSet". */
+        private final PredicateConstant isSet;
+
+        /** Error location if calculation of "isSet" fails. */
+        private final Location location;
+
+        /**
+         * Constructor.
+         *
+         * @param   var             Slot of subject variable of class term.
+         * @param   formula         Formula of class term.
+         * @param   isSetDefinition Compiled definition of "isSet".
+         * @param   isSet           Predicate constant "isSet".
+         * @param   location        Error location if calculation of "isSet" fails.
+         */
+        ClassNode(final int var, final Node formula,
+                final Definition isSetDefinition, final PredicateConstant isSet,
+                final Location location) {
+            this.var = var;
+            this.formula = formula;
+            this.isSetDefinition = isSetDefinition;
+            this.isSet = isSet;
+            this.location = location;
+        }
+
+        Entity calculateTerm() throws HeuristicException {
+            final List fullfillers = new ArrayList();
+            subjectVariableInterpreter.addSubjectVariable(var);
+            for (int i = 0; i < model.getEntitiesSize(); i++) {
+                if (formula.calculateValue()) {
+                    isSetValue[0] = model.getEntity(i);
+                    try {
+                        if (calculatePredicateValue(isSetDefinition, isSetValue)) {
+                            fullfillers.add(model.getEntity(i));
+                        }
+                    } catch (HeuristicException e) {
+                        throw new HeuristicException(
+                            HeuristicErrorCodes.PREDICATE_CALCULATION_FAILED_CODE,
+                            HeuristicErrorCodes.PREDICATE_CALCULATION_FAILED_TEXT + isSet,
+                            location.getContext(), e.getContext());
+                    }
+                }
+                subjectVariableInterpreter.increaseSubjectVariableSelection(var);
+            }
+            final Entity result = model.comprehension(
+                (Entity[]) fullfillers.toArray(new Entity[] {}));
+            subjectVariableInterpreter.removeSubjectVariable(var);
+            return result;
+        }
+
+    }
+
+    /**
+     * Calculate term values.
+     *
+     * @param   terms   Compiled terms.
+     * @param   values  Put term values herein.
+     * @throws  HeuristicException  Calculation failed.
+     */
+    private static void calculateTerms(final Node[] terms, final Entity[] values)
+            throws HeuristicException {
+        for (int i = 0; i < terms.length; i++) {
+            values[i] = terms[i].calculateTerm();
+        }
+    }
+
+    /**
+     * Compiled definition of a predicate or function constant.
+     */
+    private static final class Definition {
+
+        /** Table entry for predicate value false. */
+        private static final int FALSE = 1;
+
+        /** Table entry for predicate value true. */
+        private static final int TRUE = 2;
+
+        /** Slots of subject variables of definition. */
+        private final int[] params;
+
+        /** Compiled defining formula or term. */
+        private final Node body;
+
+        /** Depends the value only on the arguments? */
+        private final boolean independent;
+
+        /** Calculated values for all argument combinations. 0 means not calculated yet.
+         * For predicates we have {@link #FALSE} and {@link #TRUE}, for functions the
+         * entity number plus one. <code>null</code> if we don't tabulate. */
+        private final int[] table;
+
+        /**
+         * Constructor.
+         *
+         * @param   params      Slots of subject variables of definition.
+         * @param   body        Compiled defining formula or term.
+         * @param   independent Depends the value only on the arguments?
+         * @param   size        Table size. 0 if we don't tabulate.
+         */
+        Definition(final int[] params, final Node body, final boolean independent,
+                final int size) {
+            this.params = params;
+            this.body = body;
+            this.independent = independent;
+            this.table = (size > 0 ? new int[size] : null);
+        }
+
+        /**
+         * Get table index for arguments.
+         *
+         * @param   entities    Arguments.
+         * @param   size        Number of entities of model.
+         * @return  Table index. -1 if we don't tabulate.
+         */
+        int getIndex(final Entity[] entities, final int size) {
+            if (table == null) {
+                return -1;
+            }
+            int index = 0;
+            for (int i = 0; i < entities.length; i++) {
+                index = index * size + entities[i].getValue();
+            }
+            return index;
+        }
+
+    }
+
+    /**
+     * Location within a module. The location string is only created if it is needed.
+     */
+    private static final class Location {
+
+        /** Location of path start. */
+        private final ModuleContext start;
+
+        /** Path relative to <code>start</code>. Contains {@link #LIST}, {@link #OPERATOR}
+         * or element indexes. */
+        private final int[] steps;
+
+        /** Created module context. */
+        private ModuleContext context;
+
+        /**
+         * Constructor.
+         *
+         * @param   start   Location of path start. Must not be changed later on.
+         * @param   steps   Path relative to <code>start</code>.
+         */
+        Location(final ModuleContext start, final int[] steps) {
+            this.start = start;
+            this.steps = steps;
+        }
+
+        /**
+         * Get location as module context.
+         *
+         * @return  Module context.
+         */
+        ModuleContext getContext() {
+            if (context == null) {
+                final StringBuffer buffer = new StringBuffer(start.getLocationWithinModule());
+                for (int i = 0; i < steps.length; i++) {
+                    if (steps[i] == LIST) {
+                        buffer.append(".getList()");
+                    } else if (steps[i] == OPERATOR) {
+                        buffer.append(".getOperator()");
+                    } else {
+                        buffer.append(".getElement(").append(steps[i]).append(")");
+                    }
+                }
+                context = new ModuleContext(start);
+                context.setLocationWithinModule(buffer.toString());
+            }
+            return context;
+        }
+
+    }
 
 }
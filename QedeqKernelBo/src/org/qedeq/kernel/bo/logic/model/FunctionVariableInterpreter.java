@@ -15,27 +15,54 @@
 
 package org.qedeq.kernel.bo.logic.model;
 
-import java.util.ArrayList;
-import java.util.List;
-
-import org.qedeq.base.utility.Enumerator;
+import java.util.HashMap;
+import java.util.Map;
 
 
 /**
  * Interpret function variables.
+ * <p>
+ * Every function variable gets an integer slot by {@link #getSlot(FunctionVariable)}.
+ * This should be done once when a formula is prepared. A variable is activated at its
+ * first use and {@link #next()} iterates over the interpretations of all active variables.
  *
  * @author  Michael Meyling
  */
 public final class FunctionVariableInterpreter {
 
+    /** Initial array size. */
+    private static final int INITIAL_SIZE = 16;
+
     /** Model contains entities, functions, predicates. */
     private Model model;
 
-    /** List of function variables. */
-    private List functionVariables;
+    /** Maps function variables to their slots. */
+    private final Map slots = new HashMap();
+
+    /** Function variable for each slot. */
+    private FunctionVariable[] variables = new FunctionVariable[INITIAL_SIZE];
+
+    /** Number of slots. */
+    private int slotNumber;
+
+    /** Is the variable of this slot active? */
+    private boolean[] active = new boolean[INITIAL_SIZE];
+
+    /** Current function selection for each slot. */
+    private int[] selection = new int[INITIAL_SIZE];
 
-    /** List of counters for function variables. */
-    private List functionVariableCounters;
+    /** Slots of active variables in order of their activation. */
+    private int[] activeSlots = new int[INITIAL_SIZE];
+
+    /** Number of active variables. */
+    private int activeNumber;
+
+    /** Slot whose selection must not be greater than the selection of this slot. -1 if there
+     * is none. */
+    private int[] predecessor = new int[INITIAL_SIZE];
+
+    /** Number of slots with a predecessor. */
+    private int orderedNumber;
 
     /**
      * Constructor.
@@ -44,39 +71,80 @@ public final class FunctionVariableInterpreter {
      */
     public FunctionVariableInterpreter(final Model model) {
         this.model = model;
-        functionVariables = new ArrayList();
-        functionVariableCounters = new ArrayList();
     }
 
     /**
-     * Get selection for function of model for given function variable.
+     * Get slot for function variable. If the variable has no slot yet it gets a new one.
      *
-     * @param   var Function variable we want an interpretation for.
-     * @return  Function selection number of model.
+     * @param   var Function variable.
+     * @return  Slot number.
      */
-    private int getFunctionVariableSelection(final FunctionVariable var) {
-        int selection;
-        if (functionVariables.contains(var)) {
-            final int index = functionVariables.indexOf(var);
-            selection = ((Enumerator) functionVariableCounters.get(index)).getNumber();
-        } else {
-//            System.out.println("added function variable " + var);
-            selection = 0;
-            functionVariables.add(var);
-            functionVariableCounters.add(new Enumerator());
+    public int getSlot(final FunctionVariable var) {
+        final Integer slot = (Integer) slots.get(var);
+        if (slot != null) {
+            return slot.intValue();
         }
-        return selection;
+        if (slotNumber >= variables.length) {
+            final int size = 2 * variables.length;
+            variables = (FunctionVariable[]) SubjectVariableInterpreter.grow(variables,
+                new FunctionVariable[size]);
+            active = SubjectVariableInterpreter.grow(active, size);
+            selection = SubjectVariableInterpreter.grow(selection, size);
+            activeSlots = SubjectVariableInterpreter.grow(activeSlots, size);
+            predecessor = SubjectVariableInterpreter.grow(predecessor, size);
+        }
+        variables[slotNumber] = var;
+        predecessor[slotNumber] = -1;
+        slots.put(var, new Integer(slotNumber));
+        return slotNumber++;
     }
 
     /**
-     * Get interpretation for function of model for given function variable.
+     * Get model function for function variable.
      *
-     * @param   var Function variable we want an interpretation for.
-     * @return  Function.
+     * @param   var     For this function variable.
+     * @return  Function for model.
      */
     public Function getFunction(final FunctionVariable var) {
-        return model.getFunction(var.getArgumentNumber(),
-            getFunctionVariableSelection(var));
+        return getFunction(getSlot(var));
+    }
+
+    /**
+     * Get model function for function variable.
+     *
+     * @param   slot    For function variable with this slot.
+     * @return  Function for model.
+     */
+    public Function getFunction(final int slot) {
+        if (!active[slot]) {
+            active[slot] = true;
+            selection[slot] = 0;
+            activeSlots[activeNumber++] = slot;
+        }
+        return model.getFunction(variables[slot].getArgumentNumber(), selection[slot]);
+    }
+
+    /**
+     * Get number of function variables that have an interpretation.
+     *
+     * @return  Number of interpreted variables.
+     */
+    public int getVariableNumber() {
+        return activeNumber;
+    }
+
+    /**
+     * Skip valuations where the second variable has a function that comes before the function
+     * of the first variable. This is allowed if both variables can be interchanged without
+     * changing the calculated value. Both variables must have an interpretation. The order is
+     * removed by {@link #clear()}.
+     *
+     * @param   first   Slot of first variable.
+     * @param   second  Slot of second variable.
+     */
+    public void setOrdered(final int first, final int second) {
+        predecessor[second] = first;
+        orderedNumber++;
     }
 
     /**
@@ -85,45 +153,73 @@ public final class FunctionVariableInterpreter {
      * @return  Is there a next new valuation?
      */
     public boolean next() {
-        boolean next = true;
-        for (int i = functionVariables.size() - 1; i >= -1; i--) {
-            if (i < 0) {
-                next = false;
-                break;
+        do {
+            if (!increase()) {
+                return false;
+            }
+        } while (orderedNumber > 0 && !isOrdered());
+        return true;
+    }
+
+    /**
+     * Change to next valuation without looking at the order of variables.
+     *
+     * @return  Is there a next new valuation?
+     */
+    private boolean increase() {
+        for (int i = activeNumber - 1; i >= 0; i--) {
+            final int slot = activeSlots[i];
+            if (selection[slot] + 1 < model.getFunctionSize(
+                    variables[slot].getArgumentNumber())) {
+                selection[slot]++;
+                return true;
             }
-            final FunctionVariable var = (FunctionVariable) functionVariables.get(i);
-            final Enumerator number = (Enumerator) functionVariableCounters.get(i);
-            if (number.getNumber() + 1 < model.getFunctionSize(var.getArgumentNumber())) {
-                number.increaseNumber();
-                break;
+            selection[slot] = 0;
+        }
+        return false;
+    }
+
+    /**
+     * Fulfills the current valuation the order of variables?
+     *
+     * @return  Has no variable a function that comes before the function of its predecessor?
+     */
+    private boolean isOrdered() {
+        for (int i = 0; i < activeNumber; i++) {
+            final int slot = activeSlots[i];
+            if (predecessor[slot] >= 0 && selection[predecessor[slot]] > selection[slot]) {
+                return false;
             }
-            number.reset();
         }
-        return next;
+        return true;
     }
 
     public String toString() {
         final StringBuffer buffer = new StringBuffer();
         buffer.append("function variables {");
-        for (int i = 0; i < functionVariables.size(); i++) {
+        for (int i = 0; i < activeNumber; i++) {
             if (i > 0) {
                 buffer.append(", ");
             }
-            FunctionVariable var = (FunctionVariable) functionVariables.get(i);
-            buffer.append(functionVariables.get(i));
+            buffer.append(variables[activeSlots[i]]);
             buffer.append("=");
-            buffer.append(getFunction(var));
+            buffer.append(getFunction(activeSlots[i]));
         }
         buffer.append("}");
         return buffer.toString();
     }
 
     /**
-     * Clear variable interpretation.
+     * Clear variable interpretation. The slots remain valid.
      */
     public void clear() {
-        functionVariables.clear();
-        functionVariableCounters.clear();
+        for (int i = 0; i < activeNumber; i++) {
+            active[activeSlots[i]] = false;
+            predecessor[activeSlots[i]] = -1;
+        }
+        activeNumber = 0;
+        orderedNumber = 0;
     }
 
+
 }
@@ -15,28 +15,55 @@
 
 package org.qedeq.kernel.bo.logic.model;
 
-import java.util.ArrayList;
-import java.util.List;
-
-import org.qedeq.base.utility.Enumerator;
+import java.util.HashMap;
+import java.util.Map;
 
 
 /**
  * This class calculates a new truth value for a given formula for a given interpretation.
+ * <p>
+ * Every predicate variable gets an integer slot by {@link #getSlot(PredicateVariable)}.
+ * This should be done once when a formula is prepared. A variable is activated at its
+ * first use and {@link #next()} iterates over the interpretations of all active variables.
  *
  * @author  Michael Meyling
  */
 public final class PredicateVariableInterpreter {
 
-    /** List of predicate variables. */
-    private List predicateVariables;
-
-    /** List of counters for predicate variables. */
-    private List predicateVariableCounters;
+    /** Initial array size. */
+    private static final int INITIAL_SIZE = 16;
 
     /** Model contains entities. */
     private Model model;
 
+    /** Maps predicate variables to their slots. */
+    private final Map slots = new HashMap();
+
+    /** Predicate variable for each slot. */
+    private PredicateVariable[] variables = new PredicateVariable[INITIAL_SIZE];
+
+    /** Number of slots. */
+    private int slotNumber;
+
+    /** Is the variable of this slot active? */
+    private boolean[] active = new boolean[INITIAL_SIZE];
+
+    /** Current predicate selection for each slot. */
+    private int[] selection = new int[INITIAL_SIZE];
+
+    /** Slots of active variables in order of their activation. */
+    private int[] activeSlots = new int[INITIAL_SIZE];
+
+    /** Number of active variables. */
+    private int activeNumber;
+
+    /** Slot whose selection must not be greater than the selection of this slot. -1 if there
+     * is none. */
+    private int[] predecessor = new int[INITIAL_SIZE];
+
+    /** Number of slots with a predecessor. */
+    private int orderedNumber;
+
     /**
      * Constructor.
      *
@@ -44,22 +71,32 @@ public final class PredicateVariableInterpreter {
      */
     public PredicateVariableInterpreter(final Model model) {
         this.model = model;
-        predicateVariables = new ArrayList();
-        predicateVariableCounters = new ArrayList();
     }
 
-    private int getPredicateVariableSelection(final PredicateVariable var) {
-        int selection;
-        if (predicateVariables.contains(var)) {
-            final int index = predicateVariables.indexOf(var);
-            selection = ((Enumerator) predicateVariableCounters.get(index)).getNumber();
-        } else {
-//            System.out.println("added predicate variable " + var);
-            selection = 0;
-            predicateVariables.add(var);
-            predicateVariableCounters.add(new Enumerator());
+    /**
+     * Get slot for predicate variable. If the variable has no slot yet it gets a new one.
+     *
+     * @param   var Predicate variable.
+     * @return  Slot number.
+     */
+    public int getSlot(final PredicateVariable var) {
+        final Integer slot = (Integer) slots.get(var);
+        if (slot != null) {
+            return slot.intValue();
+        }
+        if (slotNumber >= variables.length) {
+            final int size = 2 * variables.length;
+            variables = (PredicateVariable[]) SubjectVariableInterpreter.grow(variables,
+                new PredicateVariable[size]);
+            active = SubjectVariableInterpreter.grow(active, size);
+            selection = SubjectVariableInterpreter.grow(selection, size);
+            activeSlots = SubjectVariableInterpreter.grow(activeSlots, size);
+            predecessor = SubjectVariableInterpreter.grow(predecessor, size);
         }
-        return selection;
+        variables[slotNumber] = var;
+        predecessor[slotNumber] = -1;
+        slots.put(var, new Integer(slotNumber));
+        return slotNumber++;
     }
 
     /**
@@ -69,8 +106,45 @@ public final class PredicateVariableInterpreter {
      * @return  Predicate for model.
      */
     public Predicate getPredicate(final PredicateVariable var) {
-        return model.getPredicate(var.getArgumentNumber(),
-            getPredicateVariableSelection(var));
+        return getPredicate(getSlot(var));
+    }
+
+    /**
+     * Get model predicate for predicate variable.
+     *
+     * @param   slot    For predicate variable with this slot.
+     * @return  Predicate for model.
+     */
+    public Predicate getPredicate(final int slot) {
+        if (!active[slot]) {
+            active[slot] = true;
+            selection[slot] = 0;
+            activeSlots[activeNumber++] = slot;
+        }
+        return model.getPredicate(variables[slot].getArgumentNumber(), selection[slot]);
+    }
+
+    /**
+     * Get number of predicate variables that have an interpretation.
+     *
+     * @return  Number of interpreted variables.
+     */
+    public int getVariableNumber() {
+        return activeNumber;
+    }
+
+    /**
+     * Skip valuations where the second variable has a predicate that comes before the predicate
+     * of the first variable. This is allowed if both variables can be interchanged without
+     * changing the calculated value. Both variables must have an interpretation. The order is
+     * removed by {@link #clear()}.
+     *
+     * @param   first   Slot of first variable.
+     * @param   second  Slot of second variable.
+     */
+    public void setOrdered(final int first, final int second) {
+        predecessor[second] = first;
+        orderedNumber++;
     }
 
     /**
@@ -79,45 +153,72 @@ public final class PredicateVariableInterpreter {
      * @return  Is there a next new valuation?
      */
     public boolean next() {
-        boolean next = true;
-        for (int i = predicateVariables.size() - 1; i >= -1; i--) {
-            if (i < 0) {
-                next = false;
-                break;
+        do {
+            if (!increase()) {
+                return false;
             }
-            final PredicateVariable var = (PredicateVariable) predicateVariables.get(i);
-            final Enumerator number = (Enumerator) predicateVariableCounters.get(i);
-            if (number.getNumber() + 1 < model.getPredicateSize(var.getArgumentNumber())) {
-                number.increaseNumber();
-                break;
+        } while (orderedNumber > 0 && !isOrdered());
+        return true;
+    }
+
+    /**
+     * Change to next valuation without looking at the order of variables.
+     *
+     * @return  Is there a next new valuation?
+     */
+    private boolean increase() {
+        for (int i = activeNumber - 1; i >= 0; i--) {
+            final int slot = activeSlots[i];
+            if (selection[slot] + 1 < model.getPredicateSize(
+                    variables[slot].getArgumentNumber())) {
+                selection[slot]++;
+                return true;
             }
-            number.reset();
+            selection[slot] = 0;
         }
-        return next;
+        return false;
+    }
+
+    /**
+     * Fulfills the current valuation the order of variables?
+     *
+     * @return  Has no variable a predicate that comes before the predicate of its predecessor?
+     */
+    private boolean isOrdered() {
+        for (int i = 0; i < activeNumber; i++) {
+            final int slot = activeSlots[i];
+            if (predecessor[slot] >= 0 && selection[predecessor[slot]] > selection[slot]) {
+                return false;
+            }
+        }
+        return true;
     }
 
     public String toString() {
         final StringBuffer buffer = new StringBuffer();
         buffer.append("predicate variables {");
-        for (int i = 0; i < predicateVariables.size(); i++) {
+        for (int i = 0; i < activeNumber; i++) {
             if (i > 0) {
                 buffer.append(", ");
             }
-            PredicateVariable var = (PredicateVariable) predicateVariables.get(i);
-            buffer.append(predicateVariables.get(i));
+            buffer.append(variables[activeSlots[i]]);
             buffer.append("=");
-            buffer.append(getPredicate(var));
+            buffer.append(getPredicate(activeSlots[i]));
         }
         buffer.append("}");
         return buffer.toString();
     }
 
     /**
-     * Clear variable interpretation.
+     * Clear variable interpretation. The slots remain valid.
      */
     public void clear() {
-        predicateVariables.clear();
-        predicateVariableCounters.clear();
+        for (int i = 0; i < activeNumber; i++) {
+            active[activeSlots[i]] = false;
+            predecessor[activeSlots[i]] = -1;
+        }
+        activeNumber = 0;
+        orderedNumber = 0;
     }
 
 
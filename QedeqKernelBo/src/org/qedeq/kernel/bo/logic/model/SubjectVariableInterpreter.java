@@ -15,24 +15,81 @@
 
 package org.qedeq.kernel.bo.logic.model;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.HashMap;
+import java.util.Map;
 
 import org.qedeq.kernel.bo.logic.common.SubjectVariable;
 
 /**
- * This class interpretation.
+ * This class interprets subject variables.
+ * <p>
+ * Every subject variable gets an integer slot by {@link #getSlot(SubjectVariable)}. This
+ * should be done once when a formula is prepared. All other operations work on slots and
+ * arrays.
+ * <p>
+ * There are two kinds of allocations. Allocations for quantifiers and definition parameters
+ * are bound. They are kept in a stack and must be removed after use. Free variables are
+ * allocated automatically at their first use and are only removed by {@link #clear()}.
+ * {@link #next()} iterates over the interpretations of the free variables.
+ * <p>
+ * An interpreter must not be used by more than one thread at a time.
  *
  * @author  Michael Meyling
  */
 public final class SubjectVariableInterpreter {
 
-    /** List of subject variables allocations. */
-    private List subjectVariableAllocations;
+    /** Initial array size. */
+    private static final int INITIAL_SIZE = 16;
 
     /** Model contains entities. */
     private Model model;
 
+    /** Maps subject variables to their slots. */
+    private final Map slots = new HashMap();
+
+    /** Subject variable for each slot. */
+    private SubjectVariable[] variables = new SubjectVariable[INITIAL_SIZE];
+
+    /** Number of slots. */
+    private int slotNumber;
+
+    /** Stack index of topmost bound allocation for each slot. -1 if there is none. */
+    private int[] boundTop = new int[INITIAL_SIZE];
+
+    /** Is there a free allocation for this slot? */
+    private boolean[] free = new boolean[INITIAL_SIZE];
+
+    /** Entity number of free allocation for each slot. */
+    private int[] freeValue = new int[INITIAL_SIZE];
+
+    /** Slots of free allocations in order of their creation. */
+    private int[] freeSlots = new int[INITIAL_SIZE];
+
+    /** Number of free allocations. */
+    private int freeNumber;
+
+    /** Slot whose free entity must not be greater than the free entity of this slot. -1 if
+     * there is none. */
+    private int[] predecessor = new int[INITIAL_SIZE];
+
+    /** Number of slots with a predecessor. */
+    private int orderedNumber;
+
+    /** Slot of each bound allocation. */
+    private int[] boundSlot = new int[INITIAL_SIZE];
+
+    /** Entity number of each bound allocation. */
+    private int[] boundValue = new int[INITIAL_SIZE];
+
+    /** Is bound allocation fixed? */
+    private boolean[] boundFixed = new boolean[INITIAL_SIZE];
+
+    /** Stack index of next lower bound allocation with same slot. -1 if there is none. */
+    private int[] boundBelow = new int[INITIAL_SIZE];
+
+    /** Number of bound allocations. */
+    private int boundNumber;
+
     /**
      * Constructor.
      *
@@ -40,7 +97,56 @@ public final class SubjectVariableInterpreter {
      */
     public SubjectVariableInterpreter(final Model model) {
         this.model = model;
-        subjectVariableAllocations = new ArrayList();
+    }
+
+    /**
+     * Get slot for subject variable. If the variable has no slot yet it gets a new one.
+     *
+     * @param   var Subject variable.
+     * @return  Slot number.
+     */
+    public int getSlot(final SubjectVariable var) {
+        final Integer slot = (Integer) slots.get(var);
+        if (slot != null) {
+            return slot.intValue();
+        }
+        if (slotNumber >= variables.length) {
+            final int size = 2 * variables.length;
+            variables = (SubjectVariable[]) grow(variables, new SubjectVariable[size]);
+            boundTop = grow(boundTop, size);
+            free = grow(free, size);
+            freeValue = grow(freeValue, size);
+            freeSlots = grow(freeSlots, size);
+            predecessor = grow(predecessor, size);
+        }
+        variables[slotNumber] = var;
+        boundTop[slotNumber] = -1;
+        predecessor[slotNumber] = -1;
+        slots.put(var, new Integer(slotNumber));
+        return slotNumber++;
+    }
+
+    /**
+     * Get number of subject variables that have an interpretation.
+     *
+     * @return  Number of interpreted variables.
+     */
+    public int getVariableNumber() {
+        return freeNumber + boundNumber;
+    }
+
+    /**
+     * Skip valuations where the free entity of the second variable comes before the free
+     * entity of the first variable. This is allowed if both variables can be interchanged
+     * without changing the calculated value. Both variables must have a free allocation.
+     * The order is removed by {@link #clear()}.
+     *
+     * @param   first   Slot of first variable.
+     * @param   second  Slot of second variable.
+     */
+    public void setOrdered(final int first, final int second) {
+        predecessor[second] = first;
+        orderedNumber++;
     }
 
     /**
@@ -48,22 +154,47 @@ public final class SubjectVariableInterpreter {
      *
      * @return  Is there a next new valuation?
      */
-    public synchronized boolean next() {
-        boolean next = true;
-        for (int i = subjectVariableAllocations.size() - 1; i >= -1; i--) {
-            if (i < 0) {
-                next = false;
-                break;
+    public boolean next() {
+        do {
+            if (!increase()) {
+                return false;
+            }
+        } while (orderedNumber > 0 && !isOrdered());
+        return true;
+    }
+
+    /**
+     * Change to next valuation without looking at the order of variables.
+     *
+     * @return  Is there a next new valuation?
+     */
+    private boolean increase() {
+        final int size = model.getEntitiesSize();
+        for (int i = freeNumber - 1; i >= 0; i--) {
+            final int slot = freeSlots[i];
+            if (freeValue[slot] + 1 < size) {
+                freeValue[slot]++;
+                return true;
             }
-            final SubjectVariableAllocation allocation
-                = (SubjectVariableAllocation) subjectVariableAllocations.get(i);
-            if (allocation.getValue() + 1 < model.getEntitiesSize()) {
-                allocation.increaseNumber();
-                break;
+            freeValue[slot] = 0;
+        }
+        return false;
+    }
+
+    /**
+     * Fulfills the current valuation the order of variables?
+     *
+     * @return  Has no variable a free entity that comes before the free entity of its
+     *          predecessor?
+     */
+    private boolean isOrdered() {
+        for (int i = 0; i < freeNumber; i++) {
+            final int slot = freeSlots[i];
+            if (predecessor[slot] >= 0 && freeValue[predecessor[slot]] > freeValue[slot]) {
+                return false;
             }
-            allocation.resetNumber();
         }
-        return next;
+        return true;
     }
 
     /**
@@ -71,13 +202,17 @@ public final class SubjectVariableInterpreter {
      *
      * @param   var Subject variable to add to our interpretation.
      */
-    public synchronized void addSubjectVariable(final SubjectVariable var) {
-        // if we forbid quantifing with same variable twice, we must activate the following
-//        if (subjectVariables.contains(var)) {
-//            throw new RuntimeException("variable already exists: " + var);
-//        }
-//        System.out.println("added subject variable " + var);
-        subjectVariableAllocations.add(new SubjectVariableAllocation(var));
+    public void addSubjectVariable(final SubjectVariable var) {
+        addSubjectVariable(getSlot(var));
+    }
+
+    /**
+     * Add subject variable. This is usually done for interpreting a quantifier.
+     *
+     * @param   slot    Slot of subject variable to add to our interpretation.
+     */
+    public void addSubjectVariable(final int slot) {
+        push(slot, 0, false);
     }
 
     /**
@@ -86,8 +221,18 @@ public final class SubjectVariableInterpreter {
      * @param   var     Remove this subject variable.
      * @param   value   Set interpretation to this entity number.
      */
-    public synchronized void forceAddSubjectVariable(final SubjectVariable var, final int value) {
-        subjectVariableAllocations.add(new SubjectVariableAllocation(var, value));
+    public void forceAddSubjectVariable(final SubjectVariable var, final int value) {
+        forceAddSubjectVariable(getSlot(var), value);
+    }
+
+    /**
+     * Add subject variable even if already existing.
+     *
+     * @param   slot    Slot of subject variable.
+     * @param   value   Set interpretation to this entity number.
+     */
+    public void forceAddSubjectVariable(final int slot, final int value) {
+        push(slot, value, true);
     }
 
     /**
@@ -95,48 +240,44 @@ public final class SubjectVariableInterpreter {
      *
      * @param   var Remove this subject variable.
      */
-    public synchronized void forceRemoveSubjectVariable(final SubjectVariable var) {
-        int index = getIndex(var);
-        if (index < 0) {
-            throw new RuntimeException("variable does not exist: " + var);
-        }
-        final SubjectVariableAllocation current
-            = (SubjectVariableAllocation) subjectVariableAllocations.get(index);
-        if (!current.isFixed()) {
-            throw new RuntimeException("trying to remove not fixed allocation: " + current);
+    public void forceRemoveSubjectVariable(final SubjectVariable var) {
+        forceRemoveSubjectVariable(getSlot(var));
+    }
+
+    /**
+     * Remove existing subject variable interpretation.
+     *
+     * @param   slot    Remove subject variable with this slot.
+     */
+    public void forceRemoveSubjectVariable(final int slot) {
+        final int index = getBoundIndex(slot);
+        if (!boundFixed[index]) {
+            throw new RuntimeException("trying to remove not fixed allocation: "
+                + toString(index));
         }
-        subjectVariableAllocations.remove(index);
-//        System.out.println("removed subject variable " + var);
+        pop(index);
     }
+
     /**
      * Remove existing subject variable interpretation.
      *
      * @param   var Remove this subject variable.
      */
-    public synchronized void removeSubjectVariable(final SubjectVariable var) {
-        int index = getIndex(var);
-        if (index < 0) {
-            throw new RuntimeException("variable does not exist: " + var);
-        }
-        final SubjectVariableAllocation current
-            = (SubjectVariableAllocation) subjectVariableAllocations.get(index);
-        if (current.isFixed()) {
-            throw new RuntimeException("trying to remove fixed allocation: " + current);
-        }
-        subjectVariableAllocations.remove(index);
-//        System.out.println("removed subject variable " + var);
+    public void removeSubjectVariable(final SubjectVariable var) {
+        removeSubjectVariable(getSlot(var));
     }
 
-    private synchronized int getSubjectVariableSelection(final SubjectVariable var) {
-        int selection = 0;
-        int index = getIndex(var);
-        if (index >= 0) {
-            selection = ((SubjectVariableAllocation) subjectVariableAllocations.get(index))
-                .getValue();
-        } else {
-            addSubjectVariable(var);
+    /**
+     * Remove existing subject variable interpretation.
+     *
+     * @param   slot    Remove subject variable with this slot.
+     */
+    public void removeSubjectVariable(final int slot) {
+        final int index = getBoundIndex(slot);
+        if (boundFixed[index]) {
+            throw new RuntimeException("trying to remove fixed allocation: " + toString(index));
         }
-        return selection;
+        pop(index);
     }
 
     /**
@@ -145,20 +286,28 @@ public final class SubjectVariableInterpreter {
      * @param   var     Subject variable we are interested in.
      * @return  Current entity for subject variable.
      */
-    public synchronized Entity getEntity(final SubjectVariable var) {
-        return model.getEntity(getSubjectVariableSelection(var));
+    public Entity getEntity(final SubjectVariable var) {
+        return getEntity(getSlot(var));
     }
 
-    private int getIndex(final SubjectVariable var) {
-        int index = -1;
-        for (index = subjectVariableAllocations.size() - 1; index >= 0; index--) {
-            final SubjectVariableAllocation current
-                = (SubjectVariableAllocation) subjectVariableAllocations.get(index);
-            if (var.equals(current.getVariable())) {
-                break;
-            }
+    /**
+     * Get current interpretation of subject variable. If the variable has no interpretation
+     * it is added as free variable.
+     *
+     * @param   slot    Slot of subject variable we are interested in.
+     * @return  Current entity for subject variable.
+     */
+    public Entity getEntity(final int slot) {
+        final int index = boundTop[slot];
+        if (index >= 0) {
+            return model.getEntity(boundValue[index]);
         }
-        return index;
+        if (!free[slot]) {
+            free[slot] = true;
+            freeValue[slot] = 0;
+            freeSlots[freeNumber++] = slot;
+        }
+        return model.getEntity(freeValue[slot]);
     }
 
     /**
@@ -166,31 +315,169 @@ public final class SubjectVariableInterpreter {
      *
      * @param   var Switch to next entity for this subject variable.
      */
-    public synchronized void increaseSubjectVariableSelection(final SubjectVariable var) {
-        ((SubjectVariableAllocation) subjectVariableAllocations.get(getIndex(var))).increaseNumber();
+    public void increaseSubjectVariableSelection(final SubjectVariable var) {
+        increaseSubjectVariableSelection(getSlot(var));
+    }
+
+    /**
+     * Set interpretation of bound subject variable to next entity.
+     *
+     * @param   slot    Switch to next entity for subject variable with this slot.
+     */
+    public void increaseSubjectVariableSelection(final int slot) {
+        final int index = getBoundIndex(slot);
+        if (boundFixed[index]) {
+            throw new IllegalStateException("variable could not iterate: " + toString(index));
+        }
+        boundValue[index]++;
+    }
+
+    /**
+     * Get stack index of topmost bound allocation for slot.
+     *
+     * @param   slot    Slot of subject variable.
+     * @return  Stack index.
+     * @throws  RuntimeException    There is no bound allocation for this slot.
+     */
+    private int getBoundIndex(final int slot) {
+        final int index = boundTop[slot];
+        if (index < 0) {
+            throw new RuntimeException("variable does not exist: " + variables[slot]);
+        }
+        return index;
+    }
+
+    /**
+     * Push new bound allocation.
+     *
+     * @param   slot    Slot of subject variable.
+     * @param   value   Entity number.
+     * @param   fixed   Is this a fixed allocation?
+     */
+    private void push(final int slot, final int value, final boolean fixed) {
+        if (boundNumber >= boundSlot.length) {
+            final int size = 2 * boundSlot.length;
+            boundSlot = grow(boundSlot, size);
+            boundValue = grow(boundValue, size);
+            boundFixed = grow(boundFixed, size);
+            boundBelow = grow(boundBelow, size);
+        }
+        boundSlot[boundNumber] = slot;
+        boundValue[boundNumber] = value;
+        boundFixed[boundNumber] = fixed;
+        boundBelow[boundNumber] = boundTop[slot];
+        boundTop[slot] = boundNumber++;
+    }
+
+    /**
+     * Remove bound allocation. Usually this is the topmost one. If a calculation was
+     * interrupted by an exception this might be not the case.
+     *
+     * @param   index   Stack index of allocation.
+     */
+    private void pop(final int index) {
+        if (index == boundNumber - 1) {
+            boundTop[boundSlot[index]] = boundBelow[index];
+            boundNumber--;
+            return;
+        }
+        final int length = boundNumber - index - 1;
+        System.arraycopy(boundSlot, index + 1, boundSlot, index, length);
+        System.arraycopy(boundValue, index + 1, boundValue, index, length);
+        System.arraycopy(boundFixed, index + 1, boundFixed, index, length);
+        boundNumber--;
+        for (int i = 0; i < slotNumber; i++) {
+            boundTop[i] = -1;
+        }
+        for (int i = 0; i < boundNumber; i++) {
+            boundBelow[i] = boundTop[boundSlot[i]];
+            boundTop[boundSlot[i]] = i;
+        }
     }
 
-    public synchronized String toString() {
+    /**
+     * Get string representation of bound allocation.
+     *
+     * @param   index   Stack index of allocation.
+     * @return  Allocation as string.
+     */
+    private String toString(final int index) {
+        return variables[boundSlot[index]] + "=" + boundValue[index];
+    }
+
+    public String toString() {
         final StringBuffer buffer = new StringBuffer();
         buffer.append("subject variables {");
-        for (int i = 0; i < subjectVariableAllocations.size(); i++) {
+        for (int i = 0; i < freeNumber; i++) {
             if (i > 0) {
                 buffer.append(", ");
             }
-            SubjectVariableAllocation var = (SubjectVariableAllocation) subjectVariableAllocations.get(i);
-            buffer.append(var.getVariable());
+            buffer.append(variables[freeSlots[i]]);
+            buffer.append("=");
+            buffer.append(model.getEntity(freeValue[freeSlots[i]]));
+        }
+        for (int i = 0; i < boundNumber; i++) {
+            if (i > 0 || freeNumber > 0) {
+                buffer.append(", ");
+            }
+            buffer.append(variables[boundSlot[i]]);
             buffer.append("=");
-            buffer.append(model.getEntity(var.getValue()));
+            buffer.append(model.getEntity(boundValue[i]));
         }
         buffer.append("}");
         return buffer.toString();
     }
 
     /**
-     * Clear variable interpretation.
+     * Clear variable interpretation. The slots remain valid.
+     */
+    public void clear() {
+        for (int i = 0; i < slotNumber; i++) {
+            boundTop[i] = -1;
+            free[i] = false;
+            predecessor[i] = -1;
+        }
+        freeNumber = 0;
+        orderedNumber = 0;
+        boundNumber = 0;
+    }
+
+    /**
+     * Copy array into larger one.
+     *
+     * @param   array   Copy this array.
+     * @param   size    New size.
+     * @return  New array.
+     */
+    static int[] grow(final int[] array, final int size) {
+        final int[] result = new int[size];
+        System.arraycopy(array, 0, result, 0, array.length);
+        return result;
+    }
+
+    /**
+     * Copy array into larger one.
+     *
+     * @param   array   Copy this array.
+     * @param   size    New size.
+     * @return  New array.
+     */
+    static boolean[] grow(final boolean[] array, final int size) {
+        final boolean[] result = new boolean[size];
+        System.arraycopy(array, 0, result, 0, array.length);
+        return result;
+    }
+
+    /**
+     * Copy array into larger one.
+     *
+     * @param   array   Copy this array.
+     * @param   result  Into this array.
+     * @return  <code>result</code>.
      */
-    public synchronized void clear() {
-        subjectVariableAllocations.clear();
+    static Object[] grow(final Object[] array, final Object[] result) {
+        System.arraycopy(array, 0, result, 0, array.length);
+        return result;
     }
 
 }
@@ -34,7 +34,8 @@ public interface ProofFinder {
      * Finds a formal proof.
      *
      * @param   formula             Formula we want to proof.
-     * @param   proof               Initial proof lines containing only "Add" lines.
+     * @param   proof               Initial proof lines. These are "Add" lines and labeled lines
+     *                              that are derived from previous lines.
      * @param   context             We are in this context.
      * @param   parameters          Further parameters to tune search process.
      * @param   log                 Log progress.
@@ -50,4 +50,29 @@ public interface FinderErrors extends ErrorCodes {
         = "Proof finder arguments error: ";
 
 
+    /** Error code. */
+    public static final int GOAL_NOT_DERIVABLE_CODE = 23791230;
+
+    /** Error message. */
+    public static final String GOAL_NOT_DERIVABLE_TEXT
+        = "Proof not found. Due to truth tables the goal can't be derived from the given "
+            + "formulas by modus ponens and substitution of proposition variables.";
+
+
+    /** Error code. */
+    public static final int TIME_BUDGET_EXCEEDED_CODE = 23791240;
+
+    /** Error message. */
+    public static final String TIME_BUDGET_EXCEEDED_TEXT
+        = "Proof not found. Time budget exceeded after ";
+
+
+    /** Error code. */
+    public static final int MEMORY_BUDGET_EXCEEDED_CODE = 23791250;
+
+    /** Error message. */
+    public static final String MEMORY_BUDGET_EXCEEDED_TEXT
+        = "Proof not found. Heap memory budget exceeded with ";
+
+
 }
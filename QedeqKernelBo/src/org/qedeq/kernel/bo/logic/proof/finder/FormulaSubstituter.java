@@ -0,0 +1,238 @@
+/* This file is part of the project "Hilbert II" - http://www.qedeq.org
+ *
+ * Copyright 2000-2014,  Michael Meyling <mime@qedeq.org>.
+ *
+ * "Hilbert II" is free software; you can redistribute
+ * it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ */
+
+package org.qedeq.kernel.bo.logic.proof.finder;
+
+import java.util.Iterator;
+
+import org.qedeq.kernel.bo.logic.common.FormulaUtility;
+import org.qedeq.kernel.bo.logic.common.Operators;
+import org.qedeq.kernel.bo.logic.proof.common.ProofException;
+import org.qedeq.kernel.se.base.list.Element;
+import org.qedeq.kernel.se.base.list.ElementList;
+import org.qedeq.kernel.se.dto.list.DefaultElementList;
+import org.qedeq.kernel.se.dto.list.ElementSet;
+
+
+/**
+ * Creates new proof line candidates by substituting proposition variables of a proof line.
+ * This class doesn't change its state, so it can be used by several threads.
+ *
+ * @author  Michael Meyling
+ */
+final class FormulaSubstituter {
+
+    /** Set of all predicate variables that occur in this proof anywhere. */
+    private final ElementSet allPredVars;
+
+    /** Set of all substitution formulas we try. */
+    private final ElementSet partGoalFormulas;
+
+    /**
+     * Constructor. The sets must not be changed afterwards.
+     *
+     * @param   allPredVars         All predicate variables we use for substitution.
+     * @param   partGoalFormulas    All part formulas of our goal.
+     */
+    FormulaSubstituter(final ElementSet allPredVars, final ElementSet partGoalFormulas) {
+        this.allPredVars = allPredVars;
+        this.partGoalFormulas = partGoalFormulas;
+    }
+
+    /**
+     * Make all possible substitutions by propositional variables in a proof line.
+     *
+     * @param   f           Proof line formula.
+     * @param   i           Proof line number we want to try substitution.
+     * @param   collector   Gets all created formulas.
+     * @throws  ProofException We found a proof or have to end the search!
+     */
+    void substituteByPropositionVariables(final Element f, final int i,
+            final LineCollector collector) throws ProofException {
+        final ElementSet vars = FormulaUtility.getPropositionVariables(f);
+        final Iterator iter = vars.iterator();
+        while (iter.hasNext()) {
+            final ElementList var = (ElementList) iter.next();
+            final Iterator all = allPredVars.iterator();
+            while (all.hasNext()) {
+                final ElementList subst = (ElementList) all.next();
+                if (var.equals(subst)) {
+                    continue;
+                }
+                final Element created = FormulaUtility.replaceOperatorVariable(
+                    f, var, subst);
+                collector.add(created, new SubstPredBo(i, var, subst));
+            }
+        }
+    }
+
+    /**
+     * Make all substitutions by part goal formulas in a proof line.
+     *
+     * @param   f           Proof line formula.
+     * @param   i           Proof line number we want to try substitution.
+     * @param   collector   Gets all created formulas.
+     * @throws  ProofException We found a proof or have to end the search!
+     */
+    void substitutePartGoalFormulas(final Element f, final int i,
+            final LineCollector collector) throws ProofException {
+        final ElementSet vars = FormulaUtility.getPropositionVariables(f);
+        final Iterator iter = vars.iterator();
+        while (iter.hasNext()) {
+            final ElementList var = (ElementList) iter.next();
+            final Iterator all = partGoalFormulas.iterator();
+            while (all.hasNext()) {
+                final ElementList subst = (ElementList) all.next();
+                if (var.equals(subst)) {
+                    continue;
+                }
+                final Element created = FormulaUtility.replaceOperatorVariable(
+                    f, var, subst);
+                collector.add(created, new SubstPredBo(i, var, subst));
+            }
+        }
+    }
+
+    /**
+     * Make all substitutions by negation in a proof line.
+     *
+     * @param   f           Proof line formula.
+     * @param   i           Proof line number we want to try substitution.
+     * @param   collector   Gets all created formulas.
+     * @throws  ProofException We found a proof or have to end the search!
+     */
+    void substituteNegation(final Element f, final int i,
+            final LineCollector collector) throws ProofException {
+        final ElementSet vars = FormulaUtility.getPropositionVariables(f);
+        final Iterator iter = vars.iterator();
+        while (iter.hasNext()) {
+            final ElementList var = (ElementList) iter.next();
+            final Iterator all = allPredVars.iterator();
+            while (all.hasNext()) {
+                final ElementList var2 = (ElementList) all.next();
+                final ElementList subst = new DefaultElementList(Operators.NEGATION_OPERATOR);
+                subst.add(var2);
+                final Element created = FormulaUtility.replaceOperatorVariable(
+                    f, var, subst);
+                collector.add(created, new SubstPredBo(i, var, subst));
+            }
+        }
+    }
+
+    /**
+     * Make all substitutions by conjunction in a proof line.
+     *
+     * @param   f           Proof line formula.
+     * @param   i           Proof line number we want to try substitution.
+     * @param   collector   Gets all created formulas.
+     * @throws  ProofException We found a proof or have to end the search!
+     */
+    void substituteConjunction(final Element f, final int i,
+            final LineCollector collector) throws ProofException {
+        substituteBinary(f, i, Operators.CONJUNCTION_OPERATOR, collector);
+    }
+
+    /**
+     * Make all substitutions by disjunction in a proof line.
+     *
+     * @param   f           Proof line formula.
+     * @param   i           Proof line number we want to try substitution.
+     * @param   collector   Gets all created formulas.
+     * @throws  ProofException We found a proof or have to end the search!
+     */
+    void substituteDisjunction(final Element f, final int i,
+            final LineCollector collector) throws ProofException {
+        substituteBinary(f, i, Operators.DISJUNCTION_OPERATOR, collector);
+    }
+
+    /**
+     * Make all substitutions by implication in a proof line.
+     *
+     * @param   f           Proof line formula.
+     * @param   i           Proof line number we want to try substitution.
+     * @param   collector   Gets all created formulas.
+     * @throws  ProofException We found a proof or have to end the search!
+     */
+    void substituteImplication(final Element f, final int i,
+            final LineCollector collector) throws ProofException {
+        substituteBinary(f, i, Operators.IMPLICATION_OPERATOR, collector);
+    }
+
+    /**
+     * Make all substitutions by equivalence in a proof line.
+     *
+     * @param   f           Proof line formula.
+     * @param   i           Proof line number we want to try substitution.
+     * @param   collector   Gets all created formulas.
+     * @throws  ProofException We found a proof or have to end the search!
+     */
+    void substituteEquivalence(final Element f, final int i,
+            final LineCollector collector) throws ProofException {
+        substituteBinary(f, i, Operators.EQUIVALENCE_OPERATOR, collector);
+    }
+
+    /**
+     * Make all substitutions by a binary operator in a proof line.
+     *
+     * @param   f           Proof line formula.
+     * @param   i           Proof line number we want to try substitution.
+     * @param   operator    Operator of replacement formula.
+     * @param   collector   Gets all created formulas.
+     * @throws  ProofException We found a proof or have to end the search!
+     */
+    private void substituteBinary(final Element f, final int i, final String operator,
+            final LineCollector collector) throws ProofException {
+        final ElementSet vars = FormulaUtility.getPropositionVariables(f);
+        final Iterator iter = vars.iterator();
+        while (iter.hasNext()) {
+            final ElementList var = (ElementList) iter.next();
+            createReplacement(i, f, var, operator, true, collector);
+            createReplacement(i, f, var, operator, false, collector);
+        }
+    }
+
+    /**
+     * Substitute predicate variable <code>var</code> by binary operator with old variable
+     * and new variable and add this as a new proof line.
+     *
+     * @param   i           Proof line number we work on.
+     * @param   f           Proof line formula.
+     * @param   var         Predicate variable we want to replace.
+     * @param   operator    Operator of replacement formula.
+     * @param   left        Is old variable at left hand of new operator?
+     * @param   collector   Gets all created formulas.
+     * @throws  ProofException We found a proof or have to end the search!
+     */
+    private void createReplacement(final int i, final Element f,
+            final ElementList var, final String operator, final boolean left,
+            final LineCollector collector) throws ProofException {
+        final Iterator a = allPredVars.iterator();
+        while (a.hasNext()) {
+            final ElementList var2 = (ElementList) a.next();
+            final ElementList subst = new DefaultElementList(operator);
+            if (left) {
+                subst.add(var);
+                subst.add(var2);
+            } else {
+                subst.add(var2);
+                subst.add(var);
+            }
+            final Element created = FormulaUtility.replaceOperatorVariable(
+                f, var, subst);
+            collector.add(created, new SubstPredBo(i, var, subst));
+        }
+    }
+
+}
@@ -0,0 +1,195 @@
+/* This file is part of the project "Hilbert II" - http://www.qedeq.org
+ *
+ * Copyright 2000-2014,  Michael Meyling <mime@qedeq.org>.
+ *
+ * "Hilbert II" is free software; you can redistribute
+ * it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ */
+
+package org.qedeq.kernel.bo.logic.proof.finder;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.qedeq.kernel.se.base.list.Element;
+import org.qedeq.kernel.se.base.module.Add;
+import org.qedeq.kernel.se.base.module.FormalProofLine;
+import org.qedeq.kernel.se.base.module.FormalProofLineList;
+import org.qedeq.kernel.se.base.module.ModusPonens;
+import org.qedeq.kernel.se.base.module.Reason;
+import org.qedeq.kernel.se.base.module.SubstPred;
+import org.qedeq.kernel.se.dto.module.FormalProofLineListVo;
+import org.qedeq.kernel.se.dto.module.FormalProofLineVo;
+import org.qedeq.kernel.se.dto.module.FormulaVo;
+import org.qedeq.kernel.se.dto.module.ModusPonensVo;
+import org.qedeq.kernel.se.dto.module.SubstPredVo;
+
+
+/**
+ * Pool of derived proof lines. Each line remembers how it was derived, so the pool can be used
+ * to seed further proof searches. The number of lines is limited. If the pool is full the
+ * oldest lines are dropped. Lines whose premises were dropped are not used anymore.
+ * <p>
+ * The lines of <code>Add</code> references are expected to be labeled with their reference.
+ *
+ * @author  Michael Meyling
+ */
+public final class LemmaPool {
+
+    /** Label prefix for derived lines. */
+    private static final String LABEL_PREFIX = "lemma_";
+
+    /** Maps formulas to {@link Entry}s in order of their insertion. */
+    private final Map entries;
+
+    /**
+     * Constructor.
+     *
+     * @param   maximum Maximum number of lines in pool.
+     */
+    public LemmaPool(final int maximum) {
+        entries = new LinkedHashMap() {
+            protected boolean removeEldestEntry(final Map.Entry eldest) {
+                return size() > maximum;
+            }
+        };
+    }
+
+    /**
+     * Add all lines of a formal proof. The proof must contain only <code>Add</code>,
+     * <code>ModusPonens</code> and <code>SubstPred</code> reasons. Other lines and lines with
+     * unknown references are ignored.
+     *
+     * @param   proof   Add lines of this formal proof.
+     */
+    public void addProof(final FormalProofLineList proof) {
+        final Map label2Formula = new HashMap();
+        for (int i = 0; i < proof.size(); i++) {
+            final FormalProofLine line = proof.get(i);
+            if (line == null || line.getFormula() == null || line.getReason() == null) {
+                continue;
+            }
+            final Element formula = line.getFormula().getElement();
+            final Reason reason = line.getReason();
+            final Entry entry;
+            if (reason instanceof Add) {
+                entry = new Entry(formula, reason, null, null);
+            } else if (reason instanceof ModusPonens) {
+                final ModusPonens mp = (ModusPonens) reason;
+                final Element p1 = (Element) label2Formula.get(mp.getReference1());
+                final Element p2 = (Element) label2Formula.get(mp.getReference2());
+                if (p1 == null || p2 == null) {
+                    continue;
+                }
+                entry = new Entry(formula, reason, p1, p2);
+            } else if (reason instanceof SubstPred) {
+                final Element p = (Element) label2Formula.get(((SubstPred) reason).getReference());
+                if (p == null) {
+                    continue;
+                }
+                entry = new Entry(formula, reason, p, null);
+            } else {
+                continue;
+            }
+            if (line.getLabel() != null) {
+                label2Formula.put(line.getLabel(), formula);
+            }
+            if (!entries.containsKey(formula)) {
+                entries.put(formula, entry);
+            }
+        }
+    }
+
+    /**
+     * Get all derived lines of the pool. Premises are always before the derived line.
+     * Premises of <code>Add</code> lines are referenced by their <code>Add</code> reference.
+     *
+     * @return  Derived lines with labels.
+     */
+    public FormalProofLineList getDerivedLines() {
+        final FormalProofLineListVo result = new FormalProofLineListVo();
+        final Map formula2Label = new HashMap();
+        final Iterator iter = entries.values().iterator();
+        while (iter.hasNext()) {
+            final Entry entry = (Entry) iter.next();
+            final Reason reason;
+            if (entry.reason instanceof Add) {
+                formula2Label.put(entry.formula, ((Add) entry.reason).getReference());
+                continue;
+            } else if (entry.reason instanceof ModusPonens) {
+                final String l1 = (String) formula2Label.get(entry.premise1);
+                final String l2 = (String) formula2Label.get(entry.premise2);
+                if (l1 == null || l2 == null) {
+                    continue;
+                }
+                reason = new ModusPonensVo(l1, l2);
+            } else {
+                final String l = (String) formula2Label.get(entry.premise1);
+                if (l == null) {
+                    continue;
+                }
+                final SubstPred subst = (SubstPred) entry.reason;
+                reason = new SubstPredVo(l, subst.getPredicateVariable(),
+                    subst.getSubstituteFormula());
+            }
+            final String label = LABEL_PREFIX + (result.size() + 1);
+            formula2Label.put(entry.formula, label);
+            result.add(new FormalProofLineVo(label, new FormulaVo(entry.formula), reason));
+        }
+        return result;
+    }
+
+    /**
+     * Get number of lines in pool.
+     *
+     * @return  Number of lines.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Pool line.
+     */
+    private static final class Entry {
+
+        /** Formula of line. */
+        private final Element formula;
+
+        /** Reason of line. */
+        private final Reason reason;
+
+        /** First premise. */
+        private final Element premise1;
+
+        /** Second premise. */
+        private final Element premise2;
+
+        /**
+         * Constructor.
+         *
+         * @param   formula     Formula of line.
+         * @param   reason      Reason of line.
+         * @param   premise1    First premise. Might be <code>null</code>.
+         * @param   premise2    Second premise. Might be <code>null</code>.
+         */
+        Entry(final Element formula, final Reason reason, final Element premise1,
+                final Element premise2) {
+            this.formula = formula;
+            this.reason = reason;
+            this.premise1 = premise1;
+            this.premise2 = premise2;
+        }
+
+    }
+
+}
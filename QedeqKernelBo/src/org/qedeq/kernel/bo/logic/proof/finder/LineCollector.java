@@ -0,0 +1,39 @@
+/* This file is part of the project "Hilbert II" - http://www.qedeq.org
+ *
+ * Copyright 2000-2014,  Michael Meyling <mime@qedeq.org>.
+ *
+ * "Hilbert II" is free software; you can redistribute
+ * it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ */
+
+package org.qedeq.kernel.bo.logic.proof.finder;
+
+import org.qedeq.kernel.bo.logic.proof.common.ProofException;
+import org.qedeq.kernel.se.base.list.Element;
+import org.qedeq.kernel.se.base.module.Reason;
+
+
+/**
+ * Gets new proof line candidates.
+ *
+ * @author  Michael Meyling
+ */
+interface LineCollector {
+
+    /**
+     * Add new proof line candidate.
+     *
+     * @param   formula Created formula.
+     * @param   reason  Reason for formula.
+     * @throws  ProofException We found a proof or have to end the search!
+     */
+    public void add(Element formula, Reason reason) throws ProofException;
+
+}
@@ -0,0 +1,199 @@
+/* This file is part of the project "Hilbert II" - http://www.qedeq.org
+ *
+ * Copyright 2000-2014,  Michael Meyling <mime@qedeq.org>.
+ *
+ * "Hilbert II" is free software; you can redistribute
+ * it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ */
+
+package org.qedeq.kernel.bo.logic.proof.finder;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import org.qedeq.kernel.bo.logic.common.FormulaUtility;
+import org.qedeq.kernel.se.base.list.Element;
+import org.qedeq.kernel.se.base.module.Reason;
+import org.qedeq.kernel.se.dto.list.ElementSet;
+
+
+/**
+ * Priority queue for proof lines that should be worked on. Proof lines with a lower score
+ * come first. The score is calculated out of the formula size, the derivation depth
+ * and the number of part formulas that are also part formulas of the goal.
+ * If two lines have the same score the older one comes first.
+ *
+ * @author  Michael Meyling
+ */
+final class LinePriorityQueue {
+
+    /** Queued lines. Elements are of type {@link Entry}. */
+    private final SortedSet queue = new TreeSet(new Comparator() {
+        public int compare(final Object o1, final Object o2) {
+            final Entry e1 = (Entry) o1;
+            final Entry e2 = (Entry) o2;
+            if (e1.score != e2.score) {
+                return (e1.score < e2.score ? -1 : 1);
+            }
+            return (e1.line < e2.line ? -1 : (e1.line == e2.line ? 0 : 1));
+        }
+    });
+
+    /** Part formulas of our goal. */
+    private final ElementSet partGoalFormulas;
+
+    /** Score weight for formula size. */
+    private final int sizeWeight;
+
+    /** Score bonus for each part formula that is also part of the goal. */
+    private final int goalWeight;
+
+    /** Score weight for derivation depth. */
+    private final int depthWeight;
+
+    /** Derivation depth for each added line. */
+    private int[] depth = new int[1024];
+
+    /**
+     * Constructor.
+     *
+     * @param   partGoalFormulas    Part formulas of our goal.
+     * @param   sizeWeight          Score weight for formula size.
+     * @param   goalWeight          Score bonus for each part formula that is also part of the
+     *                              goal.
+     * @param   depthWeight         Score weight for derivation depth.
+     */
+    LinePriorityQueue(final ElementSet partGoalFormulas, final int sizeWeight,
+            final int goalWeight, final int depthWeight) {
+        this.partGoalFormulas = partGoalFormulas;
+        this.sizeWeight = sizeWeight;
+        this.goalWeight = goalWeight;
+        this.depthWeight = depthWeight;
+    }
+
+    /**
+     * Add new proof line. Proof lines must be added in the order of their line number.
+     * All lines referenced by the reason must be already added.
+     *
+     * @param   line    Proof line number.
+     * @param   formula Proof line formula.
+     * @param   reason  Reason for proof line.
+     */
+    void add(final int line, final Element formula, final Reason reason) {
+        if (line >= depth.length) {
+            final int[] old = depth;
+            depth = new int[Math.max(2 * old.length, line + 1)];
+            System.arraycopy(old, 0, depth, 0, old.length);
+        }
+        final int d;
+        if (reason instanceof ModusPonensBo) {
+            final ModusPonensBo mp = (ModusPonensBo) reason;
+            d = 1 + Math.max(depth[mp.getN1()], depth[mp.getN2()]);
+        } else if (reason instanceof SubstPredBo) {
+            d = 1 + depth[((SubstPredBo) reason).getN()];
+        } else {
+            d = 0;
+        }
+        depth[line] = d;
+        queue.add(new Entry(line, sizeWeight * size(formula) + depthWeight * d
+            - goalWeight * goalParts(formula)));
+    }
+
+    /**
+     * Is the queue empty?
+     *
+     * @return  Queue is empty.
+     */
+    boolean isEmpty() {
+        return queue.isEmpty();
+    }
+
+    /**
+     * Remove proof line with lowest score.
+     *
+     * @return  Proof line number.
+     */
+    int removeFirst() {
+        final Entry first = (Entry) queue.first();
+        queue.remove(first);
+        return first.line;
+    }
+
+    /**
+     * Get derivation depth of an added proof line.
+     *
+     * @param   line    Proof line number.
+     * @return  Derivation depth.
+     */
+    int getDepth(final int line) {
+        return depth[line];
+    }
+
+    /**
+     * Get the number of nodes of a formula.
+     *
+     * @param   formula Formula.
+     * @return  Number of list elements within formula.
+     */
+    private int size(final Element formula) {
+        if (formula.isAtom()) {
+            return 0;
+        }
+        int result = 1;
+        for (int i = 0; i < formula.getList().size(); i++) {
+            result += size(formula.getList().getElement(i));
+        }
+        return result;
+    }
+
+    /**
+     * Get number of part formulas that are also part formulas of the goal.
+     *
+     * @param   formula Formula.
+     * @return  Number of common part formulas.
+     */
+    private int goalParts(final Element formula) {
+        int result = 0;
+        final Iterator iter = FormulaUtility.getPartFormulas(formula).iterator();
+        while (iter.hasNext()) {
+            if (partGoalFormulas.contains((Element) iter.next())) {
+                result++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Queue entry.
+     */
+    private static final class Entry {
+
+        /** Proof line number. */
+        private final int line;
+
+        /** Score of proof line. */
+        private final int score;
+
+        /**
+         * Constructor.
+         *
+         * @param   line    Proof line number.
+         * @param   score   Score of proof line.
+         */
+        Entry(final int line, final int score) {
+            this.line = line;
+            this.score = score;
+        }
+
+    }
+
+}
@@ -0,0 +1,373 @@
+/* This file is part of the project "Hilbert II" - http://www.qedeq.org
+ *
+ * Copyright 2000-2014,  Michael Meyling <mime@qedeq.org>.
+ *
+ * "Hilbert II" is free software; you can redistribute
+ * it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ */
+
+package org.qedeq.kernel.bo.logic.proof.finder;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.qedeq.base.io.Parameters;
+import org.qedeq.kernel.bo.common.Element2Utf8;
+import org.qedeq.kernel.bo.log.ModuleLogListener;
+import org.qedeq.kernel.bo.logic.proof.common.ProofException;
+import org.qedeq.kernel.se.base.list.Element;
+import org.qedeq.kernel.se.base.module.FormalProofLineList;
+import org.qedeq.kernel.se.base.module.Reason;
+import org.qedeq.kernel.se.common.ModuleContext;
+import org.qedeq.kernel.se.dto.list.ElementFactory;
+import org.qedeq.kernel.se.visitor.InterruptException;
+
+
+/**
+ * Find basic proofs for formulas. The new proof line candidates are generated in parallel
+ * by several worker threads. The parameter "threads" gives the number of workers. If it
+ * is not positive the number of available processors is used.
+ * <p>
+ * Each round every substitution method gets (weight times number of threads) proof lines
+ * to work on. For best-first search each round works on the (number of threads) proof lines
+ * with the best score. The created candidates are merged into the proof lines in the order of
+ * the tasks, so the search result is deterministic, independent of scheduling.
+ *
+ * @author  Michael Meyling
+ */
+public class ParallelProofFinderImpl extends ProofFinderImpl {
+
+    /** Number of worker threads. */
+    private int threads;
+
+    /** Synchronizes access to task data. */
+    private final Object lock = new Object();
+
+    /** Current tasks. Elements are of type {@link Task}. */
+    private List tasks;
+
+    /** Next task to work on. */
+    private int nextTask;
+
+    /** Number of unfinished tasks. */
+    private int unfinished;
+
+    /** Should all workers stop? */
+    private boolean shutdown;
+
+    /**
+     * Constructor.
+     */
+    public ParallelProofFinderImpl() {
+        // nothing to do
+    }
+
+    public void findProof(final Element formula,
+            final FormalProofLineList proof, final ModuleContext context,
+            final Parameters parameters, final ModuleLogListener log, final Element2Utf8 trans)
+            throws ProofException, InterruptException {
+        threads = parameters.getInt("threads");
+        if (threads <= 0) {
+            threads = Runtime.getRuntime().availableProcessors();
+        }
+        log.logMessageState("threads = " + threads);
+        super.findProof(formula, proof, context, parameters, log, trans);
+    }
+
+    /**
+     * Search for the goal formula by using modus ponens and all substitution methods.
+     * The substitution is done in parallel.
+     *
+     * @throws  ProofException      Proof found, or limits exceeded.
+     * @throws  InterruptException  The search was interrupted.
+     */
+    protected void search() throws ProofException, InterruptException {
+        startWorkers();
+        try {
+            final ProofLineStore lines = getLines();
+            while (true) {
+                // check if the thread should be interrupted
+                if (Thread.interrupted()) {
+                    throw new InterruptException(getContext());
+                }
+                checkBudget();
+                final int size1 = lines.size();
+                tryModusPonensAll();
+                final List round = new ArrayList();
+                final Iterator iter = getSubstitutionMethods().iterator();
+                while (iter.hasNext()) {
+                    final SubstitutionMethod method = (SubstitutionMethod) iter.next();
+                    for (int j = 0; j < method.getWeight() * threads; j++) {
+                        final int i = method.nextLine();
+                        if (i >= lines.size()) {
+                            break;
+                        }
+                        round.add(new Task(method, lines.getFormula(i), i));
+                        method.incrementNextLine();
+                    }
+                }
+                execute(round);
+                // merge results in a deterministic order
+                SubstitutionMethod last = null;
+                for (int j = 0; j < round.size(); j++) {
+                    final Task task = (Task) round.get(j);
+                    if (last != null && last != task.method) {
+                        tryModusPonensAll();
+                    }
+                    last = task.method;
+                    for (int k = 0; k < task.formulas.size(); k++) {
+                        addFormula((Element) task.formulas.get(k), (Reason) task.reasons.get(k));
+                    }
+                }
+                tryModusPonensAll();
+                if (size1 == lines.size()) {
+                    checkSearchFinished();
+                }
+            }
+        } finally {
+            stopWorkers();
+        }
+    }
+
+    /**
+     * Search for the goal formula by using modus ponens and all substitution methods.
+     * Each round the proof lines with the best score are taken and all substitution methods
+     * are applied to them in parallel.
+     *
+     * @throws  ProofException      Proof found, or limits exceeded.
+     * @throws  InterruptException  The search was interrupted.
+     */
+    protected void searchBestFirst() throws ProofException, InterruptException {
+        startWorkers();
+        try {
+            final ProofLineStore lines = getLines();
+            while (true) {
+                // check if the thread should be interrupted
+                if (Thread.interrupted()) {
+                    throw new InterruptException(getContext());
+                }
+                checkBudget();
+                tryModusPonensAll();
+                final List round = new ArrayList();
+                int taken = 0;
+                do {
+                    final int i = nextBestLine();
+                    final Iterator iter = getSubstitutionMethods().iterator();
+                    while (iter.hasNext()) {
+                        final SubstitutionMethod method = (SubstitutionMethod) iter.next();
+                        round.add(new Task(method, lines.getFormula(i), i));
+                    }
+                    taken++;
+                } while (taken < threads && hasNextBestLine());
+                execute(round);
+                // merge results in a deterministic order
+                for (int j = 0; j < round.size(); j++) {
+                    final Task task = (Task) round.get(j);
+                    for (int k = 0; k < task.formulas.size(); k++) {
+                        addFormula((Element) task.formulas.get(k), (Reason) task.reasons.get(k));
+                    }
+                    tryModusPonensAll();
+                }
+            }
+        } finally {
+            stopWorkers();
+        }
+    }
+
+    /**
+     * Start worker threads.
+     */
+    private void startWorkers() {
+        synchronized (lock) {
+            tasks = new ArrayList();
+            nextTask = 0;
+            unfinished = 0;
+            shutdown = false;
+        }
+        for (int i = 0; i < threads; i++) {
+            new Worker().start();
+        }
+    }
+
+    /**
+     * Tell all worker threads to stop.
+     */
+    private void stopWorkers() {
+        synchronized (lock) {
+            shutdown = true;
+            tasks = null;
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Let the workers execute all given tasks and wait until they are finished.
+     *
+     * @param   round   Tasks to execute. Elements are of type {@link Task}.
+     * @throws  InterruptException  We were interrupted while waiting.
+     */
+    private void execute(final List round) throws InterruptException {
+        synchronized (lock) {
+            tasks = round;
+            nextTask = 0;
+            unfinished = round.size();
+            lock.notifyAll();
+            while (unfinished > 0) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    throw new InterruptException(getContext());
+                }
+            }
+        }
+        for (int j = 0; j < round.size(); j++) {
+            final Task task = (Task) round.get(j);
+            if (task.error instanceof RuntimeException) {
+                throw (RuntimeException) task.error;
+            } else if (task.error instanceof Error) {
+                throw (Error) task.error;
+            } else if (task.error != null) {
+                // this doesn't happen, because we don't throw any
+                throw new IllegalStateException(task.error.toString());
+            }
+        }
+    }
+
+    /**
+     * Get next task to work on. Waits until there is one.
+     *
+     * @return  Next task. <code>null</code> if the worker should stop.
+     */
+    private Task takeTask() {
+        synchronized (lock) {
+            while (!shutdown && nextTask >= tasks.size()) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    return null;
+                }
+            }
+            if (shutdown) {
+                return null;
+            }
+            return (Task) tasks.get(nextTask++);
+        }
+    }
+
+    /**
+     * Mark a task as finished.
+     */
+    private void taskDone() {
+        synchronized (lock) {
+            unfinished--;
+            if (unfinished == 0) {
+                lock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Substitution of one proof line by one method.
+     */
+    private final class Task implements LineCollector {
+
+        /** Substitution method. */
+        private final SubstitutionMethod method;
+
+        /** Proof line formula. */
+        private final Element formula;
+
+        /** Proof line number. */
+        private final int line;
+
+        /** Created formulas. */
+        private final List formulas = new ArrayList();
+
+        /** Reasons for created formulas. */
+        private final List reasons = new ArrayList();
+
+        /** Unexpected error during substitution. Rethrown by the searching thread. */
+        private Throwable error;
+
+        /** Makes created formulas immutable. Set during execution. */
+        private ElementFactory factory;
+
+        /**
+         * Constructor.
+         *
+         * @param   method  Substitution method.
+         * @param   formula Proof line formula.
+         * @param   line    Proof line number.
+         */
+        Task(final SubstitutionMethod method, final Element formula, final int line) {
+            this.method = method;
+            this.formula = formula;
+            this.line = line;
+        }
+
+        /**
+         * Create all formulas.
+         *
+         * @param   workerFactory   Makes created formulas immutable.
+         */
+        void execute(final ElementFactory workerFactory) {
+            factory = workerFactory;
+            try {
+                method.substitute(getSubstituter(), formula, line, this);
+            } catch (Throwable e) {
+                error = e;
+            } finally {
+                factory = null;
+            }
+        }
+
+        public void add(final Element created, final Reason reason) {
+            // we create immutable formulas here, so the hash code calculation is done
+            // by the worker and merging is cheap
+            formulas.add(factory.intern(created));
+            reasons.add(reason);
+        }
+
+    }
+
+    /**
+     * Worker thread that executes substitution tasks.
+     */
+    private final class Worker extends Thread {
+
+        /** Each worker has its own factory, so there is no lock contention. */
+        private final ElementFactory workerFactory = new ElementFactory();
+
+        /**
+         * Constructor.
+         */
+        Worker() {
+            super("ParallelProofFinderImpl worker");
+            setDaemon(true);
+        }
+
+        public void run() {
+            while (true) {
+                final Task task = takeTask();
+                if (task == null) {
+                    return;
+                }
+                try {
+                    task.execute(workerFactory);
+                } finally {
+                    taskDone();
+                }
+            }
+        }
+
+    }
+
+}
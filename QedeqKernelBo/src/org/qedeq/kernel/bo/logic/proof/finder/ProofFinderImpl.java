@@ -16,20 +16,19 @@
 package org.qedeq.kernel.bo.logic.proof.finder;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.SortedSet;
-import java.util.TreeSet;
 
 import org.qedeq.base.io.Parameters;
 import org.qedeq.base.utility.StringUtility;
 import org.qedeq.kernel.bo.common.Element2Utf8;
 import org.qedeq.kernel.bo.log.ModuleLogListener;
 import org.qedeq.kernel.bo.logic.common.FormulaUtility;
-import org.qedeq.kernel.bo.logic.common.Operators;
 import org.qedeq.kernel.bo.logic.proof.common.ProofException;
 import org.qedeq.kernel.bo.logic.proof.common.ProofFinder;
-import org.qedeq.kernel.bo.logic.proof.common.ProofFinderArgumentException;
 import org.qedeq.kernel.bo.logic.proof.common.ProofFoundException;
 import org.qedeq.kernel.bo.logic.proof.common.ProofNotFoundException;
 import org.qedeq.kernel.se.base.list.Element;
@@ -38,8 +37,9 @@ import org.qedeq.kernel.se.base.module.Add;
 import org.qedeq.kernel.se.base.module.FormalProofLineList;
 import org.qedeq.kernel.se.base.module.ModusPonens;
 import org.qedeq.kernel.se.base.module.Reason;
+import org.qedeq.kernel.se.base.module.SubstPred;
 import org.qedeq.kernel.se.common.ModuleContext;
-import org.qedeq.kernel.se.dto.list.DefaultElementList;
+import org.qedeq.kernel.se.dto.list.ElementFactory;
 import org.qedeq.kernel.se.dto.list.ElementSet;
 import org.qedeq.kernel.se.visitor.InterruptException;
 
@@ -51,11 +51,15 @@ import org.qedeq.kernel.se.visitor.InterruptException;
  */
 public class ProofFinderImpl implements ProofFinder {
 
-    /** List of proof lines. */
-    private List lines;
+    /** Time and memory budgets are checked if the number of proof lines has these bits
+     * cleared. */
+    private static final int BUDGET_CHECK_MASK = 0xFF;
 
-    /** List of reasons. */
-    private List reasons;
+    /** Proof lines. All formulas are created by {@link #factory}. */
+    private ProofLineStore lines;
+
+    /** Creates unique immutable formulas, so comparing proof lines is cheap. */
+    private ElementFactory factory;
 
     /** Set of all predicate variables that occur in this proof anywhere. */
     private ElementSet allPredVars;
@@ -66,9 +70,25 @@ public class ProofFinderImpl implements ProofFinder {
     /** Below this number MP was tried. */
     private int mpLast;
 
+    /** Maps unproven antecedents to the {@link List} of implication line numbers that need
+     * them for modus ponens. If renamed lines are skipped the canonical forms of the antecedents
+     * are used as keys. */
+    private Map mpWaiting;
+
     /** Goal to prove. */
     private Element goalFormula;
 
+    /** Maps the canonical form of proof line formulas to the {@link Integer} number of the
+     * first proof line with that form. <code>null</code> if lines that differ only in the
+     * naming of their proposition variables are not skipped. */
+    private Map canonicalLines;
+
+    /** Canonical form of goal. */
+    private Element goalCanonical;
+
+    /** Proposition variables that are not free for renaming. */
+    private ElementSet usedVars;
+
     /** Number of extra propositional variables. */
     private int extraVars;
 
@@ -78,12 +98,21 @@ public class ProofFinderImpl implements ProofFinder {
     /** Log proof line after this number of new proof lines. */
     private int logFrequence;
 
-    /** Ordered substitution methods that implement {@link Substitute}. */
+    /** Ordered substitution methods. Elements are of type {@link SubstitutionMethod}. */
     private SortedSet substitutionMethods;
 
     /** Maximum number of proof lines. */
     private int maxProofLines;
 
+    /** Maximum search time in milliseconds. 0 means no limit. */
+    private long maxMillis;
+
+    /** Maximum used heap memory in bytes. 0 means no limit. */
+    private long maxHeapBytes;
+
+    /** Search start time in milliseconds. */
+    private long startMillis;
+
     /** Here are we. */
     private ModuleContext context;
 
@@ -93,6 +122,20 @@ public class ProofFinderImpl implements ProofFinder {
     /** Transformer to get UTF-8 out of formulas. */
     private Element2Utf8 trans;
 
+    /** Creates substituted formulas. */
+    private FormulaSubstituter substituter;
+
+    /** Proof lines to work on for best-first search. <code>null</code> for breadth-first
+     * search. */
+    private LinePriorityQueue queue;
+
+    /** Adds created formulas as new proof lines. */
+    private final LineCollector collector = new LineCollector() {
+        public void add(final Element formula, final Reason reason) throws ProofException {
+            addFormula(formula, reason);
+        }
+    };
+
     /**
      * Constructor.
      */
@@ -104,11 +147,11 @@ public class ProofFinderImpl implements ProofFinder {
             final FormalProofLineList proof, final ModuleContext context,
             final Parameters parameters, final ModuleLogListener log, final Element2Utf8 trans)
             throws ProofException, InterruptException {
-        this.goalFormula = formula;
+        factory = new ElementFactory();
+        this.goalFormula = factory.intern(formula);
         this.context = new ModuleContext(context);  // use copy constructor to fix it
         this.log = log;
         this.trans = trans;
-        substitutionMethods = new TreeSet();
         extraVars = parameters.getInt("extraVars");
         maxProofLines = parameters.getInt("maximumProofLines");
         skipFormulas = parameters.getString("skipFormulas").trim();
@@ -118,48 +161,54 @@ public class ProofFinderImpl implements ProofFinder {
         }
         // TODO 20110606 m31: check that we have the correct format (e.g. only "," as separator)
         log.logMessageState("maximumProofLines = " + maxProofLines);
-        addSubstitionMethod(new SubstituteBase("propositionVariable", parameters) {
-            public void substitute(final int i) throws ProofException {
-                substituteByPropositionVariables(i);
-            }
-        });
-        addSubstitionMethod(new SubstituteBase("partFormula", parameters) {
-            public void substitute(final int i) throws ProofException {
-                substitutePartGoalFormulas(i);
-            }
-        });
-        addSubstitionMethod(new SubstituteBase("disjunction", parameters) {
-            public void substitute(final int i) throws ProofException {
-                substituteDisjunction(i);
-            }
-        });
-        addSubstitionMethod(new SubstituteBase("implication", parameters) {
-            public void substitute(final int i) throws ProofException {
-                substituteImplication(i);
-            }
-        });
-        addSubstitionMethod(new SubstituteBase("negation", parameters) {
-            public void substitute(final int i) throws ProofException {
-                substituteNegation(i);
-            }
-        });
-        addSubstitionMethod(new SubstituteBase("conjunction", parameters) {
-            public void substitute(final int i) throws ProofException {
-                substituteConjunction(i);
-            }
-        });
-        addSubstitionMethod(new SubstituteBase("equivalence", parameters) {
-            public void substitute(final int i) throws ProofException {
-                substituteEquivalence(i);
-            }
-        });
+        maxMillis = parameters.getLong("maxMillis", 0);
+        maxHeapBytes = parameters.getLong("maxHeapBytes", 0);
+        if (maxMillis > 0) {
+            log.logMessageState("maxMillis = " + maxMillis);
+        }
+        if (maxHeapBytes > 0) {
+            log.logMessageState("maxHeapBytes = " + maxHeapBytes);
+        }
+        startMillis = System.currentTimeMillis();
+        substitutionMethods = SubstitutionMethod.createMethods(parameters, this.context);
 
         logFrequence = parameters.getInt("logFrequence");
 
-        lines = new ArrayList();
-        reasons = new ArrayList();
+        lines = new ProofLineStore();
+        queue = null;
+        mpWaiting = new HashMap();
         setAllPredVars(proof);
-        partGoalFormulas = FormulaUtility.getPartFormulas(goalFormula);
+        final int known = lines.indexOf(goalFormula);
+        if (known >= 0 && !(lines.getReason(known) instanceof Add)) {
+            // goal was already derived in the initial proof lines
+            log.logMessageState(FinderErrors.PROOF_FOUND_TEXT + lines.size());
+            throw new ProofFoundException(FinderErrors.PROOF_FOUND_CODE,
+                FinderErrors.PROOF_FOUND_TEXT + lines.size(),
+                ProofFinderUtility.shortenProof(lines.getFormulas().subList(0, known + 1),
+                    lines.getReasons().subList(0, known + 1), log, trans), this.context);
+        }
+        partGoalFormulas = intern(FormulaUtility.getPartFormulas(goalFormula));
+        if (parameters.getBoolean("skipRenamedLines", true)) {
+            canonicalLines = new HashMap();
+            goalCanonical = factory.intern(FormulaUtility.getCanonicalForm(goalFormula));
+            usedVars = new ElementSet(allPredVars);
+            usedVars.union(FormulaUtility.getPropositionVariables(goalFormula));
+            for (int i = 0; i < lines.size(); i++) {
+                final Element c = factory.intern(FormulaUtility.getCanonicalForm(
+                    lines.getFormula(i)));
+                if (!canonicalLines.containsKey(c)) {
+                    canonicalLines.put(c, new Integer(i));
+                }
+            }
+            final Integer renamed = (Integer) canonicalLines.get(goalCanonical);
+            if (renamed != null) {
+                // goal differs from an initial proof line only in proposition variable names
+                addRenamed(renamed.intValue(), goalFormula);
+            }
+        } else {
+            canonicalLines = null;
+        }
+        substituter = new FormulaSubstituter(allPredVars, partGoalFormulas);
         log.logMessageState("our goal: " + trans.getUtf8(formula));
         log.logMessageState(("beside modus ponens we use following "
             + substitutionMethods.size() + " substitution rules:"));
@@ -169,66 +218,197 @@ public class ProofFinderImpl implements ProofFinder {
                 log.logMessageState("\t" + iter.next());
             }
         }
-        int size2 = 0;
+        if (parameters.getBoolean("truthTableCheck", true)
+                && TruthTablePreCheck.isNotDerivable(goalFormula, lines.getFormulas())) {
+            log.logMessageState(FinderErrors.GOAL_NOT_DERIVABLE_TEXT);
+            throw new ProofNotFoundException(FinderErrors.GOAL_NOT_DERIVABLE_CODE,
+                FinderErrors.GOAL_NOT_DERIVABLE_TEXT, this.context);
+        }
+        if ("bestFirst".equals(parameters.getString("searchStrategy"))) {
+            queue = new LinePriorityQueue(partGoalFormulas,
+                parameters.getInt("bestFirstSizeWeight", 1),
+                parameters.getInt("bestFirstGoalWeight", 1),
+                parameters.getInt("bestFirstDepthWeight", 2));
+            for (int i = 0; i < lines.size(); i++) {
+                queue.add(i, lines.getFormula(i), lines.getReason(i));
+            }
+            log.logMessageState("using best-first search");
+            searchBestFirst();
+        } else {
+            queue = null;
+            search();
+        }
+    }
+
+    /**
+     * Search for the goal formula by using modus ponens and all substitution methods.
+     * The substitution methods are applied in their order. Each method works on as many new
+     * proof lines as its weight says. After each substitution method modus ponens is tried.
+     *
+     * @throws  ProofException      Proof found, or limits exceeded.
+     * @throws  InterruptException  The search was interrupted.
+     */
+    protected void search() throws ProofException, InterruptException {
         while (true) {
             // check if the thread should be interrupted
             if (Thread.interrupted()) {
-                throw new InterruptException(this.context);
+                throw new InterruptException(context);
             }
-            int size1 = lines.size();
+            checkBudget();
+            final int size1 = lines.size();
             tryModusPonensAll();
             final Iterator iter = substitutionMethods.iterator();
             while (iter.hasNext()) {
-                final Substitute method = (Substitute) iter.next();
+                final SubstitutionMethod method = (SubstitutionMethod) iter.next();
                 for (int j = 0; j < method.getWeight(); j++) {
-                    if (method.nextLine() >= lines.size()) {
+                    final int i = method.nextLine();
+                    if (i >= lines.size()) {
                         break;
                     }
-                    method.substitute();
+                    method.substitute(substituter, lines.getFormula(i), i, collector);
+                    method.incrementNextLine();
                 }
                 tryModusPonensAll();
             }
-            size2 = lines.size();
-            if (size1 == size2) {
-                boolean ready = true;
-                final Iterator i = substitutionMethods.iterator();
-                while (i.hasNext()) {
-                    final Substitute method = (Substitute) i.next();
-                    if (method.nextLine() < lines.size()) {
-                        ready = false;
-                        break;
-                    }
-                }
-                if (ready) {
-                    // we didn't generate new lines, so we just quit
-                    log.logMessageState(FinderErrors.PROOF_NOT_FOUND_TEXT + size2);
-                    throw new ProofNotFoundException(FinderErrors.PROOF_NOT_FOUND_CODE,
-                            FinderErrors.PROOF_NOT_FOUND_TEXT + size2, context);
-                }
+            if (size1 == lines.size()) {
+                checkSearchFinished();
+            }
+        }
+    }
+
+    /**
+     * Search for the goal formula by using modus ponens and all substitution methods.
+     * The proof line with the best score is taken next and all substitution methods are applied
+     * to it. A lower score is given to smaller formulas, formulas with many part formulas of the
+     * goal and formulas with a short derivation. After each substitution method modus ponens
+     * is tried.
+     *
+     * @throws  ProofException      Proof found, or limits exceeded.
+     * @throws  InterruptException  The search was interrupted.
+     */
+    protected void searchBestFirst() throws ProofException, InterruptException {
+        while (true) {
+            // check if the thread should be interrupted
+            if (Thread.interrupted()) {
+                throw new InterruptException(context);
+            }
+            checkBudget();
+            tryModusPonensAll();
+            final int i = nextBestLine();
+            final Iterator iter = substitutionMethods.iterator();
+            while (iter.hasNext()) {
+                final SubstitutionMethod method = (SubstitutionMethod) iter.next();
+                method.substitute(substituter, lines.getFormula(i), i, collector);
+                tryModusPonensAll();
+            }
+        }
+    }
+
+    /**
+     * Remove the proof line with the best score from the best-first queue.
+     *
+     * @return  Proof line number.
+     * @throws  ProofNotFoundException  There are no more proof lines to work on.
+     */
+    protected int nextBestLine() throws ProofNotFoundException {
+        if (queue.isEmpty()) {
+            // we can't generate new lines, so we just quit
+            final int size = lines.size();
+            log.logMessageState(FinderErrors.PROOF_NOT_FOUND_TEXT + size);
+            throw new ProofNotFoundException(FinderErrors.PROOF_NOT_FOUND_CODE,
+                    FinderErrors.PROOF_NOT_FOUND_TEXT + size, context);
+        }
+        return queue.removeFirst();
+    }
+
+    /**
+     * Are there more proof lines to work on for best-first search?
+     *
+     * @return  Best-first queue is not empty.
+     */
+    protected boolean hasNextBestLine() {
+        return !queue.isEmpty();
+    }
+
+    /**
+     * Throw a {@link ProofNotFoundException} if all substitution methods have worked on all
+     * proof lines.
+     *
+     * @throws  ProofNotFoundException  No more proof lines can be created.
+     */
+    protected void checkSearchFinished() throws ProofNotFoundException {
+        final Iterator i = substitutionMethods.iterator();
+        while (i.hasNext()) {
+            final SubstitutionMethod method = (SubstitutionMethod) i.next();
+            if (method.nextLine() < lines.size()) {
+                return;
+            }
+        }
+        // we didn't generate new lines, so we just quit
+        final int size = lines.size();
+        log.logMessageState(FinderErrors.PROOF_NOT_FOUND_TEXT + size);
+        throw new ProofNotFoundException(FinderErrors.PROOF_NOT_FOUND_CODE,
+                FinderErrors.PROOF_NOT_FOUND_TEXT + size, context);
+    }
+
+    /**
+     * Throw a {@link ProofNotFoundException} if the search time or the used heap memory
+     * exceeds its budget. The used heap memory is measured for the whole virtual machine.
+     *
+     * @throws  ProofNotFoundException  A budget was exceeded.
+     */
+    protected void checkBudget() throws ProofNotFoundException {
+        if (maxMillis > 0) {
+            final long millis = System.currentTimeMillis() - startMillis;
+            if (millis > maxMillis) {
+                final String msg = FinderErrors.TIME_BUDGET_EXCEEDED_TEXT + millis + " ms, "
+                    + lines.size() + " proof lines";
+                log.logMessageState(msg);
+                throw new ProofNotFoundException(FinderErrors.TIME_BUDGET_EXCEEDED_CODE, msg,
+                    context);
+            }
+        }
+        if (maxHeapBytes > 0) {
+            final Runtime runtime = Runtime.getRuntime();
+            final long used = runtime.totalMemory() - runtime.freeMemory();
+            if (used > maxHeapBytes) {
+                final String msg = FinderErrors.MEMORY_BUDGET_EXCEEDED_TEXT + used + " bytes, "
+                    + lines.size() + " proof lines";
+                log.logMessageState(msg);
+                throw new ProofNotFoundException(FinderErrors.MEMORY_BUDGET_EXCEEDED_CODE, msg,
+                    context);
             }
-            size1 = size2;
         }
     }
 
     private void setAllPredVars(final FormalProofLineList proof) {
         log.logMessageState("using the following formulas:");
         allPredVars = new ElementSet();
+        // maps labels to line numbers
+        final Map labels = new HashMap();
         // add all "add" proof formulas to our proof line list
         for (int i = 0; i < proof.size(); i++) {
             // should we skip this formula
             if (skipFormulas.indexOf("," + (i + 1) + ",") >= 0) {
                 continue;
             }
-            final Reason reason = proof.get(i).getReason();
+            final Element formula = factory.intern(proof.get(i).getFormula().getElement());
+            Reason reason = proof.get(i).getReason();
             if (!(reason instanceof Add)) {
-                continue;
+                reason = getDerivedReason(formula, reason, labels);
+                if (reason == null) {
+                    continue;
+                }
+            }
+            if (lines.add(formula, reason) >= 0) {
+                log.logMessageState(ProofFinderUtility.getUtf8Line(formula, reason, i, trans));
+            }
+            if (proof.get(i).getLabel() != null) {
+                labels.put(proof.get(i).getLabel(), new Integer(lines.indexOf(formula)));
+            }
+            if (reason instanceof Add) {
+                allPredVars.union(FormulaUtility.getPropositionVariables(formula));
             }
-            final Element formula = proof.get(i).getFormula().getElement();
-            lines.add(formula);
-            reasons.add(reason);
-            log.logMessageState(ProofFinderUtility.getUtf8Line(formula, reason, i, trans));
-            allPredVars.union(FormulaUtility.getPropositionVariables(
-                formula));
         }
         String max = "A";
         final Iterator iter = allPredVars.iterator();
@@ -246,374 +426,323 @@ public class ProofFinderImpl implements ProofFinder {
             // add extra predicate variable
             allPredVars.add(FormulaUtility.createPredicateVariable(max));
         }
+        allPredVars = intern(allPredVars);
     }
 
     /**
-     * Try all Modus Ponens with all new lines. Remember tested maximum.
+     * Get reason for an initial proof line that was derived from previous lines.
+     * The derivation is checked.
      *
-     * @throws  ProofException  Proof found, or limits exceeded.
+     * @param   formula Proof line formula.
+     * @param   reason  Reason for the formula. Must be modus ponens or predicate substitution.
+     * @param   labels  Maps labels of previous proof lines to their {@link Integer} line number.
+     * @return  Reason with line numbers. <code>null</code> if the reason is not supported, uses
+     *          unknown labels or is wrong.
      */
-    private void tryModusPonensAll() throws ProofException {
-        int until = lines.size();
-        for (int i = 0; i < until; i++) {
-            final Element first = (Element) lines.get(i);
-            if (!FormulaUtility.isImplication(first)) {
-                continue;
+    private Reason getDerivedReason(final Element formula, final Reason reason,
+            final Map labels) {
+        if (reason instanceof ModusPonens) {
+            final ModusPonens mp = (ModusPonens) reason;
+            final Integer n1 = (Integer) labels.get(mp.getReference1());
+            final Integer n2 = (Integer) labels.get(mp.getReference2());
+            if (n1 == null || n2 == null) {
+                return null;
             }
-            for (int j = (i < mpLast ? mpLast : 0); j < until; j++) {
-                if (first.getList().getElement(0).equals(
-                        lines.get(j))) {
-                    final ModusPonens mp = new ModusPonensBo(i, j);
-                    addFormula(first.getList().getElement(1), mp);
-                }
+            final Element implication = lines.getFormula(n1.intValue());
+            if (!FormulaUtility.isImplication(implication)
+                    || !implication.getList().getElement(0).equals(lines.getFormula(n2.intValue()))
+                    || !implication.getList().getElement(1).equals(formula)) {
+                return null;
+            }
+            return new ModusPonensBo(n1.intValue(), n2.intValue());
+        } else if (reason instanceof SubstPred) {
+            final SubstPred subst = (SubstPred) reason;
+            final Integer n = (Integer) labels.get(subst.getReference());
+            if (n == null || !FormulaUtility.replaceOperatorVariable(lines.getFormula(n.intValue()),
+                    subst.getPredicateVariable(), subst.getSubstituteFormula()).equals(formula)) {
+                return null;
             }
+            return new SubstPredBo(n.intValue(), subst.getPredicateVariable(),
+                subst.getSubstituteFormula());
         }
-        mpLast = until;
+        return null;
     }
 
     /**
-     * Make all possible substitutions by propositional variables in a proof line.
+     * Get set of unique immutable representatives for given elements.
      *
-     * @param   i   Proof line number we want to try substitution.
-     * @throws  ProofException We found a proof or have to end the search!
+     * @param   set Elements.
+     * @return  Set of representatives.
      */
-    private void substituteByPropositionVariables(final int i) throws ProofException {
-        final Element f = (Element) lines.get(i);
-        final ElementSet vars = FormulaUtility.getPropositionVariables(f);
-        final Iterator iter = vars.iterator();
+    private ElementSet intern(final ElementSet set) {
+        final ElementSet result = new ElementSet();
+        final Iterator iter = set.iterator();
         while (iter.hasNext()) {
-            final ElementList var = (ElementList) iter.next();
-            final Iterator all = allPredVars.iterator();
-            while (all.hasNext()) {
-                final ElementList subst = (ElementList) all.next();
-                if (var.equals(subst)) {
-                    continue;
-                }
-                final Element created = FormulaUtility.replaceOperatorVariable(
-                    f, var, subst);
-                    addFormula(created, new SubstPredBo(i, var, subst));
-            }
+            result.add(factory.intern((Element) iter.next()));
         }
+        return result;
     }
 
     /**
-     * Make all substitutions by part goal formulas in a proof line.
+     * Try all Modus Ponens with all new lines. Remember tested maximum.
+     * Each new line is only combined with the lines it really matches: an implication
+     * with an already proven antecedent and the implications that wait for the new line
+     * as their antecedent.
      *
-     * @param   i   Proof line number we want to try substitution.
-     * @throws  ProofException We found a proof or have to end the search!
+     * @throws  ProofException  Proof found, or limits exceeded.
      */
-    private void substitutePartGoalFormulas(final int i) throws ProofException {
-        final Element f = (Element) lines.get(i);
-        final ElementSet vars = FormulaUtility.getPropositionVariables(f);
-        final Iterator iter = vars.iterator();
-        while (iter.hasNext()) {
-            final ElementList var = (ElementList) iter.next();
-            {
-                final Iterator all = partGoalFormulas.iterator();
-              while (all.hasNext()) {
-                  final ElementList subst = (ElementList) all.next();
-                  if (var.equals(subst)) {
-                      continue;
-                  }
-                  final Element created = FormulaUtility.replaceOperatorVariable(
-                      f, var, subst);
-                  addFormula(created, new SubstPredBo(i, var, subst));
-               }
+    protected void tryModusPonensAll() throws ProofException {
+        final int until = lines.size();
+        for (int n = mpLast; n < until; n++) {
+            // set before adding new lines, because addFormula might throw an exception
+            mpLast = n + 1;
+            final Element formula = lines.getFormula(n);
+            if (FormulaUtility.isImplication(formula)) {
+                final Element antecedent = formula.getList().getElement(0);
+                final Object key = getWaitingKey(antecedent);
+                final int j = lines.indexOf(antecedent);
+                final Integer k = (canonicalLines != null ? (Integer) canonicalLines.get(key)
+                    : null);
+                if (j >= 0 && j < n) {
+                    final ModusPonens mp = new ModusPonensBo(n, j);
+                    addFormula(formula.getList().getElement(1), mp);
+                } else if (k != null && k.intValue() < n) {
+                    final ModusPonens mp = new ModusPonensBo(n, addRenamed(k.intValue(),
+                        antecedent));
+                    addFormula(formula.getList().getElement(1), mp);
+                } else {
+                    List waiting = (List) mpWaiting.get(key);
+                    if (waiting == null) {
+                        waiting = new ArrayList();
+                        mpWaiting.put(key, waiting);
+                    }
+                    waiting.add(new Integer(n));
+                }
+            }
+            final List waiting = (List) mpWaiting.remove(getWaitingKey(formula));
+            if (waiting != null) {
+                for (int k = 0; k < waiting.size(); k++) {
+                    final int i = ((Integer) waiting.get(k)).intValue();
+                    final ElementList implication = lines.getFormula(i).getList();
+                    final ModusPonens mp = new ModusPonensBo(i, addRenamed(n,
+                        implication.getElement(0)));
+                    addFormula(implication.getElement(1), mp);
+                }
             }
         }
     }
 
     /**
-     * Make all substitutions by negation in a proof line.
+     * Add new proof line if it is not already known.
      *
-     * @param   i   Proof line number we want to try substitution.
-     * @throws  ProofException We found a proof or have to end the search!
+     * @param   created Formula of new proof line.
+     * @param   reason  Reason for the new proof line.
+     * @throws  ProofException  Proof found, or limits exceeded.
      */
-    private void substituteNegation(final int i) throws ProofException {
-        final Element f = (Element) lines.get(i);
-        final ElementSet vars = FormulaUtility.getPropositionVariables(f);
-        final Iterator iter = vars.iterator();
-        while (iter.hasNext()) {
-            final ElementList var = (ElementList) iter.next();
-            final Iterator all = allPredVars.iterator();
-            while (all.hasNext()) {
-                final ElementList var2 = (ElementList) all.next();
-                final ElementList subst = new DefaultElementList(Operators.NEGATION_OPERATOR);
-                subst.add(var2);
-                final Element created = FormulaUtility.replaceOperatorVariable(
-                    f, var, subst);
-                addFormula(created, new SubstPredBo(i, var, subst));
+    protected void addFormula(final Element created, final Reason reason) throws ProofException {
+        final Element formula = factory.intern(created);
+        if (canonicalLines != null && !lines.contains(formula)) {
+            final Element c = factory.intern(FormulaUtility.getCanonicalForm(formula));
+            final Integer known = (Integer) canonicalLines.get(c);
+            if (known != null) {
+                // we already have this formula with other proposition variable names
+                if (goalCanonical.equals(c)) {
+                    addRenamed(known.intValue(), goalFormula);
+                }
+                return;
+            }
+            canonicalLines.put(c, new Integer(lines.size()));
+            if (goalCanonical.equals(c) && !goalFormula.equals(formula)) {
+                addLine(formula, reason);
+                addRenamed(lines.size() - 1, goalFormula);
+                return;
             }
         }
+        addLine(formula, reason);
     }
 
     /**
-     * Make all substitutions by conjunction in a proof line.
+     * Get key for {@link #mpWaiting}.
      *
-     * @param   i   Proof line number we want to try substitution.
-     * @throws  ProofException We found a proof or have to end the search!
+     * @param   antecedent  Antecedent that is waited for.
+     * @return  Key for waiting implications.
      */
-    private void substituteConjunction(final int i) throws ProofException {
-        final Element f = (Element) lines.get(i);
-        final ElementSet vars = FormulaUtility.getPropositionVariables(f);
-        final Iterator iter = vars.iterator();
-        while (iter.hasNext()) {
-            final ElementList var = (ElementList) iter.next();
-            createReplacement(i, f, var, Operators.CONJUNCTION_OPERATOR, true);
-            createReplacement(i, f, var, Operators.CONJUNCTION_OPERATOR, false);
+    private Object getWaitingKey(final Element antecedent) {
+        if (canonicalLines == null) {
+            return antecedent;
         }
+        return factory.intern(FormulaUtility.getCanonicalForm(antecedent));
     }
 
     /**
-     * Make all substitutions by disjunction in a proof line.
+     * Derive a formula from a proof line that differs only in the naming of its proposition
+     * variables. The proposition variables are substituted one by one. If a new name is
+     * already used within the original formula the variable gets a temporary name first.
      *
-     * @param   i   Proof line number we want to try substitution.
-     * @throws  ProofException We found a proof or have to end the search!
+     * @param   n       Proof line number.
+     * @param   target  Renamed proof line formula.
+     * @return  Proof line number of <code>target</code>.
+     * @throws  ProofException  Proof found, or limits exceeded.
      */
-    private void substituteDisjunction(final int i) throws ProofException {
-        final Element f = (Element) lines.get(i);
-        final ElementSet vars = FormulaUtility.getPropositionVariables(f);
-        final Iterator iter = vars.iterator();
-        while (iter.hasNext()) {
-            final ElementList var = (ElementList) iter.next();
-            createReplacement(i, f, var, Operators.DISJUNCTION_OPERATOR, true);
-            createReplacement(i, f, var, Operators.DISJUNCTION_OPERATOR, false);
+    private int addRenamed(final int n, final Element target) throws ProofException {
+        final List from = FormulaUtility.getPropositionVariablesInOrder(lines.getFormula(n));
+        final List to = FormulaUtility.getPropositionVariablesInOrder(target);
+        final Element[] temp = new Element[from.size()];
+        int line = n;
+        int free = 0;
+        for (int i = 0; i < from.size(); i++) {
+            if (from.get(i).equals(to.get(i))) {
+                continue;
+            }
+            if (!from.contains(to.get(i))) {
+                line = addRenamed(line, (Element) from.get(i), (Element) to.get(i));
+                continue;
+            }
+            Element var;
+            do {
+                var = FormulaUtility.createPredicateVariable(getTemporaryName(free++));
+            } while (usedVars.contains(var) || from.contains(var) || to.contains(var));
+            temp[i] = var;
+            line = addRenamed(line, (Element) from.get(i), var);
+        }
+        for (int i = 0; i < from.size(); i++) {
+            if (temp[i] != null) {
+                line = addRenamed(line, temp[i], (Element) to.get(i));
+            }
         }
+        return line;
     }
 
     /**
-     * Make all substitutions by implication in a proof line.
+     * Add proof line by substituting a proposition variable by another one. The new line is
+     * added even if there is already a proof line with the same canonical form.
      *
-     * @param   i   Proof line number we want to try substitution.
-     * @throws  ProofException We found a proof or have to end the search!
+     * @param   n       Proof line number.
+     * @param   var     Replace this proposition variable.
+     * @param   subst   By this proposition variable.
+     * @return  Proof line number of created formula.
+     * @throws  ProofException  Proof found, or limits exceeded.
      */
-    private void substituteImplication(final int i) throws ProofException {
-        final Element f = (Element) lines.get(i);
-        final ElementSet vars = FormulaUtility.getPropositionVariables(f);
-        final Iterator iter = vars.iterator();
-        while (iter.hasNext()) {
-            final ElementList var = (ElementList) iter.next();
-            createReplacement(i, f, var, Operators.IMPLICATION_OPERATOR, true);
-            createReplacement(i, f, var, Operators.IMPLICATION_OPERATOR, false);
-        }
+    private int addRenamed(final int n, final Element var, final Element subst)
+            throws ProofException {
+        final Element formula = factory.intern(FormulaUtility.replaceOperatorVariable(
+            lines.getFormula(n), var, subst));
+        addLine(formula, new SubstPredBo(n, var, subst));
+        return lines.indexOf(formula);
     }
 
     /**
-     * Make all substitutions by equivalence in a proof line.
+     * Get name for a temporary proposition variable.
      *
-     * @param   i   Proof line number we want to try substitution.
-     * @throws  ProofException We found a proof or have to end the search!
+     * @param   i   Number of temporary variable.
+     * @return  Name.
      */
-    private void substituteEquivalence(final int i) throws ProofException {
-        final Element f = (Element) lines.get(i);
-        final ElementSet vars = FormulaUtility.getPropositionVariables(f);
-        final Iterator iter = vars.iterator();
-        while (iter.hasNext()) {
-            final ElementList var = (ElementList) iter.next();
-            createReplacement(i, f, var, Operators.EQUIVALENCE_OPERATOR, true);
-            createReplacement(i, f, var, Operators.EQUIVALENCE_OPERATOR, false);
+    private static String getTemporaryName(final int i) {
+        if (i < 26) {
+            return String.valueOf((char) ('Z' - i));
         }
+        return "Z" + (i - 25);
     }
 
     /**
-     * Substitute predicate variable <code>var</code> by binary operator with old variable
-     * and new variable and add this as a new proof line.
+     * Add new proof line if it is not already known.
      *
-     * @param   i           Proof line number we work on.
-     * @param   f           Proof line formula.
-     * @param   var         Predicate variable we want to replace.
-     * @param   operator    Operator of replacement formula.
-     * @param   left        Is old variable at left hand of new operator?
-     * @throws  ProofException We found a proof or have to end the search!
+     * @param   formula Formula of new proof line. Must be created by {@link #factory}.
+     * @param   reason  Reason for the new proof line.
+     * @throws  ProofException  Proof found, or limits exceeded.
      */
-    private void createReplacement(final int i, final Element f,
-            final ElementList var, final String operator, final boolean left) throws ProofException {
-        final Iterator a = allPredVars.iterator();
-        while (a.hasNext()) {
-            final ElementList var2 = (ElementList) a.next();
-            final ElementList subst = new DefaultElementList(operator);
-            if (left) {
-                subst.add(var);
-                subst.add(var2);
-            } else {
-                subst.add(var2);
-                subst.add(var);
-            }
-            final Element created = FormulaUtility.replaceOperatorVariable(
-                f, var, subst);
-            addFormula(created, new SubstPredBo(i, var, subst));
-        }
-    }
-
-    private void addFormula(final Element formula, final Reason reason) throws ProofException {
-        if (!lines.contains(formula)) {
-            lines.add(formula);
-            reasons.add(reason);
-//            printLine(lines.size() - 1);
+    private void addLine(final Element formula, final Reason reason) throws ProofException {
+        if (lines.add(formula, reason) >= 0) {
+            if (queue != null) {
+                queue.add(lines.size() - 1, formula, reason);
+            }
             if (goalFormula.equals(formula)) {
                 final int size = lines.size();
                 log.logMessageState(FinderErrors.PROOF_FOUND_TEXT + size);
                 throw new ProofFoundException(FinderErrors.PROOF_FOUND_CODE,
                     FinderErrors.PROOF_FOUND_TEXT + size,
-                    ProofFinderUtility.shortenProof(lines, reasons, log, trans), context);
+                    ProofFinderUtility.shortenProof(lines.getFormulas(), lines.getReasons(),
+                        log, trans), context);
             }
             // did we reach our maximum?
             if (lines.size() >= maxProofLines) {
                 final int size = lines.size();
                 if (logFrequence > 0) {
-                    log.logMessageState(ProofFinderUtility.getUtf8Line(lines, reasons, lines.size() - 1,
-                        trans));
+                    log.logMessageState(ProofFinderUtility.getUtf8Line(lines.getFormulas(),
+                        lines.getReasons(), lines.size() - 1, trans));
                 }
                 log.logMessageState(FinderErrors.PROOF_NOT_FOUND_TEXT + size);
                 throw new ProofNotFoundException(FinderErrors.PROOF_NOT_FOUND_CODE,
                     FinderErrors.PROOF_NOT_FOUND_TEXT + size, context);
             }
+            // budgets are checked only now and then
+            if ((lines.size() & BUDGET_CHECK_MASK) == 0) {
+                checkBudget();
+            }
             if (logFrequence > 0 && (lines.size() - 1) % logFrequence == 0) {
-                log.logMessageState(ProofFinderUtility.getUtf8Line(lines, reasons, lines.size() - 1,
-                        trans));
+                log.logMessageState(ProofFinderUtility.getUtf8Line(lines.getFormulas(),
+                    lines.getReasons(), lines.size() - 1, trans));
             }
         }
     }
 
-    public String getExecutionActionDescription() {
-        return ProofFinderUtility.getUtf8Line(lines, reasons, lines.size() - 1, trans);
+    /**
+     * Get proof lines.
+     *
+     * @return  Proof lines.
+     */
+    protected ProofLineStore getLines() {
+        return lines;
     }
 
-    private void addSubstitionMethod(final Substitute rule) throws ProofException {
-        final Iterator iter = substitutionMethods.iterator();
-        while (iter.hasNext()) {
-            Substitute r = (Substitute) iter.next();
-            if (rule.getWeight() > 0 && r.getWeight() > 0 && rule.getOrder() == r.getOrder()) {
-                throw new ProofFinderArgumentException(FinderErrors.PROOF_FINDER_ARGUMENTS_ERROR_CODE,
-                    FinderErrors.PROOF_FINDER_ARGUMENTS_ERROR_TEXT + "same order for rules "
-                    + r + " and " + rule, context);
-            }
-        }
-        if (rule.getWeight() > 0) {
-            substitutionMethods.add(rule);
-        }
+    /**
+     * Get substitution methods.
+     *
+     * @return  Ordered substitution methods. Elements are of type {@link SubstitutionMethod}.
+     */
+    protected SortedSet getSubstitutionMethods() {
+        return substitutionMethods;
     }
 
     /**
-     * These is the basis implementation for substitution methods.
+     * Get creator of substituted formulas.
+     *
+     * @return  Substituter.
      */
-    private abstract class SubstituteBase implements Substitute {
-
-        /** Name of substitution method. */
-        private final String name;
-
-        /** Next proof line we will work on. */
-        private int next = 0;
-
-        /** Weight of proof method. */
-        private final int weight;
-
-        /** Order of proof method. */
-        private final int order;
-
-        /**
-         * Substitute rule implementation.
-         *
-         * @param name        What kind of term we want to replace.
-         * @param parameters  Parameters with name + "Weight" and name + "Order"
-         */
-        SubstituteBase(final String name, final Parameters parameters) {
-            this.name = name;
-            this.weight = parameters.getInt(name + "Weight");
-            this.order = parameters.getInt(name + "Order");
-        }
-
-        public String getName() { return name; }
-
-        public int getWeight() {
-            return weight;
-        }
-
-        public int getOrder() {
-            return order;
-        }
-
-        public int nextLine() {
-            return next;
-        }
-
-        public int compareTo(final Object obj) {
-            if (obj instanceof Substitute) {
-                Substitute sub = (Substitute) obj;
-                // we don't return 0 because the TreeSet gets no more elements
-                // if we have methods with same order value
-                if (order == sub.getOrder()) {
-                    return -1;
-                }
-                if (order < sub.getOrder()) {
-                    return -1;
-                }
-                return 1;
-            }
-            return -1;
-        }
-
-        public String toString() {
-            return "" + order + ": " + name + " " + weight;
-        }
-
-        public int hashCode() {
-            return toString().hashCode();
-        }
-
-        public void substitute() throws ProofException {
-            substitute(next);
-            next++;
-        }
-
-        public abstract void substitute(int i) throws ProofException;
+    FormulaSubstituter getSubstituter() {
+        return substituter;
+    }
 
+    /**
+     * Get factory for creating unique proof line formulas.
+     *
+     * @return  Factory.
+     */
+    protected ElementFactory getFactory() {
+        return factory;
     }
 
+    /**
+     * Get location of proposition we want to prove.
+     *
+     * @return  Location.
+     */
+    protected ModuleContext getContext() {
+        return context;
+    }
 
     /**
-     * Work on proof line and substitute proposition variables.
+     * Get log.
      *
+     * @return  Log progress herein.
      */
-    interface Substitute extends Comparable {
-
-        /**
-         * Get name substitution rule.
-         *
-         * @return  Name.
-         */
-        public String getName();
-
-        /**
-         * Return next proof line number we will work on.
-         *
-         * @return  Next proof line number we will worked on.
-         */
-        public int nextLine();
-
-        /**
-         * Substitute next proof line number.
-         *
-         * @throws  ProofException We found a proof or have to end the search!
-         */
-        public void substitute() throws ProofException;
-
-        /**
-         * Get weight of substitution rule. This is the number of runs for this
-         * substitution.
-         *
-         * @return  Weight.
-         */
-        public int getWeight();
-
-        /**
-         * Get order position of substitution rule. This says about the sequence position of this
-         * substitution method.
-         *
-         * @return  Order position.
-         */
-        public int getOrder();
+    protected ModuleLogListener getLog() {
+        return log;
+    }
 
+    public String getExecutionActionDescription() {
+        return ProofFinderUtility.getUtf8Line(lines.getFormulas(), lines.getReasons(),
+            lines.size() - 1, trans);
     }
 
 }
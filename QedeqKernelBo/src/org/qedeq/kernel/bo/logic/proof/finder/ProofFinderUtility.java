@@ -52,7 +52,7 @@ public final class ProofFinderUtility {
     }
 
     /**
-     * Shorten given formal proof.
+     * Shorten given formal proof. The resulting proof contains copies of the given formulas.
      *
      * @param   lines   Lines of formulas.
      * @param   reasons Reasons for derivation of formula. Must be Add, MP or SubstPred.
@@ -111,7 +111,7 @@ public final class ProofFinderUtility {
             } else if (r instanceof SubstPredBo) {
                 final SubstPredBo substPred = (SubstPredBo) reasons.get(n);
                 newReason = new SubstPredVo("" + (1 + old2new(substPred.getN())),
-                   substPred.getPredicateVariable(), substPred.getSubstituteFormula());
+                   substPred.getPredicateVariable().copy(), substPred.getSubstituteFormula().copy());
             } else if (r instanceof Add) {
                 final Add add = (Add) reasons.get(n);
                 newReason = new AddVo(add.getReference());
@@ -119,7 +119,7 @@ public final class ProofFinderUtility {
                 throw new IllegalStateException("unexpected reason class: " + r.getClass());
             }
             result.add(new FormalProofLineVo("" + (1 + j),
-                new FormulaVo((Element) lines.get(new2old(j))),
+                new FormulaVo(((Element) lines.get(new2old(j))).copy()),
                 newReason));
         }
         for (int j = 0; j < result.size(); j++) {
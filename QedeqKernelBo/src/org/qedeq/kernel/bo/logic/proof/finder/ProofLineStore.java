@@ -0,0 +1,143 @@
+/* This file is part of the project "Hilbert II" - http://www.qedeq.org
+ *
+ * Copyright 2000-2014,  Michael Meyling <mime@qedeq.org>.
+ *
+ * "Hilbert II" is free software; you can redistribute
+ * it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ */
+
+package org.qedeq.kernel.bo.logic.proof.finder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.qedeq.kernel.se.base.list.Element;
+import org.qedeq.kernel.se.base.module.Reason;
+
+
+/**
+ * Proof lines of a proof finder. Each formula occurs only once. The lines are numbered in
+ * the order they were added, starting with 0. These line numbers are referenced by
+ * {@link ModusPonensBo} and {@link SubstPredBo}. Looking up a formula is done by hashing
+ * instead of a linear search.
+ *
+ * @author  Michael Meyling
+ */
+public final class ProofLineStore {
+
+    /** List of proof line formulas. */
+    private final List lines = new ArrayList();
+
+    /** List of proof line reasons. */
+    private final List reasons = new ArrayList();
+
+    /** Maps formulas to their line number ({@link Integer}). */
+    private final Map index = new HashMap();
+
+    /**
+     * Constructor.
+     */
+    public ProofLineStore() {
+        // nothing to do
+    }
+
+    /**
+     * Add a new proof line if the formula is not already a proof line.
+     *
+     * @param   formula Proof line formula. Must not be changed afterwards.
+     * @param   reason  Reason for proof line.
+     * @return  Line number of new proof line. -1 if formula is already a proof line.
+     */
+    public int add(final Element formula, final Reason reason) {
+        if (index.containsKey(formula)) {
+            return -1;
+        }
+        final int n = lines.size();
+        index.put(formula, new Integer(n));
+        lines.add(formula);
+        reasons.add(reason);
+        return n;
+    }
+
+    /**
+     * Get line number of formula.
+     *
+     * @param   formula Look for this formula.
+     * @return  Line number. -1 if formula is no proof line.
+     */
+    public int indexOf(final Element formula) {
+        final Integer n = (Integer) index.get(formula);
+        if (n == null) {
+            return -1;
+        }
+        return n.intValue();
+    }
+
+    /**
+     * Is the formula already a proof line?
+     *
+     * @param   formula Look for this formula.
+     * @return  Is <code>formula</code> a proof line?
+     */
+    public boolean contains(final Element formula) {
+        return index.containsKey(formula);
+    }
+
+    /**
+     * Get proof line formula.
+     *
+     * @param   i   Line number.
+     * @return  Formula of proof line.
+     */
+    public Element getFormula(final int i) {
+        return (Element) lines.get(i);
+    }
+
+    /**
+     * Get proof line reason.
+     *
+     * @param   i   Line number.
+     * @return  Reason of proof line.
+     */
+    public Reason getReason(final int i) {
+        return (Reason) reasons.get(i);
+    }
+
+    /**
+     * Get number of proof lines.
+     *
+     * @return  Number of proof lines.
+     */
+    public int size() {
+        return lines.size();
+    }
+
+    /**
+     * Get all proof line formulas.
+     *
+     * @return  Read only list of formulas.
+     */
+    public List getFormulas() {
+        return Collections.unmodifiableList(lines);
+    }
+
+    /**
+     * Get all proof line reasons.
+     *
+     * @return  Read only list of reasons.
+     */
+    public List getReasons() {
+        return Collections.unmodifiableList(reasons);
+    }
+
+}
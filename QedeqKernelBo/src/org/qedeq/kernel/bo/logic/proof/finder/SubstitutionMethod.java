@@ -0,0 +1,222 @@
+/* This file is part of the project "Hilbert II" - http://www.qedeq.org
+ *
+ * Copyright 2000-2014,  Michael Meyling <mime@qedeq.org>.
+ *
+ * "Hilbert II" is free software; you can redistribute
+ * it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ */
+
+package org.qedeq.kernel.bo.logic.proof.finder;
+
+import java.util.Iterator;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import org.qedeq.base.io.Parameters;
+import org.qedeq.kernel.bo.logic.proof.common.ProofException;
+import org.qedeq.kernel.bo.logic.proof.common.ProofFinderArgumentException;
+import org.qedeq.kernel.se.base.list.Element;
+import org.qedeq.kernel.se.common.ModuleContext;
+
+
+/**
+ * These is the basis implementation for substitution methods. Each method works on the
+ * proof lines in their order and remembers the next proof line it will work on.
+ *
+ * @author  Michael Meyling
+ */
+abstract class SubstitutionMethod implements Comparable {
+
+    /** Name of substitution method. */
+    private final String name;
+
+    /** Next proof line we will work on. */
+    private int next = 0;
+
+    /** Weight of proof method. */
+    private final int weight;
+
+    /** Order of proof method. */
+    private final int order;
+
+    /**
+     * Substitute rule implementation.
+     *
+     * @param name        What kind of term we want to replace.
+     * @param parameters  Parameters with name + "Weight" and name + "Order"
+     */
+    SubstitutionMethod(final String name, final Parameters parameters) {
+        this.name = name;
+        this.weight = parameters.getInt(name + "Weight");
+        this.order = parameters.getInt(name + "Order");
+    }
+
+    /**
+     * Create all substitution methods with a positive weight.
+     *
+     * @param   parameters  Parameters with weight and order for each method.
+     * @param   context     For error location.
+     * @return  Substitution methods ordered by their order position.
+     * @throws  ProofFinderArgumentException    Two methods have the same order.
+     */
+    static SortedSet createMethods(final Parameters parameters, final ModuleContext context)
+            throws ProofFinderArgumentException {
+        final SortedSet methods = new TreeSet();
+        addMethod(methods, new SubstitutionMethod("propositionVariable", parameters) {
+            void substitute(final FormulaSubstituter substituter, final Element f, final int i,
+                    final LineCollector collector) throws ProofException {
+                substituter.substituteByPropositionVariables(f, i, collector);
+            }
+        }, context);
+        addMethod(methods, new SubstitutionMethod("partFormula", parameters) {
+            void substitute(final FormulaSubstituter substituter, final Element f, final int i,
+                    final LineCollector collector) throws ProofException {
+                substituter.substitutePartGoalFormulas(f, i, collector);
+            }
+        }, context);
+        addMethod(methods, new SubstitutionMethod("disjunction", parameters) {
+            void substitute(final FormulaSubstituter substituter, final Element f, final int i,
+                    final LineCollector collector) throws ProofException {
+                substituter.substituteDisjunction(f, i, collector);
+            }
+        }, context);
+        addMethod(methods, new SubstitutionMethod("implication", parameters) {
+            void substitute(final FormulaSubstituter substituter, final Element f, final int i,
+                    final LineCollector collector) throws ProofException {
+                substituter.substituteImplication(f, i, collector);
+            }
+        }, context);
+        addMethod(methods, new SubstitutionMethod("negation", parameters) {
+            void substitute(final FormulaSubstituter substituter, final Element f, final int i,
+                    final LineCollector collector) throws ProofException {
+                substituter.substituteNegation(f, i, collector);
+            }
+        }, context);
+        addMethod(methods, new SubstitutionMethod("conjunction", parameters) {
+            void substitute(final FormulaSubstituter substituter, final Element f, final int i,
+                    final LineCollector collector) throws ProofException {
+                substituter.substituteConjunction(f, i, collector);
+            }
+        }, context);
+        addMethod(methods, new SubstitutionMethod("equivalence", parameters) {
+            void substitute(final FormulaSubstituter substituter, final Element f, final int i,
+                    final LineCollector collector) throws ProofException {
+                substituter.substituteEquivalence(f, i, collector);
+            }
+        }, context);
+        return methods;
+    }
+
+    /**
+     * Add substitution method if it has a positive weight.
+     *
+     * @param   methods Add to this set.
+     * @param   method  Add this method.
+     * @param   context For error location.
+     * @throws  ProofFinderArgumentException    Another method has the same order.
+     */
+    private static void addMethod(final SortedSet methods, final SubstitutionMethod method,
+            final ModuleContext context) throws ProofFinderArgumentException {
+        final Iterator iter = methods.iterator();
+        while (iter.hasNext()) {
+            SubstitutionMethod r = (SubstitutionMethod) iter.next();
+            if (method.getWeight() > 0 && r.getWeight() > 0 && method.getOrder() == r.getOrder()) {
+                throw new ProofFinderArgumentException(FinderErrors.PROOF_FINDER_ARGUMENTS_ERROR_CODE,
+                    FinderErrors.PROOF_FINDER_ARGUMENTS_ERROR_TEXT + "same order for rules "
+                    + r + " and " + method, context);
+            }
+        }
+        if (method.getWeight() > 0) {
+            methods.add(method);
+        }
+    }
+
+    /**
+     * Get name substitution rule.
+     *
+     * @return  Name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Get weight of substitution rule. This is the number of runs for this
+     * substitution.
+     *
+     * @return  Weight.
+     */
+    public int getWeight() {
+        return weight;
+    }
+
+    /**
+     * Get order position of substitution rule. This says about the sequence position of this
+     * substitution method.
+     *
+     * @return  Order position.
+     */
+    public int getOrder() {
+        return order;
+    }
+
+    /**
+     * Return next proof line number we will work on.
+     *
+     * @return  Next proof line number we will worked on.
+     */
+    public int nextLine() {
+        return next;
+    }
+
+    /**
+     * Move on to the next proof line.
+     */
+    public void incrementNextLine() {
+        next++;
+    }
+
+    public int compareTo(final Object obj) {
+        if (obj instanceof SubstitutionMethod) {
+            SubstitutionMethod sub = (SubstitutionMethod) obj;
+            // we don't return 0 because the TreeSet gets no more elements
+            // if we have methods with same order value
+            if (order == sub.getOrder()) {
+                return -1;
+            }
+            if (order < sub.getOrder()) {
+                return -1;
+            }
+            return 1;
+        }
+        return -1;
+    }
+
+    public String toString() {
+        return "" + order + ": " + name + " " + weight;
+    }
+
+    public int hashCode() {
+        return toString().hashCode();
+    }
+
+    /**
+     * Substitute proof line.
+     *
+     * @param   substituter Creates the new formulas.
+     * @param   f           Proof line formula.
+     * @param   i           Proof line number.
+     * @param   collector   Gets all created formulas.
+     * @throws  ProofException We found a proof or have to end the search!
+     */
+    abstract void substitute(FormulaSubstituter substituter, Element f, int i,
+        LineCollector collector) throws ProofException;
+
+}
@@ -0,0 +1,137 @@
+/* This file is part of the project "Hilbert II" - http://www.qedeq.org
+ *
+ * Copyright 2000-2014,  Michael Meyling <mime@qedeq.org>.
+ *
+ * "Hilbert II" is free software; you can redistribute
+ * it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ */
+
+package org.qedeq.kernel.bo.logic.proof.finder;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import org.qedeq.kernel.bo.logic.common.FormulaUtility;
+import org.qedeq.kernel.bo.logic.common.Operators;
+import org.qedeq.kernel.bo.logic.common.TruthTableEvaluator;
+import org.qedeq.kernel.se.base.list.Element;
+import org.qedeq.kernel.se.dto.list.DefaultElementList;
+
+
+/**
+ * Decides by truth tables if a goal can't be derived from proof lines by modus ponens and
+ * substitution of proposition variables.
+ * <p>
+ * Modus ponens and substitution create only tautologies out of tautologies. Proof lines
+ * without proposition variables are not changed by substitution, so everything we derive is
+ * a propositional consequence of these lines. If the goal is no such consequence we can't
+ * find a proof.
+ *
+ * @author  Michael Meyling
+ */
+final class TruthTablePreCheck {
+
+    /**
+     * Constructor.
+     */
+    private TruthTablePreCheck() {
+        // nothing to do
+    }
+
+    /**
+     * Can we be sure that the goal can't be derived from the given proof lines?
+     * If there are too many atoms or a line that is no tautology contains
+     * proposition variables we can't decide this and return <code>false</code>.
+     *
+     * @param   goal    Formula we want to derive.
+     * @param   lines   Initial proof lines. Elements are of type {@link Element}.
+     * @return  Is the goal surely not derivable?
+     */
+    static boolean isNotDerivable(final Element goal, final List lines) {
+        final List facts = new ArrayList();
+        for (int i = 0; i < lines.size(); i++) {
+            final Element line = (Element) lines.get(i);
+            final TruthTableEvaluator evaluator = new TruthTableEvaluator(line);
+            if (evaluator.getAtomNumber() > TruthTableEvaluator.MAXIMUM_ATOMS) {
+                return false;
+            }
+            if (evaluator.isTautology()) {
+                continue;
+            }
+            if (!FormulaUtility.getPropositionVariables(line).isEmpty()) {
+                // substitution instances of this line might be anything
+                return false;
+            }
+            facts.add(line);
+        }
+        // we only need facts that share atoms with the goal or other needed facts
+        final Set atoms = new HashSet(new TruthTableEvaluator(goal).getAtoms());
+        final List relevant = new ArrayList();
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            final Iterator iter = facts.iterator();
+            while (iter.hasNext()) {
+                final Element fact = (Element) iter.next();
+                final List factAtoms = new TruthTableEvaluator(fact).getAtoms();
+                for (int i = 0; i < factAtoms.size(); i++) {
+                    if (atoms.contains(factAtoms.get(i))) {
+                        relevant.add(fact);
+                        atoms.addAll(factAtoms);
+                        iter.remove();
+                        changed = true;
+                        break;
+                    }
+                }
+            }
+        }
+        // contradicting other facts would give us everything
+        if (!facts.isEmpty() && isTautology(new DefaultElementList(Operators.NEGATION_OPERATOR,
+                new Element[] {conjunction(facts)}), true)) {
+            return false;
+        }
+        return !isTautology(relevant.isEmpty() ? goal
+            : new DefaultElementList(Operators.IMPLICATION_OPERATOR, new Element[] {
+                conjunction(relevant), goal}), true);
+    }
+
+    /**
+     * Is the formula a propositional tautology?
+     *
+     * @param   formula     Check this formula.
+     * @param   tooMany     Result if the formula has too many atoms.
+     * @return  Is the formula a tautology?
+     */
+    private static boolean isTautology(final Element formula, final boolean tooMany) {
+        final TruthTableEvaluator evaluator = new TruthTableEvaluator(formula);
+        if (evaluator.getAtomNumber() > TruthTableEvaluator.MAXIMUM_ATOMS) {
+            return tooMany;
+        }
+        return evaluator.isTautology();
+    }
+
+    /**
+     * Create conjunction of formulas.
+     *
+     * @param   formulas    Elements are of type {@link Element}.
+     * @return  Conjunction.
+     */
+    private static Element conjunction(final List formulas) {
+        final DefaultElementList result = new DefaultElementList(Operators.CONJUNCTION_OPERATOR);
+        for (int i = 0; i < formulas.size(); i++) {
+            result.add((Element) formulas.get(i));
+        }
+        return result;
+    }
+
+}
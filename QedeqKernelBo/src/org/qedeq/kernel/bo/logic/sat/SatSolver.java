@@ -0,0 +1,664 @@
+/* This file is part of the project "Hilbert II" - http://www.qedeq.org
+ *
+ * Copyright 2000-2014,  Michael Meyling <mime@qedeq.org>.
+ *
+ * "Hilbert II" is free software; you can redistribute
+ * it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ */
+
+package org.qedeq.kernel.bo.logic.sat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+
+/**
+ * Decides if a set of clauses is satisfiable. This is a conflict driven clause learning solver:
+ * unit propagation with two watched literals, learning of first unique implication point
+ * clauses, variable selection by activity and restarts after a Luby sequence of conflicts.
+ * <p>
+ * Variables are numbered from 1 on. A literal is a variable number or its negation.
+ * All clauses must be added before {@link #solve(int)} is called.
+ *
+ * @author  Michael Meyling
+ */
+public final class SatSolver {
+
+    /** Result of {@link #solve(int)}: the clauses are satisfiable. */
+    public static final int SATISFIABLE = 1;
+
+    /** Result of {@link #solve(int)}: the clauses are not satisfiable. */
+    public static final int UNSATISFIABLE = 2;
+
+    /** Result of {@link #solve(int)}: the maximum number of conflicts was reached. */
+    public static final int UNKNOWN = 3;
+
+    /** Variable has no value. */
+    private static final int UNDEF = 0;
+
+    /** Variable or literal is true. */
+    private static final int TRUE = 1;
+
+    /** Variable or literal is false. */
+    private static final int FALSE = 2;
+
+    /** Number of conflicts for the first restart. */
+    private static final int RESTART_BASE = 100;
+
+    /** Activity decay factor. */
+    private static final double DECAY = 0.95;
+
+    /** Rescale activities if one is greater than this. */
+    private static final double RESCALE_LIMIT = 1e100;
+
+    /** Initial array size. */
+    private static final int INITIAL_SIZE = 16;
+
+    /** Number of variables. */
+    private int variables;
+
+    /** All clauses. Elements are of type <code>int[]</code> and contain internal literals.
+     * The first two literals are watched. */
+    private final List clauses = new ArrayList();
+
+    /** Clause indexes for each internal literal that is watched by them. */
+    private int[][] watches = new int[2 * INITIAL_SIZE][];
+
+    /** Number of clause indexes in {@link #watches}. */
+    private int[] watchSizes = new int[2 * INITIAL_SIZE];
+
+    /** Value of each variable. */
+    private int[] assigns = new int[INITIAL_SIZE];
+
+    /** Decision level of each assigned variable. */
+    private int[] levels = new int[INITIAL_SIZE];
+
+    /** Index of clause that implied the value of each variable. -1 for decisions. */
+    private int[] reasons = new int[INITIAL_SIZE];
+
+    /** Last value of each variable. */
+    private boolean[] polarity = new boolean[INITIAL_SIZE];
+
+    /** Activity of each variable. */
+    private double[] activity = new double[INITIAL_SIZE];
+
+    /** Marks variables during conflict analysis. */
+    private boolean[] seen = new boolean[INITIAL_SIZE];
+
+    /** Assigned internal literals in order of assignment. */
+    private int[] trail = new int[INITIAL_SIZE];
+
+    /** Number of assigned literals. */
+    private int trailSize;
+
+    /** Index of next literal in {@link #trail} to propagate. */
+    private int propagated;
+
+    /** Size of {@link #trail} at the beginning of each decision level. */
+    private int[] trailLimits = new int[INITIAL_SIZE];
+
+    /** Current decision level. */
+    private int decisionLevel;
+
+    /** Binary heap of variables ordered by activity. */
+    private int[] heap = new int[INITIAL_SIZE];
+
+    /** Number of variables in {@link #heap}. */
+    private int heapSize;
+
+    /** Position of each variable in {@link #heap}. -1 if it is not in the heap. */
+    private int[] heapIndex = new int[INITIAL_SIZE];
+
+    /** Activity increment. */
+    private double increment = 1;
+
+    /** Decision level a learned clause brings us back to. */
+    private int backtrackLevel;
+
+    /** Have we found a contradiction at decision level 0? */
+    private boolean contradiction;
+
+    /** Satisfying assignment. <code>null</code> if there is none. */
+    private boolean[] model;
+
+    /** Number of conflicts during last call of {@link #solve(int)}. */
+    private int conflicts;
+
+    /**
+     * Constructor.
+     */
+    public SatSolver() {
+        // nothing to do
+    }
+
+    /**
+     * Create new variable.
+     *
+     * @return  Number of new variable.
+     */
+    public int newVariable() {
+        if (variables >= assigns.length) {
+            final int size = 2 * assigns.length;
+            assigns = grow(assigns, size);
+            levels = grow(levels, size);
+            reasons = grow(reasons, size);
+            polarity = grow(polarity, size);
+            activity = grow(activity, size);
+            seen = grow(seen, size);
+            trail = grow(trail, size);
+            trailLimits = grow(trailLimits, size);
+            heap = grow(heap, size);
+            heapIndex = grow(heapIndex, size);
+            final int[][] newWatches = new int[2 * size][];
+            System.arraycopy(watches, 0, newWatches, 0, watches.length);
+            watches = newWatches;
+            watchSizes = grow(watchSizes, 2 * size);
+        }
+        final int var = variables++;
+        reasons[var] = -1;
+        heapIndex[var] = -1;
+        heapInsert(var);
+        return var + 1;
+    }
+
+    /**
+     * Get number of variables.
+     *
+     * @return  Number of variables.
+     */
+    public int getVariables() {
+        return variables;
+    }
+
+    /**
+     * Add clause. Must be called before {@link #solve(int)}.
+     *
+     * @param   literals    Disjunction of these literals. A literal is a variable number or
+     *                      its negation.
+     * @throws  IllegalArgumentException    Unknown variable.
+     */
+    public void addClause(final int[] literals) {
+        final int[] lits = new int[literals.length];
+        for (int i = 0; i < literals.length; i++) {
+            final int var = Math.abs(literals[i]) - 1;
+            if (var < 0 || var >= variables) {
+                throw new IllegalArgumentException("unknown variable: " + literals[i]);
+            }
+            lits[i] = 2 * var + (literals[i] < 0 ? 1 : 0);
+        }
+        Arrays.sort(lits);
+        int size = 0;
+        for (int i = 0; i < lits.length; i++) {
+            final int value = value(lits[i]);
+            if (value == TRUE || (size > 0 && lits[i] == (lits[size - 1] ^ 1))) {
+                // clause is already true or a tautology
+                return;
+            }
+            if (value == FALSE || (size > 0 && lits[i] == lits[size - 1])) {
+                continue;
+            }
+            lits[size++] = lits[i];
+        }
+        if (size == 0) {
+            contradiction = true;
+        } else if (size == 1) {
+            enqueue(lits[0], -1);
+        } else {
+            final int[] clause = new int[size];
+            System.arraycopy(lits, 0, clause, 0, size);
+            attach(clause);
+        }
+    }
+
+    /**
+     * Search for a satisfying assignment.
+     *
+     * @param   maximumConflicts    Give up after this number of conflicts. If it is not
+     *                              positive there is no limit.
+     * @return  {@link #SATISFIABLE}, {@link #UNSATISFIABLE} or {@link #UNKNOWN}.
+     */
+    public int solve(final int maximumConflicts) {
+        model = null;
+        conflicts = 0;
+        if (contradiction) {
+            return UNSATISFIABLE;
+        }
+        int restarts = 0;
+        int limit = luby(restarts) * RESTART_BASE;
+        int sinceRestart = 0;
+        while (true) {
+            final int conflict = propagate();
+            if (conflict >= 0) {
+                conflicts++;
+                sinceRestart++;
+                if (decisionLevel == 0) {
+                    contradiction = true;
+                    return UNSATISFIABLE;
+                }
+                final int[] learned = analyze(conflict);
+                cancelUntil(backtrackLevel);
+                if (learned.length == 1) {
+                    enqueue(learned[0], -1);
+                } else {
+                    enqueue(learned[0], attach(learned));
+                }
+                increment /= DECAY;
+            } else {
+                if (maximumConflicts > 0 && conflicts >= maximumConflicts) {
+                    cancelUntil(0);
+                    return UNKNOWN;
+                }
+                if (sinceRestart >= limit) {
+                    cancelUntil(0);
+                    restarts++;
+                    limit = luby(restarts) * RESTART_BASE;
+                    sinceRestart = 0;
+                    continue;
+                }
+                final int var = pickBranchVariable();
+                if (var < 0) {
+                    model = new boolean[variables];
+                    for (int i = 0; i < variables; i++) {
+                        model[i] = (assigns[i] == TRUE);
+                    }
+                    cancelUntil(0);
+                    return SATISFIABLE;
+                }
+                trailLimits[decisionLevel++] = trailSize;
+                enqueue(2 * var + (polarity[var] ? 0 : 1), -1);
+            }
+        }
+    }
+
+    /**
+     * Get value of variable in satisfying assignment.
+     *
+     * @param   variable    Variable number.
+     * @return  Value of variable.
+     * @throws  IllegalStateException   There is no satisfying assignment.
+     */
+    public boolean getValue(final int variable) {
+        if (model == null) {
+            throw new IllegalStateException("no satisfying assignment");
+        }
+        return model[variable - 1];
+    }
+
+    /**
+     * Get number of conflicts during last call of {@link #solve(int)}.
+     *
+     * @return  Number of conflicts.
+     */
+    public int getConflicts() {
+        return conflicts;
+    }
+
+    /**
+     * Get value of internal literal.
+     *
+     * @param   lit Internal literal.
+     * @return  {@link #UNDEF}, {@link #TRUE} or {@link #FALSE}.
+     */
+    private int value(final int lit) {
+        final int value = assigns[lit >> 1];
+        if (value == UNDEF) {
+            return UNDEF;
+        }
+        return ((lit & 1) == 0) == (value == TRUE) ? TRUE : FALSE;
+    }
+
+    /**
+     * Assign true to internal literal.
+     *
+     * @param   lit     Internal literal.
+     * @param   reason  Index of clause that implies it. -1 for decisions.
+     */
+    private void enqueue(final int lit, final int reason) {
+        final int var = lit >> 1;
+        if (assigns[var] != UNDEF) {
+            if (value(lit) == FALSE) {
+                // only possible for unit clauses at decision level 0
+                contradiction = true;
+            }
+            return;
+        }
+        assigns[var] = ((lit & 1) == 0 ? TRUE : FALSE);
+        levels[var] = decisionLevel;
+        reasons[var] = reason;
+        trail[trailSize++] = lit;
+    }
+
+    /**
+     * Add clause and watch its first two literals.
+     *
+     * @param   clause  Internal literals. At least two.
+     * @return  Clause index.
+     */
+    private int attach(final int[] clause) {
+        final int index = clauses.size();
+        clauses.add(clause);
+        watch(clause[0], index);
+        watch(clause[1], index);
+        return index;
+    }
+
+    /**
+     * Add clause to watch list of internal literal.
+     *
+     * @param   lit     Internal literal.
+     * @param   clause  Clause index.
+     */
+    private void watch(final int lit, final int clause) {
+        if (watches[lit] == null) {
+            watches[lit] = new int[4];
+        } else if (watchSizes[lit] >= watches[lit].length) {
+            watches[lit] = grow(watches[lit], 2 * watches[lit].length);
+        }
+        watches[lit][watchSizes[lit]++] = clause;
+    }
+
+    /**
+     * Propagate all assigned literals.
+     *
+     * @return  Index of conflicting clause. -1 if there is no conflict.
+     */
+    private int propagate() {
+        while (propagated < trailSize) {
+            final int falseLit = trail[propagated++] ^ 1;
+            final int[] list = watches[falseLit];
+            final int size = watchSizes[falseLit];
+            int i = 0;
+            int j = 0;
+            while (i < size) {
+                final int index = list[i++];
+                final int[] clause = (int[]) clauses.get(index);
+                if (clause[0] == falseLit) {
+                    clause[0] = clause[1];
+                    clause[1] = falseLit;
+                }
+                if (value(clause[0]) == TRUE) {
+                    list[j++] = index;
+                    continue;
+                }
+                boolean moved = false;
+                for (int k = 2; k < clause.length; k++) {
+                    if (value(clause[k]) != FALSE) {
+                        clause[1] = clause[k];
+                        clause[k] = falseLit;
+                        watch(clause[1], index);
+                        moved = true;
+                        break;
+                    }
+                }
+                if (moved) {
+                    continue;
+                }
+                list[j++] = index;
+                if (value(clause[0]) == FALSE) {
+                    while (i < size) {
+                        list[j++] = list[i++];
+                    }
+                    watchSizes[falseLit] = j;
+                    propagated = trailSize;
+                    return index;
+                }
+                enqueue(clause[0], index);
+            }
+            watchSizes[falseLit] = j;
+        }
+        return -1;
+    }
+
+    /**
+     * Analyze conflict and create learned clause. Sets {@link #backtrackLevel}.
+     *
+     * @param   conflict    Index of conflicting clause.
+     * @return  Learned clause. The first literal is the asserting one, the second has the
+     *          highest decision level of the others.
+     */
+    private int[] analyze(final int conflict) {
+        final int[] learned = new int[decisionLevel + variables + 1];
+        int size = 1;
+        int paths = 0;
+        int lit = -1;
+        int index = trailSize - 1;
+        int[] clause = (int[]) clauses.get(conflict);
+        do {
+            for (int j = (lit == -1 ? 0 : 1); j < clause.length; j++) {
+                final int q = clause[j];
+                final int var = q >> 1;
+                if (!seen[var] && levels[var] > 0) {
+                    bumpActivity(var);
+                    seen[var] = true;
+                    if (levels[var] >= decisionLevel) {
+                        paths++;
+                    } else {
+                        learned[size++] = q;
+                    }
+                }
+            }
+            while (!seen[trail[index] >> 1]) {
+                index--;
+            }
+            lit = trail[index--];
+            seen[lit >> 1] = false;
+            paths--;
+            if (paths > 0) {
+                clause = (int[]) clauses.get(reasons[lit >> 1]);
+            }
+        } while (paths > 0);
+        learned[0] = lit ^ 1;
+        backtrackLevel = 0;
+        for (int i = 1; i < size; i++) {
+            seen[learned[i] >> 1] = false;
+            if (levels[learned[i] >> 1] > backtrackLevel) {
+                backtrackLevel = levels[learned[i] >> 1];
+                final int swap = learned[1];
+                learned[1] = learned[i];
+                learned[i] = swap;
+            }
+        }
+        final int[] result = new int[size];
+        System.arraycopy(learned, 0, result, 0, size);
+        return result;
+    }
+
+    /**
+     * Undo all assignments above decision level.
+     *
+     * @param   level   Go back to this decision level.
+     */
+    private void cancelUntil(final int level) {
+        if (decisionLevel <= level) {
+            return;
+        }
+        for (int i = trailSize - 1; i >= trailLimits[level]; i--) {
+            final int var = trail[i] >> 1;
+            polarity[var] = (assigns[var] == TRUE);
+            assigns[var] = UNDEF;
+            reasons[var] = -1;
+            if (heapIndex[var] < 0) {
+                heapInsert(var);
+            }
+        }
+        trailSize = trailLimits[level];
+        propagated = trailSize;
+        decisionLevel = level;
+    }
+
+    /**
+     * Get unassigned variable with highest activity.
+     *
+     * @return  Variable index. -1 if all variables are assigned.
+     */
+    private int pickBranchVariable() {
+        while (heapSize > 0) {
+            final int var = heapRemoveMax();
+            if (assigns[var] == UNDEF) {
+                return var;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Increase activity of variable.
+     *
+     * @param   var Variable index.
+     */
+    private void bumpActivity(final int var) {
+        activity[var] += increment;
+        if (activity[var] > RESCALE_LIMIT) {
+            for (int i = 0; i < variables; i++) {
+                activity[i] /= RESCALE_LIMIT;
+            }
+            increment /= RESCALE_LIMIT;
+        }
+        if (heapIndex[var] >= 0) {
+            heapUp(heapIndex[var]);
+        }
+    }
+
+    /**
+     * Insert variable into heap.
+     *
+     * @param   var Variable index.
+     */
+    private void heapInsert(final int var) {
+        heap[heapSize] = var;
+        heapIndex[var] = heapSize;
+        heapUp(heapSize++);
+    }
+
+    /**
+     * Remove variable with highest activity from heap.
+     *
+     * @return  Variable index.
+     */
+    private int heapRemoveMax() {
+        final int var = heap[0];
+        heapIndex[var] = -1;
+        heapSize--;
+        if (heapSize > 0) {
+            heap[0] = heap[heapSize];
+            heapIndex[heap[0]] = 0;
+            heapDown(0);
+        }
+        return var;
+    }
+
+    /**
+     * Move heap entry up until heap order is restored.
+     *
+     * @param   position    Heap position.
+     */
+    private void heapUp(final int position) {
+        final int var = heap[position];
+        int i = position;
+        while (i > 0) {
+            final int parent = (i - 1) >> 1;
+            if (activity[heap[parent]] >= activity[var]) {
+                break;
+            }
+            heap[i] = heap[parent];
+            heapIndex[heap[i]] = i;
+            i = parent;
+        }
+        heap[i] = var;
+        heapIndex[var] = i;
+    }
+
+    /**
+     * Move heap entry down until heap order is restored.
+     *
+     * @param   position    Heap position.
+     */
+    private void heapDown(final int position) {
+        final int var = heap[position];
+        int i = position;
+        while (2 * i + 1 < heapSize) {
+            int child = 2 * i + 1;
+            if (child + 1 < heapSize && activity[heap[child + 1]] > activity[heap[child]]) {
+                child++;
+            }
+            if (activity[heap[child]] <= activity[var]) {
+                break;
+            }
+            heap[i] = heap[child];
+            heapIndex[heap[i]] = i;
+            i = child;
+        }
+        heap[i] = var;
+        heapIndex[var] = i;
+    }
+
+    /**
+     * Get element of Luby sequence 1, 1, 2, 1, 1, 2, 4, 1, 1, 2, 1, 1, 2, 4, 8, ...
+     *
+     * @param   index   Index of element. Starts with 0.
+     * @return  Element.
+     */
+    static int luby(final int index) {
+        int size = 1;
+        int seq = 0;
+        while (size < index + 1) {
+            seq++;
+            size = 2 * size + 1;
+        }
+        int x = index;
+        while (size - 1 != x) {
+            size = (size - 1) >> 1;
+            seq--;
+            x = x % size;
+        }
+        return 1 << seq;
+    }
+
+    /**
+     * Copy array into larger one.
+     *
+     * @param   array   Copy this array.
+     * @param   size    New size.
+     * @return  New array.
+     */
+    private static int[] grow(final int[] array, final int size) {
+        final int[] result = new int[size];
+        System.arraycopy(array, 0, result, 0, array.length);
+        return result;
+    }
+
+    /**
+     * Copy array into larger one.
+     *
+     * @param   array   Copy this array.
+     * @param   size    New size.
+     * @return  New array.
+     */
+    private static boolean[] grow(final boolean[] array, final int size) {
+        final boolean[] result = new boolean[size];
+        System.arraycopy(array, 0, result, 0, array.length);
+        return result;
+    }
+
+    /**
+     * Copy array into larger one.
+     *
+     * @param   array   Copy this array.
+     * @param   size    New size.
+     * @return  New array.
+     */
+    private static double[] grow(final double[] array, final int size) {
+        final double[] result = new double[size];
+        System.arraycopy(array, 0, result, 0, array.length);
+        return result;
+    }
+
+}
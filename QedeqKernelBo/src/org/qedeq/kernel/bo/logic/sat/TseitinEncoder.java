@@ -0,0 +1,221 @@
+/* This file is part of the project "Hilbert II" - http://www.qedeq.org
+ *
+ * Copyright 2000-2014,  Michael Meyling <mime@qedeq.org>.
+ *
+ * "Hilbert II" is free software; you can redistribute
+ * it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ */
+
+package org.qedeq.kernel.bo.logic.sat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.qedeq.kernel.bo.logic.common.Operators;
+import org.qedeq.kernel.se.base.list.Element;
+import org.qedeq.kernel.se.base.list.ElementList;
+
+
+/**
+ * Transforms formulas into clauses of a {@link SatSolver}. Each part formula gets its own
+ * variable that is defined by a few clauses (Tseitin transformation). So the number of clauses
+ * grows only linearly with the formula size.
+ * <p>
+ * Like in {@link org.qedeq.kernel.bo.logic.common.TruthTableEvaluator} only the propositional
+ * structure of a formula is looked at: all part formulas that don't start with a propositional
+ * operator are atoms.
+ *
+ * @author  Michael Meyling
+ */
+public final class TseitinEncoder {
+
+    /** Add clauses to this solver. */
+    private final SatSolver solver;
+
+    /** Maps already encoded formulas to their literals. Values are of type {@link Integer}. */
+    private final Map encoded = new HashMap();
+
+    /** Atoms in order of their first occurrence. Elements are of type {@link Element}. */
+    private final List atoms = new ArrayList();
+
+    /** Maps atoms to their variables. Values are of type {@link Integer}. */
+    private final Map variables = new HashMap();
+
+    /** Variable that is always true. 0 if not yet created. */
+    private int trueVariable;
+
+    /**
+     * Constructor.
+     *
+     * @param   solver  Add clauses to this solver.
+     */
+    public TseitinEncoder(final SatSolver solver) {
+        this.solver = solver;
+    }
+
+    /**
+     * Add clauses that define a literal that is equivalent to the given formula.
+     * The formula itself is not asserted.
+     *
+     * @param   formula Encode this formula.
+     * @return  Literal that is true iff the formula is true.
+     */
+    public int encode(final Element formula) {
+        final Integer known = (Integer) encoded.get(formula);
+        if (known != null) {
+            return known.intValue();
+        }
+        final int result;
+        if (!isPropositional(formula)) {
+            result = solver.newVariable();
+            atoms.add(formula);
+            variables.put(formula, new Integer(result));
+        } else {
+            final ElementList list = formula.getList();
+            final int[] args = new int[list.size()];
+            for (int i = 0; i < args.length; i++) {
+                args[i] = encode(list.getElement(i));
+            }
+            final String op = list.getOperator();
+            if (Operators.CONJUNCTION_OPERATOR.equals(op)) {
+                result = encodeAnd(args);
+            } else if (Operators.DISJUNCTION_OPERATOR.equals(op)) {
+                result = encodeOr(args);
+            } else if (Operators.EQUIVALENCE_OPERATOR.equals(op)) {
+                final int[] equis = new int[Math.max(args.length - 1, 0)];
+                for (int i = 1; i < args.length; i++) {
+                    equis[i - 1] = encodeEquivalence(args[0], args[i]);
+                }
+                result = encodeAnd(equis);
+            } else if (Operators.IMPLICATION_OPERATOR.equals(op)) {
+                for (int i = 0; i < args.length - 1; i++) {
+                    args[i] = -args[i];
+                }
+                result = encodeOr(args);
+            } else {    // negation
+                for (int i = 0; i < args.length; i++) {
+                    args[i] = -args[i];
+                }
+                result = encodeAnd(args);
+            }
+        }
+        encoded.put(formula, new Integer(result));
+        return result;
+    }
+
+    /**
+     * Get all atoms of the encoded formulas.
+     *
+     * @return  Atoms in order of their first occurrence. Elements are of type {@link Element}.
+     */
+    public List getAtoms() {
+        return Collections.unmodifiableList(atoms);
+    }
+
+    /**
+     * Get variable of an atom.
+     *
+     * @param   atom    Atom of an encoded formula.
+     * @return  Variable of atom. 0 if the atom is unknown.
+     */
+    public int getVariable(final Element atom) {
+        final Integer variable = (Integer) variables.get(atom);
+        return (variable != null ? variable.intValue() : 0);
+    }
+
+    /**
+     * Define a literal for a conjunction.
+     *
+     * @param   args    Literals of the conjunction.
+     * @return  Literal that is true iff all arguments are true.
+     */
+    private int encodeAnd(final int[] args) {
+        if (args.length == 1) {
+            return args[0];
+        }
+        final int result = solver.newVariable();
+        final int[] clause = new int[args.length + 1];
+        for (int i = 0; i < args.length; i++) {
+            solver.addClause(new int[] {-result, args[i]});
+            clause[i] = -args[i];
+        }
+        clause[args.length] = result;
+        solver.addClause(clause);
+        return result;
+    }
+
+    /**
+     * Define a literal for a disjunction.
+     *
+     * @param   args    Literals of the disjunction.
+     * @return  Literal that is true iff any argument is true.
+     */
+    private int encodeOr(final int[] args) {
+        if (args.length == 0) {
+            return -getTrueVariable();
+        }
+        final int[] negated = new int[args.length];
+        for (int i = 0; i < args.length; i++) {
+            negated[i] = -args[i];
+        }
+        return -encodeAnd(negated);
+    }
+
+    /**
+     * Define a literal for an equivalence.
+     *
+     * @param   a   First literal.
+     * @param   b   Second literal.
+     * @return  Literal that is true iff both arguments have the same value.
+     */
+    private int encodeEquivalence(final int a, final int b) {
+        final int result = solver.newVariable();
+        solver.addClause(new int[] {-result, -a, b});
+        solver.addClause(new int[] {-result, a, -b});
+        solver.addClause(new int[] {result, a, b});
+        solver.addClause(new int[] {result, -a, -b});
+        return result;
+    }
+
+    /**
+     * Get variable that is always true.
+     *
+     * @return  Variable with value true.
+     */
+    private int getTrueVariable() {
+        if (trueVariable == 0) {
+            trueVariable = solver.newVariable();
+            solver.addClause(new int[] {trueVariable});
+        }
+        return trueVariable;
+    }
+
+    /**
+     * Has the element a propositional operator?
+     *
+     * @param   element    Check this element.
+     * @return  Starts it with a propositional operator?
+     */
+    private static boolean isPropositional(final Element element) {
+        if (!element.isList()) {
+            return false;
+        }
+        final String op = element.getList().getOperator();
+        return Operators.CONJUNCTION_OPERATOR.equals(op)
+            || Operators.DISJUNCTION_OPERATOR.equals(op)
+            || Operators.EQUIVALENCE_OPERATOR.equals(op)
+            || Operators.IMPLICATION_OPERATOR.equals(op)
+            || Operators.NEGATION_OPERATOR.equals(op);
+    }
+
+}
@@ -15,6 +15,12 @@
 
 package org.qedeq.kernel.bo.logic.wf;
 
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 import org.qedeq.base.trace.Trace;
 import org.qedeq.kernel.bo.logic.common.ExistenceChecker;
 import org.qedeq.kernel.bo.logic.common.FormulaChecker;
@@ -31,6 +37,10 @@ import org.qedeq.kernel.se.dto.list.ElementSet;
 /**
  * This class deals with {@link org.qedeq.kernel.se.base.list.Element}s which represent a
  * formula. It has methods to check those elements for being well-formed.
+ * <p>
+ * The free and bound subject variables of each part are calculated during the same recursive
+ * pass that checks the part. All subject variables of the checked element are numbered, so the
+ * variable sets are bit sets.
  *
  * LATER mime 20070307: here are sometimes error messages that get concatenated with
  * an {@link org.qedeq.kernel.se.base.list.ElementList#getOperator()} string. Perhaps these
@@ -52,6 +62,14 @@ public class FormulaCheckerImpl implements Operators, FormulaBasicErrors, Formul
     /** All exceptions that occurred during checking. */
     private LogicalCheckExceptionList exceptions;
 
+    /** Maps subject variables of the checked element to their numbers. Values are of type
+     * {@link Integer}. */
+    private Map numbers;
+
+    /** Subject variables of the checked element ordered by their numbers. Elements are of
+     * type {@link Element}. */
+    private List variables;
+
 
     /**
      * Constructor.
@@ -70,6 +88,8 @@ public class FormulaCheckerImpl implements Operators, FormulaBasicErrors, Formul
         this.existenceChecker = existenceChecker;
         currentContext = new ModuleContext(context);
         exceptions = new LogicalCheckExceptionList();
+        numbers = new HashMap();
+        variables = new ArrayList();
         checkFormula(element);
         return exceptions;
     }
@@ -97,6 +117,8 @@ public class FormulaCheckerImpl implements Operators, FormulaBasicErrors, Formul
         this.existenceChecker = existenceChecker;
         currentContext = new ModuleContext(context);
         exceptions = new LogicalCheckExceptionList();
+        numbers = new HashMap();
+        variables = new ArrayList();
         checkTerm(element);
         return exceptions;
     }
@@ -120,20 +142,22 @@ public class FormulaCheckerImpl implements Operators, FormulaBasicErrors, Formul
      * Is {@link Element} a formula?
      *
      * @param   element    Check this element.
+     * @return  Free and bound subject variables of the element.
      */
-    private final void checkFormula(final Element element) {
+    private final Variables checkFormula(final Element element) {
         final String method = "checkFormula";
         Trace.begin(CLASS, this, method);
         Trace.param(CLASS, this, method, "element", element);
         final String context = getCurrentContext().getLocationWithinModule();
         Trace.param(CLASS, this, method, "context", context);
         if (!checkList(element)) {
-            return;
+            return getVariables(element);
         }
         final ElementList list = element.getList();
         final String listContext = context + ".getList()";
         setLocationWithinModule(listContext);
         final String operator = list.getOperator();
+        final Variables[] args = new Variables[list.size()];
         if (operator.equals(CONJUNCTION_OPERATOR)
                 || operator.equals(DISJUNCTION_OPERATOR)
                 || operator.equals(IMPLICATION_OPERATOR)
@@ -144,20 +168,20 @@ public class FormulaCheckerImpl implements Operators, FormulaBasicErrors, Formul
                 handleFormulaCheckException(MORE_THAN_ONE_ARGUMENT_EXPECTED,
                     MORE_THAN_ONE_ARGUMENT_EXPECTED_TEXT + "\""
                     + operator + "\"", element, getCurrentContext());
-                return;
+                return getVariables(element);
             }
             if (operator.equals(IMPLICATION_OPERATOR) && list.size() != 2) {
                 handleFormulaCheckException(EXACTLY_TWO_ARGUMENTS_EXPECTED,
                     EXACTLY_TWO_ARGUMENTS_EXPECTED_TEXT + "\""
                     + operator + "\"", element, getCurrentContext());
-                return;
+                return getVariables(element);
             }
             for (int i = 0; i < list.size(); i++) {
                 setLocationWithinModule(listContext + ".getElement(" + i + ")");
-                checkFormula(list.getElement(i));
+                args[i] = checkFormula(list.getElement(i));
             }
             setLocationWithinModule(listContext);
-            checkFreeAndBoundDisjunct(0, list);
+            checkFreeAndBoundDisjunct(0, list, args);
         } else if (operator.equals(NEGATION_OPERATOR)) {
             Trace.trace(CLASS, this, method, "negation operator found");
             setLocationWithinModule(listContext);
@@ -165,10 +189,10 @@ public class FormulaCheckerImpl implements Operators, FormulaBasicErrors, Formul
                 handleFormulaCheckException(EXACTLY_ONE_ARGUMENT_EXPECTED,
                     EXACTLY_ONE_ARGUMENT_EXPECTED_TEXT + "\"" + operator + "\"",
                     element, getCurrentContext());
-                return;
+                return getVariables(element);
             }
             setLocationWithinModule(listContext + ".getElement(0)");
-            checkFormula(list.getElement(0));
+            args[0] = checkFormula(list.getElement(0));
         } else if (operator.equals(PREDICATE_VARIABLE)
                 || operator.equals(PREDICATE_CONSTANT)) {
             Trace.trace(CLASS, this, method, "predicate operator found");
@@ -177,22 +201,23 @@ public class FormulaCheckerImpl implements Operators, FormulaBasicErrors, Formul
                 handleFormulaCheckException(AT_LEAST_ONE_ARGUMENT_EXPECTED,
                     AT_LEAST_ONE_ARGUMENT_EXPECTED_TEXT + "\"" + operator + "\"",
                     element, getCurrentContext());
-                return;
+                return getVariables(element);
             }
             // check if first argument is an atom
             setLocationWithinModule(listContext + ".getElement(0)");
             if (!checkAtomFirst(list.getElement(0))) {
-                return;
+                return getVariables(element);
             }
+            args[0] = new Variables();
 
             // check if rest arguments are terms
             for (int i = 1; i < list.size(); i++) {
                 setLocationWithinModule(listContext + ".getElement(" + i + ")");
-                checkTerm(list.getElement(i));
+                args[i] = checkTerm(list.getElement(i));
             }
 
             setLocationWithinModule(listContext);
-            checkFreeAndBoundDisjunct(1, list);
+            checkFreeAndBoundDisjunct(1, list, args);
 
             // check if predicate is known
             if (PREDICATE_CONSTANT.equals(operator) && !existenceChecker.predicateExists(
@@ -209,26 +234,36 @@ public class FormulaCheckerImpl implements Operators, FormulaBasicErrors, Formul
                 || operator.equals(UNIVERSAL_QUANTIFIER_OPERATOR)) {
             Trace.trace(CLASS, this, method, "quantifier found");
             setLocationWithinModule(context);
-            checkQuantifier(element);
+            final Variables result = checkQuantifier(element);
+            // restore context
+            setLocationWithinModule(context);
+            Trace.end(CLASS, this, method);
+            return result;
         } else {
             setLocationWithinModule(listContext + ".getOperator()");
             handleFormulaCheckException(UNKNOWN_LOGICAL_OPERATOR,
                 UNKNOWN_LOGICAL_OPERATOR_TEXT + "\"" + operator + "\"",
                 element, getCurrentContext());
+            // restore context
+            setLocationWithinModule(context);
+            Trace.end(CLASS, this, method);
+            return getVariables(element);
         }
         // restore context
         setLocationWithinModule(context);
         Trace.end(CLASS, this, method);
+        return getVariables(list, args);
     }
 
     /**
      * Check quantifier element.
      *
      * @param   element     Check this element. Must be a quantifier element.
+     * @return  Free and bound subject variables of the element.
      * @throws  IllegalArgumentException    <code>element.getList().getOperator()</code> is no
      *          quantifier operator.
      */
-    private void checkQuantifier(final Element element) {
+    private Variables checkQuantifier(final Element element) {
         final String method = "checkQuantifier";
         Trace.begin(CLASS, this, method);
         Trace.param(CLASS, this, method, "element", element);
@@ -249,8 +284,9 @@ public class FormulaCheckerImpl implements Operators, FormulaBasicErrors, Formul
         if (list.size() < 2 || list.size() > 3) {
             handleFormulaCheckException(EXACTLY_TWO_OR_THREE_ARGUMENTS_EXPECTED,
                 EXACTLY_TWO_OR_THREE_ARGUMENTS_EXPECTED_TEXT, element, getCurrentContext());
-            return;
+            return getVariables(element);
         }
+        final Variables[] args = new Variables[list.size()];
 
         // check if unique existential operator could be used
         if (operator.equals(UNIQUE_EXISTENTIAL_QUANTIFIER_OPERATOR)
@@ -263,15 +299,15 @@ public class FormulaCheckerImpl implements Operators, FormulaBasicErrors, Formul
         // check if first argument is subject variable
         setLocationWithinModule(listContext + ".getElement(" + 0 + ")");
         checkSubjectVariable(list.getElement(0));
+        args[0] = getVariables(list.getElement(0));
 
         // check if second argument is a formula
         setLocationWithinModule(listContext + ".getElement(" + 1 + ")");
-        checkFormula(list.getElement(1));
+        args[1] = checkFormula(list.getElement(1));
 
         setLocationWithinModule(listContext);
         // check if subject variable is not already bound in formula
-        if (FormulaUtility.getBoundSubjectVariables(list.getElement(1)).contains(
-                list.getElement(0))) {
+        if (contains(args[1].bound, list.getElement(0))) {
             handleFormulaCheckException(SUBJECT_VARIABLE_ALREADY_BOUND_IN_FORMULA,
                 SUBJECT_VARIABLE_ALREADY_BOUND_IN_FORMULA_TEXT, list.getElement(1),
                 getCurrentContext());
@@ -280,36 +316,37 @@ public class FormulaCheckerImpl implements Operators, FormulaBasicErrors, Formul
             handleFormulaCheckException(EXACTLY_TWO_OR_THREE_ARGUMENTS_EXPECTED,
                 EXACTLY_TWO_OR_THREE_ARGUMENTS_EXPECTED_TEXT, list,
                 getCurrentContext());
-            return;
+            return getVariables(element);
         }
         if (list.size() > 2) {
             // check if third argument is a formula
             setLocationWithinModule(listContext + ".getElement(" + 2 + ")");
-            checkFormula(list.getElement(2));
+            args[2] = checkFormula(list.getElement(2));
 
             // check if subject variable is not bound in formula
             setLocationWithinModule(listContext);
-            if (FormulaUtility.getBoundSubjectVariables(list.getElement(2)).contains(
-                    list.getElement(0))) {
+            if (contains(args[2].bound, list.getElement(0))) {
                 handleFormulaCheckException(SUBJECT_VARIABLE_ALREADY_BOUND_IN_FORMULA,
                     SUBJECT_VARIABLE_ALREADY_BOUND_IN_FORMULA_TEXT, list.getElement(2),
                     getCurrentContext());
-                return;
+                return getVariables(list, args);
             }
             setLocationWithinModule(listContext);
-            checkFreeAndBoundDisjunct(1, list);
+            checkFreeAndBoundDisjunct(1, list, args);
         }
         // restore context
         setLocationWithinModule(context);
         Trace.end(CLASS, this, method);
+        return getVariables(list, args);
     }
 
     /**
      * Is {@link Element} a term?
      *
      * @param   element    Check this element.
+     * @return  Free and bound subject variables of the element.
      */
-    private void checkTerm(final Element element) {
+    private Variables checkTerm(final Element element) {
         final String method = "checkTerm";
         Trace.begin(CLASS, this, method);
         Trace.param(CLASS, this, method, "element", element);
@@ -317,14 +354,19 @@ public class FormulaCheckerImpl implements Operators, FormulaBasicErrors, Formul
         final String context = getCurrentContext().getLocationWithinModule();
         Trace.param(CLASS, this, method, "context", context);
         if (!checkList(element)) {
-            return;
+            return getVariables(element);
         }
         final ElementList list = element.getList();
         final String listContext = context + ".getList()";
         setLocationWithinModule(listContext);
         final String operator = list.getOperator();
+        final Variables[] args = new Variables[list.size()];
         if (operator.equals(SUBJECT_VARIABLE)) {
             checkSubjectVariable(element);
+            // restore context
+            setLocationWithinModule(context);
+            Trace.end(CLASS, this, method);
+            return getVariables(element);
         } else if (operator.equals(FUNCTION_CONSTANT)
                 || operator.equals(FUNCTION_VARIABLE)) {
 
@@ -332,31 +374,32 @@ public class FormulaCheckerImpl implements Operators, FormulaBasicErrors, Formul
             if (operator.equals(FUNCTION_CONSTANT) && list.size() < 1) {
                 handleTermCheckException(AT_LEAST_ONE_ARGUMENT_EXPECTED,
                     AT_LEAST_ONE_ARGUMENT_EXPECTED_TEXT, element, getCurrentContext());
-                return;
+                return getVariables(element);
             }
 
             // function variables must have at least a function name and at least one argument
             if (operator.equals(FUNCTION_VARIABLE) && list.size() < 2) {
                 handleTermCheckException(MORE_THAN_ONE_ARGUMENT_EXPECTED,
                     MORE_THAN_ONE_ARGUMENT_EXPECTED_TEXT, element, getCurrentContext());
-                return;
+                return getVariables(element);
             }
 
             // check if first argument is an atom
             setLocationWithinModule(listContext + ".getElement(0)");
             if (!checkAtomFirst(list.getElement(0))) {
-                return;
+                return getVariables(element);
             }
+            args[0] = new Variables();
 
             // check if all arguments are terms
             setLocationWithinModule(listContext);
             for (int i = 1; i < list.size(); i++) {
                 setLocationWithinModule(listContext + ".getElement(" + i + ")");
-                checkTerm(list.getElement(i));
+                args[i] = checkTerm(list.getElement(i));
             }
 
             setLocationWithinModule(listContext);
-            checkFreeAndBoundDisjunct(1, list);
+            checkFreeAndBoundDisjunct(1, list, args);
 
             // check if function is known
             setLocationWithinModule(listContext);
@@ -373,7 +416,7 @@ public class FormulaCheckerImpl implements Operators, FormulaBasicErrors, Formul
             if (list.size() != 2) {
                 handleTermCheckException(EXACTLY_TWO_ARGUMENTS_EXPECTED,
                     EXACTLY_TWO_ARGUMENTS_EXPECTED_TEXT, element, getCurrentContext());
-                return;
+                return getVariables(element);
             }
             // check if first argument is a subject variable
             setLocationWithinModule(listContext + ".getElement(" + 0 + ")");
@@ -381,10 +424,11 @@ public class FormulaCheckerImpl implements Operators, FormulaBasicErrors, Formul
                 handleTermCheckException(SUBJECT_VARIABLE_EXPECTED,
                     SUBJECT_VARIABLE_EXPECTED_TEXT, element, getCurrentContext());
             }
+            args[0] = getVariables(list.getElement(0));
 
             // check if the second argument is a formula
             setLocationWithinModule(listContext + ".getElement(" + 1 + ")");
-            checkFormula(list.getElement(1));
+            args[1] = checkFormula(list.getElement(1));
 
             // check if class operator is allowed
             setLocationWithinModule(listContext);
@@ -395,8 +439,7 @@ public class FormulaCheckerImpl implements Operators, FormulaBasicErrors, Formul
 
             // check if subject variable is not bound in formula
             setLocationWithinModule(listContext + ".getElement(" + 0 + ")");
-            if (FormulaUtility.getBoundSubjectVariables(list.getElement(1)).contains(
-                    list.getElement(0))) {
+            if (contains(args[1].bound, list.getElement(0))) {
                 handleTermCheckException(SUBJECT_VARIABLE_ALREADY_BOUND_IN_FORMULA,
                     SUBJECT_VARIABLE_ALREADY_BOUND_IN_FORMULA_TEXT, list.getElement(0),
                     getCurrentContext());
@@ -406,10 +449,15 @@ public class FormulaCheckerImpl implements Operators, FormulaBasicErrors, Formul
             setLocationWithinModule(listContext + ".getOperator()");
             handleTermCheckException(UNKNOWN_TERM_OPERATOR,
                 UNKNOWN_TERM_OPERATOR_TEXT + "\"" + operator + "\"", element, getCurrentContext());
+            // restore context
+            setLocationWithinModule(context);
+            Trace.end(CLASS, this, method);
+            return getVariables(element);
         }
         // restore context
         setLocationWithinModule(context);
         Trace.end(CLASS, this, method);
+        return getVariables(list, args);
     }
 
     /**
@@ -418,38 +466,133 @@ public class FormulaCheckerImpl implements Operators, FormulaBasicErrors, Formul
      *
      * @param   start   Start check with this list position. Beginning with 0.
      * @param   list    List element to check.
+     * @param   args    Free and bound subject variables of the list elements.
      */
     private void checkFreeAndBoundDisjunct(final int start,
-            final ElementList list) {
+            final ElementList list, final Variables[] args) {
         // save current context
         final String context = getCurrentContext().getLocationWithinModule();
-        final ElementSet free = new ElementSet();
-        final ElementSet bound = new ElementSet();
+        final BitSet free = new BitSet();
+        final BitSet bound = new BitSet();
         for (int i = start; i < list.size(); i++) {
             setLocationWithinModule(context + ".getElement(" + i + ")");
-            final ElementSet newFree
-                = FormulaUtility.getFreeSubjectVariables(list.getElement(i));
-            final ElementSet newBound
-                = FormulaUtility.getBoundSubjectVariables(list.getElement(i));
-            final ElementSet interBound = newFree.newIntersection(bound);
-            if (!interBound.isEmpty()) {
+            if (args[i].free.intersects(bound)) {
+                final BitSet interBound = (BitSet) args[i].free.clone();
+                interBound.and(bound);
                 handleFormulaCheckException(FREE_VARIABLE_ALREADY_BOUND,
                     FREE_VARIABLE_ALREADY_BOUND_TEXT
-                    + interBound, list.getElement(i), getCurrentContext());
+                    + getElementSet(interBound), list.getElement(i), getCurrentContext());
             }
-            final ElementSet interFree = newBound.newIntersection(free);
-            if (!interFree.isEmpty()) {
+            if (args[i].bound.intersects(free)) {
+                final BitSet interFree = (BitSet) args[i].bound.clone();
+                interFree.and(free);
                 handleFormulaCheckException(BOUND_VARIABLE_ALREADY_FREE,
                     BOUND_VARIABLE_ALREADY_FREE_TEXT
-                    + interFree, list.getElement(i), getCurrentContext());
+                    + getElementSet(interFree), list.getElement(i), getCurrentContext());
             }
-            bound.union(newBound);
-            free.union(newFree);
+            bound.or(args[i].bound);
+            free.or(args[i].free);
         }
         // restore context
         setLocationWithinModule(context);
     }
 
+    /**
+     * Get free and bound subject variables of an element. This is used for elements that
+     * are not (completely) checked.
+     *
+     * @param   element Get variables of this element. Might be <code>null</code>.
+     * @return  Free and bound subject variables of the element.
+     */
+    private Variables getVariables(final Element element) {
+        if (element == null || !element.isList() || element.getList() == null) {
+            return new Variables();
+        }
+        if (element.getList().getOperator() != null
+                && FormulaUtility.isSubjectVariable(element)) {
+            final Variables result = new Variables();
+            result.free.set(getNumber(element));
+            return result;
+        }
+        final ElementList list = element.getList();
+        final Variables[] args = new Variables[list.size()];
+        for (int i = 0; i < list.size(); i++) {
+            args[i] = getVariables(list.getElement(i));
+        }
+        return getVariables(list, args);
+    }
+
+    /**
+     * Get free and bound subject variables of a list. Works like
+     * {@link FormulaUtility#getFreeSubjectVariables(Element)} and
+     * {@link FormulaUtility#getBoundSubjectVariables(Element)}, but uses the already known
+     * variables of the list elements.
+     *
+     * @param   list    Get variables of this list. Must not be a subject variable.
+     * @param   args    Free and bound subject variables of the list elements.
+     * @return  Free and bound subject variables of the list.
+     */
+    private Variables getVariables(final ElementList list, final Variables[] args) {
+        final Variables result = new Variables();
+        if (FormulaUtility.isBindingOperator(list)) {
+            for (int i = 1; i < args.length; i++) {
+                result.free.or(args[i].free);
+                result.bound.or(args[i].bound);
+            }
+            final int number = getNumber(list.getElement(0));
+            result.free.clear(number);
+            result.bound.set(number);
+        } else {
+            for (int i = 0; i < args.length; i++) {
+                result.free.or(args[i].free);
+                result.bound.or(args[i].bound);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get number of a subject variable. If the variable has no number yet, it gets the next one.
+     *
+     * @param   variable    Subject variable.
+     * @return  Number of subject variable.
+     */
+    private int getNumber(final Element variable) {
+        Integer number = (Integer) numbers.get(variable);
+        if (number == null) {
+            number = new Integer(variables.size());
+            numbers.put(variable, number);
+            variables.add(variable);
+        }
+        return number.intValue();
+    }
+
+    /**
+     * Is the given element a subject variable within the given set?
+     *
+     * @param   set         Set of subject variable numbers.
+     * @param   element     Look for this element.
+     * @return  Is the element within the set?
+     */
+    private boolean contains(final BitSet set, final Element element) {
+        final Integer number = (Integer) numbers.get(element);
+        return number != null && set.get(number.intValue());
+    }
+
+    /**
+     * Get subject variables for their numbers.
+     *
+     * @param   set     Set of subject variable numbers.
+     * @return  Set of subject variables.
+     */
+    private ElementSet getElementSet(final BitSet set) {
+        final ElementSet result = new ElementSet();
+        for (int i = set.nextSetBit(0); i >= 0; i = set.nextSetBit(i + 1)) {
+            result.add((Element) variables.get(i));
+        }
+        return result;
+    }
+
     /**
      * Check if {@link Element} is a subject variable.
      *
@@ -634,4 +777,17 @@ public class FormulaCheckerImpl implements Operators, FormulaBasicErrors, Formul
         return currentContext;
     }
 
+    /**
+     * Free and bound subject variables of an element. The variables are given by their numbers.
+     */
+    private static final class Variables {
+
+        /** Free subject variables. */
+        private final BitSet free = new BitSet();
+
+        /** Bound subject variables. */
+        private final BitSet bound = new BitSet();
+
+    }
+
 }
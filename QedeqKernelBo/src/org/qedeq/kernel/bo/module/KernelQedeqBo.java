@@ -1,5 +1,7 @@
 package org.qedeq.kernel.bo.module;
 
+import java.util.Map;
+
 import org.qedeq.kernel.bo.common.Element2Latex;
 import org.qedeq.kernel.bo.common.Element2Utf8;
 import org.qedeq.kernel.bo.common.QedeqBo;
@@ -88,6 +90,16 @@ public interface KernelQedeqBo extends QedeqBo {
      */
     public ModuleConstantsExistenceChecker getExistenceChecker();
 
+    /**
+     * Get cache for normalized formulas of this module. Keys are the original formula
+     * elements and are compared by identity. Values are the normalized formulas. The cache is
+     * emptied whenever a new existence checker or new module data is set. The returned map
+     * is synchronized.
+     *
+     * @return  Normalized formulas cache. Never <code>null</code>.
+     */
+    public Map getNormalizedFormulas();
+
     /**
      * Set failure module state.
      *
@@ -15,6 +15,8 @@
 
 package org.qedeq.kernel.bo.service.basis;
 
+import java.util.Map;
+
 import org.qedeq.base.io.SourceArea;
 import org.qedeq.base.trace.Trace;
 import org.qedeq.base.utility.StringUtility;
@@ -327,6 +329,15 @@ public abstract class ControlVisitor extends AbstractModuleVisitor {
         return traverser.getLocalRuleKey(name);
     }
 
+    /**
+     * Get copy of all current (QEDEQ module local) rule versions.
+     *
+     * @return  Maps rule names to their current (local) {@link RuleKey}s.
+     */
+    public Map getLocalRuleKeys() {
+        return traverser.getLocalRuleKeys();
+    }
+
     /**
      * Get internal kernel services. Convenience method.
      *
@@ -357,7 +368,22 @@ public abstract class ControlVisitor extends AbstractModuleVisitor {
     public Reference getReference(final String reference, final ModuleContext context,
             final boolean addWarning, final boolean addError) {
         // get node we are currently in
-        KernelNodeBo node = getNodeBo();
+        return getReference(getNodeBo(), reference, context, addWarning, addError);
+    }
+
+    /**
+     * Get link for given reference within given node. Doesn't depend on the current
+     * traverse position if no warnings or errors are added.
+     *
+     * @param   node        The reference is within this node. Might be <code>null</code>.
+     * @param   reference   String to parse.
+     * @param   context     Here the link is in the source text.
+     * @param   addWarning  Should we add a warning if an error occurs?
+     * @param   addError    Should we add an error if an error occurs?
+     * @return  Generated link. Never <code>null</code>.
+     */
+    public Reference getReference(final KernelNodeBo node, final String reference,
+            final ModuleContext context, final boolean addWarning, final boolean addError) {
         final Reference fallback = new DefaultReference(node, null, "", null,
             (reference != null ? reference : "") + "?", "", "");
         if (reference == null || reference.length() <= 0) {
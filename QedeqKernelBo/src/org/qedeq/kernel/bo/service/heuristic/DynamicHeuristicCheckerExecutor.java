@@ -19,8 +19,10 @@ import org.qedeq.base.io.Parameters;
 import org.qedeq.base.trace.Trace;
 import org.qedeq.kernel.bo.log.QedeqLog;
 import org.qedeq.kernel.bo.logic.common.Operators;
+import org.qedeq.kernel.bo.logic.common.TruthTableEvaluator;
 import org.qedeq.kernel.bo.logic.model.DynamicDirectInterpreter;
 import org.qedeq.kernel.bo.logic.model.DynamicModel;
+import org.qedeq.kernel.bo.logic.model.Entity;
 import org.qedeq.kernel.bo.logic.model.FourDynamicModel;
 import org.qedeq.kernel.bo.logic.model.HeuristicErrorCodes;
 import org.qedeq.kernel.bo.logic.model.HeuristicException;
@@ -51,6 +53,10 @@ import org.qedeq.kernel.se.dto.list.DefaultElementList;
 
 /**
  * Check if formulas are valid in our model.
+ * <p>
+ * The valuations of a formula are checked by several threads. The parameter "threads" gives
+ * the number of threads. If it is not positive the number of available processors is used.
+ * The worker threads are started once for the whole check of a module.
  *
  * @author  Michael Meyling
  */
@@ -62,9 +68,36 @@ public final class DynamicHeuristicCheckerExecutor extends ControlVisitor implem
     /** Interpretation for variables. */
     private final DynamicDirectInterpreter interpreter;
 
+    /** Interpretations for each thread. The first one is {@link #interpreter}. */
+    private final DynamicDirectInterpreter[] interpreters;
+
     /** Current condition. */
     private DefaultElementList condition;
 
+    /** Can purely propositional formulas be checked by truth tables? */
+    private final boolean truthTable;
+
+    /** Synchronizes access to worker data. */
+    private final Object lock = new Object();
+
+    /** Current valuation checks, one for each interpreter. */
+    private Valuations[] job;
+
+    /** Number of the current job. Incremented for each new job. */
+    private int generation;
+
+    /** Number of unfinished valuation checks of worker threads. */
+    private int unfinished;
+
+    /** Should all workers stop? */
+    private boolean shutdown;
+
+    /** Are the worker threads running? */
+    private boolean running;
+
+    /** Number of valuations checked by {@link #isTautologyParallel(ModuleContext, Element)}. */
+    private long checkedValuations;
+
     /**
      * Constructor.
      *
@@ -75,8 +108,29 @@ public final class DynamicHeuristicCheckerExecutor extends ControlVisitor implem
     DynamicHeuristicCheckerExecutor(final ModuleServicePlugin plugin, final KernelQedeqBo qedeq,
             final Parameters parameters) {
         super(plugin, qedeq);
-        final String method = "DynamicHeuristicChecker(PluginBo, QedeqBo, Map)";
         final String modelClass = parameters.getString("model");
+        int threads = parameters.getInt("threads");
+        if (threads <= 0) {
+            threads = Runtime.getRuntime().availableProcessors();
+        }
+        // each thread gets its own model, so there is no lock contention
+        interpreters = new DynamicDirectInterpreter[threads];
+        for (int i = 0; i < threads; i++) {
+            interpreters[i] = new DynamicDirectInterpreter(qedeq, createModel(modelClass));
+        }
+        this.interpreter = interpreters[0];
+        this.truthTable = hasBothTruthValues(interpreter.getModel());
+    }
+
+    /**
+     * Create model.
+     *
+     * @param   modelClass  Class name of model. If it can't be instantiated the default model
+     *                      is used.
+     * @return  Model.
+     */
+    private DynamicModel createModel(final String modelClass) {
+        final String method = "createModel(String)";
         DynamicModel model = null;
         if (modelClass != null && modelClass.length() > 0) {
             try {
@@ -101,7 +155,27 @@ public final class DynamicHeuristicCheckerExecutor extends ControlVisitor implem
         if (model == null) {
             model = new FourDynamicModel();
         }
-        this.interpreter = new DynamicDirectInterpreter(qedeq, model);
+        return model;
+    }
+
+    /**
+     * Interprets the model proposition variables by both truth values? Then a purely
+     * propositional formula is true in our model iff it is a propositional tautology.
+     *
+     * @param   model   Check this model.
+     * @return  Are there constant true and false predicates without arguments?
+     */
+    private static boolean hasBothTruthValues(final DynamicModel model) {
+        boolean t = false;
+        boolean f = false;
+        for (int i = 0; i < model.getPredicateSize(0); i++) {
+            if (model.getPredicate(0, i).calculate(new Entity[0])) {
+                t = true;
+            } else {
+                f = true;
+            }
+        }
+        return t && f;
     }
 
     private ModuleService getPlugin() {
@@ -120,7 +194,12 @@ public final class DynamicHeuristicCheckerExecutor extends ControlVisitor implem
                 Trace.trace(CLASS, method, e);
             }
             condition = new DefaultElementList(Operators.CONJUNCTION_OPERATOR);
-            traverse(call.getInternalServiceProcess());
+            final Worker[] workers = start();
+            try {
+                traverse(call.getInternalServiceProcess());
+            } finally {
+                stop(workers);
+            }
             QedeqLog.getInstance().logSuccessfulReply(
                 "Heuristic test succesfull", getKernelQedeqBo().getUrl());
         } catch (final SourceFileExceptionList e) {
@@ -200,15 +279,31 @@ public final class DynamicHeuristicCheckerExecutor extends ControlVisitor implem
 
     /**
      * Test if given formula is a tautology. This is done by checking a model and
-     * iterating through variable values.
+     * iterating through variable values. If the formula consists only of proposition
+     * variables and propositional operators the truth table is evaluated instead. This
+     * calculates 64 variable values at once.
+     * <p>
+     * The valuations are distributed to several threads. The first counterexample stops all
+     * threads. Valuations that only differ by a permutation of interchangeable variables are
+     * checked only once.
      *
      * @param   moduleContext   Here we are within a module.
      * @param   formula         Formula.
      * @return  Is this formula a tautology according to our tests.
      * @throws  HeuristicException  Evaluation failed.
      */
-    private boolean isTautology(final ModuleContext moduleContext, final Element formula)
+    boolean isTautology(final ModuleContext moduleContext, final Element formula)
             throws HeuristicException {
+        if (truthTable && TruthTableEvaluator.hasOnlyPropositionVariables(formula)) {
+            final TruthTableEvaluator evaluator = new TruthTableEvaluator(formula);
+            if (evaluator.getAtomNumber() <= TruthTableEvaluator.MAXIMUM_ATOMS) {
+                return evaluator.isTautology();
+            }
+        }
+        final Boolean activated = isTautologyParallel(moduleContext, formula);
+        if (activated != null) {
+            return activated.booleanValue();
+        }
         boolean result = true;
         ModuleContext context = moduleContext;
         try {
@@ -227,6 +322,155 @@ public final class DynamicHeuristicCheckerExecutor extends ControlVisitor implem
     }
 
 
+    /**
+     * Test in parallel if given formula is a tautology. All free variables of the formula get
+     * an interpretation first. So all threads iterate the same valuations and thread
+     * <code>i</code> of <code>n</code> checks every <code>n</code>-th valuation starting
+     * with valuation <code>i</code>. The first interpreter is used by the current thread.
+     * If there is only one interpreter or the workers are not running everything is done
+     * within the current thread.
+     * <p>
+     * The valuation with the lowest number that gives a result decides, just as if all
+     * valuations were checked one after another.
+     *
+     * @param   moduleContext   Here we are within a module.
+     * @param   formula         Formula.
+     * @return  Is this formula a tautology according to our tests. <code>null</code> if
+     *          further variables were found during calculation. So we can't be sure that
+     *          all valuations were checked.
+     * @throws  HeuristicException  Evaluation failed.
+     */
+    private Boolean isTautologyParallel(final ModuleContext moduleContext,
+            final Element formula) throws HeuristicException {
+        final Limit limit = new Limit();
+        final Valuations[] valuations = new Valuations[interpreters.length];
+        for (int i = 0; i < valuations.length; i++) {
+            valuations[i] = new Valuations(interpreters[i], moduleContext, formula, i,
+                valuations.length, limit);
+        }
+        if (!running) {
+            for (int i = 0; i < valuations.length; i++) {
+                valuations[i].run();
+            }
+            return getResult(valuations);
+        }
+        synchronized (lock) {
+            job = valuations;
+            unfinished = valuations.length - 1;
+            generation++;
+            lock.notifyAll();
+        }
+        valuations[0].run();
+        boolean interrupted = false;
+        synchronized (lock) {
+            while (unfinished > 0) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                    limit.lower(0);
+                }
+            }
+            job = null;
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        return getResult(valuations);
+    }
+
+    /**
+     * Get the result of the valuation with the lowest number that gave a result.
+     *
+     * @param   valuations  Finished valuation checks.
+     * @return  Is this formula a tautology according to our tests. <code>null</code> if
+     *          further variables were found during calculation.
+     * @throws  HeuristicException  Evaluation failed.
+     */
+    private Boolean getResult(final Valuations[] valuations) throws HeuristicException {
+        Valuations first = null;
+        for (int i = 0; i < valuations.length; i++) {
+            checkedValuations += valuations[i].checked;
+            if (valuations[i].result != Valuations.NONE
+                    && (first == null || valuations[i].index < first.index)) {
+                first = valuations[i];
+            }
+        }
+        if (first == null) {
+            return Boolean.TRUE;
+        }
+        switch (first.result) {
+        case Valuations.COUNTEREXAMPLE:
+            return Boolean.FALSE;
+        case Valuations.NEW_VARIABLES:
+            return null;
+        default:
+            if (first.error instanceof HeuristicException) {
+                throw (HeuristicException) first.error;
+            } else if (first.error instanceof RuntimeException) {
+                throw (RuntimeException) first.error;
+            }
+            throw (Error) first.error;
+        }
+    }
+
+    /**
+     * Get number of valuations checked so far. Valuations that only differ by a permutation
+     * of interchangeable variables are checked only once.
+     *
+     * @return  Number of checked valuations.
+     */
+    long getCheckedValuations() {
+        return checkedValuations;
+    }
+
+    /**
+     * Start worker threads. One for each interpreter except the first one.
+     *
+     * @return  Started workers.
+     */
+    private Worker[] start() {
+        synchronized (lock) {
+            job = null;
+            generation = 0;
+            unfinished = 0;
+            shutdown = false;
+        }
+        final Worker[] workers = new Worker[interpreters.length - 1];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new Worker(i + 1);
+            workers[i].start();
+        }
+        running = true;
+        return workers;
+    }
+
+    /**
+     * Stop all workers and wait until they are finished.
+     *
+     * @param   workers Stop these.
+     */
+    private void stop(final Worker[] workers) {
+        synchronized (lock) {
+            shutdown = true;
+            lock.notifyAll();
+        }
+        running = false;
+        boolean interrupted = false;
+        for (int i = 0; i < workers.length; i++) {
+            while (workers[i].isAlive()) {
+                try {
+                    workers[i].join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
     public void visitEnter(final Axiom axiom) throws ModuleDataException {
         if (axiom == null) {
             return;
@@ -462,4 +706,208 @@ public final class DynamicHeuristicCheckerExecutor extends ControlVisitor implem
         return super.getLocationDescription() + "\n" + interpreter.toString();
     }
 
+    /**
+     * Lowest number of a valuation that gave a result. Workers stop at this valuation.
+     */
+    private static final class Limit {
+
+        /** Lowest valuation number. */
+        private volatile long value = Long.MAX_VALUE;
+
+        /**
+         * Get lowest valuation number.
+         *
+         * @return  Lowest valuation number that gave a result.
+         */
+        long get() {
+            return value;
+        }
+
+        /**
+         * A valuation gave a result.
+         *
+         * @param   index   Number of valuation.
+         */
+        synchronized void lower(final long index) {
+            if (index < value) {
+                value = index;
+            }
+        }
+
+    }
+
+    /**
+     * Checks every <code>n</code>-th valuation of a formula.
+     */
+    private static final class Valuations implements Runnable {
+
+        /** No valuation gave a result. */
+        static final int NONE = 0;
+
+        /** A counterexample was found. */
+        static final int COUNTEREXAMPLE = 1;
+
+        /** Further variables were found during calculation. */
+        static final int NEW_VARIABLES = 2;
+
+        /** Evaluation failed. */
+        static final int ERROR = 3;
+
+        /** Interpretation for variables. Only used by this worker. */
+        private final DynamicDirectInterpreter interpreter;
+
+        /** Here we are within a module. */
+        private final ModuleContext moduleContext;
+
+        /** Check this formula. */
+        private final Element formula;
+
+        /** Number of first valuation to check. */
+        private final int start;
+
+        /** Check every <code>step</code>-th valuation. */
+        private final int step;
+
+        /** Workers stop at this valuation. */
+        private final Limit limit;
+
+        /** Number of current valuation. */
+        private long index;
+
+        /** Result of valuation {@link #index}. */
+        private int result = NONE;
+
+        /** Evaluation failed or unexpected problem. */
+        private Throwable error;
+
+        /** Number of checked valuations. */
+        private long checked;
+
+        /**
+         * Constructor.
+         *
+         * @param   interpreter     Interpretation for variables. Only used by this worker.
+         * @param   moduleContext   Here we are within a module.
+         * @param   formula         Check this formula.
+         * @param   start           Number of first valuation to check.
+         * @param   step            Check every <code>step</code>-th valuation.
+         * @param   limit           Workers stop at this valuation.
+         */
+        Valuations(final DynamicDirectInterpreter interpreter,
+                final ModuleContext moduleContext, final Element formula, final int start,
+                final int step, final Limit limit) {
+            this.interpreter = interpreter;
+            this.moduleContext = moduleContext;
+            this.formula = formula;
+            this.start = start;
+            this.step = step;
+            this.limit = limit;
+        }
+
+        public void run() {
+            try {
+                interpreter.activateVariables(formula);
+                final int number = interpreter.getVariableNumber();
+                index = start;
+                boolean more = skip(start);
+                while (more && index < limit.get()) {
+                    checked++;
+                    if (!interpreter.calculateValue(moduleContext, formula)) {
+                        found(COUNTEREXAMPLE);
+                        return;
+                    }
+                    if (interpreter.getVariableNumber() != number) {
+                        found(NEW_VARIABLES);
+                        return;
+                    }
+                    index += step;
+                    more = skip(step);
+                }
+            } catch (Throwable e) {
+                error = e;
+                found(ERROR);
+            } finally {
+                interpreter.clearVariables();
+            }
+        }
+
+        /**
+         * Current valuation gave a result.
+         *
+         * @param   type    Kind of result.
+         */
+        private void found(final int type) {
+            result = type;
+            limit.lower(index);
+        }
+
+        /**
+         * Change to a later valuation.
+         *
+         * @param   steps   Skip this number of valuations.
+         * @return  Is there such a valuation?
+         */
+        private boolean skip(final int steps) {
+            for (int i = 0; i < steps; i++) {
+                if (!interpreter.next()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+    }
+
+    /**
+     * Worker thread that checks valuations with its own interpreter.
+     */
+    private final class Worker extends Thread {
+
+        /** Index of interpreter and valuation check of this worker. */
+        private final int number;
+
+        /**
+         * Constructor.
+         *
+         * @param   number  Index of interpreter and valuation check of this worker.
+         */
+        Worker(final int number) {
+            super("DynamicHeuristicChecker worker");
+            setDaemon(true);
+            this.number = number;
+        }
+
+        public void run() {
+            int done = 0;
+            while (true) {
+                final Valuations valuations;
+                synchronized (lock) {
+                    while (!shutdown && generation == done) {
+                        try {
+                            lock.wait();
+                        } catch (InterruptedException e) {
+                            return;
+                        }
+                    }
+                    if (shutdown) {
+                        return;
+                    }
+                    done = generation;
+                    valuations = job[number];
+                }
+                try {
+                    valuations.run();
+                } finally {
+                    synchronized (lock) {
+                        unfinished--;
+                        if (unfinished == 0) {
+                            lock.notifyAll();
+                        }
+                    }
+                }
+            }
+        }
+
+    }
+
 }
@@ -57,6 +57,7 @@ public class DynamicHeuristicCheckerPlugin implements ModuleServicePlugin {
 
     public void setDefaultValuesForEmptyPluginParameters(final Parameters parameters) {
         parameters.setDefault("model", FourDynamicModel.class.getName());
+        parameters.setDefault("threads", 0);
     }
 
 
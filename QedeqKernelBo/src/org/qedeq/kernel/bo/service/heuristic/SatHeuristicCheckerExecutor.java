@@ -0,0 +1,298 @@
+/* This file is part of the project "Hilbert II" - http://www.qedeq.org
+ *
+ * Copyright 2000-2014,  Michael Meyling <mime@qedeq.org>.
+ *
+ * "Hilbert II" is free software; you can redistribute
+ * it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ */
+
+package org.qedeq.kernel.bo.service.heuristic;
+
+import java.util.List;
+
+import org.qedeq.base.io.Parameters;
+import org.qedeq.base.trace.Trace;
+import org.qedeq.kernel.bo.log.QedeqLog;
+import org.qedeq.kernel.bo.logic.common.Operators;
+import org.qedeq.kernel.bo.logic.common.TruthTableEvaluator;
+import org.qedeq.kernel.bo.logic.model.HeuristicErrorCodes;
+import org.qedeq.kernel.bo.logic.model.HeuristicException;
+import org.qedeq.kernel.bo.logic.sat.SatSolver;
+import org.qedeq.kernel.bo.logic.sat.TseitinEncoder;
+import org.qedeq.kernel.bo.module.InternalModuleServiceCall;
+import org.qedeq.kernel.bo.module.KernelQedeqBo;
+import org.qedeq.kernel.bo.service.basis.ControlVisitor;
+import org.qedeq.kernel.bo.service.basis.ModuleServicePlugin;
+import org.qedeq.kernel.bo.service.basis.ModuleServicePluginExecutor;
+import org.qedeq.kernel.se.base.list.Element;
+import org.qedeq.kernel.se.base.module.Axiom;
+import org.qedeq.kernel.se.base.module.ConditionalProof;
+import org.qedeq.kernel.se.base.module.FormalProofLine;
+import org.qedeq.kernel.se.base.module.FunctionDefinition;
+import org.qedeq.kernel.se.base.module.InitialFunctionDefinition;
+import org.qedeq.kernel.se.base.module.InitialPredicateDefinition;
+import org.qedeq.kernel.se.base.module.Node;
+import org.qedeq.kernel.se.base.module.PredicateDefinition;
+import org.qedeq.kernel.se.base.module.Proposition;
+import org.qedeq.kernel.se.base.module.Rule;
+import org.qedeq.kernel.se.common.ModuleDataException;
+import org.qedeq.kernel.se.common.ModuleService;
+import org.qedeq.kernel.se.common.SourceFileExceptionList;
+import org.qedeq.kernel.se.dto.list.DefaultElementList;
+
+
+/**
+ * Check if formulas that consist only of proposition variables and propositional operators
+ * are tautologies. The negation of such a formula is given to a SAT solver. If it finds a
+ * satisfying assignment we have a counterexample. Other formulas are not checked.
+ * <p>
+ * The parameter "maximumConflicts" limits the search for each formula. If it is not positive
+ * there is no limit.
+ *
+ * @author  Michael Meyling
+ */
+public final class SatHeuristicCheckerExecutor extends ControlVisitor implements ModuleServicePluginExecutor {
+
+    /** This class. */
+    private static final Class CLASS = SatHeuristicCheckerExecutor.class;
+
+    /** Give up search for a counterexample after this number of conflicts. */
+    private final int maximumConflicts;
+
+    /** Current condition. */
+    private DefaultElementList condition;
+
+    /**
+     * Constructor.
+     *
+     * @param   plugin      This plugin we work for.
+     * @param   qedeq       QEDEQ module object.
+     * @param   parameters  Execution parameters.
+     */
+    SatHeuristicCheckerExecutor(final ModuleServicePlugin plugin, final KernelQedeqBo qedeq,
+            final Parameters parameters) {
+        super(plugin, qedeq);
+        maximumConflicts = parameters.getInt("maximumConflicts");
+    }
+
+    private ModuleService getPlugin() {
+        return (ModuleService) getService();
+    }
+
+    public Object executePlugin(final InternalModuleServiceCall call, final Object data) {
+        final String method = "executePlugin()";
+        try {
+            QedeqLog.getInstance().logRequest("SAT heuristic test", getKernelQedeqBo().getUrl());
+            condition = new DefaultElementList(Operators.CONJUNCTION_OPERATOR);
+            traverse(call.getInternalServiceProcess());
+            QedeqLog.getInstance().logSuccessfulReply(
+                "Heuristic test succesfull", getKernelQedeqBo().getUrl());
+        } catch (final SourceFileExceptionList e) {
+            final String msg = "Test failed";
+            Trace.fatal(CLASS, this, method, msg, e);
+            QedeqLog.getInstance().logFailureReply(msg, getKernelQedeqBo().getUrl(), e.getMessage());
+        } catch (final RuntimeException e) {
+            Trace.fatal(CLASS, this, method, "unexpected problem", e);
+            QedeqLog.getInstance().logFailureReply(
+                "Test failed", getKernelQedeqBo().getUrl(), "unexpected problem: "
+                + (e.getMessage() != null ? e.getMessage() : e.toString()));
+        } finally {
+            getKernelQedeqBo().addPluginErrorsAndWarnings(getPlugin(), getErrorList(), getWarningList());
+        }
+        return null;
+    }
+
+    /**
+     * Search a counterexample for a propositional formula. If one is found a warning with
+     * the counterexample is added.
+     *
+     * @param   test            Test formula.
+     */
+    private void test(final Element test) {
+        Element toast = test;
+        if (condition.size() > 0) {
+            final DefaultElementList withCondition = new DefaultElementList(Operators.IMPLICATION_OPERATOR);
+            withCondition.add(condition);
+            withCondition.add(test);
+            toast = withCondition;
+        }
+        if (!TruthTableEvaluator.hasOnlyPropositionVariables(toast)) {
+            return;
+        }
+        final SatSolver solver = new SatSolver();
+        final TseitinEncoder encoder = new TseitinEncoder(solver);
+        solver.addClause(new int[] {-encoder.encode(toast)});
+        final int result = solver.solve(maximumConflicts);
+        if (result == SatSolver.SATISFIABLE) {
+            addWarning(new HeuristicException(HeuristicErrorCodes.EVALUATED_NOT_TRUE_CODE,
+                HeuristicErrorCodes.EVALUATED_NOT_TRUE_TEXT + " (\""
+                    + getCounterexample(solver, encoder) + "\")", getCurrentContext()));
+        } else if (result == SatSolver.UNKNOWN) {
+            QedeqLog.getInstance().logMessageState("\t\tno decision after "
+                + solver.getConflicts() + " conflicts", getKernelQedeqBo().getUrl());
+        }
+    }
+
+    /**
+     * Get description of satisfying assignment for the negated formula.
+     *
+     * @param   solver  Solver that found the assignment.
+     * @param   encoder Encoder of the formula.
+     * @return  Values of proposition variables, e.g. "A = true, B = false".
+     */
+    private static String getCounterexample(final SatSolver solver, final TseitinEncoder encoder) {
+        final StringBuffer buffer = new StringBuffer();
+        final List atoms = encoder.getAtoms();
+        for (int i = 0; i < atoms.size(); i++) {
+            final Element atom = (Element) atoms.get(i);
+            if (i > 0) {
+                buffer.append(", ");
+            }
+            buffer.append(atom.getList().getElement(0).getAtom().getString());
+            buffer.append(" = ");
+            buffer.append(solver.getValue(encoder.getVariable(atom)));
+        }
+        return buffer.toString();
+    }
+
+    public void visitEnter(final Axiom axiom) throws ModuleDataException {
+        if (axiom == null) {
+            return;
+        }
+        final String context = getCurrentContext().getLocationWithinModule();
+        QedeqLog.getInstance().logMessageState("\ttesting axiom", getKernelQedeqBo().getUrl());
+        if (axiom.getFormula() != null) {
+            setLocationWithinModule(context + ".getFormula().getElement()");
+            test(axiom.getFormula().getElement());
+        }
+        setLocationWithinModule(context);
+        setBlocked(true);
+    }
+
+    public void visitLeave(final Axiom axiom) {
+        setBlocked(false);
+    }
+
+    public void visitEnter(final InitialPredicateDefinition definition) {
+        setBlocked(true);
+    }
+
+    public void visitLeave(final InitialPredicateDefinition definition) {
+        setBlocked(false);
+    }
+
+    public void visitEnter(final PredicateDefinition definition) {
+        setBlocked(true);
+    }
+
+    public void visitLeave(final PredicateDefinition definition) {
+        setBlocked(false);
+    }
+
+    public void visitEnter(final InitialFunctionDefinition definition) {
+        setBlocked(true);
+    }
+
+    public void visitLeave(final InitialFunctionDefinition definition) {
+        setBlocked(false);
+    }
+
+    public void visitEnter(final FunctionDefinition definition) {
+        setBlocked(true);
+    }
+
+    public void visitLeave(final FunctionDefinition definition) {
+        setBlocked(false);
+    }
+
+    public void visitEnter(final Node node) {
+        QedeqLog.getInstance().logMessageState(super.getLocationDescription(),
+            getKernelQedeqBo().getUrl());
+    }
+
+    public void visitEnter(final Proposition proposition)
+            throws ModuleDataException {
+        if (proposition == null) {
+            return;
+        }
+        QedeqLog.getInstance().logMessageState("\ttesting proposition", getKernelQedeqBo().getUrl());
+        final String context = getCurrentContext().getLocationWithinModule();
+        if (proposition.getFormula() != null) {
+            setLocationWithinModule(context + ".getFormula().getElement()");
+            test(proposition.getFormula().getElement());
+        }
+        setLocationWithinModule(context);
+    }
+
+    public void visitLeave(final Proposition definition) {
+        // nothing to do
+    }
+
+    public void visitEnter(final FormalProofLine line)
+            throws ModuleDataException {
+        if (line == null) {
+            return;
+        }
+        QedeqLog.getInstance().logMessageState("\t\ttesting line " + line.getLabel(),
+            getKernelQedeqBo().getUrl());
+        final String context = getCurrentContext().getLocationWithinModule();
+        if (line.getFormula() != null) {
+            setLocationWithinModule(context + ".getFormula().getElement()");
+            test(line.getFormula().getElement());
+        }
+        setLocationWithinModule(context);
+        setBlocked(true);
+    }
+
+    public void visitLeave(final FormalProofLine line) {
+        setBlocked(false);
+    }
+
+    public void visitEnter(final ConditionalProof line)
+            throws ModuleDataException {
+        if (line == null) {
+            return;
+        }
+        // add hypothesis to list of conditions
+        if (line.getHypothesis() != null && line.getHypothesis().getFormula() != null
+                && line.getHypothesis().getFormula().getElement() != null) {
+            condition.add(line.getHypothesis().getFormula().getElement());
+            QedeqLog.getInstance().logMessageState("\t\tadd condit. "
+                + line.getHypothesis().getLabel(), getKernelQedeqBo().getUrl());
+        }
+    }
+
+    public void visitLeave(final ConditionalProof line) {
+        if (line == null) {
+            return;
+        }
+        // remove hypothesis of list of conditions
+        if (line.getHypothesis() != null && line.getHypothesis().getFormula() != null
+                && line.getHypothesis().getFormula().getElement() != null) {
+            condition.remove(condition.size() - 1);
+        }
+        QedeqLog.getInstance().logMessageState("\t\ttesting line "
+            + line.getConclusion().getLabel(), getKernelQedeqBo().getUrl());
+        final String context = getCurrentContext().getLocationWithinModule();
+        if (line.getConclusion().getFormula() != null) {
+            setLocationWithinModule(context + ".getConclusion().getFormula().getElement()");
+            test(line.getConclusion().getFormula().getElement());
+        }
+    }
+
+    public void visitEnter(final Rule rule) throws ModuleDataException {
+        setBlocked(true);
+    }
+
+    public void visitLeave(final Rule rule) {
+        setBlocked(false);
+    }
+
+}
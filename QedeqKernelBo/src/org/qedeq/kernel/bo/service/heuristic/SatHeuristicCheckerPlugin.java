@@ -0,0 +1,62 @@
+/* This file is part of the project "Hilbert II" - http://www.qedeq.org
+ *
+ * Copyright 2000-2014,  Michael Meyling <mime@qedeq.org>.
+ *
+ * "Hilbert II" is free software; you can redistribute
+ * it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ */
+
+package org.qedeq.kernel.bo.service.heuristic;
+
+import org.qedeq.base.io.Parameters;
+import org.qedeq.kernel.bo.module.KernelQedeqBo;
+import org.qedeq.kernel.bo.service.basis.ModuleServicePlugin;
+import org.qedeq.kernel.bo.service.basis.ModuleServicePluginExecutor;
+
+
+/**
+ * Plugin to check if propositional QEDEQ module formulas are tautologies by using a SAT solver.
+ *
+ * @author  Michael Meyling
+ */
+public class SatHeuristicCheckerPlugin implements ModuleServicePlugin {
+
+    /** This class. */
+    public static final Class CLASS = SatHeuristicCheckerPlugin.class;
+
+    /**
+     * Constructor.
+     */
+    public SatHeuristicCheckerPlugin() {
+        // nothing to do
+    }
+
+    public String getServiceId() {
+        return CLASS.getName();
+    }
+
+    public String getServiceAction() {
+        return "Test Propositional Formulas with SAT Solver";
+    }
+
+    public String getServiceDescription() {
+        return "checks propositional formulas by searching counterexamples with a SAT solver";
+    }
+
+    public ModuleServicePluginExecutor createExecutor(final KernelQedeqBo qedeq, final Parameters parameters) {
+        return new SatHeuristicCheckerExecutor(this, qedeq, parameters);
+    }
+
+    public void setDefaultValuesForEmptyPluginParameters(final Parameters parameters) {
+        parameters.setDefault("maximumConflicts", 1000000);
+    }
+
+
+}
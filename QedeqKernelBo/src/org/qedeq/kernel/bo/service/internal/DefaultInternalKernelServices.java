@@ -135,6 +135,7 @@ public class DefaultInternalKernelServices implements Kernel, InternalKernelServ
         pluginManager.addPlugin("org.qedeq.kernel.bo.service.unicode.Qedeq2Utf8Plugin");
 ////        pluginManager.addPlugin("org.qedeq.kernel.bo.service.heuristic.HeuristicCheckerPlugin");
         pluginManager.addPlugin("org.qedeq.kernel.bo.service.heuristic.DynamicHeuristicCheckerPlugin");
+        pluginManager.addPlugin("org.qedeq.kernel.bo.service.heuristic.SatHeuristicCheckerPlugin");
         pluginManager.addPlugin(SimpleProofFinderPlugin.class.getName());
 
         // add internal plugins
@@ -304,6 +305,8 @@ public class DefaultInternalKernelServices implements Kernel, InternalKernelServ
             QedeqLog.getInstance().logMessage(
                 "Clear local buffer from all QEDEQ files.");
             if (removeAllModules()) {
+                ((FormalProofCheckerPlugin) pluginManager.getPlugin(
+                    FormalProofCheckerPlugin.class.getName())).clearCheckResults();
                 final File bufferDir = getBufferDirectory().getCanonicalFile();
                 if (bufferDir.exists() && !IoUtility.deleteDir(bufferDir, new FileFilter() {
                             public boolean accept(final File pathname) {
@@ -16,7 +16,10 @@
 package org.qedeq.kernel.bo.service.internal;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.lang.ArrayUtils;
 import org.qedeq.base.io.SourceArea;
@@ -78,6 +81,9 @@ public class DefaultKernelQedeqBo implements KernelQedeqBo {
     /** Predicate and function constant existence checker. */
     private ModuleConstantsExistenceChecker checker;
 
+    /** Normalized formulas of this module. Keys are compared by identity. */
+    private Map normalizedFormulas = createNormalizedFormulas();
+
     /** Labels for this module, definitions, etc. */
     private ModuleLabels labels;
 
@@ -519,6 +525,7 @@ public class DefaultKernelQedeqBo implements KernelQedeqBo {
      */
     public void setQedeqVo(final QedeqVo qedeq) {
         this.qedeq = qedeq;
+        this.normalizedFormulas = createNormalizedFormulas();
     }
 
     /**
@@ -542,6 +549,20 @@ public class DefaultKernelQedeqBo implements KernelQedeqBo {
 
     public void setExistenceChecker(final ModuleConstantsExistenceChecker checker) {
         this.checker = checker;
+        this.normalizedFormulas = createNormalizedFormulas();
+    }
+
+    public Map getNormalizedFormulas() {
+        return normalizedFormulas;
+    }
+
+    /**
+     * Create new empty cache for normalized formulas.
+     *
+     * @return  Synchronized identity map.
+     */
+    private static Map createNormalizedFormulas() {
+        return Collections.synchronizedMap(new IdentityHashMap());
     }
 
     public int hashCode() {
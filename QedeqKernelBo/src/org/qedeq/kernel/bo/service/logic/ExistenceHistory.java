@@ -0,0 +1,176 @@
+/* This file is part of the project "Hilbert II" - http://www.qedeq.org
+ *
+ * Copyright 2000-2014,  Michael Meyling <mime@qedeq.org>.
+ *
+ * "Hilbert II" is free software; you can redistribute
+ * it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ */
+
+package org.qedeq.kernel.bo.service.logic;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.qedeq.kernel.bo.logic.common.ExistenceChecker;
+import org.qedeq.kernel.bo.logic.common.FunctionKey;
+import org.qedeq.kernel.bo.logic.common.PredicateKey;
+import org.qedeq.kernel.se.common.RuleKey;
+
+
+/**
+ * Remembers at which node position predicates, functions, rules and the identity and class
+ * operators were added to an existence checker of a module. After all definitions of the
+ * module are added, this history gives read-only views of the existence checker as it was
+ * at a certain node position. So formulas can be checked independently of each other.
+ * <p>
+ * The existence checker must not be changed while views are used.
+ *
+ * @author  Michael Meyling
+ */
+final class ExistenceHistory {
+
+    /** Position for operators that are defined before the first node. */
+    private static final int BEFORE = -1;
+
+    /** Position for operators that are not defined. */
+    private static final int NEVER = Integer.MAX_VALUE;
+
+    /** Existence checker with all definitions. */
+    private final ExistenceChecker existence;
+
+    /** Maps {@link PredicateKey}s, {@link FunctionKey}s and {@link RuleKey}s to the node
+     * position they were added at. Values are of type {@link Integer}. */
+    private final Map positions = new HashMap();
+
+    /** Position of node where the identity operator was defined. */
+    private int identityOperator;
+
+    /** Position of node where the class operator was defined. */
+    private int classOperator;
+
+    /**
+     * Constructor. Everything the existence checker already knows is visible at all positions.
+     *
+     * @param   existence   Existence checker that gets all definitions.
+     */
+    ExistenceHistory(final ExistenceChecker existence) {
+        this.existence = existence;
+        identityOperator = (existence.identityOperatorExists() ? BEFORE : NEVER);
+        classOperator = (existence.classOperatorExists() ? BEFORE : NEVER);
+    }
+
+    /**
+     * Remember that a predicate, function or rule was added at a node position.
+     *
+     * @param   key         {@link PredicateKey}, {@link FunctionKey} or {@link RuleKey}.
+     * @param   position    Position of node.
+     */
+    void added(final Object key, final int position) {
+        if (!positions.containsKey(key)) {
+            positions.put(key, new Integer(position));
+        }
+    }
+
+    /**
+     * Remember if the identity or class operator was just defined at a node position.
+     *
+     * @param   position    Position of node.
+     */
+    void operatorsChanged(final int position) {
+        if (identityOperator == NEVER && existence.identityOperatorExists()) {
+            identityOperator = position;
+        }
+        if (classOperator == NEVER && existence.classOperatorExists()) {
+            classOperator = position;
+        }
+    }
+
+    /**
+     * Get existence checker as it was before a node.
+     *
+     * @param   position    Position of node.
+     * @return  Read-only view. Knows only what was added before the node.
+     */
+    ExistenceChecker getExistenceChecker(final int position) {
+        return new View(position);
+    }
+
+    /**
+     * Existence checker as it was before a certain node.
+     */
+    private final class View implements ExistenceChecker {
+
+        /** Position of node. */
+        private final int position;
+
+        /**
+         * Constructor.
+         *
+         * @param   position    Position of node.
+         */
+        View(final int position) {
+            this.position = position;
+        }
+
+        /**
+         * Was the key added before the node?
+         *
+         * @param   key {@link PredicateKey}, {@link FunctionKey} or {@link RuleKey}.
+         * @return  Is the key known at our position? Also <code>true</code> if the key is
+         *          unknown to the history.
+         */
+        private boolean isVisible(final Object key) {
+            final Integer added = (Integer) positions.get(key);
+            return added == null || added.intValue() < position;
+        }
+
+        public boolean predicateExists(final PredicateKey predicate) {
+            return isVisible(predicate) && existence.predicateExists(predicate);
+        }
+
+        public boolean predicateExists(final String name, final int arguments) {
+            return predicateExists(new PredicateKey(name, "" + arguments));
+        }
+
+        public boolean isInitialPredicate(final PredicateKey predicate) {
+            return isVisible(predicate) && existence.isInitialPredicate(predicate);
+        }
+
+        public boolean functionExists(final FunctionKey function) {
+            return isVisible(function) && existence.functionExists(function);
+        }
+
+        public boolean functionExists(final String name, final int arguments) {
+            return functionExists(new FunctionKey(name, "" + arguments));
+        }
+
+        public boolean isInitialFunction(final FunctionKey function) {
+            return isVisible(function) && existence.isInitialFunction(function);
+        }
+
+        public boolean classOperatorExists() {
+            return classOperator < position && existence.classOperatorExists();
+        }
+
+        public boolean identityOperatorExists() {
+            return identityOperator < position && existence.identityOperatorExists();
+        }
+
+        public String getIdentityOperator() {
+            return (identityOperator < position ? existence.getIdentityOperator() : null);
+        }
+
+        public boolean ruleExists(final RuleKey ruleKey) {
+            return isVisible(ruleKey) && existence.ruleExists(ruleKey);
+        }
+
+    }
+
+}
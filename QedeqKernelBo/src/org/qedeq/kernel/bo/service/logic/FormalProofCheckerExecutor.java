@@ -15,10 +15,16 @@
 
 package org.qedeq.kernel.bo.service.logic;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 
 import org.qedeq.base.io.Parameters;
 import org.qedeq.base.io.Version;
 import org.qedeq.base.trace.Trace;
+import org.qedeq.base.utility.EqualsUtility;
 import org.qedeq.base.utility.StringUtility;
 import org.qedeq.kernel.bo.log.QedeqLog;
 import org.qedeq.kernel.bo.logic.ProofCheckerFactoryImpl;
@@ -31,55 +37,118 @@ import org.qedeq.kernel.bo.logic.proof.checker.ProofCheckException;
 import org.qedeq.kernel.bo.logic.proof.common.ProofCheckerFactory;
 import org.qedeq.kernel.bo.logic.proof.common.RuleChecker;
 import org.qedeq.kernel.bo.module.InternalModuleServiceCall;
+import org.qedeq.kernel.bo.module.InternalServiceJob;
 import org.qedeq.kernel.bo.module.KernelModuleReferenceList;
+import org.qedeq.kernel.bo.module.KernelNodeBo;
 import org.qedeq.kernel.bo.module.KernelQedeqBo;
 import org.qedeq.kernel.bo.module.Reference;
 import org.qedeq.kernel.bo.service.basis.ControlVisitor;
 import org.qedeq.kernel.bo.service.basis.ModuleServicePluginExecutor;
+import org.qedeq.kernel.bo.service.basis.RuntimeVisitorException;
 import org.qedeq.kernel.se.base.list.Element;
 import org.qedeq.kernel.se.base.list.ElementList;
 import org.qedeq.kernel.se.base.module.Axiom;
 import org.qedeq.kernel.se.base.module.ChangedRule;
 import org.qedeq.kernel.se.base.module.ChangedRuleList;
+import org.qedeq.kernel.se.base.module.ConditionalProof;
 import org.qedeq.kernel.se.base.module.FormalProof;
+import org.qedeq.kernel.se.base.module.FormalProofLine;
 import org.qedeq.kernel.se.base.module.FormalProofLineList;
 import org.qedeq.kernel.se.base.module.FunctionDefinition;
 import org.qedeq.kernel.se.base.module.Header;
 import org.qedeq.kernel.se.base.module.InitialFunctionDefinition;
 import org.qedeq.kernel.se.base.module.InitialPredicateDefinition;
+import org.qedeq.kernel.se.base.module.Node;
 import org.qedeq.kernel.se.base.module.PredicateDefinition;
 import org.qedeq.kernel.se.base.module.Proposition;
+import org.qedeq.kernel.se.base.module.Reason;
 import org.qedeq.kernel.se.base.module.Rule;
 import org.qedeq.kernel.se.common.CheckLevel;
 import org.qedeq.kernel.se.common.ModuleContext;
 import org.qedeq.kernel.se.common.ModuleDataException;
-import org.qedeq.kernel.se.common.ModuleService;
 import org.qedeq.kernel.se.common.RuleKey;
 import org.qedeq.kernel.se.common.SourceFileException;
 import org.qedeq.kernel.se.common.SourceFileExceptionList;
 import org.qedeq.kernel.se.dto.list.DefaultAtom;
 import org.qedeq.kernel.se.dto.list.DefaultElementList;
+import org.qedeq.kernel.se.dto.list.ElementFactory;
 import org.qedeq.kernel.se.state.FormallyProvedState;
 import org.qedeq.kernel.se.visitor.InterruptException;
 
 
 /**
  * Checks if all propositions have a correct formal proof.
+ * <p>
+ * The formal proofs of the propositions are checked by several threads. The parameter "threads"
+ * gives the number of threads. If it is not positive the number of available processors is used.
+ * A proof can only use nodes that come before its proposition. So a proposition check only waits
+ * for the checks of earlier propositions its proof lines refer to. The errors are collected in
+ * document order, so they don't depend on thread scheduling. Worker threads are only started
+ * when there are propositions for them.
+ * <p>
+ * The results of successful proposition checks are remembered by the plugin. If the formula
+ * and formal proofs of a proposition are unchanged and all answers about referenced nodes and
+ * rules are still the same, the proposition is not checked again.
  *
  * @author  Michael Meyling
  */
-public final class FormalProofCheckerExecutor extends ControlVisitor implements ModuleServicePluginExecutor,
-        ReferenceResolver, RuleChecker {
+public final class FormalProofCheckerExecutor extends ControlVisitor implements ModuleServicePluginExecutor {
 
     /** This class. */
     private static final Class CLASS = FormalProofCheckerExecutor.class;
 
+    /** Creates shared immutable normalized formulas. */
+    private static final ElementFactory ELEMENT_FACTORY = new ElementFactory();
+
+    /** This plugin we work for. */
+    private final FormalProofCheckerPlugin plugin;
+
     /** Factory for generating new checkers. */
     private ProofCheckerFactory checkerFactory = null;
 
     /** Rule version the module claims to use at maximum. */
     private Version ruleVersion;
 
+    /** Number of threads that check propositions. */
+    private final int threads;
+
+    /** Synchronizes access to check data. */
+    private final Object lock = new Object();
+
+    /** Errors and proposition checks in document order. Elements are of type
+     * {@link ModuleDataException}, {@link SourceFileException} or {@link PropositionCheck}.
+     * Only set during {@link #traverse(InternalServiceJob)}. */
+    private List results;
+
+    /** Proposition checks that are not started yet. Elements are of type
+     * {@link PropositionCheck}. */
+    private List waiting;
+
+    /** Maps proposition nodes to their checks. Keys are of type {@link KernelNodeBo}. */
+    private Map checks;
+
+    /** Maps visited nodes to their position within the module. Values are of type
+     * {@link Integer}. */
+    private Map positions;
+
+    /** Is the traverse finished? */
+    private boolean traversed;
+
+    /** Should all workers stop? */
+    private boolean shutdown;
+
+    /** Started worker threads. Elements are of type {@link Worker}. */
+    private List workers;
+
+    /** First error that stopped a proposition check. Rethrown after all workers stopped. */
+    private Error fatal;
+
+    /** Results of the last check. Maps node labels to {@link PropositionCheckResult}s. */
+    private Map previous;
+
+    /** Required modules. Elements are of type {@link org.qedeq.kernel.se.base.module.Qedeq}. */
+    private List modules;
+
     /**
      * Constructor.
      *
@@ -87,9 +156,10 @@ public final class FormalProofCheckerExecutor extends ControlVisitor implements
      * @param   qedeq       QEDEQ BO object.
      * @param   parameters  Parameters.
      */
-    FormalProofCheckerExecutor(final ModuleService plugin, final KernelQedeqBo qedeq,
+    FormalProofCheckerExecutor(final FormalProofCheckerPlugin plugin, final KernelQedeqBo qedeq,
             final Parameters parameters) {
         super(plugin, qedeq);
+        this.plugin = plugin;
         final String method = "FormalProofCheckerExecutor(Plugin, KernelQedeqBo, Map)";
         final String checkerFactoryClass = parameters.getString("checkerFactory");
         if (checkerFactoryClass != null && checkerFactoryClass.length() > 0) {
@@ -115,6 +185,11 @@ public final class FormalProofCheckerExecutor extends ControlVisitor implements
         if (checkerFactory == null) {
             checkerFactory = new ProofCheckerFactoryImpl();
         }
+        int number = parameters.getInt("threads");
+        if (number <= 0) {
+            number = Runtime.getRuntime().availableProcessors();
+        }
+        threads = number;
     }
 
     public Object executePlugin(final InternalModuleServiceCall call, final Object data) throws InterruptException {
@@ -169,6 +244,211 @@ public final class FormalProofCheckerExecutor extends ControlVisitor implements
         return Boolean.TRUE;
     }
 
+    /**
+     * Traverse the module and check all propositions. Each proposition is checked by one of
+     * the worker threads. The current thread helps after the traverse is finished. All
+     * collected errors are added in document order. Propositions that are unchanged since the
+     * last successful check are not checked again.
+     *
+     * @param   process    We work in this service process.
+     * @throws  SourceFileExceptionList  All collected error exceptions.
+     */
+    public void traverse(final InternalServiceJob process) throws SourceFileExceptionList {
+        final KernelModuleReferenceList required = getKernelQedeqBo().getKernelRequiredModules();
+        modules = new ArrayList();
+        for (int i = 0; i < required.size(); i++) {
+            modules.add(required.getKernelQedeqBo(i).getQedeq());
+        }
+        previous = plugin.getCheckResults(getKernelQedeqBo().getModuleAddress());
+        synchronized (lock) {
+            results = new ArrayList();
+            waiting = new ArrayList();
+            checks = new HashMap();
+            positions = new HashMap();
+            traversed = false;
+            shutdown = false;
+            workers = new ArrayList();
+            fatal = null;
+        }
+        final List list;
+        final Map current;
+        final Error error;
+        try {
+            super.traverse(process);
+            synchronized (lock) {
+                traversed = true;
+                shutdown = getInterrupted();
+                lock.notifyAll();
+            }
+            work();
+        } finally {
+            stop();
+            synchronized (lock) {
+                if (Thread.interrupted() && !getInterrupted()) {
+                    results.add(new InterruptException(
+                        getKernelQedeqBo().getModuleAddress().createModuleContext()));
+                }
+                list = results;
+                current = checks;
+                error = fatal;
+                results = null;
+                waiting = null;
+                checks = null;
+                positions = null;
+                workers = null;
+                fatal = null;
+            }
+        }
+        if (error != null) {
+            previous = null;
+            modules = null;
+            throw error;
+        }
+        rememberResults(current);
+        for (int i = 0; i < list.size(); i++) {
+            final Object result = list.get(i);
+            if (result instanceof PropositionCheck) {
+                final List errors = ((PropositionCheck) result).errors;
+                for (int j = 0; j < errors.size(); j++) {
+                    super.addError((ModuleDataException) errors.get(j));
+                }
+            } else if (result instanceof ModuleDataException) {
+                super.addError((ModuleDataException) result);
+            } else {
+                super.addError((SourceFileException) result);
+            }
+        }
+        if (hasErrors()) {
+            throw getErrorList();
+        }
+    }
+
+    /**
+     * Remember the results of the proposition checks for the next check of this module. Only
+     * results for the current propositions are kept. If a check didn't finish the result of the
+     * last check is kept.
+     *
+     * @param   current Maps proposition nodes to their checks.
+     */
+    private void rememberResults(final Map current) {
+        final Map merged = new HashMap();
+        int reused = 0;
+        final Iterator iterator = current.values().iterator();
+        while (iterator.hasNext()) {
+            final PropositionCheck check = (PropositionCheck) iterator.next();
+            final String label = check.node.getNodeVo().getId();
+            if (!check.finished) {
+                if (previous.containsKey(label)) {
+                    merged.put(label, previous.get(label));
+                }
+                continue;
+            }
+            if (check.result != null) {
+                merged.put(label, check.result);
+            }
+            if (check.reused) {
+                reused++;
+            }
+        }
+        plugin.setCheckResults(getKernelQedeqBo().getModuleAddress(), merged, reused);
+        previous = null;
+        modules = null;
+        QedeqLog.getInstance().logMessageState("\treused check results of unchanged propositions: "
+            + reused, getKernelQedeqBo().getUrl());
+    }
+
+    /**
+     * Check propositions until there are no more or we should stop.
+     */
+    private void work() {
+        while (true) {
+            final PropositionCheck check = takeCheck();
+            if (check == null) {
+                return;
+            }
+            check.execute();
+        }
+    }
+
+    /**
+     * Get next proposition check that doesn't wait for other checks. Waits until there is one.
+     *
+     * @return  Next check. <code>null</code> if there are no more checks or we should stop.
+     */
+    private PropositionCheck takeCheck() {
+        synchronized (lock) {
+            while (true) {
+                if (Thread.currentThread().isInterrupted()) {
+                    shutdown = true;
+                    lock.notifyAll();
+                }
+                if (shutdown) {
+                    return null;
+                }
+                for (int i = 0; i < waiting.size(); i++) {
+                    final PropositionCheck check = (PropositionCheck) waiting.get(i);
+                    if (check.isReady()) {
+                        waiting.remove(i);
+                        check.started = true;
+                        return check;
+                    }
+                }
+                if (traversed && waiting.isEmpty()) {
+                    return null;
+                }
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    /**
+     * Start another worker if there are more waiting proposition checks than workers and the
+     * number of threads is not reached yet. The current thread counts as one worker, because it
+     * helps after the traverse. Must be called within a block synchronized by {@link #lock}.
+     */
+    private void startWorker() {
+        if (workers.size() < threads - 1 && checks.size() > workers.size() + 1) {
+            final Worker worker = new Worker();
+            workers.add(worker);
+            worker.start();
+        }
+    }
+
+    /**
+     * Stop all workers and wait until they are finished.
+     */
+    private void stop() {
+        final Worker[] started;
+        synchronized (lock) {
+            shutdown = true;
+            lock.notifyAll();
+            started = (Worker[]) workers.toArray(new Worker[workers.size()]);
+        }
+        boolean interrupted = false;
+        for (int i = 0; i < started.length; i++) {
+            while (started[i].isAlive()) {
+                try {
+                    started[i].join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public void visitEnter(final Node node) throws ModuleDataException {
+        synchronized (lock) {
+            positions.put(getNodeBo(), new Integer(positions.size()));
+        }
+    }
+
     public void visitEnter(final Header header) throws ModuleDataException {
         if (header.getSpecification() == null
                 || header.getSpecification().getRuleVersion() == null) {
@@ -309,42 +589,21 @@ public final class FormalProofCheckerExecutor extends ControlVisitor implements
                 getCurrentContext()));
             return;
         }
-        final String context = getCurrentContext().getLocationWithinModule();
-        boolean correctProofFound = false;
-        // we start checking
-        if (proposition.getFormalProofList() != null) {
-            for (int i = 0; i < proposition.getFormalProofList().size(); i++) {
-                final FormalProof proof = proposition.getFormalProofList().get(i);
-                if (proof != null) {
-                    final FormalProofLineList list = proof.getFormalProofLineList();
-                    if (list != null) {
-                        setLocationWithinModule(context + ".getFormalProofList().get("
-                           + i + ").getFormalProofLineList()");
-                        LogicalCheckExceptionList eList
-                            = checkerFactory.createProofChecker(ruleVersion).checkProof(
-                            proposition.getFormula().getElement(), list, this,
-                            getCurrentContext(),
-                            this);
-                        if (!correctProofFound && eList.size() == 0) {
-                            correctProofFound = true;
-                        }
-                        for (int j = 0; j < eList.size(); j++) {
-                            addError(eList.get(j));
-                        }
-                    }
-                }
+        final PropositionCheck check;
+        synchronized (lock) {
+            check = new PropositionCheck(getNodeBo(), proposition);
+            checks.put(check.node, check);
+            results.add(check);
+            if (threads > 1) {
+                waiting.add(check);
+                startWorker();
+                lock.notifyAll();
+            } else {
+                check.started = true;
             }
         }
-        setLocationWithinModule(context + ".getFormula()");
-        // only if we found at least one error free formal proof
-        if (correctProofFound) {
-            getNodeBo().setProved(CheckLevel.SUCCESS);
-        } else {
-            getNodeBo().setProved(CheckLevel.FAILURE);
-            addError(new ProofCheckException(
-                LogicErrors.NO_FORMAL_PROOF_FOUND_CODE,
-                LogicErrors.NO_FORMAL_PROOF_FOUND_TEXT,
-                getCurrentContext()));
+        if (threads <= 1 && fatal == null) {
+            check.execute();
         }
         setBlocked(true);
     }
@@ -383,6 +642,13 @@ public final class FormalProofCheckerExecutor extends ControlVisitor implements
         if (getNodeBo() != null) {
             getNodeBo().setProved(CheckLevel.FAILURE);
         }
+        synchronized (lock) {
+            // during traverse all errors are collected in document order
+            if (results != null) {
+                results.add(me);
+                return;
+            }
+        }
         super.addError(me);
     }
 
@@ -390,72 +656,47 @@ public final class FormalProofCheckerExecutor extends ControlVisitor implements
         if (getNodeBo() != null) {
             getNodeBo().setProved(CheckLevel.FAILURE);
         }
-        super.addError(me);
-    }
-
-    public boolean isProvedFormula(final String reference) {
-        final String method = "hasProvedFormula";
-        final Reference ref = getReference(reference, getCurrentContext(), false, false);
-        if (ref == null) {
-            Trace.info(CLASS, method, "ref == null");
-            return false;
-        }
-        if (ref.isExternalModuleReference()) {
-            Trace.info(CLASS, method, "ref is external module");
-            return false;
-        }
-        if (!ref.isNodeReference()) {
-            Trace.info(CLASS, method, "ref is no node reference");
-            return false;
-        }
-        if (null == ref.getNode()) {
-            Trace.info(CLASS, method, "ref node == null");
-            return false;
-        }
-        if (ref.isSubReference()) {
-            return false;
-        }
-        if (!ref.isProofLineReference()) {
-            if (!ref.getNode().isProved()) {
-                Trace.info(CLASS, method, "ref node is not marked as proved: " + reference);
+        synchronized (lock) {
+            // during traverse all errors are collected in document order
+            if (results != null) {
+                results.add(me);
+                return;
             }
-            if (!ref.getNode().isProved()) {
-                return false;
-            }
-            if (!ref.getNode().hasFormula()) {
-                Trace.info(CLASS, method, "node has no formula: " + reference);
-                return false;
-            }
-            return ref.getNode().isProved();
-        }
-        Trace.info(CLASS, method, "proof line references are not ok!");
-        return false;
-    }
-
-    public Element getNormalizedReferenceFormula(final String reference) {
-        if (!isProvedFormula(reference)) {
-            return null;
         }
-        final Reference ref = getReference(reference, getCurrentContext(), false, false);
-        final Element formula = ref.getNode().getFormula();
-        return getNormalizedFormula(ref.getNode().getQedeqBo(), formula);
-    }
-
-    public Element getNormalizedFormula(final Element formula) {
-        return getNormalizedFormula(getKernelQedeqBo(), formula);
+        super.addError(me);
     }
 
+    /**
+     * Get normalized form of a formula of a module. The result is remembered in the cache of
+     * the module, so each formula is normalized only once. This is also true for formulas of
+     * imported modules: their normalized forms are shared between all importing modules.
+     * The results are immutable.
+     *
+     * @param   qedeq   Formula is from this module.
+     * @param   formula Normalize this formula.
+     * @return  Normalized formula.
+     */
     private Element getNormalizedFormula(final KernelQedeqBo qedeq, final Element formula) {
         if (formula == null) {
             return null;
         }
+        final Map cache = qedeq.getNormalizedFormulas();
+        Element result = (Element) cache.get(formula);
+        if (result == null) {
+            result = ELEMENT_FACTORY.intern(normalize(qedeq, formula));
+            cache.put(formula, result);
+        }
+        return result;
+    }
+
+    private Element normalize(final KernelQedeqBo qedeq, final Element formula) {
         if (formula.isAtom()) {
             return new DefaultAtom(formula.getAtom().getString());
         }
-        return getNormalizedFormula(qedeq, formula.getList());
+        return normalize(qedeq, formula.getList());
     }
 
-    private ElementList getNormalizedFormula(final KernelQedeqBo qedeq, final ElementList formula) {
+    private ElementList normalize(final KernelQedeqBo qedeq, final ElementList formula) {
         final ElementList result = new DefaultElementList(formula.getOperator());
         if (FormulaUtility.isPredicateConstant(formula)) {
             final PredicateKey key = new PredicateKey(formula.getElement(0).getAtom().getString(),
@@ -465,7 +706,7 @@ public final class FormalProofCheckerExecutor extends ControlVisitor implements
                 + "$" + key.getName());
             result.add(atom);
             for (int i = 1; i < formula.size(); i++) {
-                result.add(getNormalizedFormula(qedeq, formula.getElement(i)));
+                result.add(normalize(qedeq, formula.getElement(i)));
             }
         } else if (FormulaUtility.isFunctionConstant(formula)) {
             final FunctionKey key = new FunctionKey(formula.getElement(0).getAtom().getString(),
@@ -475,39 +716,437 @@ public final class FormalProofCheckerExecutor extends ControlVisitor implements
                 + "$" + key.getName());
             result.add(atom);
             for (int i = 1; i < formula.size(); i++) {
-                result.add(getNormalizedFormula(qedeq, formula.getElement(i)));
+                result.add(normalize(qedeq, formula.getElement(i)));
             }
         } else {
             for (int i = 0; i < formula.size(); i++) {
-                result.add(getNormalizedFormula(qedeq, formula.getElement(i)));
+                result.add(normalize(qedeq, formula.getElement(i)));
             }
         }
         return result;
     }
 
-    public boolean isLocalProofLineReference(final String reference) {
-        // here we have no proof lines
-        return false;
-    }
+    /**
+     * Check of the formal proofs of one proposition. It has its own copy of all data it needs
+     * from the traverse, so it can be executed by any thread.
+     */
+    private final class PropositionCheck implements ReferenceResolver, RuleChecker {
 
-    public ModuleContext getReferenceContext(final String reference) {
-        // here we have no proof lines
-        return null;
-    }
+        /** Question prefix: is the reference a proved formula? */
+        private static final String PROVED = "proved:";
 
-    public Element getNormalizedLocalProofLineReference(final String reference) {
-        // here we have no proof lines
-        return null;
-    }
+        /** Question prefix: normalized formula of the reference. */
+        private static final String FORMULA = "formula:";
+
+        /** Question prefix: rule key of the rule name. */
+        private static final String RULE = "rule:";
+
+        /** Node of proposition. */
+        private final KernelNodeBo node;
+
+        /** Proposition to check. */
+        private final Proposition proposition;
+
+        /** Context of proposition. */
+        private final ModuleContext context;
+
+        /** Position of node within the module. */
+        private final int position;
+
+        /** Rule version the module claims to use at maximum. */
+        private final Version version;
+
+        /** Local rule keys for this proposition. Maps rule names to {@link RuleKey}s. */
+        private final Map ruleKeys;
+
+        /** Checks of earlier propositions the proof lines refer to. Elements are of type
+         * {@link PropositionCheck}. */
+        private final List dependencies;
 
-    public RuleKey getRule(final String ruleName) {
-        final RuleKey local = getLocalRuleKey(ruleName);
-        if (local == null) {
-            return getKernelQedeqBo().getExistenceChecker().getParentRuleKey(
-            ruleName);
+        /** Found errors. Elements are of type {@link ModuleDataException}. */
+        private final List errors = new ArrayList();
+
+        /** Answers the proof checker got. Maps questions to answers. */
+        private final Map answers = new HashMap();
+
+        /** Result of a successful check. Is <code>null</code> if the check failed. */
+        private PropositionCheckResult result;
+
+        /** Was the result of the last check reused? */
+        private boolean reused;
+
+        /** Is this check started? Synchronized by {@link FormalProofCheckerExecutor#lock}. */
+        private boolean started;
+
+        /** Is this check finished? Synchronized by {@link FormalProofCheckerExecutor#lock}. */
+        private boolean finished;
+
+        /**
+         * Constructor. Must be called during the traverse, the current node is the proposition
+         * node.
+         *
+         * @param   node        Node of proposition.
+         * @param   proposition Proposition to check.
+         */
+        PropositionCheck(final KernelNodeBo node, final Proposition proposition) {
+            this.node = node;
+            this.proposition = proposition;
+            this.context = new ModuleContext(getCurrentContext());
+            this.position = ((Integer) positions.get(node)).intValue();
+            this.version = ruleVersion;
+            this.ruleKeys = getLocalRuleKeys();
+            this.dependencies = new ArrayList();
+            for (int i = 0; proposition.getFormalProofList() != null
+                    && i < proposition.getFormalProofList().size(); i++) {
+                final FormalProof proof = proposition.getFormalProofList().get(i);
+                if (proof != null) {
+                    addDependencies(proof.getFormalProofLineList());
+                }
+            }
         }
-        return local;
+
+        /**
+         * Add checks of all propositions the given proof lines refer to.
+         *
+         * @param   lines   Proof lines. Might be <code>null</code>.
+         */
+        private void addDependencies(final FormalProofLineList lines) {
+            for (int i = 0; lines != null && i < lines.size(); i++) {
+                final FormalProofLine line = lines.get(i);
+                final Reason reason = (line != null ? line.getReason() : null);
+                if (reason == null) {
+                    continue;
+                }
+                if (reason instanceof ConditionalProof) {
+                    addDependencies(((ConditionalProof) reason).getFormalProofLineList());
+                }
+                final String[] references = reason.getReferences();
+                for (int j = 0; j < references.length; j++) {
+                    final Object check = checks.get(
+                        getKernelQedeqBo().getLabels().getNode(references[j]));
+                    if (check != null && !dependencies.contains(check)) {
+                        dependencies.add(check);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Are all checks finished this check depends on?
+         * Must be called within a block synchronized by {@link FormalProofCheckerExecutor#lock}.
+         *
+         * @return  Can this check be started?
+         */
+        boolean isReady() {
+            for (int i = 0; i < dependencies.size(); i++) {
+                if (!((PropositionCheck) dependencies.get(i)).finished) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Execute this check and mark it as finished.
+         */
+        void execute() {
+            try {
+                check();
+            } catch (RuntimeException e) {
+                Trace.fatal(CLASS, this, "execute", "looks like a programming error", e);
+                node.setProved(CheckLevel.FAILURE);
+                errors.add(new RuntimeVisitorException(context, e));
+            } catch (Error e) {
+                // stop all checks, the error is thrown after the workers are stopped
+                Trace.fatal(CLASS, this, "execute", "unexpected error", e);
+                synchronized (lock) {
+                    if (fatal == null) {
+                        fatal = e;
+                    }
+                    shutdown = true;
+                }
+            } finally {
+                synchronized (lock) {
+                    finished = true;
+                    lock.notifyAll();
+                }
+            }
+        }
+
+        /**
+         * Wait until this check is finished. If it is not started yet, it is executed
+         * within the current thread.
+         */
+        void waitUntilFinished() {
+            synchronized (lock) {
+                if (!started) {
+                    waiting.remove(this);
+                    started = true;
+                } else {
+                    while (!finished) {
+                        try {
+                            lock.wait();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            return;
+                        }
+                    }
+                    return;
+                }
+            }
+            execute();
+        }
+
+        /**
+         * Check all formal proofs of the proposition. At least one must be correct.
+         */
+        private void check() {
+            final String checkerName = checkerFactory.getClass().getName();
+            final PropositionCheckResult last = (PropositionCheckResult) previous.get(
+                node.getNodeVo().getId());
+            if (last != null && last.isSame(proposition, version, checkerName, modules)
+                    && isUnchanged(last.getAnswers())) {
+                node.setProved(CheckLevel.SUCCESS);
+                result = last;
+                reused = true;
+                return;
+            }
+            final String location = context.getLocationWithinModule();
+            boolean correctProofFound = false;
+            // we start checking
+            if (proposition.getFormalProofList() != null) {
+                for (int i = 0; i < proposition.getFormalProofList().size(); i++) {
+                    final FormalProof proof = proposition.getFormalProofList().get(i);
+                    if (proof != null) {
+                        final FormalProofLineList list = proof.getFormalProofLineList();
+                        if (list != null) {
+                            final ModuleContext proofContext = new ModuleContext(context,
+                                location + ".getFormalProofList().get(" + i
+                                + ").getFormalProofLineList()");
+                            LogicalCheckExceptionList eList
+                                = checkerFactory.createProofChecker(version).checkProof(
+                                proposition.getFormula().getElement(), list, this,
+                                proofContext, this);
+                            if (!correctProofFound && eList.size() == 0) {
+                                correctProofFound = true;
+                            }
+                            for (int j = 0; j < eList.size(); j++) {
+                                errors.add(eList.get(j));
+                            }
+                        }
+                    }
+                }
+            }
+            // only if we found at least one error free formal proof
+            if (correctProofFound) {
+                node.setProved(CheckLevel.SUCCESS);
+                if (errors.isEmpty()) {
+                    result = new PropositionCheckResult(proposition, version, checkerName,
+                        modules, answers);
+                }
+            } else {
+                node.setProved(CheckLevel.FAILURE);
+                errors.add(new ProofCheckException(
+                    LogicErrors.NO_FORMAL_PROOF_FOUND_CODE,
+                    LogicErrors.NO_FORMAL_PROOF_FOUND_TEXT,
+                    new ModuleContext(context, location + ".getFormula()")));
+            }
+        }
+
+        /**
+         * Would the proof checker get the same answers as during the last check?
+         *
+         * @param   last    Answers of the last check. Maps questions to answers.
+         * @return  Are all answers unchanged?
+         */
+        private boolean isUnchanged(final Map last) {
+            final Iterator iterator = last.entrySet().iterator();
+            while (iterator.hasNext()) {
+                final Map.Entry entry = (Map.Entry) iterator.next();
+                final String question = (String) entry.getKey();
+                final Object answer;
+                if (question.startsWith(PROVED)) {
+                    answer = Boolean.valueOf(isProvedReference(
+                        question.substring(PROVED.length())));
+                } else if (question.startsWith(FORMULA)) {
+                    answer = getReferenceFormula(question.substring(FORMULA.length()));
+                } else {
+                    answer = getRuleKey(question.substring(RULE.length()));
+                }
+                if (!EqualsUtility.equals(answer, entry.getValue())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Remember an answer the proof checker got.
+         *
+         * @param   question    Question of proof checker.
+         * @param   answer      Answer to question.
+         */
+        private void remember(final String question, final Object answer) {
+            answers.put(question, answer);
+        }
+
+        /**
+         * Was the given node successfully proved before this proposition? For earlier
+         * propositions of this module we wait until their check is finished.
+         *
+         * @param   referenced  Referenced node.
+         * @return  Is the node proved?
+         */
+        private boolean isProved(final KernelNodeBo referenced) {
+            if (referenced.getQedeqBo() != getKernelQedeqBo()) {
+                return referenced.isProved();
+            }
+            final PropositionCheck check;
+            synchronized (lock) {
+                final Integer pos = (Integer) positions.get(referenced);
+                // later nodes are not checked yet
+                if (pos == null || pos.intValue() >= position) {
+                    return false;
+                }
+                check = (PropositionCheck) checks.get(referenced);
+            }
+            if (check != null) {
+                check.waitUntilFinished();
+            }
+            return referenced.isProved();
+        }
+
+        public boolean isProvedFormula(final String reference) {
+            final boolean answer = isProvedReference(reference);
+            remember(PROVED + reference, Boolean.valueOf(answer));
+            return answer;
+        }
+
+        /**
+         * Is the reference a proved formula?
+         *
+         * @param   reference   Reference to check.
+         * @return  Is the reference a proved formula?
+         */
+        private boolean isProvedReference(final String reference) {
+            final String method = "hasProvedFormula";
+            final Reference ref = getReference(node, reference, context, false, false);
+            if (ref == null) {
+                Trace.info(CLASS, method, "ref == null");
+                return false;
+            }
+            if (ref.isExternalModuleReference()) {
+                Trace.info(CLASS, method, "ref is external module");
+                return false;
+            }
+            if (!ref.isNodeReference()) {
+                Trace.info(CLASS, method, "ref is no node reference");
+                return false;
+            }
+            if (null == ref.getNode()) {
+                Trace.info(CLASS, method, "ref node == null");
+                return false;
+            }
+            if (ref.isSubReference()) {
+                return false;
+            }
+            if (!ref.isProofLineReference()) {
+                if (!isProved(ref.getNode())) {
+                    Trace.info(CLASS, method, "ref node is not marked as proved: " + reference);
+                    return false;
+                }
+                if (!ref.getNode().hasFormula()) {
+                    Trace.info(CLASS, method, "node has no formula: " + reference);
+                    return false;
+                }
+                return true;
+            }
+            Trace.info(CLASS, method, "proof line references are not ok!");
+            return false;
+        }
+
+        public Element getNormalizedReferenceFormula(final String reference) {
+            final Element answer = getReferenceFormula(reference);
+            remember(FORMULA + reference, answer);
+            return answer;
+        }
+
+        /**
+         * Get normalized formula of a proved reference.
+         *
+         * @param   reference   Reference to a proved formula.
+         * @return  Normalized formula. Is <code>null</code> if the reference is not proved.
+         */
+        private Element getReferenceFormula(final String reference) {
+            if (!isProvedReference(reference)) {
+                return null;
+            }
+            final Reference ref = getReference(node, reference, context, false, false);
+            final Element formula = ref.getNode().getFormula();
+            return FormalProofCheckerExecutor.this.getNormalizedFormula(
+                ref.getNode().getQedeqBo(), formula);
+        }
+
+        public Element getNormalizedFormula(final Element formula) {
+            return FormalProofCheckerExecutor.this.getNormalizedFormula(getKernelQedeqBo(),
+                formula);
+        }
+
+        public boolean isLocalProofLineReference(final String reference) {
+            // here we have no proof lines
+            return false;
+        }
+
+        public ModuleContext getReferenceContext(final String reference) {
+            // here we have no proof lines
+            return null;
+        }
+
+        public Element getNormalizedLocalProofLineReference(final String reference) {
+            // here we have no proof lines
+            return null;
+        }
+
+        public RuleKey getRule(final String ruleName) {
+            final RuleKey answer = getRuleKey(ruleName);
+            remember(RULE + ruleName, answer);
+            return answer;
+        }
+
+        /**
+         * Get rule key for a rule name.
+         *
+         * @param   ruleName    Name of rule.
+         * @return  Rule key. Might be <code>null</code>.
+         */
+        private RuleKey getRuleKey(final String ruleName) {
+            final RuleKey local = (RuleKey) ruleKeys.get(ruleName);
+            if (local == null) {
+                return getKernelQedeqBo().getExistenceChecker().getParentRuleKey(
+                ruleName);
+            }
+            return local;
+        }
+
     }
 
+    /**
+     * Worker thread that executes proposition checks.
+     */
+    private final class Worker extends Thread {
+
+        /**
+         * Constructor.
+         */
+        Worker() {
+            super("FormalProofCheckerExecutor worker");
+            setDaemon(true);
+        }
+
+        public void run() {
+            work();
+        }
+
+    }
 
 }
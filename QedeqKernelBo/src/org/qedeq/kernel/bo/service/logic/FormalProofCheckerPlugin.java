@@ -15,15 +15,24 @@
 
 package org.qedeq.kernel.bo.service.logic;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import org.qedeq.base.io.Parameters;
 import org.qedeq.kernel.bo.logic.ProofCheckerFactoryImpl;
 import org.qedeq.kernel.bo.module.KernelQedeqBo;
 import org.qedeq.kernel.bo.service.basis.InternalModuleServicePlugin;
 import org.qedeq.kernel.bo.service.basis.ModuleServicePluginExecutor;
+import org.qedeq.kernel.se.common.ModuleAddress;
 
 
 /**
  * Checks if all propositions have a correct formal proof.
+ * <p>
+ * The results of successful proposition checks are remembered for each module, even if the
+ * module is removed. So after reloading a changed module only the changed propositions and
+ * the propositions that depend on changed nodes are checked again. The results are forgotten
+ * if the kernel clears its local buffer.
  *
  * @author  Michael Meyling
  */
@@ -32,6 +41,13 @@ public final class FormalProofCheckerPlugin implements InternalModuleServicePlug
     /** This class. */
     private static final Class CLASS = FormalProofCheckerPlugin.class;
 
+    /** Maps module URLs to the results of their last check. */
+    private final Map results = new HashMap();
+
+    /** Maps module URLs to the {@link Integer} number of reused proposition check results
+     * of their last check. */
+    private final Map reused = new HashMap();
+
     public String getServiceId() {
         return CLASS.getName();
     }
@@ -48,8 +64,55 @@ public final class FormalProofCheckerPlugin implements InternalModuleServicePlug
         return new FormalProofCheckerExecutor(this, qedeq, parameters);
     }
 
+    /**
+     * Get results of the last formal proof check of a module.
+     *
+     * @param   address Module address.
+     * @return  Maps node labels to successful proposition checks. Values are of type
+     *          {@link PropositionCheckResult}. Never <code>null</code>. Must not be changed.
+     */
+    synchronized Map getCheckResults(final ModuleAddress address) {
+        final Map result = (Map) results.get(address.getUrl());
+        return (result != null ? result : new HashMap());
+    }
+
+    /**
+     * Set results of the last formal proof check of a module.
+     *
+     * @param   address     Module address.
+     * @param   checks      Maps node labels to successful proposition checks. Values are of type
+     *                      {@link PropositionCheckResult}. Must not be changed afterwards.
+     * @param   reusedChecks    Number of proposition checks that reused an earlier result.
+     */
+    synchronized void setCheckResults(final ModuleAddress address, final Map checks,
+            final int reusedChecks) {
+        results.put(address.getUrl(), checks);
+        reused.put(address.getUrl(), new Integer(reusedChecks));
+    }
+
+    /**
+     * Get number of proposition checks of the last formal proof check of a module that reused
+     * an earlier result.
+     *
+     * @param   address Module address.
+     * @return  Number of reused proposition check results. 0 if the module wasn't checked yet.
+     */
+    synchronized int getReusedChecks(final ModuleAddress address) {
+        final Integer result = (Integer) reused.get(address.getUrl());
+        return (result != null ? result.intValue() : 0);
+    }
+
+    /**
+     * Forget the results of all formal proof checks.
+     */
+    public synchronized void clearCheckResults() {
+        results.clear();
+        reused.clear();
+    }
+
     public void setDefaultValuesForEmptyPluginParameters(final Parameters parameters) {
         parameters.setDefault("checkerFactory", ProofCheckerFactoryImpl.class.getName());
+        parameters.setDefault("threads", 0);
     }
 
 }
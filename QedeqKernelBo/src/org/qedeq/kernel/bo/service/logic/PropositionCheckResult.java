@@ -0,0 +1,135 @@
+/* This file is part of the project "Hilbert II" - http://www.qedeq.org
+ *
+ * Copyright 2000-2014,  Michael Meyling <mime@qedeq.org>.
+ *
+ * "Hilbert II" is free software; you can redistribute
+ * it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ */
+
+package org.qedeq.kernel.bo.service.logic;
+
+import java.lang.ref.WeakReference;
+import java.util.List;
+import java.util.Map;
+
+import org.qedeq.base.io.Version;
+import org.qedeq.base.utility.EqualsUtility;
+import org.qedeq.kernel.se.base.module.FormalProofList;
+import org.qedeq.kernel.se.base.module.Formula;
+import org.qedeq.kernel.se.base.module.Proposition;
+
+
+/**
+ * Successful formal proof check of a proposition. Contains everything the check depended on:
+ * the formula and formal proofs of the proposition, the environment of the check and all
+ * answers the proof checker got for its questions about other nodes. If all of this is
+ * unchanged a new check would have the same result.
+ *
+ * @author  Michael Meyling
+ */
+final class PropositionCheckResult {
+
+    /** Hash code of formula and formal proofs. */
+    private final int hash;
+
+    /** Checked formula. */
+    private final Formula formula;
+
+    /** Checked formal proofs. */
+    private final FormalProofList proofs;
+
+    /** Rule version the module claimed to use at maximum. */
+    private final Version ruleVersion;
+
+    /** Class name of the proof checker factory. */
+    private final String checker;
+
+    /** Weak references to the required modules. So old module versions can be garbage
+     * collected. They are compared by identity. */
+    private final WeakReference[] modules;
+
+    /** Answers the proof checker got. Maps questions to answers. */
+    private final Map answers;
+
+    /**
+     * Constructor.
+     *
+     * @param   proposition Successfully checked proposition.
+     * @param   ruleVersion Rule version the module claimed to use at maximum.
+     * @param   checker     Class name of the proof checker factory.
+     * @param   modules     Required modules. Elements are of type
+     *                      {@link org.qedeq.kernel.se.base.module.Qedeq}.
+     * @param   answers     Answers the proof checker got. Maps questions to answers.
+     */
+    PropositionCheckResult(final Proposition proposition, final Version ruleVersion,
+            final String checker, final List modules, final Map answers) {
+        this.hash = getContentHash(proposition);
+        this.formula = proposition.getFormula();
+        this.proofs = proposition.getFormalProofList();
+        this.ruleVersion = ruleVersion;
+        this.checker = checker;
+        this.modules = new WeakReference[modules.size()];
+        for (int i = 0; i < modules.size(); i++) {
+            this.modules[i] = new WeakReference(modules.get(i));
+        }
+        this.answers = answers;
+    }
+
+    /**
+     * Was the check done for the same proposition content within the same environment?
+     *
+     * @param   proposition Proposition to check.
+     * @param   version     Rule version the module claims to use at maximum.
+     * @param   checkerName Class name of the proof checker factory.
+     * @param   required    Required modules. Elements are of type
+     *                      {@link org.qedeq.kernel.se.base.module.Qedeq}.
+     * @return  Has the proposition the same formula and formal proofs and is the environment
+     *          unchanged?
+     */
+    boolean isSame(final Proposition proposition, final Version version,
+            final String checkerName, final List required) {
+        if (hash != getContentHash(proposition)
+                || !EqualsUtility.equals(ruleVersion, version)
+                || !EqualsUtility.equals(checker, checkerName)
+                || modules.length != required.size()) {
+            return false;
+        }
+        for (int i = 0; i < modules.length; i++) {
+            if (modules[i].get() != required.get(i)) {
+                return false;
+            }
+        }
+        // the hash codes are equal, now we make sure that the content is really the same
+        return EqualsUtility.equals(formula, proposition.getFormula())
+            && EqualsUtility.equals(proofs, proposition.getFormalProofList());
+    }
+
+    /**
+     * Get answers the proof checker got.
+     *
+     * @return  Maps questions to answers.
+     */
+    Map getAnswers() {
+        return answers;
+    }
+
+    /**
+     * Get hash code of formula and formal proofs of a proposition.
+     *
+     * @param   proposition Get hash code for this proposition.
+     * @return  Hash code of formula and formal proofs.
+     */
+    private static int getContentHash(final Proposition proposition) {
+        return (proposition.getFormula() != null ? proposition.getFormula().hashCode() : 0)
+            ^ (proposition.getFormalProofList() != null
+            ? 1 ^ proposition.getFormalProofList().hashCode() : 0);
+    }
+
+}
@@ -0,0 +1,237 @@
+/* This file is part of the project "Hilbert II" - http://www.qedeq.org
+ *
+ * Copyright 2000-2014,  Michael Meyling <mime@qedeq.org>.
+ *
+ * "Hilbert II" is free software; you can redistribute
+ * it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ */
+
+package org.qedeq.kernel.bo.service.logic;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.qedeq.base.utility.EqualsUtility;
+import org.qedeq.kernel.bo.logic.common.ExistenceChecker;
+import org.qedeq.kernel.bo.logic.common.FunctionKey;
+import org.qedeq.kernel.bo.logic.common.PredicateKey;
+import org.qedeq.kernel.se.common.RuleKey;
+
+
+/**
+ * Existence checker that delegates all questions to another existence checker and remembers
+ * the questions and their answers. So it can be decided later if another existence checker
+ * would give the same answers.
+ *
+ * @author  Michael Meyling
+ */
+final class RecordingExistenceChecker implements ExistenceChecker {
+
+    /** Question kind: {@link ExistenceChecker#predicateExists(String, int)}. */
+    private static final int PREDICATE_EXISTS_BY_NAME = 0;
+
+    /** Question kind: {@link ExistenceChecker#predicateExists(PredicateKey)}. */
+    private static final int PREDICATE_EXISTS = 1;
+
+    /** Question kind: {@link ExistenceChecker#isInitialPredicate(PredicateKey)}. */
+    private static final int INITIAL_PREDICATE = 2;
+
+    /** Question kind: {@link ExistenceChecker#functionExists(String, int)}. */
+    private static final int FUNCTION_EXISTS_BY_NAME = 3;
+
+    /** Question kind: {@link ExistenceChecker#functionExists(FunctionKey)}. */
+    private static final int FUNCTION_EXISTS = 4;
+
+    /** Question kind: {@link ExistenceChecker#isInitialFunction(FunctionKey)}. */
+    private static final int INITIAL_FUNCTION = 5;
+
+    /** Question kind: {@link ExistenceChecker#classOperatorExists()}. */
+    private static final int CLASS_OPERATOR_EXISTS = 6;
+
+    /** Question kind: {@link ExistenceChecker#identityOperatorExists()}. */
+    private static final int IDENTITY_OPERATOR_EXISTS = 7;
+
+    /** Question kind: {@link ExistenceChecker#getIdentityOperator()}. */
+    private static final int IDENTITY_OPERATOR = 8;
+
+    /** Question kind: {@link ExistenceChecker#ruleExists(RuleKey)}. */
+    private static final int RULE_EXISTS = 9;
+
+    /** Ask this existence checker. */
+    private final ExistenceChecker existence;
+
+    /** Maps {@link Question}s to their answers. */
+    private final Map answers = new HashMap();
+
+    /**
+     * Constructor.
+     *
+     * @param   existence   Ask this existence checker.
+     */
+    RecordingExistenceChecker(final ExistenceChecker existence) {
+        this.existence = existence;
+    }
+
+    public boolean predicateExists(final String name, final int arguments) {
+        return ask(new Question(PREDICATE_EXISTS_BY_NAME, new PredicateKey(name, "" + arguments)));
+    }
+
+    public boolean predicateExists(final PredicateKey predicate) {
+        return ask(new Question(PREDICATE_EXISTS, predicate));
+    }
+
+    public boolean isInitialPredicate(final PredicateKey predicate) {
+        return ask(new Question(INITIAL_PREDICATE, predicate));
+    }
+
+    public boolean functionExists(final String name, final int arguments) {
+        return ask(new Question(FUNCTION_EXISTS_BY_NAME, new FunctionKey(name, "" + arguments)));
+    }
+
+    public boolean functionExists(final FunctionKey function) {
+        return ask(new Question(FUNCTION_EXISTS, function));
+    }
+
+    public boolean isInitialFunction(final FunctionKey function) {
+        return ask(new Question(INITIAL_FUNCTION, function));
+    }
+
+    public boolean classOperatorExists() {
+        return ask(new Question(CLASS_OPERATOR_EXISTS, null));
+    }
+
+    public boolean identityOperatorExists() {
+        return ask(new Question(IDENTITY_OPERATOR_EXISTS, null));
+    }
+
+    public String getIdentityOperator() {
+        final Question question = new Question(IDENTITY_OPERATOR, null);
+        final Object answer = question.ask(existence);
+        answers.put(question, answer);
+        return (String) answer;
+    }
+
+    public boolean ruleExists(final RuleKey ruleKey) {
+        return ask(new Question(RULE_EXISTS, ruleKey));
+    }
+
+    /**
+     * Ask a yes or no question and remember the answer.
+     *
+     * @param   question    Question to ask.
+     * @return  Answer.
+     */
+    private boolean ask(final Question question) {
+        final Boolean answer = (Boolean) question.ask(existence);
+        answers.put(question, answer);
+        return answer.booleanValue();
+    }
+
+    /**
+     * Get all asked questions and their answers.
+     *
+     * @return  Maps questions to answers.
+     */
+    Map getAnswers() {
+        return answers;
+    }
+
+    /**
+     * Would the given existence checker give the same answers?
+     *
+     * @param   answers     Maps questions to answers. Result of {@link #getAnswers()}.
+     * @param   existence   Ask this existence checker.
+     * @return  Are all answers the same?
+     */
+    static boolean isSame(final Map answers, final ExistenceChecker existence) {
+        final Iterator iterator = answers.entrySet().iterator();
+        while (iterator.hasNext()) {
+            final Map.Entry entry = (Map.Entry) iterator.next();
+            if (!EqualsUtility.equals(((Question) entry.getKey()).ask(existence),
+                    entry.getValue())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Question to an existence checker.
+     */
+    private static final class Question {
+
+        /** Kind of question. */
+        private final int kind;
+
+        /** Argument of question. Might be <code>null</code>. */
+        private final Object argument;
+
+        /**
+         * Constructor.
+         *
+         * @param   kind        Kind of question.
+         * @param   argument    Argument of question. Might be <code>null</code>.
+         */
+        Question(final int kind, final Object argument) {
+            this.kind = kind;
+            this.argument = argument;
+        }
+
+        /**
+         * Ask an existence checker.
+         *
+         * @param   existence   Ask this existence checker.
+         * @return  Answer.
+         */
+        Object ask(final ExistenceChecker existence) {
+            switch (kind) {
+                case PREDICATE_EXISTS_BY_NAME:
+                    final PredicateKey predicate = (PredicateKey) argument;
+                    return Boolean.valueOf(existence.predicateExists(predicate.getName(),
+                        Integer.parseInt(predicate.getArguments())));
+                case PREDICATE_EXISTS:
+                    return Boolean.valueOf(existence.predicateExists((PredicateKey) argument));
+                case INITIAL_PREDICATE:
+                    return Boolean.valueOf(existence.isInitialPredicate((PredicateKey) argument));
+                case FUNCTION_EXISTS_BY_NAME:
+                    final FunctionKey function = (FunctionKey) argument;
+                    return Boolean.valueOf(existence.functionExists(function.getName(),
+                        Integer.parseInt(function.getArguments())));
+                case FUNCTION_EXISTS:
+                    return Boolean.valueOf(existence.functionExists((FunctionKey) argument));
+                case INITIAL_FUNCTION:
+                    return Boolean.valueOf(existence.isInitialFunction((FunctionKey) argument));
+                case CLASS_OPERATOR_EXISTS:
+                    return Boolean.valueOf(existence.classOperatorExists());
+                case IDENTITY_OPERATOR_EXISTS:
+                    return Boolean.valueOf(existence.identityOperatorExists());
+                case IDENTITY_OPERATOR:
+                    return existence.getIdentityOperator();
+                default:
+                    return Boolean.valueOf(existence.ruleExists((RuleKey) argument));
+            }
+        }
+
+        public int hashCode() {
+            return kind ^ (argument != null ? argument.hashCode() : 0);
+        }
+
+        public boolean equals(final Object obj) {
+            if (!(obj instanceof Question)) {
+                return false;
+            }
+            final Question other = (Question) obj;
+            return kind == other.kind && EqualsUtility.equals(argument, other.argument);
+        }
+
+    }
+
+}
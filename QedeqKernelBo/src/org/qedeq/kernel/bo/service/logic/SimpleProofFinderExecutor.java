@@ -28,6 +28,7 @@ import org.qedeq.kernel.bo.logic.proof.common.ProofFinderArgumentException;
 import org.qedeq.kernel.bo.logic.proof.common.ProofFinderFactory;
 import org.qedeq.kernel.bo.logic.proof.common.ProofFoundException;
 import org.qedeq.kernel.bo.logic.proof.common.ProofNotFoundException;
+import org.qedeq.kernel.bo.logic.proof.finder.LemmaPool;
 import org.qedeq.kernel.bo.module.InternalModuleServiceCall;
 import org.qedeq.kernel.bo.module.KernelQedeqBo;
 import org.qedeq.kernel.bo.module.QedeqFileDao;
@@ -67,9 +68,15 @@ public final class SimpleProofFinderExecutor extends ControlVisitor implements M
     /** Factory for generating new checkers. */
     private ProofFinderFactory finderFactory = null;
 
-    /** List of axioms, definitions and propositions. */
+    /** List of axioms, definitions and propositions. Each line is labeled with its node id. */
     private FormalProofLineListVo validFormulas;
 
+    /** Derived lines of found proofs. Used for further proof searches. */
+    private LemmaPool lemmaPool;
+
+    /** Maximum number of lines in {@link #lemmaPool}. */
+    private int lemmaPoolSize;
+
     /** Save changed modules directly? */
     private boolean noSave;
 
@@ -115,6 +122,7 @@ public final class SimpleProofFinderExecutor extends ControlVisitor implements M
             finderFactory = new ProofFinderFactoryImpl();
         }
         noSave = parameters.getBoolean("noSave");
+        lemmaPoolSize = parameters.getInt("lemmaPoolSize");
         this.parameters = parameters;
     }
 
@@ -127,6 +135,7 @@ public final class SimpleProofFinderExecutor extends ControlVisitor implements M
         QedeqLog.getInstance().logRequest("Trying to create formal proofs", getKernelQedeqBo().getUrl());
         try {
             validFormulas = new FormalProofLineListVo();
+            lemmaPool = new LemmaPool(lemmaPoolSize);
             traverse(call.getInternalServiceProcess());
             QedeqLog.getInstance().logSuccessfulReply(
                 "Proof creation successful", getKernelQedeqBo().getUrl());
@@ -144,8 +153,7 @@ public final class SimpleProofFinderExecutor extends ControlVisitor implements M
         if (axiom == null) {
             return;
         }
-        validFormulas.add(new FormalProofLineVo(new FormulaVo(getNodeBo().getFormula()),
-            new AddVo(getNodeBo().getNodeVo().getId())));
+        addValidFormula();
         setBlocked(true);
     }
 
@@ -158,8 +166,7 @@ public final class SimpleProofFinderExecutor extends ControlVisitor implements M
         if (definition == null) {
             return;
         }
-        validFormulas.add(new FormalProofLineVo(new FormulaVo(getNodeBo().getFormula()),
-                new AddVo(getNodeBo().getNodeVo().getId())));
+        addValidFormula();
         setBlocked(true);
     }
 
@@ -190,8 +197,7 @@ public final class SimpleProofFinderExecutor extends ControlVisitor implements M
         if (definition == null) {
             return;
         }
-        validFormulas.add(new FormalProofLineVo(new FormulaVo(getNodeBo().getFormula()),
-            new AddVo(getNodeBo().getNodeVo().getId())));
+        addValidFormula();
         setBlocked(true);
     }
 
@@ -212,7 +218,7 @@ public final class SimpleProofFinderExecutor extends ControlVisitor implements M
             // we try finding a proof
             try {
                 finder = finderFactory.createProofFinder();
-                finder.findProof(proposition.getFormula().getElement(), validFormulas,
+                finder.findProof(proposition.getFormula().getElement(), getInitialLines(),
                     getCurrentContext(), parameters, new ModuleLogListener() {
                         public void logMessageState(final String text) {
                             QedeqLog.getInstance().logMessageState(text, getKernelQedeqBo().getUrl());
@@ -220,6 +226,7 @@ public final class SimpleProofFinderExecutor extends ControlVisitor implements M
                     }, getKernelQedeqBo().getElement2Utf8());
             } catch (ProofFoundException e) {
                 proof = e.getProofLines();
+                lemmaPool.addProof(proof);
             } catch (ProofNotFoundException e) {
                 addWarning(e);
             } catch (ProofFinderArgumentException e) {
@@ -271,13 +278,39 @@ public final class SimpleProofFinderExecutor extends ControlVisitor implements M
         } else {
             Trace.info(CLASS, method, "has already a proof: "
                 + super.getLocationDescription());
-            validFormulas.add(new FormalProofLineVo(new FormulaVo(getNodeBo().getFormula()),
-                new AddVo(getNodeBo().getNodeVo().getId())));
+            addValidFormula();
         }
         setBlocked(true);
         Trace.end(CLASS, this, method);
     }
 
+    /**
+     * Add formula of current node to the list of valid formulas.
+     */
+    private void addValidFormula() {
+        final String id = getNodeBo().getNodeVo().getId();
+        validFormulas.add(new FormalProofLineVo(id, new FormulaVo(getNodeBo().getFormula()),
+            new AddVo(id)));
+    }
+
+    /**
+     * Get initial proof lines for a proof search. These are all valid formulas and
+     * the lines of the lemma pool.
+     *
+     * @return  Initial proof lines.
+     */
+    private FormalProofLineList getInitialLines() {
+        final FormalProofLineListVo result = new FormalProofLineListVo();
+        for (int i = 0; i < validFormulas.size(); i++) {
+            result.add(validFormulas.get(i));
+        }
+        final FormalProofLineList derived = lemmaPool.getDerivedLines();
+        for (int i = 0; i < derived.size(); i++) {
+            result.add(derived.get(i));
+        }
+        return result;
+    }
+
     public void visitLeave(final Proposition definition) {
         setBlocked(false);
     }
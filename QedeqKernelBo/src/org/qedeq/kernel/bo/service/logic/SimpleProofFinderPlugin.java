@@ -16,6 +16,7 @@
 package org.qedeq.kernel.bo.service.logic;
 
 import org.qedeq.base.io.Parameters;
+import org.qedeq.kernel.bo.logic.ProofFinderFactoryImpl;
 import org.qedeq.kernel.bo.module.KernelQedeqBo;
 import org.qedeq.kernel.bo.service.basis.ModuleServicePlugin;
 import org.qedeq.kernel.bo.service.basis.ModuleServicePluginExecutor;
@@ -48,8 +49,11 @@ public final class SimpleProofFinderPlugin implements ModuleServicePlugin {
     }
 
     public void setDefaultValuesForEmptyPluginParameters(final Parameters parameters) {
+        parameters.setDefault("checkerFactory", ProofFinderFactoryImpl.class.getName());
         parameters.setDefault("extraVars", 1);
         parameters.setDefault("maximumProofLines", Integer.MAX_VALUE - 2);
+        parameters.setDefault("maxMillis", 0);
+        parameters.setDefault("maxHeapBytes", 0);
         parameters.setDefault("skipFormulas", "");
         parameters.setDefault("propositionVariableWeight", 3);
         parameters.setDefault("propositionVariableOrder", 1);
@@ -66,6 +70,14 @@ public final class SimpleProofFinderPlugin implements ModuleServicePlugin {
         parameters.setDefault("equivalenceOrder", 7);
         parameters.setDefault("equivalenceWeight", 1);
         parameters.setDefault("logFrequence", 1000);
+        parameters.setDefault("threads", 0);
+        parameters.setDefault("truthTableCheck", true);
+        parameters.setDefault("skipRenamedLines", true);
+        parameters.setDefault("searchStrategy", "breadthFirst");
+        parameters.setDefault("bestFirstSizeWeight", 1);
+        parameters.setDefault("bestFirstGoalWeight", 1);
+        parameters.setDefault("bestFirstDepthWeight", 2);
+        parameters.setDefault("lemmaPoolSize", 1000);
         parameters.setDefault("noSave", false);
     }
 
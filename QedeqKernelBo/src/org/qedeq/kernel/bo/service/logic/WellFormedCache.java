@@ -0,0 +1,140 @@
+/* This file is part of the project "Hilbert II" - http://www.qedeq.org
+ *
+ * Copyright 2000-2014,  Michael Meyling <mime@qedeq.org>.
+ *
+ * "Hilbert II" is free software; you can redistribute
+ * it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ */
+
+package org.qedeq.kernel.bo.service.logic;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.qedeq.kernel.bo.logic.common.ExistenceChecker;
+import org.qedeq.kernel.se.base.list.Element;
+import org.qedeq.kernel.se.dto.list.ElementFactory;
+
+
+/**
+ * Remembers well-formed formulas and terms. For each of them the answers of the existence
+ * checker are remembered too. If another existence checker gives the same answers the formula
+ * or term is also well-formed within its context. So repeated formulas in proof lines or in
+ * other modules must not be checked again.
+ * <p>
+ * Only the most recently used entries are kept. This class is thread safe.
+ *
+ * @author  Michael Meyling
+ */
+final class WellFormedCache {
+
+    /** Creates shared immutable keys. */
+    private static final ElementFactory ELEMENT_FACTORY = new ElementFactory();
+
+    /** Maps well-formed formulas to their {@link Entry}s. */
+    private final Map formulas;
+
+    /** Maps well-formed terms to their {@link Entry}s. */
+    private final Map terms;
+
+    /**
+     * Constructor.
+     *
+     * @param   maximum Maximum number of formulas and of terms in cache.
+     */
+    WellFormedCache(final int maximum) {
+        formulas = createMap(maximum);
+        terms = createMap(maximum);
+    }
+
+    /**
+     * Create map that removes the least recently used entries.
+     *
+     * @param   maximum Maximum number of entries.
+     * @return  Map.
+     */
+    private static Map createMap(final int maximum) {
+        return new LinkedHashMap(16, 0.75f, true) {
+            protected boolean removeEldestEntry(final Map.Entry eldest) {
+                return size() > maximum;
+            }
+        };
+    }
+
+    /**
+     * Is the given formula or term known to be well-formed for the given existence checker?
+     *
+     * @param   element     Formula or term.
+     * @param   term        Is <code>element</code> a term?
+     * @param   checker     Class name of the formula checker factory.
+     * @param   existence   Existence checker for operators.
+     * @return  Is the element known to be well-formed?
+     */
+    boolean isWellFormed(final Element element, final boolean term, final String checker,
+            final ExistenceChecker existence) {
+        final Entry entry;
+        synchronized (this) {
+            entry = (Entry) (term ? terms : formulas).get(element);
+        }
+        return entry != null && entry.checker.equals(checker)
+            && RecordingExistenceChecker.isSame(entry.answers, existence);
+    }
+
+    /**
+     * Remember a well-formed formula or term.
+     *
+     * @param   element     Well-formed formula or term.
+     * @param   term        Is <code>element</code> a term?
+     * @param   checker     Class name of the formula checker factory.
+     * @param   answers     Answers of the existence checker during the check. Must not be
+     *                      changed afterwards.
+     */
+    void setWellFormed(final Element element, final boolean term, final String checker,
+            final Map answers) {
+        final Element key = ELEMENT_FACTORY.intern(element);
+        synchronized (this) {
+            (term ? terms : formulas).put(key, new Entry(checker, answers));
+        }
+    }
+
+    /**
+     * Get number of remembered formulas and terms.
+     *
+     * @return  Number of entries.
+     */
+    synchronized int size() {
+        return formulas.size() + terms.size();
+    }
+
+    /**
+     * Remembered check result.
+     */
+    private static final class Entry {
+
+        /** Class name of the formula checker factory. */
+        private final String checker;
+
+        /** Answers of the existence checker during the check. */
+        private final Map answers;
+
+        /**
+         * Constructor.
+         *
+         * @param   checker Class name of the formula checker factory.
+         * @param   answers Answers of the existence checker during the check.
+         */
+        Entry(final String checker, final Map answers) {
+            this.checker = checker;
+            this.answers = answers;
+        }
+
+    }
+
+}
@@ -15,8 +15,10 @@
 
 package org.qedeq.kernel.bo.service.logic;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 
 import org.qedeq.base.io.Parameters;
@@ -38,10 +40,12 @@ import org.qedeq.kernel.bo.logic.wf.FormulaCheckerImpl;
 import org.qedeq.kernel.bo.module.InternalModuleServiceCall;
 import org.qedeq.kernel.bo.module.InternalServiceJob;
 import org.qedeq.kernel.bo.module.KernelModuleReferenceList;
+import org.qedeq.kernel.bo.module.KernelNodeBo;
 import org.qedeq.kernel.bo.module.KernelQedeqBo;
 import org.qedeq.kernel.bo.module.ModuleConstantsExistenceChecker;
 import org.qedeq.kernel.bo.service.basis.ControlVisitor;
 import org.qedeq.kernel.bo.service.basis.ModuleServicePluginExecutor;
+import org.qedeq.kernel.bo.service.basis.RuntimeVisitorException;
 import org.qedeq.kernel.bo.service.dependency.LoadRequiredModulesPlugin;
 import org.qedeq.kernel.se.base.list.Element;
 import org.qedeq.kernel.se.base.list.ElementList;
@@ -52,10 +56,12 @@ import org.qedeq.kernel.se.base.module.ConditionalProof;
 import org.qedeq.kernel.se.base.module.FormalProof;
 import org.qedeq.kernel.se.base.module.FormalProofLine;
 import org.qedeq.kernel.se.base.module.FormalProofLineList;
+import org.qedeq.kernel.se.base.module.FormalProofList;
 import org.qedeq.kernel.se.base.module.Formula;
 import org.qedeq.kernel.se.base.module.FunctionDefinition;
 import org.qedeq.kernel.se.base.module.InitialFunctionDefinition;
 import org.qedeq.kernel.se.base.module.InitialPredicateDefinition;
+import org.qedeq.kernel.se.base.module.Node;
 import org.qedeq.kernel.se.base.module.PredicateDefinition;
 import org.qedeq.kernel.se.base.module.Proposition;
 import org.qedeq.kernel.se.base.module.Reason;
@@ -66,8 +72,8 @@ import org.qedeq.kernel.se.base.module.SubstFunc;
 import org.qedeq.kernel.se.base.module.SubstPred;
 import org.qedeq.kernel.se.common.CheckLevel;
 import org.qedeq.kernel.se.common.IllegalModuleDataException;
+import org.qedeq.kernel.se.common.ModuleContext;
 import org.qedeq.kernel.se.common.ModuleDataException;
-import org.qedeq.kernel.se.common.ModuleService;
 import org.qedeq.kernel.se.common.RuleKey;
 import org.qedeq.kernel.se.common.SourceFileException;
 import org.qedeq.kernel.se.common.SourceFileExceptionList;
@@ -79,6 +85,14 @@ import org.qedeq.kernel.se.visitor.InterruptException;
 /**
  * Checks if all formulas of a QEDEQ module are well formed.
  * This plugin assumes all required modules are loaded!
+ * <p>
+ * The check has two phases. First the module is traversed and all definitions and rules are
+ * checked and added to the existence checker. Then the formulas of axioms, propositions and
+ * their proof lines are checked by several threads. Each node is checked against the existence
+ * checker as it was at its position, so a formula can't use a definition that comes after it.
+ * The parameter "threads" gives the number of threads. If it is not positive the number of
+ * available processors is used. The errors are collected in document order, so they don't
+ * depend on thread scheduling.
  *
  * @author  Michael Meyling
  */
@@ -97,6 +111,35 @@ public final class WellFormedCheckerExecutor extends ControlVisitor implements M
     /** Factory for generating new checkers. */
     private FormulaCheckerFactory checkerFactory = null;
 
+    /** Remembers well-formed formulas and terms. */
+    private final WellFormedCache cache;
+
+    /** Number of threads that check axioms and propositions. */
+    private final int threads;
+
+    /** Synchronizes access to check data. */
+    private final Object lock = new Object();
+
+    /** Errors and node checks in document order. Elements are of type
+     * {@link ModuleDataException}, {@link SourceFileException} or {@link NodeCheck}.
+     * Only set during {@link #traverse(InternalServiceJob)}. */
+    private List results;
+
+    /** Checks of axioms and propositions. Elements are of type {@link NodeCheck}. */
+    private List checks;
+
+    /** Index of next node check that is not started yet. */
+    private int next;
+
+    /** Should all workers stop? */
+    private boolean shutdown;
+
+    /** Remembers the node positions of all definitions and rules. */
+    private ExistenceHistory history;
+
+    /** Position of current node within the module. */
+    private int position;
+
     /**
      * Constructor.
      *
@@ -104,9 +147,10 @@ public final class WellFormedCheckerExecutor extends ControlVisitor implements M
      * @param   qedeq       QEDEQ BO object.
      * @param   parameters  Parameters.
      */
-    WellFormedCheckerExecutor(final ModuleService plugin, final KernelQedeqBo qedeq,
+    WellFormedCheckerExecutor(final WellFormedCheckerPlugin plugin, final KernelQedeqBo qedeq,
             final Parameters parameters) {
         super(plugin, qedeq);
+        this.cache = plugin.getCache();
         final String method = "QedeqBoFormalLogicChecker(Plugin, KernelQedeqBo, Map)";
         final String checkerFactoryClass = parameters.getString("checkerFactory");
         if (checkerFactoryClass != null && checkerFactoryClass.length() > 0) {
@@ -132,6 +176,11 @@ public final class WellFormedCheckerExecutor extends ControlVisitor implements M
         if (checkerFactory == null) {
             checkerFactory = new FormulaCheckerFactoryImpl();
         }
+        int number = parameters.getInt("threads");
+        if (number <= 0) {
+            number = Runtime.getRuntime().availableProcessors();
+        }
+        threads = number;
     }
 
     public Object executePlugin(final InternalModuleServiceCall call, final Object data) throws InterruptException {
@@ -213,6 +262,14 @@ public final class WellFormedCheckerExecutor extends ControlVisitor implements M
         return Boolean.TRUE;
     }
 
+    /**
+     * Traverse the module and check all definitions and rules. Afterwards the axioms and
+     * propositions are checked by several worker threads and the current thread. All
+     * collected errors are added in document order.
+     *
+     * @param   process    We work in this service process.
+     * @throws  SourceFileExceptionList  All collected error exceptions.
+     */
     public void traverse(final InternalServiceJob process) throws SourceFileExceptionList {
         try {
             this.existence = new ModuleConstantsExistenceCheckerImpl(getKernelQedeqBo());
@@ -220,7 +277,58 @@ public final class WellFormedCheckerExecutor extends ControlVisitor implements M
             addError(me);
             throw getErrorList();
         }
-        super.traverse(process);
+        history = new ExistenceHistory(existence);
+        position = 0;
+        synchronized (lock) {
+            results = new ArrayList();
+            checks = new ArrayList();
+            next = 0;
+            shutdown = false;
+        }
+        final List list;
+        try {
+            super.traverse(process);
+            // now the existence checker is complete and is only read by the node checks
+            synchronized (lock) {
+                shutdown = getInterrupted();
+            }
+            final Worker[] workers = new Worker[Math.max(0, Math.min(threads, checks.size()) - 1)];
+            for (int i = 0; i < workers.length; i++) {
+                workers[i] = new Worker();
+                workers[i].start();
+            }
+            try {
+                work();
+            } finally {
+                stop(workers);
+            }
+        } finally {
+            synchronized (lock) {
+                if (Thread.interrupted() && !getInterrupted()) {
+                    results.add(new InterruptException(
+                        getKernelQedeqBo().getModuleAddress().createModuleContext()));
+                }
+                list = results;
+                results = null;
+                checks = null;
+            }
+        }
+        for (int i = 0; i < list.size(); i++) {
+            final Object result = list.get(i);
+            if (result instanceof NodeCheck) {
+                final List errors = ((NodeCheck) result).errors;
+                for (int j = 0; j < errors.size(); j++) {
+                    super.addError((ModuleDataException) errors.get(j));
+                }
+            } else if (result instanceof ModuleDataException) {
+                super.addError((ModuleDataException) result);
+            } else {
+                super.addError((SourceFileException) result);
+            }
+        }
+        if (hasErrors()) {
+            throw getErrorList();
+        }
 
         // check if we have the important module parts
         setLocationWithinModule("");
@@ -238,6 +346,78 @@ public final class WellFormedCheckerExecutor extends ControlVisitor implements M
         }
     }
 
+    /**
+     * Check axioms and propositions until there are no more or we should stop.
+     */
+    private void work() {
+        while (true) {
+            final NodeCheck check = takeCheck();
+            if (check == null) {
+                return;
+            }
+            check.execute();
+        }
+    }
+
+    /**
+     * Get next node check that is not started yet.
+     *
+     * @return  Next check. <code>null</code> if there are no more checks or we should stop.
+     */
+    private NodeCheck takeCheck() {
+        synchronized (lock) {
+            if (Thread.currentThread().isInterrupted()) {
+                shutdown = true;
+            }
+            if (shutdown || next >= checks.size()) {
+                return null;
+            }
+            return (NodeCheck) checks.get(next++);
+        }
+    }
+
+    /**
+     * Stop all workers and wait until they are finished.
+     *
+     * @param   workers Stop these.
+     */
+    private void stop(final Worker[] workers) {
+        synchronized (lock) {
+            shutdown = true;
+        }
+        boolean interrupted = false;
+        for (int i = 0; i < workers.length; i++) {
+            while (workers[i].isAlive()) {
+                try {
+                    workers[i].join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Add check of axiom or proposition. It is executed after the traverse.
+     *
+     * @param   formula Formula of axiom or proposition. Might be <code>null</code>.
+     * @param   proofs  Formal proofs of proposition. Might be <code>null</code>.
+     */
+    private void addCheck(final Formula formula, final FormalProofList proofs) {
+        final NodeCheck check = new NodeCheck(formula, proofs);
+        synchronized (lock) {
+            results.add(check);
+            checks.add(check);
+        }
+    }
+
+    public void visitEnter(final Node node) throws ModuleDataException {
+        position++;
+    }
+
     public void visitEnter(final Specification specification) throws ModuleDataException {
         if (specification == null) {
             return;
@@ -260,26 +440,9 @@ public final class WellFormedCheckerExecutor extends ControlVisitor implements M
         if (axiom == null) {
             return;
         }
-        final String context = getCurrentContext().getLocationWithinModule();
-        // we start checking
+        // we start checking, the formula is checked later
         getNodeBo().setWellFormed(CheckLevel.UNCHECKED);
-        if (axiom.getFormula() != null) {
-            setLocationWithinModule(context + ".getFormula().getElement()");
-            final Formula formula = axiom.getFormula();
-            LogicalCheckExceptionList list =
-                checkerFactory.createFormulaChecker().checkFormula(
-                    formula.getElement(), getCurrentContext(), existence);
-            for (int i = 0; i < list.size(); i++) {
-                addError(list.get(i));
-            }
-        } else {
-            getNodeBo().setWellFormed(CheckLevel.FAILURE);
-        }
-        // if we found no errors this node is ok
-        if (!getNodeBo().isNotWellFormed()) {
-            getNodeBo().setWellFormed(CheckLevel.SUCCESS);
-        }
-        setLocationWithinModule(context);
+        addCheck(axiom.getFormula(), null);
         setBlocked(true);
     }
 
@@ -397,8 +560,7 @@ public final class WellFormedCheckerExecutor extends ControlVisitor implements M
                     getCurrentContext()));
             }
             setLocationWithinModule(context + ".getFormula().getElement().getList().getElement(1)");
-            final LogicalCheckExceptionList list = checkerFactory.createFormulaChecker().checkFormula(
-                definingFormula, getCurrentContext(), existence);
+            final LogicalCheckExceptionList list = checkFormula(definingFormula);
             for (int i = 0; i < list.size(); i++) {
                 addError(list.get(i));
             }
@@ -419,9 +581,9 @@ public final class WellFormedCheckerExecutor extends ControlVisitor implements M
             // a final check, we don't expect any new errors here, but hey - we want to be very sure!
             if (!getNodeBo().isNotWellFormed()) {
                 existence.add(constant);
+                history.added(predicateKey, position);
                 setLocationWithinModule(context + ".getFormula().getElement()");
-                final LogicalCheckExceptionList errorlist = checkerFactory.createFormulaChecker()
-                    .checkFormula(completeFormula, getCurrentContext(), existence);
+                final LogicalCheckExceptionList errorlist = checkFormula(completeFormula);
                 for (int i = 0; i < errorlist.size(); i++) {
                     addError(errorlist.get(i));
                 }
@@ -434,6 +596,7 @@ public final class WellFormedCheckerExecutor extends ControlVisitor implements M
                 && ExistenceChecker.NAME_EQUAL.equals(predicateKey.getName())) {
             existence.setIdentityOperatorDefined(predicateKey.getName(),
                 getKernelQedeqBo(), getCurrentContext());
+            history.operatorsChanged(position);
         }
         // if we found no errors this node is ok
         if (!getNodeBo().isNotWellFormed()) {
@@ -464,11 +627,13 @@ public final class WellFormedCheckerExecutor extends ControlVisitor implements M
                         + predicateKey, getCurrentContext()));
         }
         existence.add(definition);
+        history.added(predicateKey, position);
         // check if we just found the identity operator
         if ("2".equals(predicateKey.getArguments())
                 && ExistenceChecker.NAME_EQUAL.equals(predicateKey.getName())) {
             existence.setIdentityOperatorDefined(predicateKey.getName(),
                     getKernelQedeqBo(), getCurrentContext());
+            history.operatorsChanged(position);
         }
         // if we found no errors this node is ok
         if (!getNodeBo().isNotWellFormed()) {
@@ -498,6 +663,7 @@ public final class WellFormedCheckerExecutor extends ControlVisitor implements M
                 getCurrentContext()));
         }
         existence.add(definition);
+        history.added(function, position);
         setLocationWithinModule(context);
         // if we found no errors this node is ok
         if (!getNodeBo().isNotWellFormed()) {
@@ -669,8 +835,7 @@ public final class WellFormedCheckerExecutor extends ControlVisitor implements M
                 }
             }
             setLocationWithinModule(context + ".getFormula().getElement().getList().getElement(2)");
-            final LogicalCheckExceptionList list = checkerFactory.createFormulaChecker()
-                .checkTerm(term, getCurrentContext(), existence);
+            final LogicalCheckExceptionList list = checkTerm(term);
             for (int i = 0; i < list.size(); i++) {
                 addError(list.get(i));
             }
@@ -681,9 +846,9 @@ public final class WellFormedCheckerExecutor extends ControlVisitor implements M
             // if we found no errors
             if (!getNodeBo().isNotWellFormed()) {
                 existence.add(new FunctionConstant(function, formula, getCurrentContext()));
+                history.added(function, position);
                 // a final check, we don't expect any new errors here, but hey - we want to be very sure!
-                final LogicalCheckExceptionList listComplete = checkerFactory.createFormulaChecker()
-                    .checkFormula(formulaArgument.getElement(), getCurrentContext(), existence);
+                final LogicalCheckExceptionList listComplete = checkFormula(formulaArgument.getElement());
                 for (int i = 0; i < listComplete.size(); i++) {
                     addError(listComplete.get(i));
                 }
@@ -706,165 +871,12 @@ public final class WellFormedCheckerExecutor extends ControlVisitor implements M
         if (proposition == null) {
             return;
         }
-        final String context = getCurrentContext().getLocationWithinModule();
-        // we start checking
+        // we start checking, formula and formal proofs are checked later
         getNodeBo().setWellFormed(CheckLevel.UNCHECKED);
-        if (proposition.getFormula() != null) {
-            setLocationWithinModule(context + ".getFormula().getElement()");
-            final Formula formula = proposition.getFormula();
-            LogicalCheckExceptionList list = checkerFactory.createFormulaChecker().checkFormula(
-                formula.getElement(), getCurrentContext(), existence);
-            for (int i = 0; i < list.size(); i++) {
-                addError(list.get(i));
-            }
-        } else {  // no formula
-            getNodeBo().setWellFormed(CheckLevel.FAILURE);
-        }
-        if (proposition.getFormalProofList() != null) {
-            for (int i = 0; i < proposition.getFormalProofList().size(); i++) {
-                final FormalProof proof = proposition.getFormalProofList().get(i);
-                if (proof != null) {
-                    final FormalProofLineList list = proof.getFormalProofLineList();
-                    setLocationWithinModule(context + ".getFormalProofList().get("
-                            + i + ").getFormalProofLineList()");
-                    checkFormalProof(list);
-                }
-            }
-        }
-        setLocationWithinModule(context);
-        // if we found no errors this node is ok
-        if (!getNodeBo().isNotWellFormed()) {
-            getNodeBo().setWellFormed(CheckLevel.SUCCESS);
-        }
+        addCheck(proposition.getFormula(), proposition.getFormalProofList());
         setBlocked(true);
     }
 
-    /**
-     * Check formal proof formulas.
-     *
-     * @param   list    List of lines.
-     */
-    private void checkFormalProof(final FormalProofLineList list) {
-        final String context = getCurrentContext().getLocationWithinModule();
-        if (list != null) {
-            for (int i = 0; i < list.size(); i++) {
-                final FormalProofLine line = list.get(i);
-                setLocationWithinModule(context + ".get(" + i + ")");
-                checkProofLine(line);
-            }
-        }
-    }
-
-    /**
-     * Check well-formedness of proof lines.
-     *
-     * @param   line    Check formulas and terms of this proof line.
-     */
-    private void checkProofLine(final FormalProofLine line) {
-        if (line instanceof ConditionalProof) {
-            checkProofLine((ConditionalProof) line);
-            return;
-        }
-        final String context = getCurrentContext().getLocationWithinModule();
-        LogicalCheckExceptionList elist = new LogicalCheckExceptionList();
-        if (line != null) {
-            final Formula formula = line.getFormula();
-            if (formula != null) {
-                setLocationWithinModule(context + ".getFormula().getElement()");
-                elist = checkerFactory.createFormulaChecker().checkFormula(
-                    formula.getElement(), getCurrentContext(), existence);
-                for (int k = 0; k < elist.size(); k++) {
-                    addError(elist.get(k));
-                }
-            }
-            final Reason reason = line.getReason();
-            if (reason != null) {
-                if (reason instanceof SubstFree) {
-                    final SubstFree subst = (SubstFree) reason;
-                    if (subst.getSubstFree().getSubstituteTerm() != null) {
-                        setLocationWithinModule(context
-                            + ".getReason().getSubstFree().getSubstituteTerm()");
-                        elist = checkerFactory.createFormulaChecker().checkTerm(
-                            subst.getSubstFree().getSubstituteTerm(),
-                            getCurrentContext(), existence);
-                    }
-                } else if (reason instanceof SubstPred) {
-                    final SubstPred subst = (SubstPred) reason;
-                    if (subst.getSubstPred().getSubstituteFormula() != null) {
-                        setLocationWithinModule(context
-                            + ".getReason().getSubstPred().getSubstituteFormula()");
-                        elist = checkerFactory.createFormulaChecker().checkFormula(
-                            subst.getSubstPred().getSubstituteFormula(),
-                            getCurrentContext(), existence);
-                    }
-                } else if (reason instanceof SubstFunc) {
-                    final SubstFunc subst = (SubstFunc) reason;
-                    if (subst.getSubstFunc().getSubstituteTerm() != null) {
-                        setLocationWithinModule(context
-                            + ".getReason().getSubstFunc().getSubstituteTerm()");
-                        elist = checkerFactory.createFormulaChecker().checkTerm(
-                            subst.getSubstFunc().getSubstituteTerm(),
-                            getCurrentContext(), existence);
-                    }
-                }
-                for (int k = 0; k < elist.size(); k++) {
-                    addError(elist.get(k));
-                }
-            }
-        }
-    }
-
-    /**
-     * Check well-formedness of proof lines.
-     *
-     * @param   line    Check formulas and terms of this proof line.
-     */
-    private void checkProofLine(final ConditionalProof line) {
-        final String context = getCurrentContext().getLocationWithinModule();
-        LogicalCheckExceptionList elist = new LogicalCheckExceptionList();
-        if (line != null) {
-            {
-                final Formula formula = line.getFormula();
-                if (formula != null && formula.getElement() != null) {
-                    setLocationWithinModule(context + ".getFormula().getElement()");
-                    elist = checkerFactory.createFormulaChecker().checkFormula(
-                        formula.getElement(), getCurrentContext(), existence);
-                    for (int k = 0; k < elist.size(); k++) {
-                        addError(elist.get(k));
-                    }
-                }
-            }
-            if (line.getHypothesis() != null) {
-                final Formula formula = line.getHypothesis().getFormula();;
-                if (formula != null && formula.getElement() != null) {
-                    setLocationWithinModule(context
-                        + ".getHypothesis().getFormula().getElement()");
-                    elist = checkerFactory.createFormulaChecker().checkFormula(
-                        formula.getElement(), getCurrentContext(), existence);
-                    for (int k = 0; k < elist.size(); k++) {
-                        addError(elist.get(k));
-                    }
-                }
-            }
-            if (line.getFormalProofLineList() != null) {
-                setLocationWithinModule(context + ".getFormalProofLineList()");
-                checkFormalProof(line.getFormalProofLineList());
-            }
-            if (line.getConclusion() != null) {
-                final Formula formula = line.getConclusion().getFormula();;
-                if (formula != null && formula.getElement() != null) {
-                    setLocationWithinModule(context
-                        + ".getConclusion().getFormula().getElement()");
-                    elist = checkerFactory.createFormulaChecker().checkFormula(
-                        formula.getElement(), getCurrentContext(), existence);
-                    for (int k = 0; k < elist.size(); k++) {
-                        addError(elist.get(k));
-                    }
-                }
-            }
-        }
-    }
-
     public void visitLeave(final Proposition definition) {
         setBlocked(false);
     }
@@ -897,8 +909,10 @@ public final class WellFormedCheckerExecutor extends ControlVisitor implements M
                     // are the preconditions for using this rule fulfilled?
                     existence.setClassOperatorModule(getKernelQedeqBo(),
                         getCurrentContext());
+                    history.operatorsChanged(position);
                 }
                 existence.add(ruleKey, rule);
+                history.added(ruleKey, position);
             }
             if (rule.getChangedRuleList() != null) {
                 final ChangedRuleList list = rule.getChangedRuleList();
@@ -960,6 +974,7 @@ public final class WellFormedCheckerExecutor extends ControlVisitor implements M
                             }
                         }
                         existence.add(key2, rule);
+                        history.added(key2, position);
                     }
                 }
             }
@@ -980,10 +995,68 @@ public final class WellFormedCheckerExecutor extends ControlVisitor implements M
         setBlocked(false);
     }
 
+    /**
+     * Check if {@link Element} is a well-formed formula. The current context must be at the
+     * element.
+     *
+     * @param   element Check this element.
+     * @return  Collected errors if there are any. Not <code>null</code>.
+     */
+    private LogicalCheckExceptionList checkFormula(final Element element) {
+        return check(element, false, getCurrentContext(), existence);
+    }
+
+    /**
+     * Check if {@link Element} is a well-formed term. The current context must be at the
+     * element.
+     *
+     * @param   element Check this element.
+     * @return  Collected errors if there are any. Not <code>null</code>.
+     */
+    private LogicalCheckExceptionList checkTerm(final Element element) {
+        return check(element, true, getCurrentContext(), existence);
+    }
+
+    /**
+     * Check if {@link Element} is a well-formed formula or term. Elements that are known to be
+     * well-formed within the given existence context are not checked again.
+     *
+     * @param   element     Check this element.
+     * @param   term        Is a term expected?
+     * @param   context     Context of element.
+     * @param   constants   Existence checker for operators.
+     * @return  Collected errors if there are any. Not <code>null</code>.
+     */
+    private LogicalCheckExceptionList check(final Element element, final boolean term,
+            final ModuleContext context, final ExistenceChecker constants) {
+        final String checker = checkerFactory.getClass().getName();
+        if (element != null && cache.isWellFormed(element, term, checker, constants)) {
+            return new LogicalCheckExceptionList();
+        }
+        final RecordingExistenceChecker recorder = new RecordingExistenceChecker(constants);
+        final LogicalCheckExceptionList list;
+        if (term) {
+            list = checkerFactory.createFormulaChecker().checkTerm(element, context, recorder);
+        } else {
+            list = checkerFactory.createFormulaChecker().checkFormula(element, context, recorder);
+        }
+        if (element != null && list.size() == 0) {
+            cache.setWellFormed(element, term, checker, recorder.getAnswers());
+        }
+        return list;
+    }
+
     protected void addError(final ModuleDataException me) {
         if (getNodeBo() != null) {
             getNodeBo().setWellFormed(CheckLevel.FAILURE);
         }
+        synchronized (lock) {
+            // during traverse all errors are collected in document order
+            if (results != null) {
+                results.add(me);
+                return;
+            }
+        }
         super.addError(me);
     }
 
@@ -991,7 +1064,256 @@ public final class WellFormedCheckerExecutor extends ControlVisitor implements M
         if (getNodeBo() != null) {
             getNodeBo().setWellFormed(CheckLevel.FAILURE);
         }
+        synchronized (lock) {
+            // during traverse all errors are collected in document order
+            if (results != null) {
+                results.add(me);
+                return;
+            }
+        }
         super.addError(me);
     }
 
+    /**
+     * Check of the formulas of an axiom or proposition. It has its own copy of all data it
+     * needs from the traverse, so it can be executed by any thread.
+     */
+    private final class NodeCheck {
+
+        /** Node of axiom or proposition. */
+        private final KernelNodeBo node;
+
+        /** Formula of axiom or proposition. Might be <code>null</code>. */
+        private final Formula formula;
+
+        /** Formal proofs of proposition. Might be <code>null</code>. */
+        private final FormalProofList proofs;
+
+        /** Context of axiom or proposition. */
+        private final ModuleContext context;
+
+        /** Existence checker as it was before the node. */
+        private final ExistenceChecker constants;
+
+        /** Found errors. Elements are of type {@link ModuleDataException}. */
+        private final List errors = new ArrayList();
+
+        /**
+         * Constructor. Must be called during the traverse, the current node is the axiom or
+         * proposition node.
+         *
+         * @param   formula Formula of axiom or proposition. Might be <code>null</code>.
+         * @param   proofs  Formal proofs of proposition. Might be <code>null</code>.
+         */
+        NodeCheck(final Formula formula, final FormalProofList proofs) {
+            this.node = getNodeBo();
+            this.formula = formula;
+            this.proofs = proofs;
+            this.context = new ModuleContext(getCurrentContext());
+            this.constants = history.getExistenceChecker(position);
+        }
+
+        /**
+         * Check all formulas and set the well-formed state of the node.
+         */
+        void execute() {
+            try {
+                checkNode();
+            } catch (RuntimeException e) {
+                Trace.fatal(CLASS, this, "execute", "looks like a programming error", e);
+                errors.add(new RuntimeVisitorException(context, e));
+            }
+            // if we found no errors this node is ok
+            if (formula != null && errors.isEmpty()) {
+                node.setWellFormed(CheckLevel.SUCCESS);
+            } else {
+                node.setWellFormed(CheckLevel.FAILURE);
+            }
+        }
+
+        /**
+         * Check formula and formal proofs.
+         */
+        private void checkNode() {
+            final String location = context.getLocationWithinModule();
+            if (formula != null) {
+                context.setLocationWithinModule(location + ".getFormula().getElement()");
+                final LogicalCheckExceptionList list = checkFormula(formula.getElement());
+                for (int i = 0; i < list.size(); i++) {
+                    errors.add(list.get(i));
+                }
+            }
+            if (proofs != null) {
+                for (int i = 0; i < proofs.size(); i++) {
+                    final FormalProof proof = proofs.get(i);
+                    if (proof != null) {
+                        final FormalProofLineList list = proof.getFormalProofLineList();
+                        context.setLocationWithinModule(location + ".getFormalProofList().get("
+                                + i + ").getFormalProofLineList()");
+                        checkFormalProof(list);
+                    }
+                }
+            }
+            context.setLocationWithinModule(location);
+        }
+
+        /**
+         * Check formal proof formulas.
+         *
+         * @param   list    List of lines.
+         */
+        private void checkFormalProof(final FormalProofLineList list) {
+            final String location = context.getLocationWithinModule();
+            if (list != null) {
+                for (int i = 0; i < list.size(); i++) {
+                    final FormalProofLine line = list.get(i);
+                    context.setLocationWithinModule(location + ".get(" + i + ")");
+                    checkProofLine(line);
+                }
+            }
+        }
+
+        /**
+         * Check well-formedness of proof lines.
+         *
+         * @param   line    Check formulas and terms of this proof line.
+         */
+        private void checkProofLine(final FormalProofLine line) {
+            if (line instanceof ConditionalProof) {
+                checkProofLine((ConditionalProof) line);
+                return;
+            }
+            final String location = context.getLocationWithinModule();
+            LogicalCheckExceptionList elist = new LogicalCheckExceptionList();
+            if (line != null) {
+                final Formula formula = line.getFormula();
+                if (formula != null) {
+                    context.setLocationWithinModule(location + ".getFormula().getElement()");
+                    elist = checkFormula(formula.getElement());
+                    for (int k = 0; k < elist.size(); k++) {
+                        errors.add(elist.get(k));
+                    }
+                }
+                final Reason reason = line.getReason();
+                if (reason != null) {
+                    if (reason instanceof SubstFree) {
+                        final SubstFree subst = (SubstFree) reason;
+                        if (subst.getSubstFree().getSubstituteTerm() != null) {
+                            context.setLocationWithinModule(location
+                                + ".getReason().getSubstFree().getSubstituteTerm()");
+                            elist = checkTerm(subst.getSubstFree().getSubstituteTerm());
+                        }
+                    } else if (reason instanceof SubstPred) {
+                        final SubstPred subst = (SubstPred) reason;
+                        if (subst.getSubstPred().getSubstituteFormula() != null) {
+                            context.setLocationWithinModule(location
+                                + ".getReason().getSubstPred().getSubstituteFormula()");
+                            elist = checkFormula(subst.getSubstPred().getSubstituteFormula());
+                        }
+                    } else if (reason instanceof SubstFunc) {
+                        final SubstFunc subst = (SubstFunc) reason;
+                        if (subst.getSubstFunc().getSubstituteTerm() != null) {
+                            context.setLocationWithinModule(location
+                                + ".getReason().getSubstFunc().getSubstituteTerm()");
+                            elist = checkTerm(subst.getSubstFunc().getSubstituteTerm());
+                        }
+                    }
+                    for (int k = 0; k < elist.size(); k++) {
+                        errors.add(elist.get(k));
+                    }
+                }
+            }
+        }
+
+        /**
+         * Check well-formedness of proof lines.
+         *
+         * @param   line    Check formulas and terms of this proof line.
+         */
+        private void checkProofLine(final ConditionalProof line) {
+            final String location = context.getLocationWithinModule();
+            LogicalCheckExceptionList elist = new LogicalCheckExceptionList();
+            if (line != null) {
+                {
+                    final Formula formula = line.getFormula();
+                    if (formula != null && formula.getElement() != null) {
+                        context.setLocationWithinModule(location + ".getFormula().getElement()");
+                        elist = checkFormula(formula.getElement());
+                        for (int k = 0; k < elist.size(); k++) {
+                            errors.add(elist.get(k));
+                        }
+                    }
+                }
+                if (line.getHypothesis() != null) {
+                    final Formula formula = line.getHypothesis().getFormula();;
+                    if (formula != null && formula.getElement() != null) {
+                        context.setLocationWithinModule(location
+                            + ".getHypothesis().getFormula().getElement()");
+                        elist = checkFormula(formula.getElement());
+                        for (int k = 0; k < elist.size(); k++) {
+                            errors.add(elist.get(k));
+                        }
+                    }
+                }
+                if (line.getFormalProofLineList() != null) {
+                    context.setLocationWithinModule(location + ".getFormalProofLineList()");
+                    checkFormalProof(line.getFormalProofLineList());
+                }
+                if (line.getConclusion() != null) {
+                    final Formula formula = line.getConclusion().getFormula();;
+                    if (formula != null && formula.getElement() != null) {
+                        context.setLocationWithinModule(location
+                            + ".getConclusion().getFormula().getElement()");
+                        elist = checkFormula(formula.getElement());
+                        for (int k = 0; k < elist.size(); k++) {
+                            errors.add(elist.get(k));
+                        }
+                    }
+                }
+            }
+        }
+
+        /**
+         * Check if {@link Element} is a well-formed formula. The context must be at the
+         * element.
+         *
+         * @param   element Check this element.
+         * @return  Collected errors if there are any. Not <code>null</code>.
+         */
+        private LogicalCheckExceptionList checkFormula(final Element element) {
+            return check(element, false, context, constants);
+        }
+
+        /**
+         * Check if {@link Element} is a well-formed term. The context must be at the
+         * element.
+         *
+         * @param   element Check this element.
+         * @return  Collected errors if there are any. Not <code>null</code>.
+         */
+        private LogicalCheckExceptionList checkTerm(final Element element) {
+            return check(element, true, context, constants);
+        }
+
+    }
+
+    /**
+     * Thread that checks axioms and propositions.
+     */
+    private final class Worker extends Thread {
+
+        /**
+         * Constructor.
+         */
+        Worker() {
+            super("WellFormedCheckerExecutor worker");
+            setDaemon(true);
+        }
+
+        public void run() {
+            work();
+        }
+
+    }
+
 }
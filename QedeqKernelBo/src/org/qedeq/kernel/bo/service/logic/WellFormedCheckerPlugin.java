@@ -24,6 +24,9 @@ import org.qedeq.kernel.bo.service.basis.ModuleServicePluginExecutor;
 
 /**
  * Checks if all formulas of a QEDEQ module are well formed. Also dependency checks are included.
+ * <p>
+ * Well-formed formulas and terms are remembered, so repeated formulas are checked only once.
+ * The formulas of axioms and propositions are checked by several threads.
  *
  * @author  Michael Meyling
  */
@@ -32,6 +35,12 @@ public final class WellFormedCheckerPlugin implements InternalModuleServicePlugi
     /** This class. */
     private static final Class CLASS = WellFormedCheckerPlugin.class;
 
+    /** Maximum number of remembered formulas and of remembered terms. */
+    private static final int CACHE_SIZE = 50000;
+
+    /** Remembers well-formed formulas and terms of all checked modules. */
+    private final WellFormedCache cache = new WellFormedCache(CACHE_SIZE);
+
     public String getServiceId() {
         return CLASS.getName();
     }
@@ -48,8 +57,18 @@ public final class WellFormedCheckerPlugin implements InternalModuleServicePlugi
         return new WellFormedCheckerExecutor(this, qedeq, parameters);
     }
 
+    /**
+     * Get cache for well-formed formulas and terms.
+     *
+     * @return  Cache.
+     */
+    WellFormedCache getCache() {
+        return cache;
+    }
+
     public void setDefaultValuesForEmptyPluginParameters(final Parameters parameters) {
         parameters.setDefault("checkerFactory", FormulaCheckerFactoryImpl.class.getName());
+        parameters.setDefault("threads", 0);
     }
 
 }
@@ -16,6 +16,7 @@
 package org.qedeq.kernel.bo.common;
 
 import java.util.Iterator;
+import java.util.Map;
 
 import org.qedeq.base.test.QedeqTestCase;
 import org.qedeq.base.utility.EqualsUtility;
@@ -495,6 +496,10 @@ public class QedeqBoSetTest extends QedeqTestCase {
                 return null;
             }
 
+            public Map getNormalizedFormulas() {
+                return null;
+            }
+
             public void setLoadingImportsFailureState(LoadingImportsState loadImportsFailed, SourceFileExceptionList sfl) {
             }
 
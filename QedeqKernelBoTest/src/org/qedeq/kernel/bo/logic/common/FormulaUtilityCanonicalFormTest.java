@@ -0,0 +1,102 @@
+/* This file is part of the project "Hilbert II" - http://www.qedeq.org
+ *
+ * Copyright 2000-2014,  Michael Meyling <mime@qedeq.org>.
+ *
+ * "Hilbert II" is free software; you can redistribute
+ * it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ */
+
+package org.qedeq.kernel.bo.logic.common;
+
+import java.util.List;
+
+import org.qedeq.kernel.bo.test.QedeqBoTestCase;
+import org.qedeq.kernel.se.base.list.Element;
+import org.qedeq.kernel.xml.parser.BasicParser;
+
+/**
+ * For testing the {@link org.qedeq.kernel.bo.logic.common.FormulaUtility}.
+ *
+ * @author  Michael Meyling
+ */
+public class FormulaUtilityCanonicalFormTest extends QedeqBoTestCase {
+
+    /**
+     * Function: getCanonicalForm and getPropositionVariablesInOrder.
+     *
+     * @throws  Exception   Test failed.
+     */
+    public void test_Positive01() throws Exception {
+        final Element ele1 = BasicParser.createElement(
+            "<IMPL>" +
+              "<PREDVAR id=\"A\" />" +
+              "<IMPL>" +
+                "<PREDVAR id=\"B\" />" +
+                "<PREDVAR id=\"A\" />" +
+              "</IMPL>" +
+            "</IMPL>");
+        final Element ele2 = BasicParser.createElement(
+            "<IMPL>" +
+              "<PREDVAR id=\"B\" />" +
+              "<IMPL>" +
+                "<PREDVAR id=\"A\" />" +
+                "<PREDVAR id=\"B\" />" +
+              "</IMPL>" +
+            "</IMPL>");
+        final Element ele3 = BasicParser.createElement(
+            "<IMPL>" +
+              "<PREDVAR id=\"A\" />" +
+              "<IMPL>" +
+                "<PREDVAR id=\"A\" />" +
+                "<PREDVAR id=\"B\" />" +
+              "</IMPL>" +
+            "</IMPL>");
+        assertEquals(FormulaUtility.getCanonicalForm(ele1), FormulaUtility.getCanonicalForm(ele2));
+        assertFalse(FormulaUtility.getCanonicalForm(ele1).equals(
+            FormulaUtility.getCanonicalForm(ele3)));
+        final List vars = FormulaUtility.getPropositionVariablesInOrder(ele2);
+        assertEquals(2, vars.size());
+        assertEquals(FormulaUtility.createPredicateVariable("B"), vars.get(0));
+        assertEquals(FormulaUtility.createPredicateVariable("A"), vars.get(1));
+        // renaming the variables of ele1 in their order gives ele2
+        Element renamed = FormulaUtility.replaceOperatorVariable(ele1,
+            FormulaUtility.createPredicateVariable("A"), FormulaUtility.createPredicateVariable("C"));
+        renamed = FormulaUtility.replaceOperatorVariable(renamed,
+            FormulaUtility.createPredicateVariable("B"), FormulaUtility.createPredicateVariable("A"));
+        renamed = FormulaUtility.replaceOperatorVariable(renamed,
+            FormulaUtility.createPredicateVariable("C"), FormulaUtility.createPredicateVariable("B"));
+        assertEquals(ele2, renamed);
+    }
+
+    /**
+     * Function: getCanonicalForm. Predicate variables with arguments and constants are kept.
+     *
+     * @throws  Exception   Test failed.
+     */
+    public void test_Positive02() throws Exception {
+        final Element ele1 = BasicParser.createElement(
+            "<AND>" +
+              "<PREDVAR id=\"equal\">" +
+                "<VAR id=\"x\" />" +
+              "</PREDVAR>" +
+              "<PREDVAR id=\"C\" />" +
+            "</AND>");
+        final Element ele2 = BasicParser.createElement(
+            "<AND>" +
+              "<PREDVAR id=\"equal\">" +
+                "<VAR id=\"x\" />" +
+              "</PREDVAR>" +
+              "<PREDVAR id=\"1\" />" +
+            "</AND>");
+        assertEquals(ele2, FormulaUtility.getCanonicalForm(ele1));
+        assertEquals(1, FormulaUtility.getPropositionVariablesInOrder(ele1).size());
+    }
+
+}
@@ -0,0 +1,124 @@
+/* This file is part of the project "Hilbert II" - http://www.qedeq.org
+ *
+ * Copyright 2000-2014,  Michael Meyling <mime@qedeq.org>.
+ *
+ * "Hilbert II" is free software; you can redistribute
+ * it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ */
+
+package org.qedeq.kernel.bo.logic.common;
+
+import org.qedeq.kernel.bo.test.QedeqBoTestCase;
+import org.qedeq.kernel.se.base.list.Element;
+import org.qedeq.kernel.xml.parser.BasicParser;
+
+/**
+ * For testing the {@link org.qedeq.kernel.bo.logic.common.FormulaUtility}.
+ *
+ * @author  Michael Meyling
+ */
+public class FormulaUtilityInterchangeableTest extends QedeqBoTestCase {
+
+    /**
+     * Function: getSortedForm.
+     *
+     * @throws  Exception   Test failed.
+     */
+    public void testSortedForm() throws Exception {
+        final Element ele1 = BasicParser.createElement(
+            "<IMPL>" +
+              "<PREDVAR id=\"B\" />" +
+              "<PREDVAR id=\"A\" />" +
+              "<OR>" +
+                "<PREDVAR id=\"C\" />" +
+                "<PREDVAR id=\"A\" />" +
+              "</OR>" +
+            "</IMPL>");
+        final Element ele2 = BasicParser.createElement(
+            "<IMPL>" +
+              "<PREDVAR id=\"A\" />" +
+              "<PREDVAR id=\"B\" />" +
+              "<OR>" +
+                "<PREDVAR id=\"A\" />" +
+                "<PREDVAR id=\"C\" />" +
+              "</OR>" +
+            "</IMPL>");
+        // the conclusion of an implication keeps its position
+        final Element ele3 = BasicParser.createElement(
+            "<IMPL>" +
+              "<PREDVAR id=\"A\" />" +
+              "<OR>" +
+                "<PREDVAR id=\"A\" />" +
+                "<PREDVAR id=\"C\" />" +
+              "</OR>" +
+              "<PREDVAR id=\"B\" />" +
+            "</IMPL>");
+        assertEquals(FormulaUtility.getSortedForm(ele1), FormulaUtility.getSortedForm(ele2));
+        assertFalse(FormulaUtility.getSortedForm(ele1).equals(FormulaUtility.getSortedForm(ele3)));
+    }
+
+    /**
+     * Function: isInterchangeable.
+     *
+     * @throws  Exception   Test failed.
+     */
+    public void testIsInterchangeable() throws Exception {
+        final Element a = FormulaUtility.createPredicateVariable("A");
+        final Element b = FormulaUtility.createPredicateVariable("B");
+        final Element c = FormulaUtility.createPredicateVariable("C");
+        final Element ele1 = BasicParser.createElement(
+            "<IMPL>" +
+              "<AND>" +
+                "<PREDVAR id=\"A\" />" +
+                "<PREDVAR id=\"B\" />" +
+              "</AND>" +
+              "<PREDVAR id=\"C\" />" +
+            "</IMPL>");
+        assertTrue(FormulaUtility.isInterchangeable(ele1, a, b));
+        assertFalse(FormulaUtility.isInterchangeable(ele1, a, c));
+        assertFalse(FormulaUtility.isInterchangeable(ele1, b, c));
+        // swapping subject variables renames bound occurrences too
+        final Element ele2 = BasicParser.createElement(
+            "<AND>" +
+              "<FORALL>" +
+                "<VAR id=\"z\" />" +
+                "<PREDVAR id=\"\\phi\">" +
+                  "<VAR id=\"x\" />" +
+                  "<VAR id=\"z\" />" +
+                "</PREDVAR>" +
+              "</FORALL>" +
+              "<FORALL>" +
+                "<VAR id=\"z\" />" +
+                "<PREDVAR id=\"\\phi\">" +
+                  "<VAR id=\"y\" />" +
+                  "<VAR id=\"z\" />" +
+                "</PREDVAR>" +
+              "</FORALL>" +
+            "</AND>");
+        final Element x = FormulaUtility.createSubjectVariable("x");
+        final Element y = FormulaUtility.createSubjectVariable("y");
+        final Element z = FormulaUtility.createSubjectVariable("z");
+        assertTrue(FormulaUtility.isInterchangeable(ele2, x, y));
+        assertFalse(FormulaUtility.isInterchangeable(ele2, x, z));
+        // predicate variables with different argument numbers are different
+        final Element ele3 = BasicParser.createElement(
+            "<IMPL>" +
+              "<PREDVAR id=\"A\">" +
+                "<VAR id=\"x\" />" +
+              "</PREDVAR>" +
+              "<OR>" +
+                "<PREDVAR id=\"A\" />" +
+                "<PREDVAR id=\"B\" />" +
+              "</OR>" +
+            "</IMPL>");
+        assertTrue(FormulaUtility.isInterchangeable(ele3, a, b));
+    }
+
+}
@@ -0,0 +1,180 @@
+/* This file is part of the project "Hilbert II" - http://www.qedeq.org
+ *
+ * Copyright 2000-2014,  Michael Meyling <mime@qedeq.org>.
+ *
+ * "Hilbert II" is free software; you can redistribute
+ * it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ */
+
+package org.qedeq.kernel.bo.logic.common;
+
+import org.qedeq.kernel.bo.test.QedeqBoTestCase;
+import org.qedeq.kernel.se.base.list.Element;
+import org.qedeq.kernel.se.dto.list.DefaultElementList;
+import org.qedeq.kernel.xml.parser.BasicParser;
+
+/**
+ * For testing the {@link org.qedeq.kernel.bo.logic.common.TruthTableEvaluator}.
+ *
+ * @author  Michael Meyling
+ */
+public class TruthTableEvaluatorTest extends QedeqBoTestCase {
+
+    /**
+     * Tautologies and non tautologies with few atoms.
+     *
+     * @throws  Exception   Test failed.
+     */
+    public void testSmall() throws Exception {
+        assertTrue(isTautology(
+            "<IMPL>" +
+              "<PREDVAR id=\"A\" />" +
+              "<IMPL>" +
+                "<PREDVAR id=\"B\" />" +
+                "<PREDVAR id=\"A\" />" +
+              "</IMPL>" +
+            "</IMPL>"));
+        assertFalse(isTautology(
+            "<IMPL>" +
+              "<PREDVAR id=\"A\" />" +
+              "<PREDVAR id=\"B\" />" +
+            "</IMPL>"));
+        assertTrue(isTautology(
+            "<OR>" +
+              "<PREDVAR id=\"A\" />" +
+              "<NOT>" +
+                "<PREDVAR id=\"A\" />" +
+              "</NOT>" +
+            "</OR>"));
+        assertTrue(isTautology(
+            "<EQUI>" +
+              "<NOT>" +
+                "<AND>" +
+                  "<PREDVAR id=\"A\" />" +
+                  "<PREDVAR id=\"B\" />" +
+                "</AND>" +
+              "</NOT>" +
+              "<OR>" +
+                "<NOT>" +
+                  "<PREDVAR id=\"A\" />" +
+                "</NOT>" +
+                "<NOT>" +
+                  "<PREDVAR id=\"B\" />" +
+                "</NOT>" +
+              "</OR>" +
+            "</EQUI>"));
+        assertFalse(isTautology(
+            "<EQUI>" +
+              "<PREDVAR id=\"A\" />" +
+              "<PREDVAR id=\"B\" />" +
+              "<PREDVAR id=\"C\" />" +
+            "</EQUI>"));
+    }
+
+    /**
+     * Non propositional part formulas are atoms.
+     *
+     * @throws  Exception   Test failed.
+     */
+    public void testAtoms() throws Exception {
+        final TruthTableEvaluator evaluator = new TruthTableEvaluator(BasicParser.createElement(
+            "<IMPL>" +
+              "<FORALL>" +
+                "<VAR id=\"x\" />" +
+                "<PREDVAR id=\"\\phi\">" +
+                  "<VAR id=\"x\" />" +
+                "</PREDVAR>" +
+              "</FORALL>" +
+              "<OR>" +
+                "<PREDVAR id=\"A\" />" +
+                "<FORALL>" +
+                  "<VAR id=\"x\" />" +
+                  "<PREDVAR id=\"\\phi\">" +
+                    "<VAR id=\"x\" />" +
+                  "</PREDVAR>" +
+                "</FORALL>" +
+              "</OR>" +
+            "</IMPL>"));
+        assertEquals(2, evaluator.getAtomNumber());
+        assertTrue(evaluator.isTautology());
+    }
+
+    /**
+     * Only proposition variables and propositional operators.
+     *
+     * @throws  Exception   Test failed.
+     */
+    public void testHasOnlyPropositionVariables() throws Exception {
+        assertTrue(TruthTableEvaluator.hasOnlyPropositionVariables(BasicParser.createElement(
+            "<IMPL>" +
+              "<PREDVAR id=\"A\" />" +
+              "<NOT>" +
+                "<PREDVAR id=\"B\" />" +
+              "</NOT>" +
+            "</IMPL>")));
+        assertTrue(TruthTableEvaluator.hasOnlyPropositionVariables(BasicParser.createElement(
+            "<PREDVAR id=\"A\" />")));
+        assertFalse(TruthTableEvaluator.hasOnlyPropositionVariables(BasicParser.createElement(
+            "<IMPL>" +
+              "<PREDVAR id=\"A\" />" +
+              "<PREDVAR id=\"\\phi\">" +
+                "<VAR id=\"x\" />" +
+              "</PREDVAR>" +
+            "</IMPL>")));
+        assertFalse(TruthTableEvaluator.hasOnlyPropositionVariables(BasicParser.createElement(
+            "<OR>" +
+              "<PREDVAR id=\"A\" />" +
+              "<PREDCON id=\"true\" />" +
+            "</OR>")));
+    }
+
+    /**
+     * Formulas with more than 6 atoms need several words.
+     *
+     * @throws  Exception   Test failed.
+     */
+    public void testMany() throws Exception {
+        final int n = 12;
+        final DefaultElementList or = new DefaultElementList(Operators.DISJUNCTION_OPERATOR);
+        final DefaultElementList and = new DefaultElementList(Operators.CONJUNCTION_OPERATOR);
+        for (int i = 0; i < n; i++) {
+            final Element var = FormulaUtility.createPredicateVariable("A" + i);
+            or.add(var);
+            and.add(var);
+        }
+        // A0 v ... v A11 is only false in the first row
+        assertEquals(n, new TruthTableEvaluator(or).getAtomNumber());
+        assertFalse(new TruthTableEvaluator(or).isTautology());
+        // (A0 & ... & A11) -> A11
+        assertTrue(new TruthTableEvaluator(new DefaultElementList(Operators.IMPLICATION_OPERATOR,
+            new Element[] {and, FormulaUtility.createPredicateVariable("A11")})).isTautology());
+        // (A0 & ... & A11) -> (A0 v ... v A11)
+        assertTrue(new TruthTableEvaluator(new DefaultElementList(Operators.IMPLICATION_OPERATOR,
+            new Element[] {and, or})).isTautology());
+        // (A0 v ... v A11) -> A11
+        assertFalse(new TruthTableEvaluator(new DefaultElementList(Operators.IMPLICATION_OPERATOR,
+            new Element[] {or, FormulaUtility.createPredicateVariable("A11")})).isTautology());
+        final DefaultElementList huge = new DefaultElementList(Operators.DISJUNCTION_OPERATOR);
+        for (int i = 0; i <= TruthTableEvaluator.MAXIMUM_ATOMS; i++) {
+            huge.add(FormulaUtility.createPredicateVariable("A" + i));
+        }
+        try {
+            new TruthTableEvaluator(huge).isTautology();
+            fail("IllegalStateException expected");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+
+    private boolean isTautology(final String xml) throws Exception {
+        return new TruthTableEvaluator(BasicParser.createElement(xml)).isTautology();
+    }
+
+}
@@ -1990,5 +1990,142 @@ public class DynamicDirectInterpreterTest extends QedeqBoTestCase {
         assertTrue(isTautology(formula));
     }
 
+    /**
+     * Function: isTautology(Element)
+     * Type:     positive
+     * Data:     x = x v unknown(x)
+     *
+     * @throws  Exception   Test failed.
+     */
+    public void testTautology54() throws Exception {
+        final Element formula = BasicParser.createElement(
+                "<OR>"
+                + "  <PREDCON ref=\"l.equal\">"
+                + "    <VAR id=\"x\" />"
+                + "    <VAR id=\"x\" />"
+                + "  </PREDCON>"
+                + "  <PREDCON ref=\"unknown\">"
+                + "    <VAR id=\"x\" />"
+                + "  </PREDCON>"
+                + "</OR>"
+                );
+        // unknown predicate is never evaluated
+        assertTrue(isTautology(formula));
+    }
+
+    /**
+     * Function: isTautology(Element)
+     * Type:     exception
+     * Data:     unknown(x) v x = x
+     *
+     * @throws  Exception   Test failed.
+     */
+    public void testTautology55() throws Exception {
+        final Element formula = BasicParser.createElement(
+                "<OR>"
+                + "  <PREDCON ref=\"unknown\">"
+                + "    <VAR id=\"x\" />"
+                + "  </PREDCON>"
+                + "  <PREDCON ref=\"l.equal\">"
+                + "    <VAR id=\"x\" />"
+                + "    <VAR id=\"x\" />"
+                + "  </PREDCON>"
+                + "</OR>"
+                );
+        try {
+            isTautology(formula);
+            fail("HeuristicException expected");
+        } catch (HeuristicException e) {
+            assertEquals(HeuristicErrorCodes.UNKNOWN_PREDICATE_CONSTANT_CODE, e.getErrorCode());
+            assertEquals(".getList().getElement(0).getList().getOperator()",
+                e.getContext().getLocationWithinModule());
+        }
+    }
+
+    /**
+     * Function: isTautology(Element)
+     * Type:     exception
+     * Data:     -(unknown = x)
+     *
+     * @throws  Exception   Test failed.
+     */
+    public void testTautology56() throws Exception {
+        final Element formula = BasicParser.createElement(
+                "<NOT>"
+                + "  <PREDCON ref=\"l.equal\">"
+                + "    <FUNCON ref=\"unknown\" />"
+                + "    <VAR id=\"x\" />"
+                + "  </PREDCON>"
+                + "</NOT>"
+                );
+        try {
+            isTautology(formula);
+            fail("HeuristicException expected");
+        } catch (HeuristicException e) {
+            assertEquals(HeuristicErrorCodes.UNKNOWN_FUNCTION_CONSTANT_CODE, e.getErrorCode());
+            assertEquals(".getList().getElement(0).getList().getElement(1).getList()"
+                + ".getOperator()", e.getContext().getLocationWithinModule());
+        }
+    }
+
+    /**
+     * Function: activateVariables(Element)
+     * Type:     positive
+     * Data:     A v B v C, A -&gt; B, phi(x) &lt;-&gt; phi(y)
+     *
+     * @throws  Exception   Test failed.
+     */
+    public void testActivateVariables() throws Exception {
+        // A, B and C are interchangeable: only 4 of 8 valuations are checked
+        final Element or = BasicParser.createElement(
+                "<OR>"
+                + "  <PREDVAR id=\"A\" />"
+                + "  <PREDVAR id=\"B\" />"
+                + "  <PREDVAR id=\"C\" />"
+                + "</OR>"
+                );
+        assertEquals(4, countValuations(or));
+        assertFalse(isTautology(or));
+        // A and B are not interchangeable
+        final Element impl = BasicParser.createElement(
+                "<IMPL>"
+                + "  <PREDVAR id=\"A\" />"
+                + "  <PREDVAR id=\"B\" />"
+                + "</IMPL>"
+                );
+        assertEquals(4, countValuations(impl));
+        // x and y are interchangeable: 7 predicates for phi and 10 of 16 entity pairs
+        final Element equi = BasicParser.createElement(
+                "<EQUI>"
+                + "  <PREDVAR id=\"\\phi\">"
+                + "    <VAR id=\"x\" />"
+                + "  </PREDVAR>"
+                + "  <PREDVAR id=\"\\phi\">"
+                + "    <VAR id=\"y\" />"
+                + "  </PREDVAR>"
+                + "</EQUI>"
+                );
+        assertEquals(7 * 10, countValuations(equi));
+    }
+
+    /**
+     * Count valuations after activating all variables.
+     *
+     * @param   formula         Formula.
+     * @return  Number of valuations.
+     */
+    private int countValuations(final Element formula) {
+        final DynamicDirectInterpreter counter = new DynamicDirectInterpreter(prop,
+            new FourDynamicModel());
+        counter.activateVariables(formula);
+        int result = 1;
+        while (counter.next()) {
+            result++;
+        }
+        counter.clearVariables();
+        assertFalse(counter.next());
+        return result;
+    }
+
 
 }
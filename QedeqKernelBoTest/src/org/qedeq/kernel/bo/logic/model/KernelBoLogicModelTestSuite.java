@@ -52,5 +52,6 @@ public class KernelBoLogicModelTestSuite extends QedeqTestSuite {
         addTestSuite(ModelPredicateConstantTest.class);
         addTestSuite(OperatorTest.class);
         addTestSuite(PredicateVariableTest.class);
+        addTestSuite(SubjectVariableInterpreterTest.class);
     }
 }
@@ -0,0 +1,169 @@
+/* This file is part of the project "Hilbert II" - http://www.qedeq.org
+ *
+ * Copyright 2000-2014,  Michael Meyling <mime@qedeq.org>.
+ *
+ * "Hilbert II" is free software; you can redistribute
+ * it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ */
+
+package org.qedeq.kernel.bo.logic.model;
+
+import org.qedeq.kernel.bo.logic.common.SubjectVariable;
+import org.qedeq.kernel.bo.test.QedeqBoTestCase;
+
+/**
+ * Test class.
+ *
+ * @author  Michael Meyling
+ */
+public class SubjectVariableInterpreterTest extends QedeqBoTestCase {
+
+    private Model model;
+
+    private SubjectVariableInterpreter interpreter;
+
+    private SubjectVariable x;
+
+    private SubjectVariable y;
+
+    /**
+     * Constructor.
+     *
+     */
+    public SubjectVariableInterpreterTest() {
+        super();
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param   name    Test case name.
+     *
+     */
+    public SubjectVariableInterpreterTest(final String name) {
+        super(name);
+    }
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        model = new ThreeDynamicModel();
+        interpreter = new SubjectVariableInterpreter(model);
+        x = new SubjectVariable("x");
+        y = new SubjectVariable("y");
+    }
+
+    protected void tearDown() throws Exception {
+        model = null;
+        interpreter = null;
+        super.tearDown();
+    }
+
+    public void testGetSlot() throws Exception {
+        final int slot = interpreter.getSlot(x);
+        assertEquals(slot, interpreter.getSlot(new SubjectVariable("x")));
+        assertTrue(slot != interpreter.getSlot(y));
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i + 2, interpreter.getSlot(new SubjectVariable("v" + i)));
+        }
+        interpreter.clear();
+        assertEquals(slot, interpreter.getSlot(x));
+    }
+
+    public void testNext() throws Exception {
+        assertEquals(model.getEntity(0), interpreter.getEntity(x));
+        assertEquals(model.getEntity(0), interpreter.getEntity(y));
+        for (int i = 0; i < model.getEntitiesSize(); i++) {
+            for (int j = 0; j < model.getEntitiesSize(); j++) {
+                assertEquals(model.getEntity(i), interpreter.getEntity(x));
+                assertEquals(model.getEntity(j), interpreter.getEntity(y));
+                assertEquals(i + 1 < model.getEntitiesSize() || j + 1 < model.getEntitiesSize(),
+                    interpreter.next());
+            }
+        }
+        assertEquals(model.getEntity(0), interpreter.getEntity(x));
+        assertEquals(model.getEntity(0), interpreter.getEntity(y));
+        interpreter.clear();
+        assertFalse(interpreter.next());
+    }
+
+    public void testBound() throws Exception {
+        interpreter.getEntity(x);
+        interpreter.next();
+        assertEquals(model.getEntity(1), interpreter.getEntity(x));
+        interpreter.addSubjectVariable(x);
+        assertEquals(model.getEntity(0), interpreter.getEntity(x));
+        interpreter.increaseSubjectVariableSelection(x);
+        interpreter.increaseSubjectVariableSelection(x);
+        assertEquals(model.getEntity(2), interpreter.getEntity(x));
+        interpreter.forceAddSubjectVariable(x, 1);
+        assertEquals(model.getEntity(1), interpreter.getEntity(x));
+        try {
+            interpreter.increaseSubjectVariableSelection(x);
+            fail("fixed allocation must not change");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        try {
+            interpreter.removeSubjectVariable(x);
+            fail("fixed allocation must be removed by force");
+        } catch (RuntimeException e) {
+            // expected
+        }
+        interpreter.forceRemoveSubjectVariable(x);
+        assertEquals(model.getEntity(2), interpreter.getEntity(x));
+        try {
+            interpreter.forceRemoveSubjectVariable(x);
+            fail("not fixed allocation must not be removed by force");
+        } catch (RuntimeException e) {
+            // expected
+        }
+        interpreter.removeSubjectVariable(x);
+        assertEquals(model.getEntity(1), interpreter.getEntity(x));
+        try {
+            interpreter.removeSubjectVariable(x);
+            fail("free allocation can't be removed");
+        } catch (RuntimeException e) {
+            // expected
+        }
+    }
+
+    public void testOrdered() throws Exception {
+        interpreter.getEntity(x);
+        interpreter.getEntity(y);
+        interpreter.setOrdered(interpreter.getSlot(x), interpreter.getSlot(y));
+        int number = 0;
+        do {
+            assertTrue(interpreter.getEntity(x).getValue() <= interpreter.getEntity(y).getValue());
+            number++;
+        } while (interpreter.next());
+        assertEquals(6, number);
+        interpreter.clear();
+        interpreter.getEntity(x);
+        interpreter.getEntity(y);
+        number = 0;
+        do {
+            number++;
+        } while (interpreter.next());
+        assertEquals(9, number);
+    }
+
+    public void testRemoveNotTopmost() throws Exception {
+        interpreter.forceAddSubjectVariable(x, 2);
+        interpreter.forceAddSubjectVariable(y, 1);
+        interpreter.addSubjectVariable(x);
+        interpreter.forceRemoveSubjectVariable(y);
+        assertEquals(model.getEntity(0), interpreter.getEntity(x));
+        interpreter.removeSubjectVariable(x);
+        assertEquals(model.getEntity(2), interpreter.getEntity(x));
+        interpreter.forceRemoveSubjectVariable(x);
+        assertEquals("subject variables {}", interpreter.toString());
+    }
+
+}
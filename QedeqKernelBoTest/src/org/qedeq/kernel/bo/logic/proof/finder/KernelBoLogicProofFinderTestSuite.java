@@ -41,5 +41,9 @@ public class KernelBoLogicProofFinderTestSuite extends QedeqTestSuite {
     public KernelBoLogicProofFinderTestSuite() {
         super();
         addTestSuite(ProofFinderImplTest.class);
+        addTestSuite(ProofLineStoreTest.class);
+        addTestSuite(ParallelProofFinderImplTest.class);
+        addTestSuite(LinePriorityQueueTest.class);
+        addTestSuite(LemmaPoolTest.class);
     }
 }
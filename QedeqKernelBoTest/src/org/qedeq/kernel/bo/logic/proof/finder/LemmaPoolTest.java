@@ -0,0 +1,116 @@
+/* This file is part of the project "Hilbert II" - http://www.qedeq.org
+ *
+ * Copyright 2000-2014,  Michael Meyling <mime@qedeq.org>.
+ *
+ * "Hilbert II" is free software; you can redistribute
+ * it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ */
+
+package org.qedeq.kernel.bo.logic.proof.finder;
+
+import org.qedeq.base.test.QedeqTestCase;
+import org.qedeq.kernel.bo.logic.common.FormulaUtility;
+import org.qedeq.kernel.bo.logic.common.Operators;
+import org.qedeq.kernel.se.base.list.Element;
+import org.qedeq.kernel.se.base.module.FormalProofLineList;
+import org.qedeq.kernel.se.base.module.ModusPonens;
+import org.qedeq.kernel.se.base.module.SubstPred;
+import org.qedeq.kernel.se.dto.list.DefaultElementList;
+import org.qedeq.kernel.se.dto.module.AddVo;
+import org.qedeq.kernel.se.dto.module.FormalProofLineListVo;
+import org.qedeq.kernel.se.dto.module.FormalProofLineVo;
+import org.qedeq.kernel.se.dto.module.FormulaVo;
+import org.qedeq.kernel.se.dto.module.ModusPonensVo;
+import org.qedeq.kernel.se.dto.module.SubstPredVo;
+
+/**
+ * Test {@link LemmaPool}.
+ *
+ * @author Michael Meyling
+ */
+public class LemmaPoolTest extends QedeqTestCase {
+
+    private Element a;
+
+    private Element b;
+
+    private Element c;
+
+    private FormalProofLineListVo proof;
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        a = FormulaUtility.createPredicateVariable("A");
+        b = FormulaUtility.createPredicateVariable("B");
+        c = FormulaUtility.createPredicateVariable("C");
+        proof = new FormalProofLineListVo();
+        proof.add(new FormalProofLineVo("1", new FormulaVo(a), new AddVo("ax1")));
+        proof.add(new FormalProofLineVo("2", new FormulaVo(new DefaultElementList(
+            Operators.IMPLICATION_OPERATOR, new Element[] {a, b})), new AddVo("ax2")));
+        proof.add(new FormalProofLineVo("3", new FormulaVo(b), new ModusPonensVo("2", "1")));
+        proof.add(new FormalProofLineVo("4", new FormulaVo(c), new SubstPredVo("3", b, c)));
+    }
+
+    /**
+     * Test getting derived lines.
+     *
+     * @throws Exception
+     */
+    public void testDerivedLines() throws Exception {
+        final LemmaPool pool = new LemmaPool(100);
+        assertEquals(0, pool.getDerivedLines().size());
+        pool.addProof(proof);
+        assertEquals(4, pool.size());
+        // adding the same lines again changes nothing
+        pool.addProof(proof);
+        assertEquals(4, pool.size());
+        final FormalProofLineList derived = pool.getDerivedLines();
+        assertEquals(2, derived.size());
+        assertEquals(b, derived.get(0).getFormula().getElement());
+        final ModusPonens mp = (ModusPonens) derived.get(0).getReason();
+        assertEquals("ax2", mp.getReference1());
+        assertEquals("ax1", mp.getReference2());
+        assertEquals(c, derived.get(1).getFormula().getElement());
+        final SubstPred subst = (SubstPred) derived.get(1).getReason();
+        assertEquals(derived.get(0).getLabel(), subst.getReference());
+        assertEquals(b, subst.getPredicateVariable());
+        assertEquals(c, subst.getSubstituteFormula());
+    }
+
+    /**
+     * Test dropping old lines.
+     *
+     * @throws Exception
+     */
+    public void testMaximum() throws Exception {
+        final LemmaPool pool = new LemmaPool(3);
+        pool.addProof(proof);
+        assertEquals(3, pool.size());
+        // the premise "A" was dropped, so we can't use any derived line
+        assertEquals(0, pool.getDerivedLines().size());
+        final LemmaPool empty = new LemmaPool(0);
+        empty.addProof(proof);
+        assertEquals(0, empty.size());
+    }
+
+    /**
+     * Lines with unknown references are ignored.
+     *
+     * @throws Exception
+     */
+    public void testUnknownReference() throws Exception {
+        final FormalProofLineListVo wrong = new FormalProofLineListVo();
+        wrong.add(new FormalProofLineVo("1", new FormulaVo(b), new ModusPonensVo("2", "1")));
+        final LemmaPool pool = new LemmaPool(100);
+        pool.addProof(wrong);
+        assertEquals(0, pool.size());
+    }
+
+}
@@ -0,0 +1,91 @@
+/* This file is part of the project "Hilbert II" - http://www.qedeq.org
+ *
+ * Copyright 2000-2014,  Michael Meyling <mime@qedeq.org>.
+ *
+ * "Hilbert II" is free software; you can redistribute
+ * it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ */
+
+package org.qedeq.kernel.bo.logic.proof.finder;
+
+import org.qedeq.base.test.QedeqTestCase;
+import org.qedeq.kernel.bo.logic.common.FormulaUtility;
+import org.qedeq.kernel.bo.logic.common.Operators;
+import org.qedeq.kernel.se.base.list.Element;
+import org.qedeq.kernel.se.dto.list.DefaultElementList;
+import org.qedeq.kernel.se.dto.list.ElementSet;
+import org.qedeq.kernel.se.dto.module.AddVo;
+
+/**
+ * Test {@link LinePriorityQueue}.
+ *
+ * @author Michael Meyling
+ */
+public class LinePriorityQueueTest extends QedeqTestCase {
+
+    private Element a;
+
+    private Element b;
+
+    private Element ab;
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        a = FormulaUtility.createPredicateVariable("A");
+        b = FormulaUtility.createPredicateVariable("B");
+        ab = new DefaultElementList(Operators.IMPLICATION_OPERATOR, new Element[] {a, b});
+    }
+
+    /**
+     * Test ordering by derivation depth.
+     *
+     * @throws Exception
+     */
+    public void testDepth() throws Exception {
+        final LinePriorityQueue queue = new LinePriorityQueue(new ElementSet(), 0, 0, 1);
+        assertTrue(queue.isEmpty());
+        queue.add(0, a, new AddVo("1"));
+        queue.add(1, ab, new AddVo("2"));
+        queue.add(2, b, new ModusPonensBo(1, 0));
+        queue.add(3, a, new SubstPredBo(2, b, a));
+        queue.add(4, b, new AddVo("3"));
+        assertEquals(0, queue.getDepth(1));
+        assertEquals(1, queue.getDepth(2));
+        assertEquals(2, queue.getDepth(3));
+        assertEquals(0, queue.removeFirst());
+        assertEquals(1, queue.removeFirst());
+        assertEquals(4, queue.removeFirst());
+        assertEquals(2, queue.removeFirst());
+        assertEquals(3, queue.removeFirst());
+        assertTrue(queue.isEmpty());
+    }
+
+    /**
+     * Test ordering by formula size and goal similarity.
+     *
+     * @throws Exception
+     */
+    public void testSizeAndGoal() throws Exception {
+        final LinePriorityQueue bySize = new LinePriorityQueue(new ElementSet(), 1, 0, 0);
+        bySize.add(0, ab, new AddVo("1"));
+        bySize.add(1, a, new AddVo("2"));
+        assertEquals(1, bySize.removeFirst());
+        assertEquals(0, bySize.removeFirst());
+        final LinePriorityQueue byGoal = new LinePriorityQueue(
+            FormulaUtility.getPartFormulas(ab), 0, 1, 0);
+        byGoal.add(0, FormulaUtility.createPredicateVariable("C"), new AddVo("1"));
+        byGoal.add(1, a, new AddVo("2"));
+        byGoal.add(2, ab, new AddVo("3"));
+        assertEquals(2, byGoal.removeFirst());
+        assertEquals(1, byGoal.removeFirst());
+        assertEquals(0, byGoal.removeFirst());
+    }
+
+}
@@ -0,0 +1,174 @@
+/* This file is part of the project "Hilbert II" - http://www.qedeq.org
+ *
+ * Copyright 2000-2014,  Michael Meyling <mime@qedeq.org>.
+ *
+ * "Hilbert II" is free software; you can redistribute
+ * it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ */
+
+package org.qedeq.kernel.bo.logic.proof.finder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.qedeq.base.io.Parameters;
+import org.qedeq.kernel.bo.KernelContext;
+import org.qedeq.kernel.bo.log.ModuleLogListenerImpl;
+import org.qedeq.kernel.bo.logic.proof.common.ProofFinder;
+import org.qedeq.kernel.bo.logic.proof.common.ProofFoundException;
+import org.qedeq.kernel.bo.logic.proof.common.ProofNotFoundException;
+import org.qedeq.kernel.bo.module.KernelNodeBo;
+import org.qedeq.kernel.bo.module.KernelQedeqBo;
+import org.qedeq.kernel.bo.test.QedeqBoTestCase;
+import org.qedeq.kernel.se.base.module.FormalProofLineList;
+import org.qedeq.kernel.se.base.module.Proposition;
+import org.qedeq.kernel.se.common.DefaultModuleAddress;
+import org.qedeq.kernel.se.common.ModuleAddress;
+import org.qedeq.kernel.se.dto.module.FormalProofLineListVo;
+
+/**
+ * For testing of finding formal proofs with several threads.
+ *
+ * @author Michael Meyling
+ */
+public class ParallelProofFinderImplTest extends QedeqBoTestCase {
+
+    /**
+     * Find a proof.
+     *
+     * @throws Exception
+     */
+    public void testFind() throws Exception {
+        final FormalProofLineList first = find("proposition:one", 4, "100000", "4");
+        assertNotNull(first);
+        // the result must not depend on thread scheduling
+        final FormalProofLineList second = find("proposition:one", 4, "100000", "4");
+        assertEquals(first.size(), second.size());
+        for (int i = 0; i < first.size(); i++) {
+            assertEquals(first.get(i).getFormula(), second.get(i).getFormula());
+        }
+    }
+
+    /**
+     * Find a proof.
+     *
+     * @throws Exception
+     */
+    public void testFind2() throws Exception {
+        assertNotNull(find("proposition:two", 3, "100000", "0"));
+    }
+
+    /**
+     * Don't find a proof because we have not enough proof lines.
+     *
+     * @throws Exception
+     */
+    public void testFind3() throws Exception {
+        try {
+            find("proposition:one", 4, "10", "2");
+            fail("should not find a proof");
+        } catch (ProofNotFoundException e) {
+            // expected
+        }
+    }
+
+    /**
+     * Find a proof with best-first search.
+     *
+     * @throws Exception
+     */
+    public void testFindBestFirst() throws Exception {
+        final FormalProofLineList first = find("proposition:one", 4, "100000", "4", "bestFirst");
+        assertNotNull(first);
+        // the result must not depend on thread scheduling
+        final FormalProofLineList second = find("proposition:one", 4, "100000", "4",
+            "bestFirst");
+        assertEquals(first.size(), second.size());
+        for (int i = 0; i < first.size(); i++) {
+            assertEquals(first.get(i).getFormula(), second.get(i).getFormula());
+        }
+    }
+
+    /**
+     * Search a proof for a proposition of qedeq_sample3.xml.
+     *
+     * @param   label   Proposition label.
+     * @param   lines   Use this number of the original proof lines.
+     * @param   maximum Maximum number of proof lines.
+     * @param   threads Number of threads.
+     * @return  Found proof. <code>null</code> if no proof was found.
+     * @throws  Exception   Something went wrong.
+     */
+    private FormalProofLineList find(final String label, final int lines, final String maximum,
+            final String threads) throws Exception {
+        return find(label, lines, maximum, threads, null);
+    }
+
+    /**
+     * Search a proof for a proposition of qedeq_sample3.xml.
+     *
+     * @param   label   Proposition label.
+     * @param   lines   Use this number of the original proof lines.
+     * @param   maximum Maximum number of proof lines.
+     * @param   threads Number of threads.
+     * @param   strategy    Search strategy. <code>null</code> for the default.
+     * @return  Found proof. <code>null</code> if no proof was found.
+     * @throws  Exception   Something went wrong.
+     */
+    private FormalProofLineList find(final String label, final int lines, final String maximum,
+            final String threads, final String strategy) throws Exception {
+        final ModuleAddress address = new DefaultModuleAddress(new File(getDocDir(),
+            "sample/qedeq_sample3.xml"));
+        KernelContext.getInstance().checkWellFormedness(address);
+        final KernelQedeqBo bo = (KernelQedeqBo) KernelContext.getInstance().getQedeqBo(address);
+        assertTrue(bo.isWellFormed());
+        final KernelNodeBo node = bo.getLabels().getNode(label);
+        final Proposition prop = node.getNodeVo().getNodeType().getProposition();
+        final ProofFinder finder = new ParallelProofFinderImpl();
+        final FormalProofLineList original = prop.getFormalProofList().get(0)
+            .getFormalProofLineList();
+        final FormalProofLineListVo list = new FormalProofLineListVo();
+        for (int i = 0; i < lines; i++) {
+            list.add(original.get(i));
+        }
+        final Map parameters = new HashMap();
+        parameters.put("extraVars", "0");
+        parameters.put("maximumProofLines", maximum);
+        parameters.put("propositionVariableOrder", "2");
+        parameters.put("propositionVariableWeight", "3");
+        parameters.put("partFormulaWeight", "0");
+        parameters.put("disjunctionOrder", "1");
+        parameters.put("disjunctionWeight", "3");
+        parameters.put("implicationWeight", "0");
+        parameters.put("negationWeight", "0");
+        parameters.put("conjunctionWeight", "0");
+        parameters.put("equivalenceWeight", "0");
+        parameters.put("threads", threads);
+        if (strategy != null) {
+            parameters.put("searchStrategy", strategy);
+        }
+        try {
+            finder.findProof(prop.getFormula().getElement(), list,
+                DefaultModuleAddress.MEMORY.createModuleContext(), new Parameters(parameters),
+                new ModuleLogListenerImpl("memory", new PrintStream(new OutputStream() {
+                    public void write(int b) throws IOException {
+                    }})), bo.getElement2Utf8());
+            fail("no proof found");
+        } catch (ProofFoundException e) {
+            return e.getProofLines();
+        }
+        return null;
+    }
+
+}
@@ -24,17 +24,22 @@ import java.util.Map;
 import org.qedeq.base.io.Parameters;
 import org.qedeq.kernel.bo.KernelContext;
 import org.qedeq.kernel.bo.log.ModuleLogListenerImpl;
+import org.qedeq.kernel.bo.logic.common.FormulaUtility;
 import org.qedeq.kernel.bo.logic.proof.common.ProofFinder;
 import org.qedeq.kernel.bo.logic.proof.common.ProofFoundException;
 import org.qedeq.kernel.bo.logic.proof.common.ProofNotFoundException;
 import org.qedeq.kernel.bo.module.KernelNodeBo;
 import org.qedeq.kernel.bo.module.KernelQedeqBo;
 import org.qedeq.kernel.bo.test.QedeqBoTestCase;
+import org.qedeq.kernel.se.base.list.Element;
+import org.qedeq.kernel.se.base.module.Add;
 import org.qedeq.kernel.se.base.module.FormalProofLineList;
 import org.qedeq.kernel.se.base.module.Proposition;
 import org.qedeq.kernel.se.common.DefaultModuleAddress;
 import org.qedeq.kernel.se.common.ModuleAddress;
 import org.qedeq.kernel.se.dto.module.FormalProofLineListVo;
+import org.qedeq.kernel.se.dto.module.FormalProofLineVo;
+import org.qedeq.kernel.xml.parser.BasicParser;
 
 /**
  * For testing of finding formal proofs.
@@ -186,4 +191,284 @@ public class ProofFinderImplTest extends QedeqBoTestCase {
         }
     }
 
+    /**
+     * Find a proof with best-first search.
+     *
+     * @throws Exception
+     */
+    public void testFind4() throws Exception {
+        final ModuleAddress address = new DefaultModuleAddress(new File(getDocDir(),
+            "sample/qedeq_sample3.xml"));
+        KernelContext.getInstance().checkWellFormedness(address);
+        final KernelQedeqBo bo = (KernelQedeqBo) KernelContext.getInstance().getQedeqBo(address);
+        assertTrue(bo.isWellFormed());
+        final KernelNodeBo node = bo.getLabels().getNode("proposition:two");
+        final Proposition prop = node.getNodeVo().getNodeType().getProposition();
+        final ProofFinder finder = new ProofFinderImpl();
+        final FormalProofLineList original = prop.getFormalProofList().get(0)
+            .getFormalProofLineList();
+        final FormalProofLineListVo list = new FormalProofLineListVo();
+        for (int i = 0; i < 3; i++) {
+            list.add(original.get(i));
+        }
+        final Map parameters = new HashMap();
+        parameters.put("extraVars", "0");
+        parameters.put("maximumProofLines", "100000");
+        parameters.put("propositionVariableOrder", "2");
+        parameters.put("propositionVariableWeight", "3");
+        parameters.put("partFormulaWeight", "0");
+        parameters.put("disjunctionOrder", "1");
+        parameters.put("disjunctionWeight", "3");
+        parameters.put("implicationWeight", "0");
+        parameters.put("negationWeight", "0");
+        parameters.put("conjunctionWeight", "0");
+        parameters.put("equivalenceWeight", "0");
+        parameters.put("searchStrategy", "bestFirst");
+        try {
+            finder.findProof(prop.getFormula().getElement(), list,
+                DefaultModuleAddress.MEMORY.createModuleContext(), new Parameters(parameters),
+                new ModuleLogListenerImpl("memory", new PrintStream(new OutputStream() {
+                    public void write(int b) throws IOException {
+                    }})), bo.getElement2Utf8());
+            fail("no proof found");
+        } catch (ProofFoundException e) {
+            assertNotNull(e.getProofLines());
+        }
+    }
+
+    /**
+     * Don't search for a goal that is no tautology.
+     *
+     * @throws Exception
+     */
+    public void testFind5() throws Exception {
+        final ModuleAddress address = new DefaultModuleAddress(new File(getDocDir(),
+            "sample/qedeq_sample3.xml"));
+        KernelContext.getInstance().checkWellFormedness(address);
+        final KernelQedeqBo bo = (KernelQedeqBo) KernelContext.getInstance().getQedeqBo(address);
+        assertTrue(bo.isWellFormed());
+        final KernelNodeBo node = bo.getLabels().getNode("proposition:one");
+        final Proposition prop = node.getNodeVo().getNodeType().getProposition();
+        final ProofFinder finder = new ProofFinderImpl();
+        final FormalProofLineList original = prop.getFormalProofList().get(0)
+            .getFormalProofLineList();
+        final FormalProofLineListVo list = new FormalProofLineListVo();
+        for (int i = 0; i < 4; i++) {
+            list.add(original.get(i));
+        }
+        final Element goal = BasicParser.createElement(
+            "<IMPL>" +
+              "<PREDVAR id=\"A\" />" +
+              "<PREDVAR id=\"B\" />" +
+            "</IMPL>");
+        final Map parameters = new HashMap();
+        parameters.put("extraVars", "0");
+        parameters.put("maximumProofLines", "" + Integer.MAX_VALUE);
+        parameters.put("propositionVariableOrder", "2");
+        parameters.put("propositionVariableWeight", "3");
+        parameters.put("partFormulaWeight", "0");
+        parameters.put("disjunctionOrder", "1");
+        parameters.put("disjunctionWeight", "3");
+        parameters.put("implicationWeight", "0");
+        parameters.put("negationWeight", "0");
+        parameters.put("conjunctionWeight", "0");
+        parameters.put("equivalenceWeight", "0");
+        try {
+            finder.findProof(goal, list,
+                DefaultModuleAddress.MEMORY.createModuleContext(), new Parameters(parameters),
+                new ModuleLogListenerImpl("memory", new PrintStream(new OutputStream() {
+                    public void write(int b) throws IOException {
+                    }})), bo.getElement2Utf8());
+            fail("no proof found");
+        } catch (ProofFoundException e) {
+            fail("should not find a proof");
+        } catch (ProofNotFoundException e) {
+            assertEquals(FinderErrors.GOAL_NOT_DERIVABLE_CODE, e.getErrorCode());
+        }
+    }
+
+    /**
+     * Use derived lines of a previous search.
+     *
+     * @throws Exception
+     */
+    public void testFind6() throws Exception {
+        final ModuleAddress address = new DefaultModuleAddress(new File(getDocDir(),
+            "sample/qedeq_sample3.xml"));
+        KernelContext.getInstance().checkWellFormedness(address);
+        final KernelQedeqBo bo = (KernelQedeqBo) KernelContext.getInstance().getQedeqBo(address);
+        assertTrue(bo.isWellFormed());
+        final KernelNodeBo node = bo.getLabels().getNode("proposition:one");
+        final Proposition prop = node.getNodeVo().getNodeType().getProposition();
+        final FormalProofLineList original = prop.getFormalProofList().get(0)
+            .getFormalProofLineList();
+        final FormalProofLineListVo list = new FormalProofLineListVo();
+        for (int i = 0; i < 4; i++) {
+            if (original.get(i).getReason() instanceof Add) {
+                // label lines with their reference, so they match the lemma pool lines
+                list.add(new FormalProofLineVo(((Add) original.get(i).getReason()).getReference(),
+                    original.get(i).getFormula(), original.get(i).getReason()));
+            }
+        }
+        final Map parameters = new HashMap();
+        parameters.put("extraVars", "0");
+        parameters.put("maximumProofLines", "100000");
+        parameters.put("propositionVariableOrder", "2");
+        parameters.put("propositionVariableWeight", "3");
+        parameters.put("partFormulaWeight", "0");
+        parameters.put("disjunctionOrder", "1");
+        parameters.put("disjunctionWeight", "3");
+        parameters.put("implicationWeight", "0");
+        parameters.put("negationWeight", "0");
+        parameters.put("conjunctionWeight", "0");
+        parameters.put("equivalenceWeight", "0");
+        final LemmaPool pool = new LemmaPool(1000);
+        FormalProofLineList first = null;
+        try {
+            new ProofFinderImpl().findProof(prop.getFormula().getElement(), list,
+                DefaultModuleAddress.MEMORY.createModuleContext(), new Parameters(parameters),
+                new ModuleLogListenerImpl("memory", new PrintStream(new OutputStream() {
+                    public void write(int b) throws IOException {
+                    }})), bo.getElement2Utf8());
+            fail("no proof found");
+        } catch (ProofFoundException e) {
+            first = e.getProofLines();
+        }
+        pool.addProof(first);
+        final FormalProofLineList derived = pool.getDerivedLines();
+        assertTrue(derived.size() > 0);
+        for (int i = 0; i < derived.size(); i++) {
+            list.add(derived.get(i));
+        }
+        // now the goal is among the initial lines
+        parameters.put("maximumProofLines", "" + list.size());
+        try {
+            new ProofFinderImpl().findProof(prop.getFormula().getElement(), list,
+                DefaultModuleAddress.MEMORY.createModuleContext(), new Parameters(parameters),
+                new ModuleLogListenerImpl("memory", new PrintStream(new OutputStream() {
+                    public void write(int b) throws IOException {
+                    }})), bo.getElement2Utf8());
+            fail("no proof found");
+        } catch (ProofFoundException e) {
+            assertEquals(first.size(), e.getProofLines().size());
+        }
+    }
+
+    /**
+     * Find a goal that differs from an initial proof line only in proposition variable names.
+     *
+     * @throws Exception
+     */
+    public void testFindRenamed() throws Exception {
+        final ModuleAddress address = new DefaultModuleAddress(new File(getDocDir(),
+            "sample/qedeq_sample3.xml"));
+        KernelContext.getInstance().checkWellFormedness(address);
+        final KernelQedeqBo bo = (KernelQedeqBo) KernelContext.getInstance().getQedeqBo(address);
+        assertTrue(bo.isWellFormed());
+        final KernelNodeBo node = bo.getLabels().getNode("proposition:one");
+        final Proposition prop = node.getNodeVo().getNodeType().getProposition();
+        final FormalProofLineList original = prop.getFormalProofList().get(0)
+            .getFormalProofLineList();
+        final FormalProofLineListVo list = new FormalProofLineListVo();
+        for (int i = 0; i < 4; i++) {
+            list.add(original.get(i));
+        }
+        // (A v A) -> A becomes (B v B) -> B
+        final Element goal = FormulaUtility.replaceOperatorVariable(
+            original.get(0).getFormula().getElement(),
+            FormulaUtility.createPredicateVariable("A"),
+            FormulaUtility.createPredicateVariable("B"));
+        final Map parameters = new HashMap();
+        parameters.put("extraVars", "0");
+        parameters.put("maximumProofLines", "20000");
+        parameters.put("propositionVariableOrder", "2");
+        parameters.put("propositionVariableWeight", "3");
+        parameters.put("partFormulaWeight", "0");
+        parameters.put("disjunctionOrder", "1");
+        parameters.put("disjunctionWeight", "3");
+        parameters.put("implicationWeight", "0");
+        parameters.put("negationWeight", "0");
+        parameters.put("conjunctionWeight", "0");
+        parameters.put("equivalenceWeight", "0");
+        try {
+            new ProofFinderImpl().findProof(goal, list,
+                DefaultModuleAddress.MEMORY.createModuleContext(), new Parameters(parameters),
+                new ModuleLogListenerImpl("memory", new PrintStream(new OutputStream() {
+                    public void write(int b) throws IOException {
+                    }})), bo.getElement2Utf8());
+            fail("no proof found");
+        } catch (ProofFoundException e) {
+            assertEquals(2, e.getProofLines().size());
+            assertEquals(goal, e.getProofLines().get(1).getFormula().getElement());
+        }
+    }
+
+    /**
+     * Stop search after time budget is exceeded.
+     *
+     * @throws Exception
+     */
+    public void testFind7() throws Exception {
+        assertEquals(FinderErrors.TIME_BUDGET_EXCEEDED_CODE, findWithBudget("maxMillis"));
+    }
+
+    /**
+     * Stop search after memory budget is exceeded.
+     *
+     * @throws Exception
+     */
+    public void testFind8() throws Exception {
+        assertEquals(FinderErrors.MEMORY_BUDGET_EXCEEDED_CODE, findWithBudget("maxHeapBytes"));
+    }
+
+    /**
+     * Search for proof of "proposition:two" with a budget of 1.
+     *
+     * @param   budget  Name of budget parameter.
+     * @return  Error code of {@link ProofNotFoundException}.
+     * @throws  Exception   Something went wrong.
+     */
+    private int findWithBudget(final String budget) throws Exception {
+        final ModuleAddress address = new DefaultModuleAddress(new File(getDocDir(),
+            "sample/qedeq_sample3.xml"));
+        KernelContext.getInstance().checkWellFormedness(address);
+        final KernelQedeqBo bo = (KernelQedeqBo) KernelContext.getInstance().getQedeqBo(address);
+        assertTrue(bo.isWellFormed());
+        final KernelNodeBo node = bo.getLabels().getNode("proposition:two");
+        final Proposition prop = node.getNodeVo().getNodeType().getProposition();
+        final ProofFinder finder = new ProofFinderImpl();
+        final FormalProofLineList original = prop.getFormalProofList().get(0)
+            .getFormalProofLineList();
+        final FormalProofLineListVo list = new FormalProofLineListVo();
+        for (int i = 0; i < 3; i++) {
+            list.add(original.get(i));
+        }
+        final Map parameters = new HashMap();
+        parameters.put("extraVars", "0");
+        parameters.put("maximumProofLines", "" + Integer.MAX_VALUE);
+        parameters.put("propositionVariableOrder", "2");
+        parameters.put("propositionVariableWeight", "3");
+        parameters.put("partFormulaWeight", "0");
+        parameters.put("disjunctionOrder", "1");
+        parameters.put("disjunctionWeight", "3");
+        parameters.put("implicationWeight", "0");
+        parameters.put("negationWeight", "0");
+        parameters.put("conjunctionWeight", "0");
+        parameters.put("equivalenceWeight", "0");
+        parameters.put(budget, "1");
+        try {
+            finder.findProof(prop.getFormula().getElement(), list,
+                DefaultModuleAddress.MEMORY.createModuleContext(), new Parameters(parameters),
+                new ModuleLogListenerImpl("memory", new PrintStream(new OutputStream() {
+                    public void write(int b) throws IOException {
+                    }})), bo.getElement2Utf8());
+            fail("no proof found");
+        } catch (ProofFoundException e) {
+            fail("should not find a proof");
+        } catch (ProofNotFoundException e) {
+            return e.getErrorCode();
+        }
+        return 0;
+    }
+
 }
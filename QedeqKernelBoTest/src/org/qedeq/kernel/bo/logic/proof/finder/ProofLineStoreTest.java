@@ -0,0 +1,68 @@
+/* This file is part of the project "Hilbert II" - http://www.qedeq.org
+ *
+ * Copyright 2000-2014,  Michael Meyling <mime@qedeq.org>.
+ *
+ * "Hilbert II" is free software; you can redistribute
+ * it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ */
+
+package org.qedeq.kernel.bo.logic.proof.finder;
+
+import org.qedeq.base.test.QedeqTestCase;
+import org.qedeq.kernel.bo.logic.common.FormulaUtility;
+import org.qedeq.kernel.bo.logic.common.Operators;
+import org.qedeq.kernel.se.base.list.Element;
+import org.qedeq.kernel.se.dto.list.DefaultElementList;
+import org.qedeq.kernel.se.dto.module.AddVo;
+
+/**
+ * Test {@link ProofLineStore}.
+ *
+ * @author Michael Meyling
+ */
+public class ProofLineStoreTest extends QedeqTestCase {
+
+    /**
+     * Test adding and finding proof lines.
+     *
+     * @throws Exception
+     */
+    public void testAdd() throws Exception {
+        final ProofLineStore store = new ProofLineStore();
+        final Element a = FormulaUtility.createPredicateVariable("A");
+        final Element b = FormulaUtility.createPredicateVariable("B");
+        final Element ab = new DefaultElementList(Operators.IMPLICATION_OPERATOR,
+            new Element[] {a, b});
+        assertEquals(0, store.size());
+        assertEquals(-1, store.indexOf(a));
+        assertEquals(0, store.add(a, new AddVo("1")));
+        assertEquals(1, store.add(ab, new AddVo("2")));
+        final ModusPonensBo mp = new ModusPonensBo(1, 0);
+        assertEquals(2, store.add(b, mp));
+        assertEquals(-1, store.add(FormulaUtility.createPredicateVariable("B"), new AddVo("3")));
+        assertEquals(-1, store.add(ab.copy(), new AddVo("4")));
+        assertEquals(3, store.size());
+        assertEquals(1, store.indexOf(ab.copy()));
+        assertTrue(store.contains(b));
+        assertFalse(store.contains(FormulaUtility.createPredicateVariable("C")));
+        assertEquals(ab, store.getFormula(1));
+        assertSame(mp, store.getReason(2));
+        assertEquals(3, store.getFormulas().size());
+        assertEquals(b, store.getFormulas().get(2));
+        assertEquals(3, store.getReasons().size());
+        try {
+            store.getFormulas().clear();
+            fail("UnsupportedOperationException expected");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+    }
+
+}
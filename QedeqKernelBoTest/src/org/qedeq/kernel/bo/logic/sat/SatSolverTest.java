@@ -0,0 +1,185 @@
+/* This file is part of the project "Hilbert II" - http://www.qedeq.org
+ *
+ * Copyright 2000-2014,  Michael Meyling <mime@qedeq.org>.
+ *
+ * "Hilbert II" is free software; you can redistribute
+ * it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ */
+
+package org.qedeq.kernel.bo.logic.sat;
+
+import java.util.Random;
+
+import org.qedeq.kernel.bo.test.QedeqBoTestCase;
+
+/**
+ * For testing the {@link org.qedeq.kernel.bo.logic.sat.SatSolver}.
+ *
+ * @author  Michael Meyling
+ */
+public class SatSolverTest extends QedeqBoTestCase {
+
+    /**
+     * Simple satisfiable and unsatisfiable clause sets.
+     *
+     * @throws  Exception   Test failed.
+     */
+    public void testSmall() throws Exception {
+        SatSolver solver = new SatSolver();
+        int a = solver.newVariable();
+        int b = solver.newVariable();
+        solver.addClause(new int[] {a, b});
+        solver.addClause(new int[] {-a});
+        assertEquals(SatSolver.SATISFIABLE, solver.solve(0));
+        assertFalse(solver.getValue(a));
+        assertTrue(solver.getValue(b));
+
+        solver = new SatSolver();
+        a = solver.newVariable();
+        b = solver.newVariable();
+        solver.addClause(new int[] {a, b});
+        solver.addClause(new int[] {a, -b});
+        solver.addClause(new int[] {-a, b});
+        solver.addClause(new int[] {-a, -b});
+        assertEquals(SatSolver.UNSATISFIABLE, solver.solve(0));
+        try {
+            solver.getValue(a);
+            fail("IllegalStateException expected");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+
+        solver = new SatSolver();
+        a = solver.newVariable();
+        solver.addClause(new int[] {a, -a});
+        solver.addClause(new int[0]);
+        assertEquals(SatSolver.UNSATISFIABLE, solver.solve(0));
+        try {
+            solver.addClause(new int[] {2});
+            fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    /**
+     * Pigeonhole formula: 6 pigeons don't fit into 5 holes. This needs many conflicts.
+     *
+     * @throws  Exception   Test failed.
+     */
+    public void testPigeonhole() throws Exception {
+        final int holes = 5;
+        SatSolver solver = createPigeonhole(holes + 1, holes);
+        assertEquals(SatSolver.UNSATISFIABLE, solver.solve(0));
+        assertTrue(solver.getConflicts() > 10);
+        solver = createPigeonhole(holes + 1, holes);
+        assertEquals(SatSolver.UNKNOWN, solver.solve(10));
+        assertEquals(10, solver.getConflicts());
+        solver = createPigeonhole(holes, holes);
+        assertEquals(SatSolver.SATISFIABLE, solver.solve(0));
+    }
+
+    /**
+     * Random clause sets are compared with an evaluation of all assignments.
+     *
+     * @throws  Exception   Test failed.
+     */
+    public void testRandom() throws Exception {
+        final Random random = new Random(1007);
+        for (int n = 0; n < 300; n++) {
+            final int variables = 3 + random.nextInt(10);
+            final int[][] clauses = new int[2 + random.nextInt(5 * variables)][];
+            final SatSolver solver = new SatSolver();
+            for (int i = 0; i < variables; i++) {
+                solver.newVariable();
+            }
+            for (int i = 0; i < clauses.length; i++) {
+                clauses[i] = new int[1 + random.nextInt(4)];
+                for (int j = 0; j < clauses[i].length; j++) {
+                    clauses[i][j] = (1 + random.nextInt(variables)) * (random.nextBoolean() ? 1 : -1);
+                }
+                solver.addClause(clauses[i]);
+            }
+            boolean satisfiable = false;
+            for (int assignment = 0; assignment < (1 << variables) && !satisfiable; assignment++) {
+                satisfiable = isTrue(clauses, assignment);
+            }
+            final int result = solver.solve(0);
+            assertEquals(satisfiable ? SatSolver.SATISFIABLE : SatSolver.UNSATISFIABLE, result);
+            if (satisfiable) {
+                int assignment = 0;
+                for (int i = 0; i < variables; i++) {
+                    if (solver.getValue(i + 1)) {
+                        assignment |= 1 << i;
+                    }
+                }
+                assertTrue(isTrue(clauses, assignment));
+            }
+        }
+    }
+
+    /**
+     * Luby sequence.
+     */
+    public void testLuby() {
+        final int[] expected = {1, 1, 2, 1, 1, 2, 4, 1, 1, 2, 1, 1, 2, 4, 8, 1};
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], SatSolver.luby(i));
+        }
+    }
+
+    /**
+     * Are all clauses true for this assignment?
+     *
+     * @param   clauses     Check these clauses.
+     * @param   assignment  Bit <code>i</code> is the value of variable <code>i + 1</code>.
+     * @return  Are all clauses true?
+     */
+    private boolean isTrue(final int[][] clauses, final int assignment) {
+        for (int i = 0; i < clauses.length; i++) {
+            boolean value = false;
+            for (int j = 0; j < clauses[i].length && !value; j++) {
+                final int lit = clauses[i][j];
+                value = (((assignment >> (Math.abs(lit) - 1)) & 1) != 0) == (lit > 0);
+            }
+            if (!value) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Create clauses that say that each pigeon sits in a hole and no hole has two pigeons.
+     *
+     * @param   pigeons Number of pigeons.
+     * @param   holes   Number of holes.
+     * @return  Solver with these clauses.
+     */
+    private SatSolver createPigeonhole(final int pigeons, final int holes) {
+        final SatSolver solver = new SatSolver();
+        final int[][] p = new int[pigeons][holes];
+        for (int i = 0; i < pigeons; i++) {
+            for (int j = 0; j < holes; j++) {
+                p[i][j] = solver.newVariable();
+            }
+            solver.addClause(p[i]);
+        }
+        for (int j = 0; j < holes; j++) {
+            for (int i = 0; i < pigeons; i++) {
+                for (int k = i + 1; k < pigeons; k++) {
+                    solver.addClause(new int[] {-p[i][j], -p[k][j]});
+                }
+            }
+        }
+        return solver;
+    }
+
+}
@@ -0,0 +1,184 @@
+/* This file is part of the project "Hilbert II" - http://www.qedeq.org
+ *
+ * Copyright 2000-2014,  Michael Meyling <mime@qedeq.org>.
+ *
+ * "Hilbert II" is free software; you can redistribute
+ * it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ */
+
+package org.qedeq.kernel.bo.logic.sat;
+
+import java.util.Random;
+
+import org.qedeq.kernel.bo.logic.common.FormulaUtility;
+import org.qedeq.kernel.bo.logic.common.Operators;
+import org.qedeq.kernel.bo.logic.common.TruthTableEvaluator;
+import org.qedeq.kernel.bo.test.QedeqBoTestCase;
+import org.qedeq.kernel.se.base.list.Element;
+import org.qedeq.kernel.se.dto.list.DefaultElementList;
+import org.qedeq.kernel.xml.parser.BasicParser;
+
+/**
+ * For testing the {@link org.qedeq.kernel.bo.logic.sat.TseitinEncoder}.
+ *
+ * @author  Michael Meyling
+ */
+public class TseitinEncoderTest extends QedeqBoTestCase {
+
+    /** Propositional operators. */
+    private static final String[] OPERATORS = {Operators.CONJUNCTION_OPERATOR,
+        Operators.DISJUNCTION_OPERATOR, Operators.EQUIVALENCE_OPERATOR,
+        Operators.IMPLICATION_OPERATOR, Operators.NEGATION_OPERATOR};
+
+    /**
+     * Tautologies and non tautologies with few atoms.
+     *
+     * @throws  Exception   Test failed.
+     */
+    public void testSmall() throws Exception {
+        assertTrue(isTautology(BasicParser.createElement(
+            "<IMPL>" +
+              "<PREDVAR id=\"A\" />" +
+              "<IMPL>" +
+                "<PREDVAR id=\"B\" />" +
+                "<PREDVAR id=\"A\" />" +
+              "</IMPL>" +
+            "</IMPL>")));
+        assertFalse(isTautology(BasicParser.createElement(
+            "<EQUI>" +
+              "<PREDVAR id=\"A\" />" +
+              "<PREDVAR id=\"B\" />" +
+              "<PREDVAR id=\"C\" />" +
+            "</EQUI>")));
+        // empty operator lists
+        assertTrue(isTautology(BasicParser.createElement("<AND />")));
+        assertFalse(isTautology(BasicParser.createElement("<OR />")));
+        assertFalse(isTautology(BasicParser.createElement("<IMPL />")));
+        assertTrue(isTautology(BasicParser.createElement("<EQUI />")));
+        assertTrue(isTautology(BasicParser.createElement("<NOT />")));
+    }
+
+    /**
+     * Non propositional part formulas are atoms.
+     *
+     * @throws  Exception   Test failed.
+     */
+    public void testAtoms() throws Exception {
+        final Element formula = BasicParser.createElement(
+            "<IMPL>" +
+              "<FORALL>" +
+                "<VAR id=\"x\" />" +
+                "<PREDVAR id=\"\\phi\">" +
+                  "<VAR id=\"x\" />" +
+                "</PREDVAR>" +
+              "</FORALL>" +
+              "<OR>" +
+                "<PREDVAR id=\"A\" />" +
+                "<FORALL>" +
+                  "<VAR id=\"x\" />" +
+                  "<PREDVAR id=\"\\phi\">" +
+                    "<VAR id=\"x\" />" +
+                  "</PREDVAR>" +
+                "</FORALL>" +
+              "</OR>" +
+            "</IMPL>");
+        final SatSolver solver = new SatSolver();
+        final TseitinEncoder encoder = new TseitinEncoder(solver);
+        solver.addClause(new int[] {-encoder.encode(formula)});
+        assertEquals(2, encoder.getAtoms().size());
+        assertEquals(formula.getList().getElement(0), encoder.getAtoms().get(0));
+        assertTrue(encoder.getVariable((Element) encoder.getAtoms().get(1)) > 0);
+        assertEquals(0, encoder.getVariable(formula));
+        assertEquals(SatSolver.UNSATISFIABLE, solver.solve(0));
+    }
+
+    /**
+     * Random formulas are compared with their truth tables.
+     *
+     * @throws  Exception   Test failed.
+     */
+    public void testRandom() throws Exception {
+        final Random random = new Random(1017);
+        for (int n = 0; n < 500; n++) {
+            final Element formula = createFormula(random, 2 + random.nextInt(4), 4);
+            assertEquals(formula.toString(), new TruthTableEvaluator(formula).isTautology(),
+                isTautology(formula));
+        }
+    }
+
+    /**
+     * Tautologies with many atoms that are out of reach for truth tables.
+     *
+     * @throws  Exception   Test failed.
+     */
+    public void testMany() throws Exception {
+        final int n = 200;
+        final DefaultElementList or = new DefaultElementList(Operators.DISJUNCTION_OPERATOR);
+        final DefaultElementList and = new DefaultElementList(Operators.CONJUNCTION_OPERATOR);
+        for (int i = 0; i < n; i++) {
+            final Element var = FormulaUtility.createPredicateVariable("A" + i);
+            or.add(var);
+            and.add(var);
+        }
+        assertFalse(isTautology(or));
+        // (A0 & ... & A199) -> (A0 v ... v A199)
+        assertTrue(isTautology(new DefaultElementList(Operators.IMPLICATION_OPERATOR,
+            new Element[] {and, or})));
+        // (A0 v ... v A199) -> A199
+        assertFalse(isTautology(new DefaultElementList(Operators.IMPLICATION_OPERATOR,
+            new Element[] {or, FormulaUtility.createPredicateVariable("A199")})));
+        // (A0 -> A1) & (A1 -> A2) & ... & (A198 -> A199) -> (A0 -> A199)
+        final DefaultElementList chain = new DefaultElementList(Operators.CONJUNCTION_OPERATOR);
+        for (int i = 0; i < n - 1; i++) {
+            chain.add(new DefaultElementList(Operators.IMPLICATION_OPERATOR, new Element[] {
+                FormulaUtility.createPredicateVariable("A" + i),
+                FormulaUtility.createPredicateVariable("A" + (i + 1))}));
+        }
+        assertTrue(isTautology(new DefaultElementList(Operators.IMPLICATION_OPERATOR,
+            new Element[] {chain, new DefaultElementList(Operators.IMPLICATION_OPERATOR,
+            new Element[] {FormulaUtility.createPredicateVariable("A0"),
+            FormulaUtility.createPredicateVariable("A199")})})));
+    }
+
+    /**
+     * Create random propositional formula.
+     *
+     * @param   random  Random generator.
+     * @param   atoms   Number of proposition variables to choose from.
+     * @param   depth   Maximum depth of formula.
+     * @return  Formula.
+     */
+    private Element createFormula(final Random random, final int atoms, final int depth) {
+        if (depth == 0 || random.nextInt(4) == 0) {
+            return FormulaUtility.createPredicateVariable("A" + random.nextInt(atoms));
+        }
+        final DefaultElementList list = new DefaultElementList(
+            OPERATORS[random.nextInt(OPERATORS.length)]);
+        final int size = random.nextInt(4);
+        for (int i = 0; i < size; i++) {
+            list.add(createFormula(random, atoms, depth - 1));
+        }
+        return list;
+    }
+
+    /**
+     * Is the negation of the formula unsatisfiable?
+     *
+     * @param   formula Check this formula.
+     * @return  Is the formula a propositional tautology?
+     */
+    private boolean isTautology(final Element formula) {
+        final SatSolver solver = new SatSolver();
+        final TseitinEncoder encoder = new TseitinEncoder(solver);
+        solver.addClause(new int[] {-encoder.encode(formula)});
+        return solver.solve(0) == SatSolver.UNSATISFIABLE;
+    }
+
+}
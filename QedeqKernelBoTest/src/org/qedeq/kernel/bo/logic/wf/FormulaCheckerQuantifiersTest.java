@@ -784,4 +784,35 @@ public class FormulaCheckerQuantifiersTest extends AbstractFormulaChecker {
         assertEquals(30780, list.get(0).getErrorCode());
     }
 
+    /**
+     * Function: checkFormula(Element)
+     * Type:     negative, code 30770, deeply nested quantifiers
+     * Data:     phi(x_1) and all x_1 all x_2 ... all x_300 A
+     *
+     * @throws  Exception   Test failed.
+     */
+    public void testQuantifiersNegative28() throws Exception {
+        final StringBuffer nested = new StringBuffer();
+        for (int i = 1; i <= 300; i++) {
+            nested.append("<FORALL><VAR id=\"x_" + i + "\" />");
+        }
+        nested.append("<PREDVAR id=\"A\"/>");
+        for (int i = 1; i <= 300; i++) {
+            nested.append("</FORALL>");
+        }
+        assertFalse(checker.checkFormula(BasicParser.createElement(nested.toString()), context,
+            getChecker()).hasErrors());
+        final Element ele = BasicParser.createElement(
+            "<AND>" +
+            "  <PREDVAR id=\"phi\"><VAR id=\"x_1\" /></PREDVAR>" +
+            nested +
+            "</AND>");
+        LogicalCheckExceptionList list =
+            checker.checkFormula(ele, context, getChecker());
+        assertEquals(1, list.size());
+        assertEquals(30770, list.get(0).getErrorCode());
+        assertTrue(list.get(0).getMessage().indexOf("x_1") >= 0);
+        assertTrue(list.get(0).getMessage().indexOf("x_2") < 0);
+    }
+
 }
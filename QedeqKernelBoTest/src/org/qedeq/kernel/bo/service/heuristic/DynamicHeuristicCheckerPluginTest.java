@@ -16,16 +16,22 @@ package org.qedeq.kernel.bo.service.heuristic;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
 
+import org.qedeq.base.io.Parameters;
 import org.qedeq.base.io.UrlUtility;
 import org.qedeq.kernel.bo.common.QedeqBo;
+import org.qedeq.kernel.bo.logic.model.FourDynamicModel;
 import org.qedeq.kernel.bo.logic.model.Model;
 import org.qedeq.kernel.bo.logic.model.SixDynamicModel;
 import org.qedeq.kernel.bo.module.KernelQedeqBo;
 import org.qedeq.kernel.bo.test.QedeqBoTestCase;
+import org.qedeq.kernel.se.base.list.Element;
 import org.qedeq.kernel.se.common.ModuleAddress;
 import org.qedeq.kernel.se.common.SourceFileExceptionList;
 import org.qedeq.kernel.se.visitor.InterruptException;
+import org.qedeq.kernel.xml.parser.BasicParser;
 
 /**
  * For testing model validity.
@@ -85,6 +91,72 @@ public class DynamicHeuristicCheckerPluginTest extends QedeqBoTestCase {
         assertEquals(0, bo.getWarnings().size());
     }
 
+    /**
+     * Test set theory script for heuristic errors with several threads. We must get the
+     * same warnings as with one thread.
+     *
+     * @throws Exception
+     */
+    public void testQedeqSetTheoryScriptThreads() throws Exception {
+        getInternalServices().getConfig().setServiceKeyValue(new DynamicHeuristicCheckerPlugin(),
+            "threads", 1);
+        try {
+            QedeqBo bo = check(new SixDynamicModel(), getDocDir(),
+                "math/qedeq_set_theory_v1.xml");
+            assertEquals(0, bo.getErrors().size());
+            final SourceFileExceptionList single = bo.getWarnings();
+            assertEquals(6, single.size());
+            getInternalServices().getConfig().setServiceKeyValue(
+                new DynamicHeuristicCheckerPlugin(), "threads", 3);
+            bo = check(new SixDynamicModel(), getDocDir(), "math/qedeq_set_theory_v1.xml");
+            assertEquals(0, bo.getErrors().size());
+            assertEquals(single.size(), bo.getWarnings().size());
+            for (int i = 0; i < single.size(); i++) {
+                assertEquals(single.get(i).toString(), bo.getWarnings().get(i).toString());
+            }
+        } finally {
+            getInternalServices().getConfig().setServiceKeyValue(
+                new DynamicHeuristicCheckerPlugin(), "threads", 0);
+        }
+    }
+
+    /**
+     * Valuations that only differ by a permutation of interchangeable variables must be
+     * checked only once, also with a single thread.
+     *
+     * @throws Exception
+     */
+    public void testInterchangeableVariables() throws Exception {
+        final ModuleAddress address = getServices().getModuleAddress(
+            UrlUtility.toUrl(new File(getDocDir(), "sample/qedeq_sample1.xml")));
+        final KernelQedeqBo bo = (KernelQedeqBo) getServices().loadModule(address);
+        getServices().checkWellFormedness(address);
+        assertTrue(bo.isWellFormed());
+        // x and y are interchangeable: 7 predicates for phi and 10 of 16 entity pairs
+        final Element formula = BasicParser.createElement(
+                "<IMPL>"
+                + "  <AND>"
+                + "    <PREDVAR id=\"\\phi\"><VAR id=\"x\" /></PREDVAR>"
+                + "    <PREDVAR id=\"\\phi\"><VAR id=\"y\" /></PREDVAR>"
+                + "  </AND>"
+                + "  <OR>"
+                + "    <PREDVAR id=\"\\phi\"><VAR id=\"x\" /></PREDVAR>"
+                + "    <PREDVAR id=\"\\phi\"><VAR id=\"y\" /></PREDVAR>"
+                + "  </OR>"
+                + "</IMPL>"
+                );
+        final String[] threads = new String[] {"1", "3"};
+        for (int i = 0; i < threads.length; i++) {
+            final Map parameters = new HashMap();
+            parameters.put("model", FourDynamicModel.class.getName());
+            parameters.put("threads", threads[i]);
+            final DynamicHeuristicCheckerExecutor executor = new DynamicHeuristicCheckerExecutor(
+                new DynamicHeuristicCheckerPlugin(), bo, new Parameters(parameters));
+            assertTrue(executor.isTautology(address.createModuleContext(), formula));
+            assertEquals(7 * 10, executor.getCheckedValuations());
+        }
+    }
+
     /**
      * Test logic script for heuristic errors with default model.
      *
@@ -42,5 +42,6 @@ public class KernelBoServiceHeuristicTestSuite extends QedeqTestSuite {
         super();
         addTestSuite(HeuristicCheckerPluginTest.class);
         addTestSuite(DynamicHeuristicCheckerPluginTest.class);
+        addTestSuite(SatHeuristicCheckerPluginTest.class);
     }
 }
@@ -0,0 +1,101 @@
+/* This file is part of the project "Hilbert II" - http://www.qedeq.org
+ *
+ * Copyright 2000-2014,  Michael Meyling <mime@qedeq.org>.
+ *
+ * "Hilbert II" is free software; you can redistribute
+ * it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ */
+
+package org.qedeq.kernel.bo.service.heuristic;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.qedeq.base.io.UrlUtility;
+import org.qedeq.kernel.bo.common.QedeqBo;
+import org.qedeq.kernel.bo.logic.model.HeuristicErrorCodes;
+import org.qedeq.kernel.bo.module.KernelQedeqBo;
+import org.qedeq.kernel.bo.test.QedeqBoTestCase;
+import org.qedeq.kernel.se.common.ModuleAddress;
+import org.qedeq.kernel.se.common.SourceFileExceptionList;
+import org.qedeq.kernel.se.visitor.InterruptException;
+
+/**
+ * For testing the SAT solver check of propositional formulas.
+ *
+ * @author Michael Meyling
+ */
+public class SatHeuristicCheckerPluginTest extends QedeqBoTestCase {
+
+    public SatHeuristicCheckerPluginTest() {
+        super();
+    }
+
+    public SatHeuristicCheckerPluginTest(final String name) {
+        super(name);
+    }
+
+    /**
+     * Call the SAT check for a module.
+     */
+    public QedeqBo check(final File dir, final String xml) throws IOException,
+            SourceFileExceptionList, InterruptException {
+        final File xmlFile = new File(dir, xml);
+        final ModuleAddress address = getServices().getModuleAddress(
+            UrlUtility.toUrl(xmlFile));
+        final KernelQedeqBo prop = (KernelQedeqBo) getServices().loadModule(
+            address);
+        if (prop.hasErrors()) {
+            throw prop.getErrors();
+        }
+        getServices().loadRequiredModules(prop.getModuleAddress());
+        if (prop.hasErrors()) {
+            throw prop.getErrors();
+        }
+        getServices().checkWellFormedness(prop.getModuleAddress());
+        if (prop.hasErrors()) {
+            throw prop.getErrors();
+        }
+        getServices().executePlugin(
+            "org.qedeq.kernel.bo.service.heuristic.SatHeuristicCheckerPlugin",
+            prop.getModuleAddress(), null);
+        if (prop.hasErrors()) {
+            throw prop.getErrors();
+        }
+        return prop;
+    }
+
+    /**
+     * Test module with a propositional formula that is no tautology.
+     *
+     * @throws Exception
+     */
+    public void testCounterexample() throws Exception {
+        final QedeqBo bo = check(getIndir(), "heuristic/sat_001.xml");
+        assertEquals(0, bo.getErrors().size());
+        assertEquals(1, bo.getWarnings().size());
+        assertEquals(HeuristicErrorCodes.EVALUATED_NOT_TRUE_CODE,
+            bo.getWarnings().get(0).getErrorCode());
+        assertTrue(bo.getWarnings().get(0).getMessage(),
+            bo.getWarnings().get(0).getMessage().indexOf("A = true, B = false") >= 0);
+    }
+
+    /**
+     * Test logic script. All propositional formulas must be tautologies.
+     *
+     * @throws Exception
+     */
+    public void testQedeqLogicScript() throws Exception {
+        final QedeqBo bo = check(getDocDir(), "math/qedeq_logic_v1.xml");
+        assertEquals(0, bo.getErrors().size());
+        assertEquals(0, bo.getWarnings().size());
+    }
+
+}
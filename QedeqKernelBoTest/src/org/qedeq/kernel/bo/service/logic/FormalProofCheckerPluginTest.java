@@ -15,12 +15,22 @@
 package org.qedeq.kernel.bo.service.logic;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 
+import org.qedeq.base.io.IoUtility;
+import org.qedeq.base.utility.YodaUtility;
 import org.qedeq.kernel.bo.common.QedeqBo;
+import org.qedeq.kernel.bo.module.KernelQedeqBo;
+import org.qedeq.kernel.bo.service.internal.PluginManager;
 import org.qedeq.kernel.bo.test.QedeqBoTestCase;
 import org.qedeq.kernel.se.common.DefaultModuleAddress;
 import org.qedeq.kernel.se.common.ModuleAddress;
+import org.qedeq.kernel.se.base.list.Element;
 import org.qedeq.kernel.se.common.SourceFileException;
+import org.qedeq.kernel.se.dto.list.DefaultAtom;
 
 /**
  * Test the formal proof checker plugin.
@@ -66,6 +76,35 @@ public class FormalProofCheckerPluginTest extends QedeqBoTestCase {
         assertEquals(0, bo.getErrors().size());
     }
 
+    /**
+     * Normalized formulas are remembered in the module and must be immutable.
+     *
+     * @throws  Exception   Test failed.
+     */
+    public void testNormalizedFormulas() throws Exception {
+        final ModuleAddress address = new DefaultModuleAddress(new File(getDocDir(),
+            "sample/qedeq_sample3.xml"));
+        getServices().checkFormallyProved(address);
+        final KernelQedeqBo bo = getInternalServices().getKernelQedeqBo(address);
+        assertTrue(bo.isFullyFormallyProved());
+        final Map cache = bo.getNormalizedFormulas();
+        assertTrue(cache.size() > 0);
+        final Iterator iter = new ArrayList(cache.values()).iterator();
+        while (iter.hasNext()) {
+            final Element element = (Element) iter.next();
+            if (element.isList()) {
+                try {
+                    element.getList().add(new DefaultAtom("x"));
+                    fail("normalized formula must be immutable");
+                } catch (UnsupportedOperationException e) {
+                    // expected
+                }
+            }
+        }
+        bo.setExistenceChecker(bo.getExistenceChecker());
+        assertEquals(0, bo.getNormalizedFormulas().size());
+    }
+
     public void testPlugin2() throws Exception {
         final ModuleAddress address = new DefaultModuleAddress(new File(getIndir(),
             "proof/proof_001.xml"));
@@ -268,6 +307,134 @@ public class FormalProofCheckerPluginTest extends QedeqBoTestCase {
         assertEquals(0, bo.getErrors().size());
     }
 
+    /**
+     * Check module with several threads. We must get the same errors in the same order as
+     * with one thread.
+     *
+     * @throws  Exception   Test failed.
+     */
+    public void testPlugin3Threads() throws Exception {
+        final ModuleAddress address = new DefaultModuleAddress(new File(getIndir(),
+            "proof/proof_002.xml"));
+        final boolean locationFailures = "true".equalsIgnoreCase(
+            System.getProperty("qedeq.test.xmlLocationFailures", "false"));
+        System.setProperty("qedeq.test.xmlLocationFailures", "false");
+        try {
+            getInternalServices().getConfig().setServiceKeyValue(
+                new FormalProofCheckerPlugin(), "threads", 1);
+            getServices().checkFormallyProved(address);
+            final List expected = getErrors(getServices().getQedeqBo(address));
+            assertEquals(60, expected.size());
+            getServices().removeModule(address);
+            getInternalServices().getConfig().setServiceKeyValue(
+                new FormalProofCheckerPlugin(), "threads", 4);
+            getServices().checkFormallyProved(address);
+            final QedeqBo bo = getServices().getQedeqBo(address);
+            assertTrue(bo.isWellFormed());
+            assertEquals(0, bo.getWarnings().size());
+            assertEquals(expected, getErrors(bo));
+        } finally {
+            getInternalServices().getConfig().setServiceKeyValue(
+                new FormalProofCheckerPlugin(), "threads", 0);
+            System.setProperty("qedeq.test.xmlLocationFailures",
+                Boolean.toString(locationFailures));
+        }
+    }
+
+    /**
+     * Check formal logic module with several threads.
+     *
+     * @throws  Exception   Test failed.
+     */
+    public void testPlugin4Threads() throws Exception {
+        final ModuleAddress address = new DefaultModuleAddress(new File(getDocDir(),
+            "math/qedeq_formal_logic_v1.xml"));
+        getInternalServices().getConfig().setServiceKeyValue(
+            new FormalProofCheckerPlugin(), "threads", 4);
+        try {
+            getServices().checkFormallyProved(address);
+            final QedeqBo bo = getServices().getQedeqBo(address);
+            assertTrue(bo.isWellFormed());
+            assertTrue(bo.isFullyFormallyProved());
+            assertEquals(0, bo.getWarnings().size());
+            assertEquals(0, bo.getErrors().size());
+        } finally {
+            getInternalServices().getConfig().setServiceKeyValue(
+                new FormalProofCheckerPlugin(), "threads", 0);
+        }
+    }
+
+    /**
+     * Check a module again after it was reloaded. Only changed propositions and propositions
+     * that depend on changed nodes must be checked again.
+     *
+     * @throws  Exception   Test failed.
+     */
+    public void testIncrementalCheck() throws Exception {
+        final File file = new File(getOutdir(), "incremental/qedeq_sample3.xml");
+        final StringBuffer text = new StringBuffer();
+        IoUtility.loadFile(new File(getDocDir(), "sample/qedeq_sample3.xml"), text, "UTF-8");
+        IoUtility.saveFile(file, text, "UTF-8");
+        final ModuleAddress address = new DefaultModuleAddress(file);
+        final FormalProofCheckerPlugin plugin = getPlugin();
+        getServices().checkFormallyProved(address);
+        assertTrue(getServices().getQedeqBo(address).isFullyFormallyProved());
+        assertEquals(0, plugin.getReusedChecks(address));
+        assertEquals(7, plugin.getCheckResults(address).size());
+
+        // nothing changed, so all seven propositions are not checked again
+        getServices().removeModule(address);
+        getServices().checkFormallyProved(address);
+        assertTrue(getServices().getQedeqBo(address).isFullyFormallyProved());
+        assertEquals(7, plugin.getReusedChecks(address));
+
+        // change an axiom, the propositions two and three use it
+        final int axiom = text.indexOf("axiom:disjunction_commutative");
+        final int second = text.indexOf("<PREDVAR id=\"B\"/>", text.indexOf("</OR>", axiom));
+        text.replace(second, second + "<PREDVAR id=\"B\"/>".length(), "<PREDVAR id=\"A\"/>");
+        IoUtility.saveFile(file, text, "UTF-8");
+        getServices().removeModule(address);
+        getServices().checkFormallyProved(address);
+        final QedeqBo bo = getServices().getQedeqBo(address);
+        assertTrue(bo.isWellFormed());
+        assertFalse(bo.isFullyFormallyProved());
+        assertEquals(5, plugin.getReusedChecks(address));
+        assertTrue(bo.getErrors().size() > 0);
+        // failed checks are not remembered
+        assertEquals(5, plugin.getCheckResults(address).size());
+
+        // the kernel does this when it clears its local buffer
+        plugin.clearCheckResults();
+        assertEquals(0, plugin.getCheckResults(address).size());
+        assertEquals(0, plugin.getReusedChecks(address));
+    }
+
+    /**
+     * Get formal proof checker plugin of the kernel.
+     *
+     * @return  Plugin instance.
+     * @throws  Exception   Plugin not found.
+     */
+    private FormalProofCheckerPlugin getPlugin() throws Exception {
+        return (FormalProofCheckerPlugin) ((PluginManager) YodaUtility.getFieldValue(
+            getServices(), "pluginManager")).getPlugin(FormalProofCheckerPlugin.class.getName());
+    }
+
+    /**
+     * Get error codes and locations of a module.
+     *
+     * @param   bo  Module.
+     * @return  Error codes and locations. Elements are of type {@link String}.
+     */
+    private List getErrors(final QedeqBo bo) {
+        final List result = new ArrayList();
+        for (int i = 0; i < bo.getErrors().size(); i++) {
+            result.add(bo.getErrors().get(i).getErrorCode() + " "
+                + getArea(bo.getErrors().get(i)));
+        }
+        return result;
+    }
+
     public void testProof_003() throws Exception {
         final ModuleAddress address = new DefaultModuleAddress(new File(getIndir(),
                 "proof/proof_003.xml"));
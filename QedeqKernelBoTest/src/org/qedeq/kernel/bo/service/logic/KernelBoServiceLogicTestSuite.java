@@ -44,5 +44,6 @@ public class KernelBoServiceLogicTestSuite extends QedeqTestSuite {
         addTestSuite(QedeqBoFormalLogicCheckerDirectTest.class);
         addTestSuite(QedeqBoFormalLogicCheckerTest.class);
         addTestSuite(SimpleProofFinderPluginTest.class);
+        addTestSuite(WellFormedCacheTest.class);
     }
 }
@@ -14,6 +14,9 @@
  */
 package org.qedeq.kernel.bo.service.logic;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.qedeq.kernel.bo.common.QedeqBo;
 import org.qedeq.kernel.bo.test.QedeqBoTestCase;
 import org.qedeq.kernel.se.common.DefaultModuleAddress;
@@ -52,4 +55,56 @@ public class QedeqBoFormalLogicCheckerTest extends QedeqBoTestCase {
         assertEquals(11231, bo.getErrors().get(0).getErrorCode());
     }
 
+    /**
+     * Check module with formulas that use predicates before and after their definitions.
+     * With several threads we must get the same errors in the same order as with one thread.
+     *
+     * @throws Exception
+     */
+    public void testCheckModuleThreads() throws Exception {
+        final ModuleAddress address = new DefaultModuleAddress(
+            getFile("wellformed/wellformed_001.xml"));
+        try {
+            getInternalServices().getConfig().setServiceKeyValue(
+                new WellFormedCheckerPlugin(), "threads", 1);
+            getServices().checkWellFormedness(address);
+            final List expected = getErrors(getServices().getQedeqBo(address));
+            assertEquals(6, expected.size());
+            // predicate is used before its definition
+            assertEquals("30590 59", expected.get(0));
+            assertEquals("30590 125", expected.get(1));
+            assertEquals("30770 139", expected.get(2));
+            // errors within proof lines
+            assertEquals("30590 162", expected.get(3));
+            assertEquals("30590 177", expected.get(4));
+            assertEquals("30690 193", expected.get(5));
+            getServices().removeModule(address);
+            getInternalServices().getConfig().setServiceKeyValue(
+                new WellFormedCheckerPlugin(), "threads", 4);
+            getServices().checkWellFormedness(address);
+            final QedeqBo bo = getServices().getQedeqBo(address);
+            assertTrue(bo.getWellFormedState().isFailure());
+            assertEquals(0, bo.getWarnings().size());
+            assertEquals(expected, getErrors(bo));
+        } finally {
+            getInternalServices().getConfig().setServiceKeyValue(
+                new WellFormedCheckerPlugin(), "threads", 0);
+        }
+    }
+
+    /**
+     * Get error codes and start rows of all errors of a module.
+     *
+     * @param   bo  Module.
+     * @return  Error codes and rows.
+     */
+    private List getErrors(final QedeqBo bo) {
+        final List result = new ArrayList();
+        for (int i = 0; i < bo.getErrors().size(); i++) {
+            result.add(bo.getErrors().get(i).getErrorCode() + " "
+                + bo.getErrors().get(i).getSourceArea().getStartPosition().getRow());
+        }
+        return result;
+    }
+
 }
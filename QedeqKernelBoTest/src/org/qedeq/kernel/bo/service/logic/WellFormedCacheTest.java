@@ -0,0 +1,148 @@
+/* This file is part of the project "Hilbert II" - http://www.qedeq.org
+ *
+ * Copyright 2000-2014,  Michael Meyling <mime@qedeq.org>.
+ *
+ * "Hilbert II" is free software; you can redistribute
+ * it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ */
+package org.qedeq.kernel.bo.service.logic;
+
+import org.qedeq.base.test.QedeqTestCase;
+import org.qedeq.kernel.bo.logic.common.FormulaUtility;
+import org.qedeq.kernel.bo.logic.common.LogicalCheckExceptionList;
+import org.qedeq.kernel.bo.logic.common.Operators;
+import org.qedeq.kernel.bo.logic.common.PredicateConstant;
+import org.qedeq.kernel.bo.logic.common.PredicateKey;
+import org.qedeq.kernel.bo.logic.wf.FormulaCheckerImpl;
+import org.qedeq.kernel.se.base.list.Element;
+import org.qedeq.kernel.se.common.DefaultModuleAddress;
+import org.qedeq.kernel.se.common.ModuleContext;
+import org.qedeq.kernel.se.dto.list.DefaultAtom;
+import org.qedeq.kernel.se.dto.list.DefaultElementList;
+
+/**
+ * Test {@link WellFormedCache}.
+ *
+ * @author Michael Meyling
+ */
+public class WellFormedCacheTest extends QedeqTestCase {
+
+    private ModuleContext context;
+
+    private Element formula;
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        context = new ModuleContext(new DefaultModuleAddress("http://memory.org/sample.xml"),
+            "getElement()");
+        formula = createPredicate("in");
+    }
+
+    private Element createPredicate(final String name) {
+        return new DefaultElementList(Operators.PREDICATE_CONSTANT, new Element[] {
+            new DefaultAtom(name), FormulaUtility.createSubjectVariable("x"),
+            FormulaUtility.createSubjectVariable("y")});
+    }
+
+    private PredicateConstant createConstant(final String name, final String arguments) {
+        return new PredicateConstant(new PredicateKey(name, arguments),
+            new DefaultElementList(Operators.EQUIVALENCE_OPERATOR, new Element[] {
+            createPredicate(name), FormulaUtility.createPredicateVariable("A")}), context);
+    }
+
+    private DefaultExistenceChecker createExistence(final String predicate) {
+        final DefaultExistenceChecker existence = new DefaultExistenceChecker();
+        if (predicate != null) {
+            existence.add(createConstant(predicate, "2"));
+        }
+        return existence;
+    }
+
+    private RecordingExistenceChecker check(final Element element,
+            final DefaultExistenceChecker existence) {
+        final RecordingExistenceChecker recorder = new RecordingExistenceChecker(existence);
+        final LogicalCheckExceptionList list = new FormulaCheckerImpl().checkFormula(element,
+            context, recorder);
+        assertEquals(0, list.size());
+        return recorder;
+    }
+
+    /**
+     * A well-formed formula is also well-formed for other existence checkers that give the
+     * same answers.
+     *
+     * @throws  Exception   Test failed.
+     */
+    public void testWellFormed() throws Exception {
+        final WellFormedCache cache = new WellFormedCache(10);
+        assertFalse(cache.isWellFormed(formula, false, "checker", createExistence("in")));
+        final RecordingExistenceChecker recorder = check(formula, createExistence("in"));
+        cache.setWellFormed(formula, false, "checker", recorder.getAnswers());
+        assertEquals(1, cache.size());
+        assertTrue(cache.isWellFormed(formula.copy(), false, "checker", createExistence("in")));
+        assertFalse(cache.isWellFormed(formula, false, "checker", createExistence(null)));
+        assertFalse(cache.isWellFormed(formula, false, "checker", createExistence("is")));
+        assertFalse(cache.isWellFormed(formula, true, "checker", createExistence("in")));
+        assertFalse(cache.isWellFormed(formula, false, "other", createExistence("in")));
+        assertFalse(cache.isWellFormed(createPredicate("is"), false, "checker",
+            createExistence("in")));
+    }
+
+    /**
+     * The recorded answers must differ if any answer changes.
+     *
+     * @throws  Exception   Test failed.
+     */
+    public void testRecordedAnswers() throws Exception {
+        final RecordingExistenceChecker recorder = new RecordingExistenceChecker(
+            createExistence("in"));
+        assertTrue(recorder.predicateExists("in", 2));
+        assertFalse(recorder.predicateExists("in", 3));
+        assertFalse(recorder.classOperatorExists());
+        assertNull(recorder.getIdentityOperator());
+        assertEquals(4, recorder.getAnswers().size());
+        assertTrue(RecordingExistenceChecker.isSame(recorder.getAnswers(),
+            createExistence("in")));
+        assertFalse(RecordingExistenceChecker.isSame(recorder.getAnswers(),
+            createExistence(null)));
+        final DefaultExistenceChecker existence = createExistence("in");
+        existence.add(createConstant("in", "3"));
+        assertFalse(RecordingExistenceChecker.isSame(recorder.getAnswers(), existence));
+    }
+
+    /**
+     * Only the most recently used entries are kept.
+     *
+     * @throws  Exception   Test failed.
+     */
+    public void testMaximum() throws Exception {
+        final WellFormedCache cache = new WellFormedCache(2);
+        final Element[] formulas = new Element[] {createPredicate("a"), createPredicate("b"),
+            createPredicate("c")};
+        final DefaultExistenceChecker existence = new DefaultExistenceChecker();
+        for (int i = 0; i < formulas.length; i++) {
+            existence.add(createConstant(
+                formulas[i].getList().getElement(0).getAtom().getString(), "2"));
+        }
+        cache.setWellFormed(formulas[0], false, "checker",
+            check(formulas[0], existence).getAnswers());
+        cache.setWellFormed(formulas[1], false, "checker",
+            check(formulas[1], existence).getAnswers());
+        // now formula 1 is the least recently used one
+        assertTrue(cache.isWellFormed(formulas[0], false, "checker", existence));
+        cache.setWellFormed(formulas[2], false, "checker",
+            check(formulas[2], existence).getAnswers());
+        assertEquals(2, cache.size());
+        assertTrue(cache.isWellFormed(formulas[0], false, "checker", existence));
+        assertFalse(cache.isWellFormed(formulas[1], false, "checker", existence));
+        assertTrue(cache.isWellFormed(formulas[2], false, "checker", existence));
+    }
+
+}
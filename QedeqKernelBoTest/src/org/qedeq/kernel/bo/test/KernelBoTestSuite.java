@@ -22,11 +22,15 @@ import org.qedeq.kernel.bo.KernelBoPackageTestSuite;
 import org.qedeq.kernel.bo.common.KernelBoCommonTestSuite;
 import org.qedeq.kernel.bo.log.KernelBoLogTestSuite;
 import org.qedeq.kernel.bo.logic.KernelBoLogicTestSuite;
+import org.qedeq.kernel.bo.logic.common.FormulaUtilityCanonicalFormTest;
+import org.qedeq.kernel.bo.logic.common.FormulaUtilityInterchangeableTest;
 import org.qedeq.kernel.bo.logic.common.FormulaUtilityReplaceOperatorVariableTest;
 import org.qedeq.kernel.bo.logic.common.FormulaUtilityReplaceSubjectVariableQuantifierTest;
+import org.qedeq.kernel.bo.logic.common.TruthTableEvaluatorTest;
 import org.qedeq.kernel.bo.logic.model.KernelBoLogicModelTestSuite;
 import org.qedeq.kernel.bo.logic.proof.checker.KernelBoLogicProofCheckerTestSuite;
 import org.qedeq.kernel.bo.logic.proof.finder.KernelBoLogicProofFinderTestSuite;
+import org.qedeq.kernel.bo.logic.sat.KernelBoLogicSatTestSuite;
 import org.qedeq.kernel.bo.logic.wf.KernelBoLogicWfTestSuite;
 import org.qedeq.kernel.bo.module.KernelBoModuleTestSuite;
 import org.qedeq.kernel.bo.parser.KernelBoParserTestSuite;
@@ -76,6 +80,7 @@ public class KernelBoTestSuite extends QedeqTestSuite {
         addTest(KernelBoLogTestSuite.suite());
         addTest(KernelBoLogicProofCheckerTestSuite.suite());
         addTest(KernelBoLogicProofFinderTestSuite.suite());
+        addTest(KernelBoLogicSatTestSuite.suite());
         addTest(KernelBoLogicTestSuite.suite());
         addTest(KernelBoLogicWfTestSuite.suite());
         addTest(KernelBoModuleTestSuite.suite());
@@ -92,6 +97,9 @@ public class KernelBoTestSuite extends QedeqTestSuite {
         addTestSuite(Qedeq2UnicodeTextExecutorTest.class);
         addTestSuite(FormulaUtilityReplaceSubjectVariableQuantifierTest.class);
         addTestSuite(FormulaUtilityReplaceOperatorVariableTest.class);
+        addTestSuite(FormulaUtilityCanonicalFormTest.class);
+        addTestSuite(FormulaUtilityInterchangeableTest.class);
+        addTestSuite(TruthTableEvaluatorTest.class);
 
         // test if all classes have tests
         addTestSuite(KernelBoEachClassHasATest.class);
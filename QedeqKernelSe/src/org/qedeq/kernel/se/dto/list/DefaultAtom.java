@@ -30,6 +30,12 @@ public final class DefaultAtom implements Atom {
     /** The plain text. */
     private final String text;
 
+    /** Length of {@link #toString()}. */
+    private final int length;
+
+    /** Cached hash code. Zero if not yet calculated. */
+    private int hash;
+
     /**
      * Constructs an <code>Atom</code>.
      *
@@ -41,6 +47,13 @@ public final class DefaultAtom implements Atom {
             throw new IllegalArgumentException("a NullPointer is no valid text");
         }
         this.text = text;
+        int quotes = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '\"') {
+                quotes++;
+            }
+        }
+        this.length = text.length() + quotes + 2;
     }
 
     public final String getString() {
@@ -98,8 +111,36 @@ public final class DefaultAtom implements Atom {
         return false;
     }
 
+    /**
+     * Calculates the hash code. This equals <code>toString().hashCode()</code> but is
+     * calculated without creating the string and is cached afterwards.
+     *
+     * @return  Hash code of this object.
+     */
     public final int hashCode() {
-        return toString().hashCode();
+        int h = hash;
+        if (h == 0) {
+            h = '\"';
+            for (int i = 0; i < text.length(); i++) {
+                final char c = text.charAt(i);
+                if (c == '\"') {
+                    h = 31 * h + c;
+                }
+                h = 31 * h + c;
+            }
+            h = 31 * h + '\"';
+            hash = h;
+        }
+        return h;
+    }
+
+    /**
+     * Get length of string representation {@link #toString()}.
+     *
+     * @return  Length of string representation.
+     */
+    final int getStringLength() {
+        return length;
     }
 
 }
@@ -17,6 +17,7 @@ package org.qedeq.kernel.se.dto.list;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import org.qedeq.kernel.se.base.list.Atom;
@@ -28,6 +29,9 @@ import org.qedeq.kernel.se.base.list.ElementList;
  * Every Operator must inherit from this class. Its main function is to
  * provide the standard implementation of {@link #equals}
  * and {@link #hashCode}.
+ * <p>
+ * Instances created by an {@link ElementFactory} are immutable. They have a precomputed
+ * hash code and all their sub elements are immutable too.
  *
  * @author  Michael Meyling
  */
@@ -39,6 +43,15 @@ public final class DefaultElementList implements ElementList {
     /** Here is are the elements stored. */
     private final List elements;
 
+    /** Is this list immutable? */
+    private final boolean immutable;
+
+    /** Precomputed hash code. Only set for immutable lists. */
+    private final int hash;
+
+    /** Length of {@link #toString()}. Only set for immutable lists. */
+    private final int length;
+
 
     /**
      * Constructs an element list with no elements.
@@ -53,6 +66,9 @@ public final class DefaultElementList implements ElementList {
         }
         this.operator = operator;
         this.elements = new ArrayList();
+        this.immutable = false;
+        this.hash = 0;
+        this.length = 0;
     }
 
     /**
@@ -73,6 +89,73 @@ public final class DefaultElementList implements ElementList {
         }
         this.operator = operator;
         this.elements = new ArrayList(Arrays.asList(elements));
+        this.immutable = false;
+        this.hash = 0;
+        this.length = 0;
+    }
+
+    /**
+     * Constructs an immutable element list with precomputed values.
+     *
+     * @param   operator    Operator name.
+     * @param   elements    Unmodifiable list of immutable elements.
+     * @param   hash        Hash code of the list.
+     * @param   length      Length of {@link #toString()}.
+     */
+    private DefaultElementList(final String operator, final List elements, final int hash,
+            final int length) {
+        this.operator = operator;
+        this.elements = elements;
+        this.immutable = true;
+        this.hash = hash;
+        this.length = length;
+    }
+
+    /**
+     * Creates an immutable element list. All given elements must be immutable too. That
+     * means they must be instances of {@link DefaultAtom} or immutable instances of this class.
+     * The array must not be changed afterwards.
+     *
+     * @param   operator    Operator name.
+     * @param   elements    Immutable elements to make a list of.
+     * @return  Immutable element list.
+     * @throws  IllegalArgumentException Element or operator was a NullPointer or an element
+     *          is not immutable.
+     */
+    static DefaultElementList createImmutable(final String operator, final Element[] elements) {
+        if (operator == null) {
+            throw new IllegalArgumentException(
+                "NullPointer as operator is not allowed");
+        }
+        if (elements == null) {
+            throw new IllegalArgumentException(
+                "NullPointer as element array is not allowed");
+        }
+        int h = appendHash(0, operator);
+        int len = operator.length();
+        if (elements.length > 0) {
+            h = appendHash(h, " ( ");
+            len += 3;
+            for (int i = 0; i < elements.length; i++) {
+                if (i != 0) {
+                    h = appendHash(h, ", ");
+                    len += 2;
+                }
+                if (elements[i] instanceof DefaultAtom) {
+                    len += ((DefaultAtom) elements[i]).getStringLength();
+                } else if (elements[i] instanceof DefaultElementList
+                        && ((DefaultElementList) elements[i]).immutable) {
+                    len += ((DefaultElementList) elements[i]).length;
+                } else {
+                    throw new IllegalArgumentException("element " + i + " is not immutable");
+                }
+                h = appendHash(h, elements[i]);
+            }
+            h = 31 * h + ')';
+            len++;
+        }
+        return new DefaultElementList(operator,
+            Collections.unmodifiableList(Arrays.asList(elements)), h, len);
     }
 
     public final boolean isAtom() {
@@ -118,6 +201,15 @@ public final class DefaultElementList implements ElementList {
         return this.elements;
     }
 
+    /**
+     * Is this list immutable?
+     *
+     * @return  Immutable list?
+     */
+    final boolean isImmutable() {
+        return immutable;
+    }
+
     public final boolean equals(final Object object) {
         // first we check if we compare us with ourself
         if (this == object) {
@@ -127,7 +219,11 @@ public final class DefaultElementList implements ElementList {
             return false;
         }
         if (object.getClass() == this.getClass()) {
-            final ElementList element = (ElementList) object;
+            final DefaultElementList element = (DefaultElementList) object;
+            // for immutable lists we can compare the precomputed hash codes
+            if (immutable && element.immutable && hash != element.hash) {
+                return false;
+            }
             if (getOperator().equals(element.getOperator())
                     && size() == element.size()) {
                 for (int i = 0; i < size(); i++) {
@@ -162,6 +258,7 @@ public final class DefaultElementList implements ElementList {
     }
 
     public final void add(final Element element) {
+        checkMutable();
         if (element == null) {
             throw new IllegalArgumentException(
                 "NullPointer couldn't be added");
@@ -170,6 +267,7 @@ public final class DefaultElementList implements ElementList {
     }
 
     public final void insert(final int position, final Element element) {
+        checkMutable();
         if (element == null) {
             throw new IllegalArgumentException(
                 "NullPointer couldn't be inserted");
@@ -186,6 +284,7 @@ public final class DefaultElementList implements ElementList {
     }
 
     public final void replace(final int position, final Element element) {
+        checkMutable();
         if (element == null) {
             throw new IllegalArgumentException(
                 "NullPointer is no element");
@@ -210,6 +309,7 @@ public final class DefaultElementList implements ElementList {
     }
 
     public final void remove(final int i) {
+        checkMutable();
         if (i >= 0 && i < elements.size()) {
             elements.remove(i);
             return;
@@ -224,8 +324,98 @@ public final class DefaultElementList implements ElementList {
             + " the maximum element number is " + size());
     }
 
+    /**
+     * Throw an exception if this list is immutable.
+     *
+     * @throws  UnsupportedOperationException   This list is immutable.
+     */
+    private void checkMutable() {
+        if (immutable) {
+            throw new UnsupportedOperationException("this element list is immutable");
+        }
+    }
+
+    /**
+     * Calculates the hash code. This equals <code>toString().hashCode()</code> but no
+     * string is created. For immutable lists the hash code is precomputed.
+     *
+     * @return  Hash code of this object.
+     */
     public final int hashCode() {
-        return toString().hashCode();
+        if (immutable) {
+            return hash;
+        }
+        return appendHash(0, this);
+    }
+
+    /**
+     * Calculate the hash code of the concatenation of a string (that has the given hash code)
+     * and the string representation of an element. This is done without creating any strings.
+     *
+     * @param   h       Hash code of the first string.
+     * @param   element Append string representation of this element.
+     * @return  Hash code of concatenation.
+     */
+    static int appendHash(final int h, final Element element) {
+        if (element instanceof DefaultAtom) {
+            final DefaultAtom atom = (DefaultAtom) element;
+            return h * pow31(atom.getStringLength()) + atom.hashCode();
+        }
+        if (element instanceof DefaultElementList) {
+            final DefaultElementList list = (DefaultElementList) element;
+            if (list.immutable) {
+                return h * pow31(list.length) + list.hash;
+            }
+            int result = appendHash(h, list.getOperator());
+            if (list.size() > 0) {
+                result = appendHash(result, " ( ");
+                for (int i = 0; i < list.size(); i++) {
+                    if (i != 0) {
+                        result = appendHash(result, ", ");
+                    }
+                    result = appendHash(result, list.getElement(i));
+                }
+                result = 31 * result + ')';
+            }
+            return result;
+        }
+        return appendHash(h, String.valueOf(element));
+    }
+
+    /**
+     * Calculate the hash code of the concatenation of a string (that has the given hash code)
+     * and another string.
+     *
+     * @param   h       Hash code of the first string.
+     * @param   string  Append this string.
+     * @return  Hash code of concatenation.
+     */
+    private static int appendHash(final int h, final String string) {
+        int result = h;
+        for (int i = 0; i < string.length(); i++) {
+            result = 31 * result + string.charAt(i);
+        }
+        return result;
+    }
+
+    /**
+     * Calculate 31 to the power of <code>n</code> (modulo 2<sup>32</sup>).
+     *
+     * @param   n   Exponent. Must not be negative.
+     * @return  Power.
+     */
+    private static int pow31(final int n) {
+        int result = 1;
+        int base = 31;
+        int e = n;
+        while (e > 0) {
+            if ((e & 1) != 0) {
+                result *= base;
+            }
+            base *= base;
+            e >>= 1;
+        }
+        return result;
     }
 
     public final String toString() {
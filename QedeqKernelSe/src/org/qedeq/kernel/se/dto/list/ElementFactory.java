@@ -0,0 +1,135 @@
+/* This file is part of the project "Hilbert II" - http://www.qedeq.org
+ *
+ * Copyright 2000-2014,  Michael Meyling <mime@qedeq.org>.
+ *
+ * "Hilbert II" is free software; you can redistribute
+ * it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ */
+
+package org.qedeq.kernel.se.dto.list;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.qedeq.kernel.se.base.list.Atom;
+import org.qedeq.kernel.se.base.list.Element;
+import org.qedeq.kernel.se.base.list.ElementList;
+
+
+/**
+ * Creates immutable and hash consed elements. Structurally equal elements that were created
+ * by the same factory are represented by the same instance. So {@link Element#equals(Object)}
+ * is a reference check in the common case and the hash code is precomputed.
+ * <p>
+ * Elements are only weakly referenced by this factory, so unused elements might be garbage
+ * collected. This class is thread safe.
+ *
+ * @author  Michael Meyling
+ */
+public final class ElementFactory {
+
+    /** Maps elements to weak references of their unique representatives. */
+    private final Map pool = new WeakHashMap();
+
+    /**
+     * Constructor.
+     */
+    public ElementFactory() {
+        // nothing to do
+    }
+
+    /**
+     * Get unique immutable atom.
+     *
+     * @param   text    Atom string.
+     * @return  Immutable atom.
+     * @throws  IllegalArgumentException    <code>text</code> is a NullPointer.
+     */
+    public Atom createAtom(final String text) {
+        return (Atom) unique(new DefaultAtom(text));
+    }
+
+    /**
+     * Get unique immutable element list. The given elements are interned too.
+     *
+     * @param   operator    Operator name.
+     * @param   elements    The elements to make a list of.
+     * @return  Immutable element list.
+     * @throws  IllegalArgumentException Element or operator was a NullPointer.
+     */
+    public ElementList createList(final String operator, final Element[] elements) {
+        if (elements == null) {
+            throw new IllegalArgumentException(
+                "NullPointer as element array is not allowed");
+        }
+        final Element[] interned = new Element[elements.length];
+        for (int i = 0; i < elements.length; i++) {
+            interned[i] = intern(elements[i]);
+        }
+        return (ElementList) unique(DefaultElementList.createImmutable(operator, interned));
+    }
+
+    /**
+     * Get unique immutable representative of given element. The given element is not changed.
+     *
+     * @param   element Get representative of this element.
+     * @return  Immutable element that is equal to <code>element</code>.
+     * @throws  IllegalArgumentException    <code>element</code> is a NullPointer.
+     */
+    public Element intern(final Element element) {
+        if (element == null) {
+            throw new IllegalArgumentException("NullPointer couldn't be interned");
+        }
+        if (element.isAtom()) {
+            if (element instanceof DefaultAtom) {
+                return unique(element);
+            }
+            return createAtom(element.getAtom().getString());
+        }
+        final ElementList list = element.getList();
+        if (list instanceof DefaultElementList && ((DefaultElementList) list).isImmutable()) {
+            return unique(list);
+        }
+        final Element[] interned = new Element[list.size()];
+        for (int i = 0; i < list.size(); i++) {
+            interned[i] = intern(list.getElement(i));
+        }
+        return unique(DefaultElementList.createImmutable(list.getOperator(), interned));
+    }
+
+    /**
+     * Get number of currently known unique elements.
+     *
+     * @return  Number of elements in pool.
+     */
+    public synchronized int size() {
+        return pool.size();
+    }
+
+    /**
+     * Get unique representative of an immutable element.
+     *
+     * @param   element Immutable element.
+     * @return  Representative.
+     */
+    private synchronized Element unique(final Element element) {
+        final WeakReference ref = (WeakReference) pool.get(element);
+        if (ref != null) {
+            final Element result = (Element) ref.get();
+            if (result != null) {
+                return result;
+            }
+        }
+        pool.put(element, new WeakReference(element));
+        return element;
+    }
+
+}
@@ -1413,5 +1413,14 @@ public class QedeqNotNullTraverser implements QedeqTraverser, ServiceCompletenes
         return (RuleKey) ruleExistence.get(name);
     }
 
+    /**
+     * Get copy of all current (QEDEQ module local) rule versions.
+     *
+     * @return  Maps rule names to their current (local) {@link RuleKey}s.
+     */
+    public Map getLocalRuleKeys() {
+        return new HashMap(ruleExistence);
+    }
+
 }
 
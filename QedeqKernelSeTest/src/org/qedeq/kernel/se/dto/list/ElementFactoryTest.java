@@ -0,0 +1,155 @@
+/* This file is part of the project "Hilbert II" - http://www.qedeq.org
+ *
+ * Copyright 2000-2014,  Michael Meyling <mime@qedeq.org>.
+ *
+ * "Hilbert II" is free software; you can redistribute
+ * it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ */
+
+package org.qedeq.kernel.se.dto.list;
+
+import org.qedeq.base.test.QedeqTestCase;
+import org.qedeq.kernel.se.base.list.Element;
+import org.qedeq.kernel.se.base.list.ElementList;
+
+/**
+ * Test class.
+ *
+ * @author Michael Meyling
+ */
+public class ElementFactoryTest extends QedeqTestCase {
+
+    private ElementFactory factory;
+
+    private DefaultElementList formula;
+
+    public ElementFactoryTest(){
+        super();
+    }
+
+    public ElementFactoryTest(final String name){
+        super(name);
+    }
+
+    protected void setUp() throws Exception {
+        super.setUp();
+        factory = new ElementFactory();
+        final DefaultElementList a = new DefaultElementList("PREDVAR");
+        a.add(new DefaultAtom("A"));
+        final DefaultElementList b = new DefaultElementList("PREDVAR");
+        b.add(new DefaultAtom("\"B\""));
+        formula = new DefaultElementList("IMPL", new Element[] {a,
+            new DefaultElementList("IMPL", new Element[] {b, a.copy()})});
+    }
+
+    protected void tearDown() throws Exception {
+        factory = null;
+        formula = null;
+        super.tearDown();
+    }
+
+    /**
+     * Test {@link ElementFactory#intern(Element)}.
+     */
+    public void testIntern() throws Exception {
+        final Element interned = factory.intern(formula);
+        assertEquals(formula, interned);
+        assertEquals(interned, formula);
+        assertEquals(formula.toString(), interned.toString());
+        assertEquals(formula.hashCode(), interned.hashCode());
+        assertSame(interned, factory.intern(formula.copy()));
+        assertSame(interned, factory.intern(interned));
+        // common sub elements are shared
+        assertSame(interned.getList().getElement(0),
+            interned.getList().getElement(1).getList().getElement(1));
+        assertFalse(interned.equals(factory.intern(formula.getElement(1))));
+        assertEquals(6, factory.size());
+    }
+
+    /**
+     * Test {@link ElementFactory#createAtom(String)} and
+     * {@link ElementFactory#createList(String, Element[])}.
+     */
+    public void testCreate() throws Exception {
+        final Element a = factory.createList("PREDVAR", new Element[] {factory.createAtom("A")});
+        final Element b = factory.createList("PREDVAR", new Element[] {
+            new DefaultAtom("\"B\"")});
+        final ElementList created = factory.createList("IMPL", new Element[] {a,
+            factory.createList("IMPL", new Element[] {b, a})});
+        assertSame(created, factory.intern(formula));
+        assertSame(a, factory.intern(formula.getElement(0)));
+        assertEquals(new DefaultAtom("A"), factory.createAtom("A"));
+        assertEquals(new DefaultAtom("A").hashCode(), factory.createAtom("A").hashCode());
+        assertEquals(new DefaultElementList("empty").hashCode(),
+            factory.createList("empty", new Element[] {}).hashCode());
+        try {
+            factory.createList(null, new Element[] {});
+            fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            factory.createList("IMPL", null);
+            fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            factory.intern(null);
+            fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    /**
+     * Test that created lists are immutable.
+     */
+    public void testImmutable() throws Exception {
+        final ElementList interned = factory.intern(formula).getList();
+        try {
+            interned.add(new DefaultAtom("C"));
+            fail("UnsupportedOperationException expected");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+        try {
+            interned.insert(0, new DefaultAtom("C"));
+            fail("UnsupportedOperationException expected");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+        try {
+            interned.replace(0, new DefaultAtom("C"));
+            fail("UnsupportedOperationException expected");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+        try {
+            interned.remove(0);
+            fail("UnsupportedOperationException expected");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+        try {
+            interned.getElements().clear();
+            fail("UnsupportedOperationException expected");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+        // copies are mutable again
+        final ElementList copy = interned.copy().getList();
+        copy.add(new DefaultAtom("C"));
+        assertEquals(3, copy.size());
+        assertFalse(copy.equals(interned));
+        assertEquals(copy.toString().hashCode(), copy.hashCode());
+    }
+
+}
@@ -43,5 +43,6 @@ public class KernelSeDtoListTestSuite extends QedeqTestSuite {
         addTestSuite(DefaultAtomTest.class);
         addTestSuite(DefaultElementListTest.class);
         addTestSuite(ElementSetTest.class);
+        addTestSuite(ElementFactoryTest.class);
     }
 }
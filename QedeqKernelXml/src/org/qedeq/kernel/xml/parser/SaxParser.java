@@ -34,11 +34,16 @@ import org.qedeq.kernel.xml.handler.common.SimpleHandler;
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 import org.xml.sax.SAXNotRecognizedException;
+import org.xml.sax.SAXNotSupportedException;
 import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
 
 
 /**
  * Parser for XML files. This class uses features specific for Xerces.
+ * <p>
+ * The compiled XML schemas are shared by all parsers. All parsers of a thread use the same
+ * SAX parser, so a parse must not start another parse within the same thread.
  *
  * @author Michael Meyling
  */
@@ -62,10 +67,23 @@ public final class SaxParser {
     protected static final String SCHEMA_FULL_CHECKING_FEATURE_ID
         = "http://apache.org/xml/features/validation/schema-full-checking";
 
+    /** Grammar pool property id (http://apache.org/xml/properties/internal/grammar-pool). */
+    private static final String GRAMMAR_POOL_PROPERTY_ID
+        = "http://apache.org/xml/properties/internal/grammar-pool";
+
+    /** Compiled XML schemas of all parsers. */
+    private static final SchemaGrammarPool GRAMMAR_POOL = new SchemaGrammarPool();
+
+    /** SAX parser of each thread. Contains {@link XMLReader}s. */
+    private static final ThreadLocal READERS = new ThreadLocal();
+
+    /** Handler that is set while the SAX parser is not used. Holds no references. */
+    private static final DefaultHandler EMPTY = new DefaultHandler();
+
     /** Handler which deals with the XML contents. */
     private SaxDefaultHandler handler;
 
-    /** SAX parser. */
+    /** SAX parser. Shared with all parsers of the current thread. */
     private XMLReader reader;
 
     /** Simple handler for validation purpose only. */
@@ -93,6 +111,34 @@ public final class SaxParser {
         this.deflt = new SimpleHandler();
         this.plugin = plugin;
 
+        reader = getReader();
+    }
+
+    /**
+     * Get SAX parser of current thread. It is created at the first call.
+     *
+     * @return  SAX parser.
+     * @throws  ParserConfigurationException    Severe parser configuration problem.
+     * @throws  SAXException                    Option not recognized or supported.
+     */
+    private static XMLReader getReader() throws ParserConfigurationException, SAXException {
+        XMLReader result = (XMLReader) READERS.get();
+        if (result == null) {
+            result = createReader();
+            READERS.set(result);
+        }
+        return result;
+    }
+
+    /**
+     * Create new validating SAX parser that uses the shared XML schema grammars.
+     *
+     * @return  SAX parser.
+     * @throws  ParserConfigurationException    Severe parser configuration problem.
+     * @throws  SAXException                    Option not recognized or supported.
+     */
+    private static XMLReader createReader() throws ParserConfigurationException, SAXException {
+        final String method = "createReader()";
         final String factoryImpl = System.getProperty("javax.xml.parsers.SAXParserFactory");
         if (factoryImpl == null) {
             System.setProperty("javax.xml.parsers.SAXParserFactory",
@@ -108,13 +154,13 @@ public final class SaxParser {
         try {
             factory.setFeature(SCHEMA_VALIDATION_FEATURE_ID, true);
         } catch (SAXNotRecognizedException e) {
-            Trace.trace(CLASS, this, "constructor", e);
+            Trace.trace(CLASS, method, e);
             // ignore
         }
         try {
             factory.setFeature(SCHEMA_FULL_CHECKING_FEATURE_ID, true);
         } catch (SAXNotRecognizedException e) {
-            Trace.trace(CLASS, this, "constructor", e);
+            Trace.trace(CLASS, method, e);
             // ignore
         }
 
@@ -128,8 +174,7 @@ public final class SaxParser {
                 "Current XML parser doesn't support schema validation.");
         }
 
-        reader = parser.getXMLReader();
-        reader.setEntityResolver(new SaxEntityResolver(handler));
+        final XMLReader reader = parser.getXMLReader();
 
         // set parser features
         reader.setFeature(NAMESPACES_FEATURE_ID, true);
@@ -137,16 +182,26 @@ public final class SaxParser {
         try {
             reader.setFeature(SCHEMA_VALIDATION_FEATURE_ID, true);
         } catch (SAXNotRecognizedException e) {
-            Trace.trace(CLASS, this, "constructor", e);
+            Trace.trace(CLASS, method, e);
             // ignore
         }
         try {
             reader.setFeature(SCHEMA_FULL_CHECKING_FEATURE_ID, true);
         } catch (SAXNotRecognizedException e) {
-            Trace.trace(CLASS, this, "constructor", e);
+            Trace.trace(CLASS, method, e);
             // ignore
         }
-
+        // compiled XML schemas are shared
+        try {
+            reader.setProperty(GRAMMAR_POOL_PROPERTY_ID, GRAMMAR_POOL);
+        } catch (SAXNotRecognizedException e) {
+            Trace.trace(CLASS, method, e);
+            // ignore
+        } catch (SAXNotSupportedException e) {
+            Trace.trace(CLASS, method, e);
+            // ignore
+        }
+        return reader;
     }
 
     /**
@@ -166,6 +221,7 @@ public final class SaxParser {
         try {
             stream = new FileInputStream(in);
             final InputSource input = new InputSource(stream);
+            reader.setEntityResolver(new SaxEntityResolver(handler));
             reader.setErrorHandler(new SaxErrorHandler(plugin, original, exceptionList));
             handler.setUrl(original);
             deflt.setUrl(original);
@@ -194,6 +250,10 @@ public final class SaxParser {
             exceptionList.add(new SourceFileException(plugin, xml, handler.createSourceArea(), null));
             throw exceptionList;
         } finally {
+            // the SAX parser is reused, so we release our handlers
+            reader.setEntityResolver(EMPTY);
+            reader.setErrorHandler(EMPTY);
+            reader.setContentHandler(EMPTY);
             if (stream != null) {
                 try {
                     stream.close();
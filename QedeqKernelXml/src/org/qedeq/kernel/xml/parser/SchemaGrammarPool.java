@@ -0,0 +1,79 @@
+/* This file is part of the project "Hilbert II" - http://www.qedeq.org
+ *
+ * Copyright 2000-2014,  Michael Meyling <mime@qedeq.org>.
+ *
+ * "Hilbert II" is free software; you can redistribute
+ * it and/or modify it under the terms of the GNU General Public
+ * License as published by the Free Software Foundation; either
+ * version 2 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ */
+
+package org.qedeq.kernel.xml.parser;
+
+import org.apache.xerces.util.XMLGrammarPoolImpl;
+import org.apache.xerces.xni.grammars.Grammar;
+import org.apache.xerces.xni.grammars.XMLGrammarDescription;
+import org.apache.xerces.xni.grammars.XMLSchemaDescription;
+import org.qedeq.base.utility.EqualsUtility;
+
+
+/**
+ * Pool for compiled XML schema grammars. It is shared by all {@link SaxParser}s, so each XML
+ * schema is compiled only once. This class uses features specific for Xerces.
+ * <p>
+ * The QEDEQ schemas have no target namespace. So the grammars are identified by their schema
+ * location and not only by their namespace as the Xerces default does. The parser gets no
+ * initial grammars and must ask for the grammar of the schema location the document refers to.
+ * So unknown schema locations are still rejected by {@link SaxEntityResolver}. This class is
+ * thread safe.
+ *
+ * @author Michael Meyling
+ */
+final class SchemaGrammarPool extends XMLGrammarPoolImpl {
+
+    /** No grammars. */
+    private static final Grammar[] EMPTY = new Grammar[0];
+
+    /**
+     * Constructor.
+     */
+    SchemaGrammarPool() {
+        super();
+    }
+
+    public Grammar[] retrieveInitialGrammarSet(final String grammarType) {
+        return EMPTY;
+    }
+
+    public boolean equals(final XMLGrammarDescription desc1, final XMLGrammarDescription desc2) {
+        return super.equals(desc1, desc2)
+            && EqualsUtility.equals(getLocation(desc1), getLocation(desc2));
+    }
+
+    public int hashCode(final XMLGrammarDescription desc) {
+        final String location = getLocation(desc);
+        return super.hashCode(desc) ^ (location != null ? location.hashCode() : 0);
+    }
+
+    /**
+     * Get location of grammar. For XML schemas this is the first location hint of the document.
+     *
+     * @param   desc    Grammar description.
+     * @return  Location. Might be <code>null</code>.
+     */
+    private static String getLocation(final XMLGrammarDescription desc) {
+        if (desc instanceof XMLSchemaDescription) {
+            final String[] hints = ((XMLSchemaDescription) desc).getLocationHints();
+            if (hints != null && hints.length > 0) {
+                return hints[0];
+            }
+        }
+        return desc.getLiteralSystemId();
+    }
+
+}
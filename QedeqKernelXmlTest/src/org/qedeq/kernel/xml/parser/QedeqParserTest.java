@@ -14,8 +14,13 @@
  */
 package org.qedeq.kernel.xml.parser;
 
+import java.io.File;
+
+import org.qedeq.base.io.IoUtility;
 import org.qedeq.base.test.QedeqTestCase;
+import org.qedeq.base.utility.StringUtility;
 import org.qedeq.kernel.bo.test.DummyPlugin;
+import org.qedeq.kernel.se.common.SourceFileExceptionList;
 import org.qedeq.kernel.xml.handler.common.AbstractSimpleHandler;
 import org.qedeq.kernel.xml.handler.common.SaxDefaultHandler;
 import org.qedeq.kernel.xml.handler.common.SimpleAttributes;
@@ -103,4 +108,60 @@ public class QedeqParserTest extends QedeqTestCase {
             throw e;
         }
     }
+
+    /**
+     * Test parsing of documents with different XML schemas. The compiled schemas are shared
+     * by all parsers, but each document must be validated against its own schema.
+     *
+     * @throws  Exception   Something bad happened.
+     */
+    public void testParseSchemas() throws Exception {
+        parser1.parse(getFile("qedeq.xml"), null);
+        final StringBuffer text = new StringBuffer();
+        IoUtility.loadFile(getFile("qedeq.xml"), text, "UTF-8");
+        final int pos = text.indexOf("/xml/qedeq.xsd");
+        final String location = text.substring(text.lastIndexOf("\"", pos) + 1, pos);
+        final File operators = new File(getOutdir(), "schema/operators.xml");
+        IoUtility.saveFile(operators,
+            "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+            + "<parser xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\"\n"
+            + "    xsi:noNamespaceSchemaLocation=\"" + location + "/xml/parser.xsd\">\n"
+            + "  <prefixOperator startSymbol=\"~\" qedeq=\"NOT\" priority=\"110\" min=\"1\""
+            + " max=\"1\"/>\n"
+            + "</parser>\n", "UTF-8");
+        parser1.parse(operators, null);
+        // a QEDEQ module is no valid operator list
+        final File wrong = new File(getOutdir(), "schema/qedeq_parser.xml");
+        IoUtility.saveFile(wrong, StringUtility.replace(text.toString(),
+            "/xml/qedeq.xsd", "/xml/parser.xsd"), "UTF-8");
+        try {
+            parser1.parse(wrong, null);
+            fail("QEDEQ module must not be valid for the operator list schema");
+        } catch (SourceFileExceptionList e) {
+            // expected
+        }
+        parser1.parse(getFile("qedeq.xml"), null);
+    }
+
+    /**
+     * Test parsing of document with unknown XML schema location. Even if the QEDEQ schema
+     * was already compiled, the schema location must be resolved.
+     *
+     * @throws  Exception   Something bad happened.
+     */
+    public void testParseUnknownSchema() throws Exception {
+        parser2.parse(getFile("qedeq.xml"), null);
+        final StringBuffer text = new StringBuffer();
+        IoUtility.loadFile(getFile("qedeq.xml"), text, "UTF-8");
+        final File file = new File(getOutdir(), "schema/qedeq_unknown.xml");
+        IoUtility.saveFile(file, StringUtility.replace(text.toString(),
+            "/xml/qedeq.xsd", "/xml/unknown/qedeq.xsd"), "UTF-8");
+        try {
+            parser2.parse(file, null);
+            fail("unknown schema location must not be resolved");
+        } catch (SourceFileExceptionList e) {
+            // expected
+        }
+    }
+
 }